@@ -4,6 +4,12 @@ import atlantafx.base.controls.CustomTextField;
 import atlantafx.base.controls.Spacer;
 import atlantafx.base.theme.Styles;
 import atlantafx.base.theme.Tweaks;
+import com.fasterxml.jackson.databind.JsonNode;
+import enrollium.client.page.Page;
+import enrollium.client.page.database.*;
+import enrollium.rpc.client.ClientRPC;
+import enrollium.rpc.core.JsonUtils;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
@@ -18,13 +24,24 @@ import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.material2.Material2AL;
 import org.kordamp.ikonli.material2.Material2MZ;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 
 final class SearchDialog extends ModalDialog {
-    private final MainModel              model;
-    private       CustomTextField        searchField;
-    private       ListView<NavTree.Item> resultList;
+    // database page that lists each Search.query result type
+    private static final Map<String, Class<? extends Page>> RESULT_PAGES = Map.of( //
+            "Student", StudentPage.class, //
+            "Faculty", FacultyPage.class, //
+            "Subject", SubjectPage.class, //
+            "Section", SectionPage.class, //
+            "SpaceTime", SpaceTimePage.class);
+    private final        MainModel                          model;
+    private              CustomTextField                    searchField;
+    private              ListView<Result>                   resultList;
+    private volatile     String                             latestQuery;
 
     public SearchDialog(MainModel model) {
         super();
@@ -48,7 +65,7 @@ final class SearchDialog extends ModalDialog {
         searchField.setLeft(new FontIcon(Material2MZ.SEARCH));
         VBox.setVgrow(searchField, Priority.NEVER);
 
-        Consumer<NavTree.Item> clickHandler = item -> {
+        Consumer<Result> clickHandler = item -> {
             if (item.pageClass() != null) {
                 close();
                 model.navigate(item.pageClass());
@@ -67,11 +84,18 @@ final class SearchDialog extends ModalDialog {
     private void init() {
         searchField.textProperty().addListener((obs, old, val) -> {
             if (val == null || val.length() <= 2) {
+                latestQuery = null;
                 resultList.getItems().clear();
                 return;
             }
 
-            resultList.getItems().setAll(model.findPages(val));
+            // pages match instantly, database rows are appended when the server answers
+            List<Result> pages = model.findPages(val)
+                                      .stream()
+                                      .map(item -> new Result(item.getParent().getValue().title(), item.getValue().title(), item.pageClass()))
+                                      .toList();
+            resultList.getItems().setAll(pages);
+            searchDatabase(val, pages);
         });
 
         searchField.addEventFilter(KeyEvent.KEY_RELEASED, e -> {
@@ -90,16 +114,44 @@ final class SearchDialog extends ModalDialog {
         });
     }
 
+    private void searchDatabase(String query, List<Result> pages) {
+        latestQuery = query;
+
+        try {
+            ClientRPC.getInstance().call("Search.query", JsonUtils.createObject().put("query", query)).subscribe(response -> {
+                if (response.isError() || !query.equals(latestQuery)) return; // a newer query is already running
+
+                JsonNode     items   = response.getParams().get("items");
+                List<Result> results = new ArrayList<>(pages);
+                if (items != null && items.isArray()) {
+                    for (JsonNode item : items) {
+                        String type = item.get("type").asText();
+                        results.add(new Result(type, item.get("title").asText() + "  " + item.get("subtitle").asText(), RESULT_PAGES.get(type)));
+                    }
+                }
+
+                Platform.runLater(() -> {
+                    if (query.equals(latestQuery)) resultList.getItems().setAll(results);
+                });
+            }, error -> System.err.println("Search failed: " + error.getMessage()));
+        } catch (IllegalStateException e) {
+            // not connected yet, page search still works
+        }
+    }
+
     void begForFocus() {
         searchField.requestFocus();
     }
 
-    public static final class ResultListCell extends ListCell<NavTree.Item> {
+    // a navigation page or a database row, both open a page when picked
+    record Result(String group, String title, Class<? extends Page> pageClass) {}
+
+    public static final class ResultListCell extends ListCell<Result> {
         private final HBox  root;
         private final Label parentLabel;
         private final Label targetLabel;
 
-        public ResultListCell(Consumer<NavTree.Item> clickHandler) {
+        public ResultListCell(Consumer<Result> clickHandler) {
             super();
 
             parentLabel = new Label();
@@ -125,14 +177,14 @@ final class SearchDialog extends ModalDialog {
         }
 
         @Override
-        protected void updateItem(NavTree.Item item, boolean empty) {
+        protected void updateItem(Result item, boolean empty) {
             super.updateItem(item, empty);
 
             if (item == null || empty) {
                 setGraphic(null);
             } else {
-                parentLabel.setText(item.getParent().getValue().title());
-                targetLabel.setText(item.getValue().title());
+                parentLabel.setText(item.group());
+                targetLabel.setText(item.title());
                 setGraphic(root);
             }
         }
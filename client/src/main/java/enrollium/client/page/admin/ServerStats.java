@@ -11,6 +11,8 @@ import javafx.geometry.Insets;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.layout.VBox;
 import javafx.util.Duration;
 
@@ -21,7 +23,19 @@ public class ServerStats extends BasePage {
     private final       XYChart.Series<Number, Number> ramSeries     = new XYChart.Series<>();
     private final       XYChart.Series<Number, Number> diskSeries    = new XYChart.Series<>();
     private final       XYChart.Series<Number, Number> networkSeries = new XYChart.Series<>();
+    // database pool gauges and where an operation's time goes: waiting for a connection or running
+    private final       XYChart.Series<Number, Number> activeSeries  = new XYChart.Series<>();
+    private final       XYChart.Series<Number, Number> idleSeries    = new XYChart.Series<>();
+    private final       XYChart.Series<Number, Number> pendingSeries = new XYChart.Series<>();
+    private final       XYChart.Series<Number, Number> acquireSeries = new XYChart.Series<>();
+    private final       XYChart.Series<Number, Number> runSeries     = new XYChart.Series<>();
+    private final       ListView<String>               slowList      = new ListView<>();
     private             int                            time          = 1;
+    private             int                            dbTime        = 1;
+    // totals of the previous getDbStats, the chart shows the average per operation since then
+    private             long                           operations    = -1;
+    private             double                         acquireMillis;
+    private             double                         runMillis;
     private             Timeline                       timeline;
 
     public ServerStats() {
@@ -38,7 +52,16 @@ public class ServerStats extends BasePage {
         LineChart<Number, Number> diskChart    = createChart("Disk Usage (%)", diskSeries);
         LineChart<Number, Number> networkChart = createChart("Network Usage (KB)", networkSeries);
 
-        content.getChildren().addAll(cpuChart, ramChart, diskChart, networkChart);
+        LineChart<Number, Number> poolChart    = createChart("Database Connections", activeSeries, idleSeries, pendingSeries);
+        LineChart<Number, Number> dbTimeChart  = createChart("Database Time per Operation (ms)", acquireSeries, runSeries);
+        activeSeries.setName("Active");
+        idleSeries.setName("Idle");
+        pendingSeries.setName("Waiting threads");
+        acquireSeries.setName("Pool wait");
+        runSeries.setName("Execution");
+        slowList.setPrefHeight(200);
+
+        content.getChildren().addAll(cpuChart, ramChart, diskChart, networkChart, poolChart, dbTimeChart, new Label("Slow Statements"), slowList);
 
         addNode(content);
         fetchServerStats();
@@ -67,6 +90,25 @@ public class ServerStats extends BasePage {
         return chart;
     }
 
+    // several series on an auto-ranged y axis
+    @SafeVarargs
+    private LineChart<Number, Number> createChart(String title, XYChart.Series<Number, Number>... series) {
+        var xAxis = new NumberAxis();
+        xAxis.setLabel("Time (Seconds)");
+        xAxis.setForceZeroInRange(false);
+
+        var yAxis = new NumberAxis();
+        yAxis.setLabel(title);
+
+        var chart = new LineChart<>(xAxis, yAxis);
+        chart.setTitle(title);
+        chart.setMinHeight(250);
+        chart.setCreateSymbols(false);
+        chart.getData().addAll(series);
+
+        return chart;
+    }
+
     private void fetchServerStats() {
         ClientRPC client = ClientRPC.getInstance();
 
@@ -110,12 +152,49 @@ public class ServerStats extends BasePage {
                                                                                  } else {
                                                                                      System.err.println("Error fetching server stats: " + response.getErrorMessage());
                                                                                  }
-                                                                             })));
+                                                                             })),
+                                new KeyFrame(Duration.seconds(1), _ -> client.call("getDbStats", null).subscribe(response -> {
+                                    if (response.isError()) {
+                                        System.err.println("Error fetching database stats: " + response.getErrorMessage());
+                                        return;
+                                    }
+                                    Platform.runLater(() -> showDbStats(response.getParams()));
+                                })));
 
         timeline.setCycleCount(Timeline.INDEFINITE);
         timeline.play();
     }
 
+    private void showDbStats(JsonNode params) {
+        // the primary's pool comes first
+        JsonNode pool = params.get("pools").get(0);
+        add(activeSeries, dbTime, pool.get("active").asInt());
+        add(idleSeries, dbTime, pool.get("idle").asInt());
+        add(pendingSeries, dbTime, pool.get("pending").asInt());
+
+        long   count   = params.get("operations").asLong();
+        double acquire = params.get("acquireMillis").asDouble();
+        double run     = params.get("runMillis").asDouble();
+        if (operations >= 0 && count > operations) {
+            add(acquireSeries, dbTime, (acquire - acquireMillis) / (count - operations));
+            add(runSeries, dbTime, (run - runMillis) / (count - operations));
+        }
+        operations    = count;
+        acquireMillis = acquire;
+        runMillis     = run;
+
+        slowList.getItems().clear();
+        params.get("slow").forEach(statement -> slowList.getItems().add(String.format("%.0f ms  %s  binds=%d  %s", statement.get("millis").asDouble(), //
+                                                                                      statement.path("scope").asText("-"), statement.get("binds").asInt(), statement.get("shape").asText())));
+        dbTime++;
+    }
+
+    // keeps the last 30 points
+    private static void add(XYChart.Series<Number, Number> series, int time, Number value) {
+        if (series.getData().size() >= 30) series.getData().removeFirst();
+        series.getData().add(new XYChart.Data<>(time, value));
+    }
+
     @Override
     public TranslationKey getName() {
         return NAME;
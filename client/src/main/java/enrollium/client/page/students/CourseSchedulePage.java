@@ -9,6 +9,7 @@ import enrollium.design.system.i18n.TranslationKey;
 import enrollium.design.system.memory.Volatile;
 import enrollium.rpc.client.ClientRPC;
 import enrollium.rpc.core.JsonUtils;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import javafx.application.Platform;
 import javafx.concurrent.ScheduledService;
@@ -41,6 +42,9 @@ public class CourseSchedulePage extends BasePage {
     private static final double                          CELL_PADDING             = 5;
     private final        GridPane                        timetableGrid            = new GridPane();
     private final        Map<String, Color>              subjectColors            = new HashMap<>();
+    // every label showing a section, patched in place by Section.seats pushes
+    private final        Map<String, List<Label>>        sectionLabels            = new HashMap<>();
+    private              Set<String>                     subscribedSubjects       = Set.of();
     private              ScheduledService<TrimesterData> dataRefreshService;
     private              int                             currentCol               = 1;
 
@@ -48,6 +52,8 @@ public class CourseSchedulePage extends BasePage {
         addPageHeader();
         addNode(setupTimetable());
         setupDataRefresh();
+        listenForAllocation();
+        listenForSeats();
     }
 
     private ScrollPane setupTimetable() {
@@ -85,7 +91,8 @@ public class CourseSchedulePage extends BasePage {
             }
         };
 
-        dataRefreshService.setPeriod(Duration.seconds(8));
+        // seat counts arrive as pushes, the full reload only catches what they don't cover
+        dataRefreshService.setPeriod(Duration.seconds(30));
         dataRefreshService.setOnSucceeded(e -> updateUI(dataRefreshService.getValue()));
         dataRefreshService.setOnFailed(e -> showNotification("Failed to fetch data: " + e.getSource()
                                                                                          .getException()
@@ -95,10 +102,57 @@ public class CourseSchedulePage extends BasePage {
         this.sceneProperty().addListener((obs, oldScene, newScene) -> {
             if (newScene == null && dataRefreshService != null) {
                 dataRefreshService.cancel();
+                subscribe(Set.of());
             }
         });
     }
 
+    // preference trimesters push the allocated sections once selection closes
+    private void listenForAllocation() {
+        ClientRPC.getInstance().registerMethod("Course.allocated", params -> {
+            int placed = 0;
+            for (JsonNode course : params.path("courses")) if (course.has("sectionId")) placed++;
+
+            String           message = "Sections allocated: " + placed + " of " + params.path("courses").size() + " courses";
+            NotificationType type    = placed == params.path("courses").size() ? NotificationType.SUCCESS : NotificationType.WARNING;
+            Platform.runLater(() -> {
+                showNotification(message, type);
+                dataRefreshService.restart();
+            });
+            return Single.just(JsonUtils.createObject().put("status", "ok"));
+        });
+    }
+
+    // the server pushes the latest counts of subscribed subjects' sections, at most once per window
+    private void listenForSeats() {
+        ClientRPC.getInstance().registerMethod("Section.seats", params -> {
+            JsonNode sections = params.path("sections");
+            Platform.runLater(() -> {
+                for (JsonNode update : sections) {
+                    for (Label label : sectionLabels.getOrDefault(update.path("sectionId").asText(), List.of())) {
+                        Section section = (Section) label.getUserData();
+                        section.currentCapacity = update.path("currentCapacity").asInt(section.currentCapacity);
+                        section.maxCapacity     = update.path("maxCapacity").asInt(section.maxCapacity);
+                        label.setText(sectionText(section));
+                    }
+                }
+            });
+            return Single.just(JsonUtils.createObject().put("status", "ok"));
+        });
+    }
+
+    private void subscribe(Set<String> subjectIds) {
+        if (subjectIds.equals(subscribedSubjects)) return;
+        subscribedSubjects = subjectIds;
+
+        ObjectNode params = JsonUtils.createObject();
+        subjectIds.forEach(params.putArray("subjectIds")::add);
+        ClientRPC.getInstance()
+                 .call("Schedule.subscribe", params)
+                 .subscribeOn(Schedulers.io())
+                 .subscribe(_ -> {}, error -> Platform.runLater(() -> showNotification("Live seat counts unavailable: " + error.getMessage(), NotificationType.WARNING)));
+    }
+
     private TrimesterData fetchDataFromServer() {
         TrimesterData data = new TrimesterData();
         data.subjects = new ArrayList<>();
@@ -124,6 +178,7 @@ public class CourseSchedulePage extends BasePage {
             if (subjectsNode != null) {
                 for (JsonNode subjectNode : subjectsNode) {
                     Subject subject = new Subject();
+                    subject.subjectId   = subjectNode.path("subjectId").asText();
                     subject.subjectName = subjectNode.get("subjectName").asText();
                     subject.subjectCode = subjectNode.get("subjectCode").asText();
                     subject.subjectType = subjectNode.get("subjectType").asText();
@@ -147,6 +202,7 @@ public class CourseSchedulePage extends BasePage {
                                     section.maxCapacity     = sectionNode.get("maxCapacity").asInt();
                                     section.sectionId       = sectionNode.get("sectionId").asText();
                                     section.isRegistered    = sectionNode.get("isRegistered").asBoolean();
+                                    section.clashes         = sectionNode.path("clashes").asBoolean(false);
                                     day.sections.add(section);
                                 }
                             }
@@ -168,6 +224,7 @@ public class CourseSchedulePage extends BasePage {
             if (data != null && data.subjects != null) {
                 processSubjects(data.subjects);
                 updateAllRowHeights();
+                subscribe(data.subjects.stream().map(subject -> subject.subjectId).collect(Collectors.toSet()));
             } else {
                 showNotification("No schedule data available", NotificationType.INFO);
             }
@@ -203,6 +260,7 @@ public class CourseSchedulePage extends BasePage {
         setupRowConstraints(); // Re-add headers and timeslot rows
         setupTimeColumn();
         currentCol = 1;
+        sectionLabels.clear();
     }
 
     private void setupRowConstraints() {
@@ -402,18 +460,23 @@ public class CourseSchedulePage extends BasePage {
     }
 
     private Label createSectionLabel(Section section, String timeSlot, Subject course) {
-        String capacityText = String.format("%s (%d/%d)", section.sectionCode, section.currentCapacity, section.maxCapacity);
-
-        Label label = new Label(capacityText + (section.isRegistered ? " ★" : ""));
-        label.setStyle("-fx-background-color: " + toRgbaString(getSubjectColor(section.sectionId)) + "; " + "-fx-padding: 5; -fx-background-radius: 3;");
+        Label label = new Label(sectionText(section));
+        label.setUserData(section);
+        sectionLabels.computeIfAbsent(section.sectionId, _ -> new ArrayList<>()).add(label);
+        label.setStyle("-fx-background-color: " + toRgbaString(getSubjectColor(section.sectionId)) + "; " + "-fx-padding: 5; -fx-background-radius: 3;" + (section.clashes ? " -fx-opacity: 0.5;" : ""));
         label.setMaxWidth(Double.MAX_VALUE);
         label.setAlignment(Pos.CENTER);
-        label.setTooltip(new Tooltip("Time: " + timeSlot.replace('\n', ' ')));
+        label.setTooltip(new Tooltip("Time: " + timeSlot.replace('\n', ' ') + (section.clashes ? "\nClashes with a registered course" : "")));
 
         label.setOnMouseClicked(e -> handleSectionClick(section, course));
         return label;
     }
 
+    private static String sectionText(Section section) {
+        String capacityText = String.format("%s (%d/%d)", section.sectionCode, section.currentCapacity, section.maxCapacity);
+        return capacityText + (section.isRegistered ? " ★" : "") + (section.clashes ? " ⚠" : "");
+    }
+
     private void handleSectionClick(Section section, Subject course) {
         ObjectNode params = JsonUtils.createObject()
                                      .put("courseId", course.courseId)
@@ -515,6 +578,7 @@ public class CourseSchedulePage extends BasePage {
 
 
     private static class Subject {
+        String    subjectId;
         String    subjectName;
         String    subjectCode;
         String    subjectType;
@@ -534,6 +598,7 @@ public class CourseSchedulePage extends BasePage {
         int     timeSlot;
         String  sectionId;
         boolean isRegistered;
+        boolean clashes;
         int     currentCapacity;
         int     maxCapacity;
     }
@@ -37,6 +37,7 @@ public class ServerRPC implements AutoCloseable, MessageHandler {
     private final           RateLimiter                                                  rateLimiter;
     private final           int                                                          port;
     private volatile        boolean                                                      running            = true;
+    private volatile        BiFunction<String, Single<JsonNode>, Single<JsonNode>>       interceptor        = (method, call) -> call;
     private                 ServerSocket                                                 serverSocket;
 
     private ServerRPC(int port) {
@@ -163,10 +164,10 @@ public class ServerRPC implements AutoCloseable, MessageHandler {
         if (handler == null)
             return Single.just(Response.error(request.getId(), "Unknown method: " + request.getMethod()));
 
-        // Execute handler
-        return handler.apply(request.getParams(), request)
-                      .map(result -> Response.success(request.getId(), result))
-                      .onErrorReturn(error -> Response.error(request.getId(), error.getMessage()));
+        // Execute handler (deferred so the interceptor sees all of its work)
+        return interceptor.apply(request.getMethod(), Single.defer(() -> handler.apply(request.getParams(), request)))
+                          .map(result -> Response.success(request.getId(), result))
+                          .onErrorReturn(error -> Response.error(request.getId(), error.getMessage()));
     }
 
     @Override
@@ -187,6 +188,13 @@ public class ServerRPC implements AutoCloseable, MessageHandler {
         methodHandlers.put(method, handler);
     }
 
+    /**
+     * Wraps every handler invocation with the method name, e.g. for per-method metrics.
+     */
+    public void setInterceptor(BiFunction<String, Single<JsonNode>, Single<JsonNode>> interceptor) {
+        this.interceptor = interceptor;
+    }
+
     /**
      * Sends a request to a specific session.
      */
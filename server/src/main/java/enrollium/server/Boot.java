@@ -0,0 +1,50 @@
+package enrollium.server;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.functions.Action;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/* Boot phases and how long each took
+ *
+ * Boot.phase(name, action): runs the action on the io scheduler when subscribed and records when it started and how
+ * long it ran, both relative to JVM start; phases merged together run in parallel
+ * Boot.ready() is called once the socket is open: it logs every phase and the time to ready, health reports them
+ */
+@Slf4j
+public class Boot {
+    private static final    long        JVM_START   = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final    List<Phase> phases      = new CopyOnWriteArrayList<>();
+    private static volatile long        readyMillis = -1;
+
+    public static Completable phase(String name, Action action) {
+        return Completable.defer(() -> {
+            long startedAt = System.currentTimeMillis() - JVM_START;
+            long started   = System.nanoTime();
+            return Completable.fromAction(action).doOnComplete(() -> phases.add(new Phase(name, startedAt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))));
+        }).subscribeOn(Schedulers.io());
+    }
+
+    public static void ready() {
+        readyMillis = System.currentTimeMillis() - JVM_START;
+        phases.forEach(phase -> log.info("Boot phase {}: started at {} ms, took {} ms", phase.name(), phase.startedAt(), phase.millis()));
+        log.info("Ready for requests {} ms after JVM start", readyMillis);
+    }
+
+    // -1 until ready
+    public static long readyMillis() {
+        return readyMillis;
+    }
+
+    // in the order they finished
+    public static List<Phase> phases() {
+        return List.copyOf(phases);
+    }
+
+    public record Phase(String name, long startedAt, long millis) {}
+}
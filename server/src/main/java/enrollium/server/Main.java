@@ -11,53 +11,132 @@ import enrollium.rpc.core.Request;
 import enrollium.rpc.core.SessionInfo;
 import enrollium.rpc.server.ServerRPC;
 import enrollium.rpc.server.SessionManager;
+import enrollium.server.db.ChangeFeed;
+import enrollium.server.db.CsvImport;
 import enrollium.server.db.DB;
+import enrollium.server.db.DbScheduler;
+import enrollium.server.db.DbTelemetry;
+import enrollium.server.db.Eligibility;
+import enrollium.server.db.LoadGenerator;
+import enrollium.server.db.Page;
+import enrollium.server.db.PrerequisiteGraph;
+import enrollium.server.db.RefCache;
+import enrollium.server.db.Replicas;
+import enrollium.server.db.RoutineGenerator;
+import enrollium.server.db.ScheduleMask;
+import enrollium.server.db.SeatFeed;
+import enrollium.server.db.SeatLedger;
+import enrollium.server.db.SectionAllocator;
+import enrollium.server.db.SectionCatalog;
+import enrollium.server.db.StatementStats;
+import enrollium.server.db.Warmup;
+import enrollium.server.db.WriteBatcher;
 import enrollium.server.db.entity.*;
 import enrollium.server.db.entity.types.*;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import oshi.SystemInfo;
 import oshi.hardware.CentralProcessor;
 import oshi.hardware.GlobalMemory;
 import oshi.hardware.NetworkIF;
 
+import java.lang.management.ManagementFactory;
 import java.security.SecureRandom;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Slf4j
 public class Main {
-    private static final Random         random        = new Random();
-    private static final SecureRandom   secureRandom  = new SecureRandom();
-    private static final CountDownLatch shutdownLatch = new CountDownLatch(1);
-    private static final String         ADMIN         = "admin";
-    private static final String         ADMIN_EMAIL   = "admin@uiu.ac.bd";
-    private static final String         STUDENT_EMAIL = "demo.student@uiu.ac.bd";
+    private static final Random         random                 = new Random();
+    private static final SecureRandom   secureRandom           = new SecureRandom();
+    private static final CountDownLatch shutdownLatch          = new CountDownLatch(1);
+    private static final String         ADMIN                  = "admin";
+    private static final String         ADMIN_EMAIL            = "admin@uiu.ac.bd";
+    private static final String         STUDENT_EMAIL          = "demo.student@uiu.ac.bd";
+    private static final long           SEAT_RECONCILE_MINUTES = 10;
+    // production keeps the data as it is: no reset, no seed, no demo users
+    private static final boolean        PRODUCTION             = "production".equals(System.getenv("BOOT_MODE"));
+    private static final String         SUBJECT_TAG            = "subject:";
+    // select lists for the projected getAll handlers, "e" is the root entity
+    private static final String         COURSE_SELECT          = "e.id, e.version, st.id, st.name, su.id, su.name, t.id, t.code, e.status, sec.id, sec.name, e.grade";
+    private static final String         COURSE_JOINS           = "JOIN e.student st JOIN e.subject su JOIN e.trimester t LEFT JOIN e.section sec";
+    private static final String         SECTION_SELECT         = "e.id, e.name, e.section, su.id, su.name, e.trimester.id, e.maxCapacity, e.seatsTaken";
+    private static final String         SECTION_JOINS          = "JOIN e.subject su";
+    private static final Set<String>    SYNC_TYPES             = Set.of("Course", "Section", "Student");
+
+    // read-only projections, component order matches the select list
+    private record FacultyRow(UUID id, String name, String email, String shortcode, UserType type) {}
+
+    private record StudentRow(UUID id, String name, String email, Integer universityId) {}
+
+    private record SubjectRow(UUID id, String name, String codeName, Integer credits, SubjectType type) {}
+
+    private record PrerequisiteRow(UUID id, UUID subjectId, String subjectName, UUID prerequisiteId, String prerequisiteName, Double minimumGrade) {}
+
+    private record CourseRow(UUID id, Long version, UUID studentId, String studentName, UUID subjectId, String subjectName, UUID trimesterId, Integer trimesterCode,
+                             CourseStatus status, UUID sectionId, String sectionName, Double grade) {}
+
+    private record SectionRow(UUID id, String name, String section, UUID subjectId, String subjectName, UUID trimesterId, Integer maxCapacity, Integer currentCapacity) {}
+
+    private record SlotRow(UUID sectionId, UUID id, String name, String roomNumber, DayOfWeek dayOfWeek, Integer timeSlot) {}
+
+    private record TeacherRow(UUID sectionId, UUID id, String name, String shortcode) {}
+
+    private record IdName(UUID id, String name) {}
+
+    private record IdCode(UUID id, Integer code) {}
+
+    // what generateRoutines reads before it searches: the open course rows and the options of each, in the same order
+    private record RoutineInput(UUID trimesterId, List<Object[]> open, long fixed, List<List<RoutineGenerator.Option>> options) {}
 
     public static void main(String[] args) {
         Issue.print(log);
         log.info("[VERSION]: {}", Version.getVersion());
 
+        // the database side and the handlers don't need each other, the socket opens once both are done
+        ServerRPC.initialize();
+        ServerRPC server = ServerRPC.getInstance();
         try {
-            DB.resetAndSeed().blockingAwait();
-            log.info("Database reset and seed completed");
+            Completable.mergeArray(bootDatabase(), Boot.phase("handlers", () -> {
+                registerMethods(server);
+                // statement count, rows and N+1 warnings per RPC call
+                server.setInterceptor(StatementStats::track);
+            })).blockingAwait();
         } catch (Exception e) {
-            log.error("Failed to reset and seed database", e);
-            throw new RuntimeException("Database reset failed", e);
+            log.error("Failed to boot", e);
+            throw new RuntimeException("Boot failed", e);
         }
 
-        // Create demo user if it doesn't exist
-        createDemoUserIfNeeded();
+        // Repair seat counts drifted by admin course edits
+        Observable.interval(SEAT_RECONCILE_MINUTES, SEAT_RECONCILE_MINUTES, TimeUnit.MINUTES)
+                  .flatMapSingle(_ -> DB.reconcileSeats().onErrorResumeNext(error -> {
+                      // one failed pass must not end the interval, the next tick tries again
+                      log.error("Seat reconciliation failed: {}", error.getMessage());
+                      return Single.just(0);
+                  }))
+                  .subscribe(fixed -> {
+                      if (fixed > 0) log.warn("Seat reconciliation fixed {} sections", fixed);
+                  }, error -> log.error("Seat reconciliation stopped: {}", error.getMessage()));
+
+        // Seat counts pushed to schedule viewers, coalesced per window
+        SeatFeed.start(Main::pushSeats);
 
         // Add shutdown hook for graceful termination
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
                 log.info("Initiating server shutdown...");
+                SeatFeed.stop();
+                if (SeatLedger.current() != null) SeatLedger.current().close();
                 shutdownLatch.countDown();
             } catch (Exception e) {
                 log.warn("Exception during shutdown: {}", e.getMessage());
@@ -66,11 +145,9 @@ public class Main {
             }
         }));
 
-        ServerRPC.initialize();
-        try (ServerRPC server = ServerRPC.getInstance()) {
-            registerMethods(server);
-
+        try (server) {
             server.start();
+            Boot.ready();
             log.info("Server is running. Press Ctrl+C to exit.");
 
             // Wait for shutdown signal
@@ -85,13 +162,39 @@ public class Main {
         }
     }
 
+    // SessionFactory (migrations, pool), then the demo data unless BOOT_MODE=production, then every warm-up in parallel
+    private static Completable bootDatabase() {
+        Completable data = Boot.phase("seed", () -> {
+            // SEED_SCALE=1 boots into ~50k students for load tests instead of the demo data, same SEED_RANDOM same rows
+            String scale = System.getenv("SEED_SCALE");
+            if (scale != null) LoadGenerator.seed(Double.parseDouble(scale), Long.parseLong(System.getenv().getOrDefault("SEED_RANDOM", "42"))).blockingGet();
+            else DB.resetAndSeed().blockingAwait();
+            log.info("Database reset and seed completed");
+        }).andThen(Boot.phase("demoUsers", Main::createDemoUserIfNeeded));
+
+        return Boot.phase("sessionFactory", DB::getSessionFactory)
+                   .andThen(PRODUCTION ? Completable.complete() : data)
+                   .andThen(Completable.mergeArray(Boot.phase("pool", Warmup::pool), //
+                                                   Boot.phase("references", Warmup::references), //
+                                                   Boot.phase("prerequisites", Warmup::prerequisites), //
+                                                   Boot.phase("sections", Warmup::sections), //
+                                                   Boot.phase("seatLedger", Main::startSeatLedger)));
+    }
+
+    // Authoritative in-memory seat counts for section selection, opt-in
+    private static void startSeatLedger() {
+        if (!SeatLedger.ENABLED) return;
+        try {
+            SeatLedger.start();
+        } catch (Exception e) {
+            log.error("Seat ledger failed to start, registrations use the database: {}", e.getMessage());
+        }
+    }
+
     private static void createDemoUserIfNeeded() {
         try {
             // Check if admin already exists
-            boolean adminExists = DB.read(Faculty.class, 1, 0)
-                                    .filter(f -> ADMIN_EMAIL.equals(f.getEmail()))
-                                    .count()
-                                    .blockingGet() > 0;
+            boolean adminExists = DB.query(User.class).where("email", ADMIN_EMAIL).count().blockingGet() > 0;
 
             if (!adminExists) {
                 // Ensure deletion is complete before creating a new admin
@@ -112,10 +215,7 @@ public class Main {
                 log.info("Created admin user with email: {} password: \"{}\"", ADMIN_EMAIL, adminPassword);
             }
 
-            boolean studentExists = DB.read(Student.class, 1, 0)
-                                      .filter(s -> STUDENT_EMAIL.equals(s.getEmail()))
-                                      .count()
-                                      .blockingGet() > 0;
+            boolean studentExists = DB.query(User.class).where("email", STUDENT_EMAIL).count().blockingGet() > 0;
 
             if (!studentExists) {
                 // Ensure deletion is complete before creating a new demo student
@@ -152,11 +252,9 @@ public class Main {
                 if (!(email != null && password != null && !email.trim().isEmpty() && !password.trim().isEmpty()))
                     return Single.error(new IllegalArgumentException("Invalid credentials"));
 
-                int size = Math.toIntExact(DB.count(User.class).blockingGet());
-
-                return DB.read(User.class, size, 0)
-                         .filter(user -> email.equals(user.getEmail()))
-                         .firstElement()
+                return DB.query(User.class)
+                         .where("email", email)
+                         .first()
                          .toSingle()
                          .flatMap(user -> {
                              if (!user.verifyPassword(password)) {
@@ -192,7 +290,10 @@ public class Main {
             ObjectNode response = JsonUtils.createObject()
                                            .put("serverVersion", Version.getVersion())
                                            .put("status", "ok")
-                                           .put("serverTime", System.currentTimeMillis());
+                                           .put("serverTime", System.currentTimeMillis())
+                                           .put("readyMillis", Boot.readyMillis());
+            ArrayNode boot = response.putArray("boot");
+            Boot.phases().forEach(phase -> boot.addObject().put("name", phase.name()).put("startedAt", phase.startedAt()).put("millis", phase.millis()));
 
             return Single.just(response);
         });
@@ -227,25 +328,16 @@ public class Main {
 
         server.registerMethod("Faculty.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Faculty.class, limit, offset)
+                return projectPage(Faculty.class, "e.id, e.name, e.email, e.shortcode, e.type", "", FacultyRow.class, params, "createdAt", true, limit)
+                         .map(page -> pageResponse(page, faculty -> JsonUtils.createObject()
+                                                                             .put("id", faculty.id().toString())
+                                                                             .put("name", faculty.name())
+                                                                             .put("email", faculty.email())
+                                                                             .put("shortcode", faculty.shortcode())
+                                                                             .put("type", faculty.type().toString())))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(faculty -> JsonUtils.createObject()
-                                                  .put("id", faculty.getId().toString())
-                                                  .put("name", faculty.getName())
-                                                  .put("email", faculty.getEmail())
-                                                  .put("shortcode", faculty.getShortcode())
-                                                  .put("type", faculty.getType().toString()))
-                         .collect(ArrayList::new, ArrayList::add)
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch faculty list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -255,15 +347,15 @@ public class Main {
         server.registerMethod("Faculty.getById", (params, _) -> Single.defer(() -> {
             try {
                 String id = JsonUtils.getString(params, "id");
-                return DB.findById(Faculty.class, UUID.fromString(id))
-                         .map(faculty -> JsonUtils.createObject()
-                                                  .put("id", faculty.getId().toString())
-                                                  .put("name", faculty.getName())
-                                                  .put("email", faculty.getEmail())
-                                                  .put("shortcode", faculty.getShortcode())
-                                                  .put("type", faculty.getType().toString()))
-                         .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Faculty not found")))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find faculty: " + error.getMessage())));
+                return RefCache.find(Faculty.class, UUID.fromString(id))
+                               .map(faculty -> JsonUtils.createObject()
+                                                        .put("id", faculty.getId().toString())
+                                                        .put("name", faculty.getName())
+                                                        .put("email", faculty.getEmail())
+                                                        .put("shortcode", faculty.getShortcode())
+                                                        .put("type", faculty.getType().toString()))
+                               .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Faculty not found")))
+                               .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find faculty: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid faculty ID: " + e.getMessage()));
             }
@@ -276,7 +368,7 @@ public class Main {
                 String email     = JsonUtils.getString(params, "email");
                 String shortcode = JsonUtils.getString(params, "shortcode");
 
-                return DB.findById(Faculty.class, UUID.fromString(id))
+                return DB.findOnPrimary(Faculty.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(faculty -> {
                              faculty.setName(name);
@@ -330,8 +422,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Faculty.class, limit, offset)
-                         .filter(faculty -> faculty.getName().toLowerCase().contains(name.toLowerCase()))
+                return DB.search(Faculty.class, name, limit, offset, "name")
                          .map(faculty -> JsonUtils.createObject()
                                                   .put("id", faculty.getId().toString())
                                                   .put("name", faculty.getName())
@@ -358,8 +449,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Faculty.class, limit, offset)
-                         .filter(faculty -> faculty.getEmail().toLowerCase().contains(email.toLowerCase()))
+                return DB.search(Faculty.class, email, limit, offset, "email")
                          .map(faculty -> JsonUtils.createObject()
                                                   .put("id", faculty.getId().toString())
                                                   .put("name", faculty.getName())
@@ -408,24 +498,11 @@ public class Main {
 
         server.registerMethod("Student.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Student.class, limit, offset)
+                return projectPage(Student.class, "e.id, e.name, e.email, e.universityId", "", StudentRow.class, params, "createdAt", true, limit)
+                         .map(page -> pageResponse(page, Main::buildStudentJson))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(student -> JsonUtils.createObject()
-                                                  .put("id", student.getId().toString())
-                                                  .put("name", student.getName())
-                                                  .put("email", student.getEmail())
-                                                  .put("universityId", student.getUniversityId().toString()))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch student list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -454,7 +531,7 @@ public class Main {
                 String name  = JsonUtils.getString(params, "name");
                 String email = JsonUtils.getString(params, "email");
 
-                return DB.findById(Student.class, UUID.fromString(id))
+                return DB.findOnPrimary(Student.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(student -> {
                              student.setName(name);
@@ -506,8 +583,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Student.class, limit, offset)
-                         .filter(student -> student.getName().toLowerCase().contains(name.toLowerCase()))
+                return DB.search(Student.class, name, limit, offset, "name")
                          .map(student -> JsonUtils.createObject()
                                                   .put("id", student.getId().toString())
                                                   .put("name", student.getName())
@@ -533,8 +609,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Student.class, limit, offset)
-                         .filter(student -> student.getEmail().toLowerCase().contains(email.toLowerCase()))
+                return DB.search(Student.class, email, limit, offset, "email")
                          .map(student -> JsonUtils.createObject()
                                                   .put("id", student.getId().toString())
                                                   .put("name", student.getName())
@@ -554,19 +629,10 @@ public class Main {
             }
         }));
 
-        server.registerMethod("Student.list", (_, _) -> Single.defer(() -> DB.read(Student.class, 1000, 0)
-                                                                             .map(student -> JsonUtils.createObject()
-                                                                                                      .put("id", student.getId()
-                                                                                                                        .toString())
-                                                                                                      .put("name", student.getName()))
-                                                                             .collect(ArrayList::new, (list, item) -> list.add(item))
-                                                                             .map(list -> {
-                                                                                 ObjectNode response = JsonUtils.createObject();
-                                                                                 ArrayNode  items    = JsonUtils.createArray();
-                                                                                 list.forEach(item -> items.add((JsonNode) item));
-                                                                                 response.set("items", items);
-                                                                                 return response;
-                                                                             })));
+        server.registerMethod("Student.list", (_, _) -> Single.defer(() -> DB.project("SELECT e.id, e.name FROM Student e", IdName.class, Map.of(), 1000, 0)
+                                                                             .map(rows -> pageResponse(new Page<>(rows, null), student -> JsonUtils.createObject()
+                                                                                                                                           .put("id", student.id().toString())
+                                                                                                                                           .put("name", student.name())))));
 
         // Subject methods
         server.registerMethod("Subject.create", (params, _) -> Single.defer(() -> {
@@ -597,25 +663,16 @@ public class Main {
 
         server.registerMethod("Subject.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Subject.class, limit, offset)
+                return projectPage(Subject.class, "e.id, e.name, e.codeName, e.credits, e.type", "", SubjectRow.class, params, "createdAt", true, limit)
+                         .map(page -> pageResponse(page, subject -> JsonUtils.createObject()
+                                                                             .put("id", subject.id().toString())
+                                                                             .put("name", subject.name())
+                                                                             .put("codeName", subject.codeName())
+                                                                             .put("credits", subject.credits())
+                                                                             .put("type", subject.type().toString())))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(subject -> JsonUtils.createObject()
-                                                  .put("id", subject.getId().toString())
-                                                  .put("name", subject.getName())
-                                                  .put("codeName", subject.getCodeName())
-                                                  .put("credits", subject.getCredits())
-                                                  .put("type", subject.getType().toString()))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch subject list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -661,7 +718,7 @@ public class Main {
                 int         credits  = JsonUtils.getInt(params, "credits");
                 SubjectType type     = SubjectType.valueOf(JsonUtils.getString(params, "type"));
 
-                return DB.findById(Subject.class, UUID.fromString(id))
+                return DB.findOnPrimary(Subject.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(subject -> {
                              subject.setName(name);
@@ -716,8 +773,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Subject.class, limit, offset)
-                         .filter(subject -> subject.getName().toLowerCase().contains(name.toLowerCase()))
+                return DB.search(Subject.class, name, limit, offset, "name")
                          .map(subject -> JsonUtils.createObject()
                                                   .put("id", subject.getId().toString())
                                                   .put("name", subject.getName())
@@ -744,8 +800,7 @@ public class Main {
                 int    limit    = JsonUtils.getInt(params, "limit");
                 int    offset   = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Subject.class, limit, offset)
-                         .filter(subject -> subject.getCodeName().toLowerCase().contains(codeName.toLowerCase()))
+                return DB.search(Subject.class, codeName, limit, offset, "codeName")
                          .map(subject -> JsonUtils.createObject()
                                                   .put("id", subject.getId().toString())
                                                   .put("name", subject.getName())
@@ -766,19 +821,10 @@ public class Main {
             }
         }));
 
-        server.registerMethod("Subject.list", (_, _) -> Single.defer(() -> DB.read(Subject.class, 1000, 0)
-                                                                             .map(subject -> JsonUtils.createObject()
-                                                                                                      .put("id", subject.getId()
-                                                                                                                        .toString())
-                                                                                                      .put("name", subject.getName()))
-                                                                             .collect(ArrayList::new, (list, item) -> list.add(item))
-                                                                             .map(list -> {
-                                                                                 ObjectNode response = JsonUtils.createObject();
-                                                                                 ArrayNode  items    = JsonUtils.createArray();
-                                                                                 list.forEach(item -> items.add((JsonNode) item));
-                                                                                 response.set("items", items);
-                                                                                 return response;
-                                                                             })));
+        server.registerMethod("Subject.list", (_, _) -> Single.defer(() -> DB.project("SELECT e.id, e.name FROM Subject e", IdName.class, Map.of(), 1000, 0)
+                                                                             .map(rows -> pageResponse(new Page<>(rows, null), subject -> JsonUtils.createObject()
+                                                                                                                                           .put("id", subject.id().toString())
+                                                                                                                                           .put("name", subject.name())))));
 
         // Prerequisite methods
         server.registerMethod("Prerequisite.create", (params, _) -> Single.defer(() -> {
@@ -787,26 +833,26 @@ public class Main {
                 String prerequisiteId = JsonUtils.getString(params, "prerequisiteId");
                 double minimumGrade   = JsonUtils.getDouble(params, "minimumGrade");
 
-                return DB.findById(Subject.class, UUID.fromString(subjectId))
-                         .toSingle()
-                         .flatMap(subject -> DB.findById(Subject.class, UUID.fromString(prerequisiteId))
-                                               .toSingle()
-                                               .map(prereq -> {
-                                                   Prerequisite prerequisite = new Prerequisite();
-                                                   prerequisite.setSubject(subject);
-                                                   prerequisite.setPrerequisite(prereq);
-                                                   prerequisite.setMinimumGrade(minimumGrade);
-                                                   return prerequisite;
-                                               }))
-                         .flatMap(DB::save)
-                         .map(saved -> JsonUtils.createObject()
-                                                .put("id", saved.getId().toString())
-                                                .put("subjectId", saved.getSubject().getId().toString())
-                                                .put("subjectName", saved.getSubject().getName())
-                                                .put("prerequisiteId", saved.getPrerequisite().getId().toString())
-                                                .put("prerequisiteName", saved.getPrerequisite().getName())
-                                                .put("minimumGrade", saved.getMinimumGrade()))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to create prerequisite: " + error.getMessage())));
+                return RefCache.find(Subject.class, UUID.fromString(subjectId))
+                               .toSingle()
+                               .flatMap(subject -> RefCache.find(Subject.class, UUID.fromString(prerequisiteId))
+                                                           .toSingle()
+                                                           .map(prereq -> {
+                                                               Prerequisite prerequisite = new Prerequisite();
+                                                               prerequisite.setSubject(subject);
+                                                               prerequisite.setPrerequisite(prereq);
+                                                               prerequisite.setMinimumGrade(minimumGrade);
+                                                               return prerequisite;
+                                                           }))
+                               .flatMap(DB::save)
+                               .map(saved -> JsonUtils.createObject()
+                                                      .put("id", saved.getId().toString())
+                                                      .put("subjectId", saved.getSubject().getId().toString())
+                                                      .put("subjectName", saved.getSubject().getName())
+                                                      .put("prerequisiteId", saved.getPrerequisite().getId().toString())
+                                                      .put("prerequisiteName", saved.getPrerequisite().getName())
+                                                      .put("minimumGrade", saved.getMinimumGrade()))
+                               .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to create prerequisite: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid prerequisite data: " + e.getMessage()));
             }
@@ -814,26 +860,17 @@ public class Main {
 
         server.registerMethod("Prerequisite.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Prerequisite.class, limit, offset)
+                return projectPage(Prerequisite.class, "e.id, su.id, su.name, pr.id, pr.name, e.minimumGrade", "JOIN e.subject su JOIN e.prerequisite pr", PrerequisiteRow.class, params, "createdAt", true, limit)
+                         .map(page -> pageResponse(page, prereq -> JsonUtils.createObject()
+                                                                            .put("id", prereq.id().toString())
+                                                                            .put("subjectId", prereq.subjectId().toString())
+                                                                            .put("subjectName", prereq.subjectName())
+                                                                            .put("prerequisiteId", prereq.prerequisiteId().toString())
+                                                                            .put("prerequisiteName", prereq.prerequisiteName())
+                                                                            .put("minimumGrade", prereq.minimumGrade())))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(prereq -> JsonUtils.createObject()
-                                                 .put("id", prereq.getId().toString())
-                                                 .put("subjectId", prereq.getSubject().getId().toString())
-                                                 .put("subjectName", prereq.getSubject().getName())
-                                                 .put("prerequisiteId", prereq.getPrerequisite().getId().toString())
-                                                 .put("prerequisiteName", prereq.getPrerequisite().getName())
-                                                 .put("minimumGrade", prereq.getMinimumGrade()))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch prerequisites list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -863,7 +900,7 @@ public class Main {
                 String id           = JsonUtils.getString(params, "id");
                 double minimumGrade = JsonUtils.getDouble(params, "minimumGrade");
 
-                return DB.findById(Prerequisite.class, UUID.fromString(id))
+                return DB.findOnPrimary(Prerequisite.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(prerequisite -> {
                              prerequisite.setMinimumGrade(minimumGrade);
@@ -913,11 +950,15 @@ public class Main {
         server.registerMethod("Prerequisite.getBySubject", (params, _) -> Single.defer(() -> {
             try {
                 String subjectId = JsonUtils.getString(params, "subjectId");
+                if (params.path("transitive").asBoolean(false)) return prerequisiteChain(UUID.fromString(subjectId));
+
                 int    limit     = JsonUtils.getInt(params, "limit");
                 int    offset    = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Prerequisite.class, limit, offset)
-                         .filter(prereq -> prereq.getSubject().getId().equals(UUID.fromString(subjectId)))
+                return DB.query(Prerequisite.class)
+                         .where("subject.id", UUID.fromString(subjectId))
+                         .page(limit, offset)
+                         .list()
                          .map(prereq -> JsonUtils.createObject()
                                                  .put("id", prereq.getId().toString())
                                                  .put("prerequisiteId", prereq.getPrerequisite().getId().toString())
@@ -951,9 +992,9 @@ public class Main {
 
                 // First, load all required entities
                 Single<Student> studentSingle = DB.findById(Student.class, UUID.fromString(studentId)).toSingle();
-                Single<Subject> subjectSingle = DB.findById(Subject.class, UUID.fromString(subjectId)).toSingle();
-                Single<Trimester> trimesterSingle = DB.findById(Trimester.class, UUID.fromString(trimesterId))
-                                                      .toSingle();
+                Single<Subject> subjectSingle = RefCache.find(Subject.class, UUID.fromString(subjectId)).toSingle();
+                Single<Trimester> trimesterSingle = RefCache.find(Trimester.class, UUID.fromString(trimesterId))
+                                                            .toSingle();
 
                 // Load section if provided
                 Single<Section> sectionSingle = sectionId != null
@@ -967,6 +1008,7 @@ public class Main {
                                  course.setSubject(subject);
                                  course.setTrimester(trimester);
                                  course.setStatus(status);
+                                 if (status == CourseStatus.SELECTED || status == CourseStatus.REGISTERED) requireEligible(student.getId(), subject);
 
                                  // Set section based on status
                                  if (status != CourseStatus.SELECTED) {
@@ -989,7 +1031,15 @@ public class Main {
 
                                  return course;
                              })
-                             .flatMap(DB::save)
+                             // a registered course takes its seat in the same transaction
+                             .flatMap(course -> DB.batched("Course.create", session -> {
+                                 Section wanted = course.getStatus() == CourseStatus.REGISTERED ? course.getSection() : null;
+                                 requireOutsideLedger(null, wanted == null ? null : wanted.getId());
+                                 moveSeat(session, course, null, wanted);
+                                 session.persist(course);
+                                 Eligibility.savedOnCommit(session, course);
+                                 return course;
+                             }))
                              .map(saved -> {
                                  ObjectNode response = JsonUtils.createObject()
                                                                 .put("id", saved.getId().toString())
@@ -1021,43 +1071,11 @@ public class Main {
 
         server.registerMethod("Course.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Course.class, limit, offset)
+                return projectPage(Course.class, COURSE_SELECT, COURSE_JOINS, CourseRow.class, params, "createdAt", true, limit)
+                         .map(page -> pageResponse(page, Main::buildCourseJson))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(course -> {
-                             ObjectNode courseObj = JsonUtils.createObject()
-                                                             .put("id", course.getId().toString())
-                                                             .put("version", course.getVersion())
-                                                             .put("studentId", course.getStudent().getId().toString())
-                                                             .put("studentName", course.getStudent().getName())
-                                                             .put("subjectId", course.getSubject().getId().toString())
-                                                             .put("subjectName", course.getSubject().getName())
-                                                             .put("trimesterId", course.getTrimester()
-                                                                                       .getId()
-                                                                                       .toString())
-                                                             .put("trimesterCode", course.getTrimester().getCode())
-                                                             .put("status", course.getStatus().toString());
-
-                             if (course.getSection() != null) {
-                                 courseObj.put("sectionId", course.getSection().getId().toString());
-                                 courseObj.put("sectionName", course.getSection().getName());
-                             }
-                             if (course.getGrade() != null) {
-                                 courseObj.put("grade", course.getGrade());
-                             }
-
-                             return courseObj;
-                         })
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch course list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -1110,16 +1128,16 @@ public class Main {
                 Double grade     = params.has("grade") ? JsonUtils.getDouble(params, "grade") : null;
 
                 // Load the existing course first
-                return DB.findById(Course.class, UUID.fromString(id))
+                return DB.findOnPrimary(Course.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(course -> {
                              // Load all required entities
                              Single<Student> studentSingle = DB.findById(Student.class, UUID.fromString(studentId))
                                                                .toSingle();
-                             Single<Subject> subjectSingle = DB.findById(Subject.class, UUID.fromString(subjectId))
-                                                               .toSingle();
-                             Single<Trimester> trimesterSingle = DB.findById(Trimester.class, UUID.fromString(trimesterId))
-                                                                   .toSingle();
+                             Single<Subject> subjectSingle = RefCache.find(Subject.class, UUID.fromString(subjectId))
+                                                                     .toSingle();
+                             Single<Trimester> trimesterSingle = RefCache.find(Trimester.class, UUID.fromString(trimesterId))
+                                                                         .toSingle();
                              Single<Section> sectionSingle = sectionId != null
                                                              ? DB.findById(Section.class, UUID.fromString(sectionId))
                                                                  .toSingle()
@@ -1158,7 +1176,20 @@ public class Main {
                                  return course;
                              });
                          })
-                         .flatMap(DB::update)
+                         // the seat is moved from what the row holds in this transaction, the copy above may be stale
+                         .flatMap(course -> DB.batched("Course.update", session -> {
+                             Course current = session.get(Course.class, course.getId());
+                             if (current == null) throw new IllegalArgumentException("Course not found");
+
+                             UUID    held   = heldSeat(current);
+                             Section wanted = course.getStatus() == CourseStatus.REGISTERED ? course.getSection() : null;
+                             requireOutsideLedger(course.getId(), held, wanted == null ? null : wanted.getId());
+                             moveSeat(session, course, held, wanted);
+
+                             Course merged = session.merge(course);
+                             Eligibility.savedOnCommit(session, merged);
+                             return merged;
+                         }))
                          .map(updated -> {
                              ObjectNode response = JsonUtils.createObject()
                                                             .put("id", updated.getId().toString())
@@ -1195,41 +1226,10 @@ public class Main {
                 String       sectionId = JsonUtils.getStringOptional(params, "sectionId").orElse(null);
                 Double       grade     = params.has("grade") ? JsonUtils.getDouble(params, "grade") : null;
 
-                return DB.findById(Course.class, UUID.fromString(id))
-                         .toSingle()
-                         .flatMap(course -> {
-                             if (sectionId != null) {
-                                 return DB.findById(Section.class, UUID.fromString(sectionId))
-                                          .toSingle()
-                                          .map(section -> {
-                                              course.setSection(section);
-                                              return course;
-                                          });
-                             }
-                             return Single.just(course);
-                         })
-                         .flatMap(course -> {
-                             course.setStatus(newStatus);
-                             if (grade != null) {
-                                 course.setGrade(grade);
-                             }
-                             return DB.update(course);
-                         })
-                         .map(updated -> {
-                             ObjectNode courseObj = JsonUtils.createObject()
-                                                             .put("id", updated.getId().toString())
-                                                             .put("status", updated.getStatus().toString());
-
-                             if (updated.getSection() != null) {
-                                 courseObj.put("sectionId", updated.getSection().getId().toString());
-                                 courseObj.put("sectionName", updated.getSection().getName());
-                             }
-                             if (updated.getGrade() != null) {
-                                 courseObj.put("grade", updated.getGrade());
-                             }
+                UUID         section   = sectionId == null ? null : UUID.fromString(sectionId);
 
-                             return courseObj;
-                         })
+                // shares a commit with other registration writes, see DB.batched
+                return DB.batched("Course.updateStatus", session -> updateCourseStatus(session, UUID.fromString(id), newStatus, section, grade))
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to update course status: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid update data: " + e.getMessage()));
@@ -1239,8 +1239,7 @@ public class Main {
         server.registerMethod("Course.delete", (params, _) -> Single.defer(() -> {
             try {
                 String id = JsonUtils.getString(params, "id");
-                return DB.delete(Course.class, UUID.fromString(id))
-                         .toSingle(() -> JsonUtils.createObject().put("success", true))
+                return DB.batched("Course.delete", session -> deleteCourse(session, UUID.fromString(id)))
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to delete course: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid course ID: " + e.getMessage()));
@@ -1270,8 +1269,11 @@ public class Main {
                 int    limit     = JsonUtils.getInt(params, "limit");
                 int    offset    = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Course.class, limit, offset)
-                         .filter(course -> course.getStudent().getId().equals(UUID.fromString(studentId)))
+                return DB.query(Course.class)
+                         .where("student.id", UUID.fromString(studentId))
+                         .orderBy("createdAt", true)
+                         .page(limit, offset)
+                         .list()
                          .map(course -> {
                              ObjectNode courseObj = JsonUtils.createObject()
                                                              .put("id", course.getId().toString())
@@ -1317,9 +1319,9 @@ public class Main {
                 ArrayNode spaceTimeSlotIds = JsonUtils.getArray(params, "spaceTimeSlotIds");
                 ArrayNode teacherIds       = JsonUtils.getArray(params, "teacherIds");
 
-                return Single.zip(DB.findById(Subject.class, UUID.fromString(subjectId))
-                                    .toSingle(), DB.findById(Trimester.class, UUID.fromString(trimesterId))
-                                                   .toSingle(), (subject, trimester) -> {
+                return Single.zip(RefCache.find(Subject.class, UUID.fromString(subjectId))
+                                          .toSingle(), RefCache.find(Trimester.class, UUID.fromString(trimesterId))
+                                                               .toSingle(), (subject, trimester) -> {
                                  Section section = new Section();
                                  section.setName(name);
                                  section.setSection(sectionCode);
@@ -1329,27 +1331,15 @@ public class Main {
                                  return section;
                              })
                              .flatMap(section -> {
-                                 // Load space-time slots
-                                 Set<SpaceTime> slots = new HashSet<>();
-                                 for (JsonNode slotId : spaceTimeSlotIds) {
-                                     SpaceTime slot = DB.findById(SpaceTime.class, UUID.fromString(slotId.asText()))
-                                                        .toSingle()
-                                                        .blockingGet();
-                                     slots.add(slot);
-                                 }
-                                 section.setSpaceTimeSlots(slots);
-
-                                 // Load teachers
-                                 Set<Faculty> teachers = new HashSet<>();
-                                 for (JsonNode teacherId : teacherIds) {
-                                     Faculty teacher = DB.findById(Faculty.class, UUID.fromString(teacherId.asText()))
-                                                         .toSingle()
-                                                         .blockingGet();
-                                     teachers.add(teacher);
-                                 }
-                                 section.setTeachers(teachers);
-
-                                 return DB.save(section);
+                                 // slots and teachers come from the reference cache, whatever it misses in one query per type
+                                 Single<List<SpaceTime>> slots    = RefCache.findAll(SpaceTime.class, uuids(spaceTimeSlotIds));
+                                 Single<List<Faculty>>   teachers = RefCache.findAll(Faculty.class, uuids(teacherIds));
+
+                                 return Single.zip(slots, teachers, (spaceTimeSlots, faculty) -> {
+                                     section.setSpaceTimeSlots(new HashSet<>(spaceTimeSlots));
+                                     section.setTeachers(new HashSet<>(faculty));
+                                     return section;
+                                 }).flatMap(DB::save);
                              })
                              .map(saved -> {
                                  ObjectNode sectionObj = JsonUtils.createObject()
@@ -1398,56 +1388,11 @@ public class Main {
 
         server.registerMethod("Section.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Section.class, limit, offset)
+                return projectPage(Section.class, SECTION_SELECT, SECTION_JOINS, SectionRow.class, params, "createdAt", true, limit)
+                         .flatMap(page -> buildSectionJson(page.items()).map(items -> pageResponse(new Page<>(items, page.nextCursor()), Function.identity())))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(section -> {
-                             ObjectNode sectionObj = JsonUtils.createObject()
-                                                              .put("id", section.getId().toString())
-                                                              .put("name", section.getName())
-                                                              .put("section", section.getSection())
-                                                              .put("subjectId", section.getSubject().getId().toString())
-                                                              .put("subjectName", section.getSubject().getName())
-                                                              .put("trimesterId", section.getTrimester()
-                                                                                         .getId()
-                                                                                         .toString())
-                                                              .put("maxCapacity", section.getMaxCapacity())
-                                                              .put("currentCapacity", section.getCurrentCapacity());
-
-                             // Add space-time slots
-                             ArrayNode slots = JsonUtils.createArray();
-                             section.getSpaceTimeSlots().forEach(slot -> {
-                                 slots.add(JsonUtils.createObject()
-                                                    .put("id", slot.getId().toString())
-                                                    .put("name", slot.getName())
-                                                    .put("roomNumber", slot.getRoomNumber())
-                                                    .put("dayOfWeek", slot.getDayOfWeek().toString())
-                                                    .put("timeSlot", slot.getTimeSlot()));
-                             });
-                             sectionObj.set("spaceTimeSlots", slots);
-
-                             // Add teachers
-                             ArrayNode teachers = JsonUtils.createArray();
-                             section.getTeachers().forEach(teacher -> {
-                                 teachers.add(JsonUtils.createObject()
-                                                       .put("id", teacher.getId().toString())
-                                                       .put("name", teacher.getName())
-                                                       .put("shortcode", teacher.getShortcode()));
-                             });
-                             sectionObj.set("teachers", teachers);
-
-                             return sectionObj;
-                         })
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch section list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -1521,25 +1466,16 @@ public class Main {
                 int       maxCapacity = JsonUtils.getInt(params, "maxCapacity");
                 ArrayNode teacherIds  = JsonUtils.getArray(params, "teacherIds");
 
-                return DB.findById(Section.class, UUID.fromString(id))
+                return DB.findOnPrimary(Section.class, UUID.fromString(id))
                          .toSingle()
-                         .flatMap(section -> {
+                         .flatMap(section -> RefCache.findAll(Faculty.class, uuids(teacherIds)).flatMap(teachers -> {
                              section.setName(name);
                              section.setSection(sectionCode);
                              section.setMaxCapacity(maxCapacity);
-
-                             // Update teachers
-                             Set<Faculty> teachers = new HashSet<>();
-                             for (JsonNode teacherId : teacherIds) {
-                                 Faculty teacher = DB.findById(Faculty.class, UUID.fromString(teacherId.asText()))
-                                                     .toSingle()
-                                                     .blockingGet();
-                                 teachers.add(teacher);
-                             }
-                             section.setTeachers(teachers);
+                             section.setTeachers(new HashSet<>(teachers));
 
                              return DB.update(section);
-                         })
+                         }))
                          .map(updated -> JsonUtils.createObject()
                                                   .put("id", updated.getId().toString())
                                                   .put("name", updated.getName())
@@ -1586,8 +1522,7 @@ public class Main {
                 int    limit  = JsonUtils.getInt(params, "limit");
                 int    offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Section.class, limit, offset)
-                         .filter(section -> section.getName().toLowerCase().contains(name.toLowerCase()))
+                return DB.search(Section.class, name, limit, offset, "name")
                          .map(section -> JsonUtils.createObject()
                                                   .put("id", section.getId().toString())
                                                   .put("name", section.getName())
@@ -1613,33 +1548,21 @@ public class Main {
             String subjectId   = JsonUtils.getString(params, "subjectId");
             String trimesterId = JsonUtils.getString(params, "trimesterId");
 
-            return DB.read(Section.class, 1000, 0)
-                     .filter(section -> section.getSubject()
-                                               .getId()
-                                               .equals(UUID.fromString(subjectId)) && section.getTrimester()
-                                                                                             .getId()
-                                                                                             .equals(UUID.fromString(trimesterId)))
-                     .map(section -> JsonUtils.createObject()
-                                              .put("id", section.getId().toString())
-                                              .put("name", section.getName()))
-                     .collect(ArrayList::new, (list, item) -> list.add(item))
-                     .map(list -> {
-                         ObjectNode response = JsonUtils.createObject();
-                         ArrayNode  items    = JsonUtils.createArray();
-                         list.forEach(item -> items.add((JsonNode) item));
-                         response.set("items", items);
-                         return response;
-                     });
+            return DB.project("SELECT e.id, e.name FROM Section e WHERE e.trimester.id = :trimesterId AND e.subject.id = :subjectId ORDER BY e.section", IdName.class, //
+                              Map.of("trimesterId", UUID.fromString(trimesterId), "subjectId", UUID.fromString(subjectId)))
+                     .map(rows -> pageResponse(new Page<>(rows, null), section -> JsonUtils.createObject()
+                                                                                  .put("id", section.id().toString())
+                                                                                  .put("name", section.name())));
         }));
 
         server.registerMethod("Section.getByTeacher", (params, _) -> Single.defer(() -> {
             try {
                 String teacherId = JsonUtils.getString(params, "teacherId");
 
-                return DB.read(Section.class, Integer.MAX_VALUE, 0)
-                         .filter(section -> section.getTeachers()
-                                                   .stream()
-                                                   .anyMatch(teacher -> teacher.getId().toString().equals(teacherId)))
+                return DB.query(Section.class)
+                         .join("teachers", "t")
+                         .where("t.id", UUID.fromString(teacherId))
+                         .list()
                          .map(section -> {
                              ObjectNode sectionObj = JsonUtils.createObject()
                                                               .put("id", section.getId().toString())
@@ -1706,26 +1629,16 @@ public class Main {
 
         server.registerMethod("SpaceTime.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(SpaceTime.class, limit, offset)
+                return readPage(SpaceTime.class, params, "createdAt", true, limit, spaceTime -> JsonUtils.createObject()
+                                                                                                 .put("id", spaceTime.getId().toString())
+                                                                                                 .put("name", spaceTime.getName())
+                                                                                                 .put("roomNumber", spaceTime.getRoomNumber())
+                                                                                                 .put("roomType", spaceTime.getRoomType().toString())
+                                                                                                 .put("dayOfWeek", spaceTime.getDayOfWeek().toString())
+                                                                                                 .put("timeSlot", spaceTime.getTimeSlot()))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(spaceTime -> JsonUtils.createObject()
-                                                    .put("id", spaceTime.getId().toString())
-                                                    .put("name", spaceTime.getName())
-                                                    .put("roomNumber", spaceTime.getRoomNumber())
-                                                    .put("roomType", spaceTime.getRoomType().toString())
-                                                    .put("dayOfWeek", spaceTime.getDayOfWeek().toString())
-                                                    .put("timeSlot", spaceTime.getTimeSlot()))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch space-time list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -1735,16 +1648,16 @@ public class Main {
         server.registerMethod("SpaceTime.getById", (params, _) -> Single.defer(() -> {
             try {
                 String id = JsonUtils.getString(params, "id");
-                return DB.findById(SpaceTime.class, UUID.fromString(id))
-                         .map(spaceTime -> JsonUtils.createObject()
-                                                    .put("id", spaceTime.getId().toString())
-                                                    .put("name", spaceTime.getName())
-                                                    .put("roomNumber", spaceTime.getRoomNumber())
-                                                    .put("roomType", spaceTime.getRoomType().toString())
-                                                    .put("dayOfWeek", spaceTime.getDayOfWeek().toString())
-                                                    .put("timeSlot", spaceTime.getTimeSlot()))
-                         .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Space-time slot not found")))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find space-time slot: " + error.getMessage())));
+                return RefCache.find(SpaceTime.class, UUID.fromString(id))
+                               .map(spaceTime -> JsonUtils.createObject()
+                                                          .put("id", spaceTime.getId().toString())
+                                                          .put("name", spaceTime.getName())
+                                                          .put("roomNumber", spaceTime.getRoomNumber())
+                                                          .put("roomType", spaceTime.getRoomType().toString())
+                                                          .put("dayOfWeek", spaceTime.getDayOfWeek().toString())
+                                                          .put("timeSlot", spaceTime.getTimeSlot()))
+                               .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Space-time slot not found")))
+                               .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find space-time slot: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid space-time ID: " + e.getMessage()));
             }
@@ -1757,7 +1670,7 @@ public class Main {
                 String roomNumber = JsonUtils.getString(params, "roomNumber");
                 int    timeSlot   = JsonUtils.getInt(params, "timeSlot");
 
-                return DB.findById(SpaceTime.class, UUID.fromString(id))
+                return DB.findOnPrimary(SpaceTime.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(spaceTime -> {
                              spaceTime.setName(name);
@@ -1812,10 +1725,7 @@ public class Main {
                 int    limit      = JsonUtils.getInt(params, "limit");
                 int    offset     = JsonUtils.getInt(params, "offset");
 
-                return DB.read(SpaceTime.class, limit, offset)
-                         .filter(spaceTime -> spaceTime.getRoomNumber()
-                                                       .toLowerCase()
-                                                       .contains(roomNumber.toLowerCase()))
+                return DB.search(SpaceTime.class, roomNumber, limit, offset, "roomNumber")
                          .map(spaceTime -> JsonUtils.createObject()
                                                     .put("id", spaceTime.getId().toString())
                                                     .put("name", spaceTime.getName())
@@ -1844,8 +1754,13 @@ public class Main {
                 int         limit     = JsonUtils.getInt(params, "limit");
                 int         offset    = JsonUtils.getInt(params, "offset");
 
-                return DB.read(SpaceTime.class, limit, offset)
-                         .filter(spaceTime -> spaceTime.getRoomType() == roomType && spaceTime.getDayOfWeek() == dayOfWeek)
+                return DB.query(SpaceTime.class)
+                         .where("roomType", roomType)
+                         .and("dayOfWeek", dayOfWeek)
+                         .orderBy("roomNumber", true)
+                         .orderBy("timeSlot", true)
+                         .page(limit, offset)
+                         .list()
                          .map(spaceTime -> JsonUtils.createObject()
                                                     .put("id", spaceTime.getId().toString())
                                                     .put("name", spaceTime.getName())
@@ -1872,6 +1787,9 @@ public class Main {
                 Integer         year   = JsonUtils.getInt(params, "year");
                 Season          season = Season.valueOf(JsonUtils.getString(params, "season"));
                 TrimesterStatus status = TrimesterStatus.valueOf(JsonUtils.getString(params, "status"));
+                AllocationMode  mode   = JsonUtils.getStringOptional(params, "allocationMode")
+                                                  .map(AllocationMode::valueOf)
+                                                  .orElse(AllocationMode.FIRST_COME);
 
                 // Parse dates if provided
                 LocalDateTime courseSelectionStart = JsonUtils.getStringOptional(params, "courseSelectionStart")
@@ -1896,6 +1814,7 @@ public class Main {
                 trimester.setCourseSelectionEnd(courseSelectionEnd);
                 trimester.setSectionRegistrationStart(sectionRegistrationStart);
                 trimester.setSectionRegistrationEnd(sectionRegistrationEnd);
+                trimester.setAllocationMode(mode);
 
                 return DB.save(trimester)
                          .map(saved -> buildTrimesterJson(saved))
@@ -1907,20 +1826,10 @@ public class Main {
 
         server.registerMethod("Trimester.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Trimester.class, limit, offset)
+                return readPage(Trimester.class, params, "createdAt", true, limit, trimester -> buildTrimesterJson(trimester))
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(trimester -> buildTrimesterJson(trimester))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch trimester list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -1930,10 +1839,10 @@ public class Main {
         server.registerMethod("Trimester.getById", (params, _) -> Single.defer(() -> {
             try {
                 String id = JsonUtils.getString(params, "id");
-                return DB.findById(Trimester.class, UUID.fromString(id))
-                         .map(trimester -> buildTrimesterJson(trimester))
-                         .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Trimester not found")))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find trimester: " + error.getMessage())));
+                return RefCache.find(Trimester.class, UUID.fromString(id))
+                               .map(trimester -> buildTrimesterJson(trimester))
+                               .switchIfEmpty(Single.just(JsonUtils.createObject().put("error", "Trimester not found")))
+                               .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to find trimester: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid trimester ID: " + e.getMessage()));
             }
@@ -1944,13 +1853,36 @@ public class Main {
                 String          id        = JsonUtils.getString(params, "id");
                 TrimesterStatus newStatus = TrimesterStatus.valueOf(JsonUtils.getString(params, "status"));
 
-                return DB.findById(Trimester.class, UUID.fromString(id))
+                return DB.findOnPrimary(Trimester.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(trimester -> {
+                             // closing section selection of a preference trimester hands out the seats, once the window is shut
+                             // so no preference lands after the allocator read them; if allocating fails, Trimester.allocate reruns it
+                             boolean closing = trimester.getAllocationMode() == AllocationMode.PREFERENCE && //
+                                               trimester.getStatus() == TrimesterStatus.SECTION_SELECTION && newStatus != TrimesterStatus.SECTION_SELECTION;
+                             // opening course selection settles who may take what before the first request comes in
+                             boolean opening = newStatus == TrimesterStatus.COURSE_SELECTION && trimester.getStatus() != TrimesterStatus.COURSE_SELECTION;
+
                              trimester.setStatus(newStatus);
-                             return DB.update(trimester);
+                             return DB.update(trimester).flatMap(updated -> {
+                                 ObjectNode       response = (ObjectNode) buildTrimesterJson(updated);
+                                 Single<JsonNode> opened   = !opening ? Single.just(response) : Eligibility.precompute().map(eligibility -> {
+                                     response.set("eligibility", JsonUtils.createObject()
+                                                                          .put("students", eligibility.students())
+                                                                          .put("subjects", eligibility.subjects())
+                                                                          .put("millis", eligibility.millis()));
+                                     return response;
+                                 });
+                                 if (!closing) return opened;
+
+                                 return opened.flatMap(_ -> allocateSections(updated.getId(), SectionAllocator.Strategy.LOTTERY, new SecureRandom().nextLong()))
+                                          .map(allocation -> {
+                                              response.set("allocation", allocation);
+                                              return (JsonNode) response;
+                                          })
+                                          .onErrorResumeNext(error -> Single.error(new IllegalStateException("Section selection closed, but allocating failed (run Trimester.allocate): " + error.getMessage())));
+                             });
                          })
-                         .map(updated -> buildTrimesterJson(updated))
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to update trimester status: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid update data: " + e.getMessage()));
@@ -1967,7 +1899,7 @@ public class Main {
                 LocalDateTime sectionRegistrationStart = LocalDateTime.parse(JsonUtils.getString(params, "sectionRegistrationStart"));
                 LocalDateTime sectionRegistrationEnd   = LocalDateTime.parse(JsonUtils.getString(params, "sectionRegistrationEnd"));
 
-                return DB.findById(Trimester.class, UUID.fromString(id))
+                return DB.findOnPrimary(Trimester.class, UUID.fromString(id))
                          .toSingle()
                          .flatMap(trimester -> {
                              trimester.setCourseSelectionStart(courseSelectionStart);
@@ -1983,15 +1915,57 @@ public class Main {
             }
         }));
 
-        server.registerMethod("Trimester.delete", (params, _) -> Single.defer(() -> {
+        server.registerMethod("Trimester.updateAllocationMode", (params, _) -> Single.defer(() -> {
             try {
-                String id = JsonUtils.getString(params, "id");
-                return DB.delete(Trimester.class, UUID.fromString(id))
-                         .toSingle(() -> JsonUtils.createObject().put("success", true))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to delete trimester: " + error.getMessage())));
-            } catch (Exception e) {
-                return Single.error(new RuntimeException("Invalid trimester ID: " + e.getMessage()));
-            }
+                String         id   = JsonUtils.getString(params, "id");
+                AllocationMode mode = AllocationMode.valueOf(JsonUtils.getString(params, "allocationMode"));
+
+                return DB.findOnPrimary(Trimester.class, UUID.fromString(id))
+                         .toSingle()
+                         .flatMap(trimester -> {
+                             if (trimester.getStatus() == TrimesterStatus.SECTION_SELECTION)
+                                 return Single.<Trimester>error(new IllegalStateException("Allocation mode can't change during section selection"));
+                             trimester.setAllocationMode(mode);
+                             return DB.update(trimester);
+                         })
+                         .map(updated -> buildTrimesterJson(updated))
+                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to update allocation mode: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid allocation mode: " + e.getMessage()));
+            }
+        }));
+
+        // runs the preference allocation now, e.g. again after an admin freed seats; seed repeats an earlier lottery
+        server.registerMethod("Trimester.allocate", (params, _) -> Single.defer(() -> {
+            try {
+                UUID                      id       = UUID.fromString(JsonUtils.getString(params, "id"));
+                SectionAllocator.Strategy strategy = JsonUtils.getStringOptional(params, "strategy")
+                                                              .map(SectionAllocator.Strategy::valueOf)
+                                                              .orElse(SectionAllocator.Strategy.LOTTERY);
+                long                      seed     = params.hasNonNull("seed") ? JsonUtils.getLong(params, "seed") : new SecureRandom().nextLong();
+
+                return DB.findById(Trimester.class, id)
+                         .toSingle()
+                         .flatMap(trimester -> {
+                             if (trimester.getAllocationMode() != AllocationMode.PREFERENCE)
+                                 return Single.<JsonNode>error(new IllegalStateException("Trimester allocates seats first come first served"));
+                             return allocateSections(id, strategy, seed);
+                         })
+                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to allocate sections: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid allocation request: " + e.getMessage()));
+            }
+        }));
+
+        server.registerMethod("Trimester.delete", (params, _) -> Single.defer(() -> {
+            try {
+                String id = JsonUtils.getString(params, "id");
+                return DB.delete(Trimester.class, UUID.fromString(id))
+                         .toSingle(() -> JsonUtils.createObject().put("success", true))
+                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to delete trimester: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid trimester ID: " + e.getMessage()));
+            }
         }));
 
         server.registerMethod("Trimester.count", (_, _) -> Single.defer(() -> DB.count(Trimester.class)
@@ -2011,9 +1985,9 @@ public class Main {
             }
         }));
 
-        server.registerMethod("Trimester.getCurrent", (_, _) -> Single.defer(() -> DB.read(Trimester.class, 1, 0)
-                                                                                     .filter(trimester -> trimester.getStatus() == TrimesterStatus.ONGOING)
-                                                                                     .firstElement()
+        server.registerMethod("Trimester.getCurrent", (_, _) -> Single.defer(() -> DB.query(Trimester.class)
+                                                                                     .where("status", TrimesterStatus.ONGOING)
+                                                                                     .first()
                                                                                      .map(trimester -> buildTrimesterJson(trimester))
                                                                                      .switchIfEmpty(Single.just(JsonUtils.createObject()
                                                                                                                          .put("error", "No ongoing trimester found")))
@@ -2024,8 +1998,11 @@ public class Main {
                 int limit  = JsonUtils.getInt(params, "limit");
                 int offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Trimester.class, limit, offset)
-                         .filter(trimester -> trimester.getStatus() == TrimesterStatus.UPCOMING)
+                return DB.query(Trimester.class)
+                         .where("status", TrimesterStatus.UPCOMING)
+                         .orderBy("code", true)
+                         .page(limit, offset)
+                         .list()
                          .map(Main::buildTrimesterJson)
                          .collect(ArrayList::new, (list, item) -> list.add(item))
                          .map(list -> {
@@ -2041,19 +2018,52 @@ public class Main {
             }
         }));
 
-        server.registerMethod("Trimester.list", (_, _) -> Single.defer(() -> DB.read(Trimester.class, 1000, 0)
-                                                                               .map(trimester -> JsonUtils.createObject()
-                                                                                                          .put("id", trimester.getId()
-                                                                                                                              .toString())
-                                                                                                          .put("code", trimester.getCode()))
-                                                                               .collect(ArrayList::new, (list, item) -> list.add(item))
-                                                                               .map(list -> {
-                                                                                   ObjectNode response = JsonUtils.createObject();
-                                                                                   ArrayNode  items    = JsonUtils.createArray();
-                                                                                   list.forEach(item -> items.add((JsonNode) item));
-                                                                                   response.set("items", items);
-                                                                                   return response;
-                                                                               })));
+        server.registerMethod("Trimester.list", (_, _) -> Single.defer(() -> DB.project("SELECT e.id, e.code FROM Trimester e", IdCode.class, Map.of(), 1000, 0)
+                                                                               .map(rows -> pageResponse(new Page<>(rows, null), trimester -> JsonUtils.createObject()
+                                                                                                                                               .put("id", trimester.id().toString())
+                                                                                                                                               .put("code", trimester.code())))));
+
+        // Import methods, see CsvImport for the columns of each kind
+        server.registerMethod("Import.begin", (params, _) -> Single.defer(() -> {
+            try {
+                CsvImport.Kind kind = CsvImport.Kind.valueOf(JsonUtils.getString(params, "kind"));
+                boolean        copy = params.path("copy").asBoolean(false);
+
+                // begin loads the lookups, off the connection's thread like every other DB read
+                return Single.fromCallable(() -> importProgressJson(CsvImport.begin(kind, copy).progress()))
+                             .subscribeOn(DbScheduler.get())
+                             .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to start import: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid import parameters: " + e.getMessage()));
+            }
+        }));
+
+        // one piece of the file, rows may be cut anywhere; last=true ends the import
+        server.registerMethod("Import.chunk", (params, _) -> Single.defer(() -> {
+            try {
+                UUID    importId = UUID.fromString(JsonUtils.getString(params, "importId"));
+                String  csv      = JsonUtils.getString(params, "csv");
+                boolean last     = params.path("last").asBoolean(false);
+
+                // queued here, in the order chunks arrive; parsing and writing run on DbScheduler
+                return CsvImport.get(importId)
+                                .feed(csv, last)
+                                .map(Main::importProgressJson)
+                                .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to import chunk: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid import chunk: " + e.getMessage()));
+            }
+        }));
+
+        server.registerMethod("Import.status", (params, _) -> Single.defer(() -> {
+            try {
+                UUID importId = UUID.fromString(JsonUtils.getString(params, "importId"));
+                return Single.fromCallable(() -> importProgressJson(CsvImport.get(importId).progress()))
+                             .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to get import status: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid import ID: " + e.getMessage()));
+            }
+        }));
 
         // Notification methods
         server.registerMethod("Notification.create", (params, _) -> Single.defer(() -> {
@@ -2069,47 +2079,47 @@ public class Main {
                 String sectionId    = JsonUtils.getStringOptional(params, "sectionId").orElse(null);
                 String targetUserId = JsonUtils.getStringOptional(params, "targetUserId").orElse(null);
 
-                return DB.findById(Faculty.class, UUID.fromString(senderId))
-                         .toSingle()
-                         .flatMap(sender -> {
-                             Notification notification = new Notification();
-                             notification.setSender(sender);
-                             notification.setTitle(title);
-                             notification.setContent(content);
-                             notification.setCategory(category);
-                             notification.setScope(scope);
-
-                             // Handle scope-specific relationships
-                             Single<Notification> scopeSetup = Single.just(notification);
-                             if (trimesterId != null) {
-                                 scopeSetup = DB.findById(Trimester.class, UUID.fromString(trimesterId))
-                                                .toSingle()
-                                                .map(trimester -> {
-                                                    notification.setTrimester(trimester);
-                                                    return notification;
-                                                });
-                             }
-                             if (sectionId != null) {
-                                 scopeSetup = DB.findById(Section.class, UUID.fromString(sectionId))
-                                                .toSingle()
-                                                .map(section -> {
-                                                    notification.setSection(section);
-                                                    return notification;
-                                                });
-                             }
-                             if (targetUserId != null) {
-                                 scopeSetup = DB.findById(User.class, UUID.fromString(targetUserId))
-                                                .toSingle()
-                                                .map(user -> {
-                                                    notification.setTargetUser(user);
-                                                    return notification;
-                                                });
-                             }
-
-                             return scopeSetup.flatMap(n -> DB.save(n));
-                         })
-                         .map(saved -> buildNotificationJson(saved))
-                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to create notification: " + error.getMessage())));
+                return RefCache.find(Faculty.class, UUID.fromString(senderId))
+                               .toSingle()
+                               .flatMap(sender -> {
+                                   Notification notification = new Notification();
+                                   notification.setSender(sender);
+                                   notification.setTitle(title);
+                                   notification.setContent(content);
+                                   notification.setCategory(category);
+                                   notification.setScope(scope);
+
+                                   // Handle scope-specific relationships
+                                   Single<Notification> scopeSetup = Single.just(notification);
+                                   if (trimesterId != null) {
+                                       scopeSetup = RefCache.find(Trimester.class, UUID.fromString(trimesterId))
+                                                            .toSingle()
+                                                            .map(trimester -> {
+                                                                notification.setTrimester(trimester);
+                                                                return notification;
+                                                            });
+                                   }
+                                   if (sectionId != null) {
+                                       scopeSetup = DB.findById(Section.class, UUID.fromString(sectionId))
+                                                      .toSingle()
+                                                      .map(section -> {
+                                                          notification.setSection(section);
+                                                          return notification;
+                                                      });
+                                   }
+                                   if (targetUserId != null) {
+                                       scopeSetup = DB.findById(User.class, UUID.fromString(targetUserId))
+                                                      .toSingle()
+                                                      .map(user -> {
+                                                          notification.setTargetUser(user);
+                                                          return notification;
+                                                      });
+                                   }
+
+                                   return scopeSetup.flatMap(n -> DB.save(n));
+                               })
+                               .map(saved -> buildNotificationJson(saved))
+                               .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to create notification: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid notification data: " + e.getMessage()));
             }
@@ -2117,20 +2127,10 @@ public class Main {
 
         server.registerMethod("Notification.getAll", (params, _) -> Single.defer(() -> {
             try {
-                int limit  = JsonUtils.getInt(params, "limit");
-                int offset = JsonUtils.getInt(params, "offset");
+                int limit = JsonUtils.getInt(params, "limit");
 
-                return DB.read(Notification.class, "createdAt", false, limit, offset)  // Newest first
+                return readPage(Notification.class, params, "createdAt", false, limit, notification -> buildNotificationJson(notification))  // Newest first
                          .timeout(20, TimeUnit.SECONDS)
-                         .map(notification -> buildNotificationJson(notification))
-                         .collect(ArrayList::new, (list, item) -> list.add(item))
-                         .map(list -> {
-                             ObjectNode response = JsonUtils.createObject();
-                             ArrayNode  items    = JsonUtils.createArray();
-                             list.forEach(item -> items.add((JsonNode) item));
-                             response.set("items", items);
-                             return response;
-                         })
                          .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to fetch notification list: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Invalid pagination parameters: " + e.getMessage()));
@@ -2206,29 +2206,19 @@ public class Main {
                 int               limit    = JsonUtils.getInt(params, "limit");
                 int               offset   = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Notification.class, "createdAt", false, limit, offset)  // Newest first
-                         .filter(notification -> {
-                             if (notification.getScope() != scope) return false;
-                             switch (scope) {
-                                 case TRIMESTER:
-                                     return notification.getTrimester() != null && notification.getTrimester()
-                                                                                               .getId()
-                                                                                               .toString()
-                                                                                               .equals(targetId);
-                                 case SECTION:
-                                     return notification.getSection() != null && notification.getSection()
-                                                                                             .getId()
-                                                                                             .toString()
-                                                                                             .equals(targetId);
-                                 case USER:
-                                     return notification.getTargetUser() != null && notification.getTargetUser()
-                                                                                                .getId()
-                                                                                                .toString()
-                                                                                                .equals(targetId);
-                                 default:
-                                     return false;
-                             }
-                         })
+                String targetPath = switch (scope) {
+                    case TRIMESTER -> "trimester.id";
+                    case SECTION -> "section.id";
+                    case USER -> "targetUser.id";
+                    case GLOBAL -> throw new IllegalArgumentException("Use Notification.getGlobal for global notifications");
+                };
+
+                return DB.query(Notification.class)
+                         .where("scope", scope)
+                         .and(targetPath, UUID.fromString(targetId))
+                         .orderBy("createdAt", false)  // Newest first
+                         .page(limit, offset)
+                         .list()
                          .map(notification -> buildNotificationJson(notification))
                          .collect(ArrayList::new, (list, item) -> list.add(item))
                          .map(list -> {
@@ -2249,8 +2239,11 @@ public class Main {
                 int limit  = JsonUtils.getInt(params, "limit");
                 int offset = JsonUtils.getInt(params, "offset");
 
-                return DB.read(Notification.class, "createdAt", false, limit, offset)  // Newest first
-                         .filter(notification -> notification.getScope() == NotificationScope.GLOBAL)
+                return DB.query(Notification.class)
+                         .where("scope", NotificationScope.GLOBAL)
+                         .orderBy("createdAt", false)  // Newest first
+                         .page(limit, offset)
+                         .list()
                          .map(Main::buildNotificationJson)
                          .collect(ArrayList::new, (list, item) -> list.add(item))
                          .map(list -> {
@@ -2266,6 +2259,42 @@ public class Main {
             }
         }));
 
+        // Search methods
+        // one box searching every entity, backs the client SearchDialog
+        server.registerMethod("Search.query", (params, _) -> Single.defer(() -> {
+            try {
+                String query = JsonUtils.getString(params, "query");
+                int    limit = JsonUtils.getIntOptional(params, "limit").orElse(5); // per type
+
+                if (query.trim().length() < 2) return Single.error(new RuntimeException("Query must be at least 2 characters"));
+
+                return Observable.concat(List.of( //
+                                         DB.search(Student.class, query, limit, 0, "name", "email")
+                                           .map(student -> searchHit("Student", student.getId(), student.getName(), student.getEmail())), //
+                                         DB.search(Faculty.class, query, limit, 0, "name", "email", "shortcode")
+                                           .map(faculty -> searchHit("Faculty", faculty.getId(), faculty.getName(), faculty.getShortcode())), //
+                                         DB.search(Subject.class, query, limit, 0, "codeName", "name")
+                                           .map(subject -> searchHit("Subject", subject.getId(), subject.getCodeName(), subject.getName())), //
+                                         DB.search(Section.class, query, limit, 0, "name")
+                                           .map(section -> searchHit("Section", section.getId(), section.getName(), section.getTrimester().getCode().toString())), //
+                                         DB.search(SpaceTime.class, query, limit, 0, "roomNumber", "name")
+                                           .map(slot -> searchHit("SpaceTime", slot.getId(), slot.getRoomNumber(), slot.getDayOfWeek() + " #" + slot.getTimeSlot())) //
+                                 ))
+                                 .timeout(20, TimeUnit.SECONDS)
+                                 .toList()
+                                 .map(list -> {
+                                     ObjectNode response = JsonUtils.createObject();
+                                     ArrayNode  items    = JsonUtils.createArray();
+                                     list.forEach(items::add);
+                                     response.set("items", items);
+                                     return response;
+                                 })
+                                 .onErrorResumeNext(error -> Single.error(new RuntimeException("Search failed: " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid search parameters: " + e.getMessage()));
+            }
+        }));
+
         // ---
         // ---
         // ---
@@ -2275,192 +2304,91 @@ public class Main {
 
         server.registerMethod("Course.getSchedule", (params, _) -> Single.defer(() -> {
             try {
-                String userId = JsonUtils.getString(params, "userId");
-
-                return Single.fromCallable(() -> {
-                    try (var session = DB.getSessionFactory().openSession()) {
-                        var transaction = session.beginTransaction();
-
-                        try {
-                            // 1. Get active trimester
-                            var trimester = session.createQuery("FROM Trimester t WHERE t.status = :status", Trimester.class)
-                                                   .setParameter("status", TrimesterStatus.SECTION_SELECTION)
-                                                   .setMaxResults(1)
-                                                   .uniqueResult();
-
-                            if (trimester == null) {
-                                return JsonUtils.createObject()
-                                                .put("error", "No active section selection period found");
-                            }
-
-                            // 2. Get student's courses with subjects
-                            var courses = session.createQuery("SELECT DISTINCT c FROM Course c " + "JOIN FETCH c.subject sub " + "LEFT JOIN FETCH c.section sec " + "WHERE c.student.id = :userId " + "AND c.trimester.id = :trimesterId " + "AND (c.status = :status1 OR c.status = :status2)", Course.class)
-                                                 .setParameter("userId", UUID.fromString(userId))
-                                                 .setParameter("trimesterId", trimester.getId())
-                                                 .setParameter("status1", CourseStatus.SELECTED)
-                                                 .setParameter("status2", CourseStatus.REGISTERED)
-                                                 .getResultList();
-
-                            if (courses.isEmpty()) {
-                                return JsonUtils.createObject().put("error", "No courses found for section selection");
-                            }
-
-                            // Get unique subject IDs
-                            Set<UUID> subjectIds = courses.stream()
-                                                          .map(c -> c.getSubject().getId())
-                                                          .collect(Collectors.toSet());
-
-                            // 3. Get all sections for these subjects with space-times
-                            var sections = session.createQuery("SELECT DISTINCT s FROM Section s " + "JOIN FETCH s.subject sub " + "JOIN FETCH s.spaceTimeSlots sts " + "LEFT JOIN FETCH s.registrations r " + "WHERE s.trimester.id = :trimesterId " + "AND s.subject.id IN (:subjectIds)", Section.class)
-                                                  .setParameter("trimesterId", trimester.getId())
-                                                  .setParameter("subjectIds", subjectIds)
-                                                  .getResultList();
-
-                            // Build response while session is still open
-                            ObjectNode response = JsonUtils.createObject();
-                            response.put("trimesterId", trimester.getId().toString())
-                                    .put("trimesterCode", trimester.getCode());
-
-                            ArrayNode subjectsArray = JsonUtils.createArray();
-
-                            // Group sections by subject
-                            Map<UUID, List<Section>> sectionsBySubject = sections.stream()
-                                                                                 .collect(Collectors.groupingBy(s -> s.getSubject()
-                                                                                                                      .getId()));
-
-                            // Group student's courses by subject for registration status check
-                            Map<UUID, Course> coursesBySubject = courses.stream()
-                                                                        .collect(Collectors.toMap(c -> c.getSubject()
-                                                                                                        .getId(), c -> c));
-
-                            // Build subject groups
-                            for (Course course : courses) {
-                                Subject       subject         = course.getSubject();
-                                List<Section> subjectSections = sectionsBySubject.getOrDefault(subject.getId(), new ArrayList<>());
-
-                                ObjectNode subjectNode = JsonUtils.createObject()
-                                                                  .put("subjectId", subject.getId().toString())
-                                                                  .put("subjectName", subject.getName())
-                                                                  .put("subjectCode", subject.getCodeName())
-                                                                  .put("courseId", course.getId().toString())
-                                                                  .put("subjectType", subject.getType().toString());
-
-                                // Group sections by day
-                                Map<String, List<Section>> sectionsByDay = groupSectionsByDay(subjectSections, subject.getType());
-                                ArrayNode                  daysArray     = JsonUtils.createArray();
-
-                                for (Map.Entry<String, List<Section>> entry : sectionsByDay.entrySet()) {
-                                    ObjectNode dayNode       = JsonUtils.createObject().put("day", entry.getKey());
-                                    ArrayNode  sectionsArray = JsonUtils.createArray();
-
-                                    for (Section section : entry.getValue()) {
-                                        boolean isRegistered = course.getStatus() == CourseStatus.REGISTERED && course.getSection() != null && course.getSection()
-                                                                                                                                                     .getId()
-                                                                                                                                                     .equals(section.getId());
-
-                                        ObjectNode sectionNode = JsonUtils.createObject()
-                                                                          .put("sectionId", section.getId().toString())
-                                                                          .put("sectionCode", section.getSection())
-                                                                          .put("currentCapacity", section.getCurrentCapacity())
-                                                                          .put("maxCapacity", section.getMaxCapacity())
-                                                                          .put("timeSlot", getFirstTimeSlot(section))
-                                                                          .put("isRegistered", isRegistered);
-
-                                        sectionsArray.add(sectionNode);
-                                    }
-                                    dayNode.set("sections", sectionsArray);
-                                    daysArray.add(dayNode);
-                                }
-
-                                subjectNode.set("days", daysArray);
-                                subjectsArray.add(subjectNode);
-                            }
-
-                            response.set("subjects", subjectsArray);
-
-                            transaction.commit();
-                            return response;
-                        } catch (Exception e) {
-                            transaction.rollback();
-                            throw e;
-                        }
-                    }
-                });
+                String  userId      = JsonUtils.getString(params, "userId");
+                boolean hideClashes = params.path("hideClashes").asBoolean(false);
+
+                return Single.fromCallable(() -> buildSchedule(UUID.fromString(userId), hideClashes)).subscribeOn(DbScheduler.get());
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Failed to fetch schedule: " + e.getMessage()));
             }
         }));
 
+        // the subjects this session is looking at, replaces the previous list; an empty list stops the Section.seats pushes
+        server.registerMethod("Schedule.subscribe", (params, request) -> Single.defer(() -> {
+            try {
+                List<String> tags = new ArrayList<>();
+                params.path("subjectIds").forEach(node -> tags.add(SUBJECT_TAG + UUID.fromString(node.asText())));
+
+                SessionInfo session = SessionManager.getInstance()
+                                                    .getSession(request.getSessionToken())
+                                                    .orElseThrow(() -> new IllegalStateException("Invalid session"));
+                session.getTags().removeIf(tag -> tag.startsWith(SUBJECT_TAG));
+                session.getTags().addAll(tags);
+
+                return Single.just(JsonUtils.createObject().put("subscribed", tags.size()).put("windowMillis", SeatFeed.WINDOW_MILLIS));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Failed to subscribe: " + e.getMessage()));
+            }
+        }));
+
+        // ranked conflict-free routines over the student's SELECTED courses, nothing is registered
+        server.registerMethod("Schedule.generate", (params, _) -> Single.defer(() -> {
+            try {
+                UUID           userId       = UUID.fromString(JsonUtils.getString(params, "userId"));
+                int            earliestSlot = JsonUtils.getIntOptional(params, "earliestSlot").orElse(1);
+                int            limit        = JsonUtils.getIntOptional(params, "limit").orElse(5);
+                boolean        includeFull  = params.path("includeFull").asBoolean(false);
+                Set<DayOfWeek> freeDays     = EnumSet.noneOf(DayOfWeek.class);
+                Set<UUID>      faculty      = new HashSet<>();
+                params.path("freeDays").forEach(node -> freeDays.add(DayOfWeek.valueOf(node.asText())));
+                params.path("preferredFaculty").forEach(node -> faculty.add(UUID.fromString(node.asText())));
+
+                if (limit < 1 || limit > 50) return Single.error(new IllegalArgumentException("limit must be between 1 and 50"));
+
+                var preferences = new RoutineGenerator.Preferences(earliestSlot, freeDays, faculty, includeFull);
+                return Single.fromCallable(() -> generateRoutines(userId, preferences, limit)).subscribeOn(DbScheduler.get());
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Failed to generate routines: " + e.getMessage()));
+            }
+        }));
+
         server.registerMethod("Course.updateRegistration", (params, _) -> Single.defer(() -> {
             try {
                 String courseId  = JsonUtils.getString(params, "courseId");
                 String sectionId = JsonUtils.getStringOptional(params, "sectionId").orElse(null);
 
-                return Single.fromCallable(() -> {
-                    try (var session = DB.getSessionFactory().openSession()) {
-                        var transaction = session.beginTransaction();
-
-                        try {
-                            // Load course with existing section if any
-                            var course = session.createQuery("SELECT c FROM Course c " + "LEFT JOIN FETCH c.section s " + "JOIN FETCH c.trimester t " + "WHERE c.id = :courseId", Course.class)
-                                                .setParameter("courseId", UUID.fromString(courseId))
-                                                .uniqueResult();
-
-                            if (course == null) {
-                                throw new IllegalArgumentException("Course not found");
-                            }
-
-                            // Verify trimester is in SECTION_SELECTION
-                            if (course.getTrimester().getStatus() != TrimesterStatus.SECTION_SELECTION) {
-                                throw new IllegalStateException("Section selection is not active");
-                            }
-
-                            if (sectionId != null) {
-                                // Load new section with space-times
-                                var section = session.createQuery("SELECT s FROM Section s " + "JOIN FETCH s.spaceTimeSlots " + "WHERE s.id = :sectionId", Section.class)
-                                                     .setParameter("sectionId", UUID.fromString(sectionId))
-                                                     .uniqueResult();
-
-                                if (section == null) {
-                                    throw new IllegalArgumentException("Section not found");
-                                }
-
-                                // Check capacity
-                                if (section.getCurrentCapacity() >= section.getMaxCapacity()) {
-                                    throw new IllegalStateException("Section is full");
-                                }
-
-                                course.setStatus(CourseStatus.REGISTERED);
-                                course.setSection(section);
-                            } else {
-                                course.setStatus(CourseStatus.SELECTED);
-                                course.setSection(null);
-                            }
-
-                            session.merge(course);
-                            transaction.commit();
-
-                            ObjectNode response = JsonUtils.createObject()
-                                                           .put("success", true)
-                                                           .put("courseId", course.getId().toString())
-                                                           .put("status", course.getStatus().toString());
-
-                            if (course.getSection() != null) {
-                                response.put("sectionId", course.getSection().getId().toString());
-                            }
-
-                            return response;
-                        } catch (Exception e) {
-                            transaction.rollback();
-                            throw e;
-                        }
-                    }
-                });
+                UUID course  = UUID.fromString(courseId);
+                UUID section = sectionId == null ? null : UUID.fromString(sectionId);
+
+                // in-memory fast path while a trimester is in section selection
+                SeatLedger ledger = SeatLedger.current();
+                if (ledger != null && ledger.owns(course)) {
+                    return ledger.register(course, section)
+                                 .map(registration -> registrationResponse(registration.courseId(), registration.status(), registration.sectionId()));
+                }
+
+                return DB.batched("Course.updateRegistration", session -> registerCourse(session, course, section));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Registration update failed: " + e.getMessage()));
             }
         }));
 
+        // ranked sections for one course, replaces what was submitted before; seats are handed out when the window closes
+        server.registerMethod("Course.submitPreferences", (params, _) -> Single.defer(() -> {
+            try {
+                UUID       course   = UUID.fromString(JsonUtils.getString(params, "courseId"));
+                List<UUID> sections = new ArrayList<>();
+                JsonUtils.getArray(params, "sectionIds").forEach(node -> sections.add(UUID.fromString(node.asText())));
+
+                if (sections.size() != new HashSet<>(sections).size())
+                    return Single.error(new IllegalArgumentException("Each section can be ranked once"));
+
+                return DB.batched("Course.submitPreferences", session -> submitPreferences(session, course, sections));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Preference submission failed: " + e.getMessage()));
+            }
+        }));
+
         // ---
         // ---
         // ---
@@ -2478,41 +2406,41 @@ public class Main {
                 String desiredSectionId = JsonUtils.getStringOptional(params, "desiredSectionId").orElse(null);
 
                 // Get course info from section
-                Section section = DB.findById(Section.class, UUID.fromString(sectionId)).blockingGet();
-
-                Map<String, Object> trade = new HashMap<>();
-                trade.put("id", UUID.randomUUID().toString());
-                trade.put("offeredBy", studentId);
-                trade.put("currentSectionId", sectionId);
-                trade.put("desiredSectionId", desiredSectionId);
-                trade.put("courseId", section.getSubject().getId().toString());
-                trade.put("courseName", section.getSubject().getName());
-                trade.put("currentSectionName", section.getName());
-                trade.put("note", note);
-                trade.put("status", "PENDING");
-                trade.put("createdAt", System.currentTimeMillis());
-
-                // Get trades list from Volatile or create new
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> trades = (List<Map<String, Object>>) Optional.ofNullable(Volatile.getInstance()
-                                                                                                           .get("trades"))
-                                                                                       .orElse(new ArrayList<>());
+                return DB.findById(Section.class, UUID.fromString(sectionId)).toSingle().<JsonNode>flatMap(section -> {
+                    Map<String, Object> trade = new HashMap<>();
+                    trade.put("id", UUID.randomUUID().toString());
+                    trade.put("offeredBy", studentId);
+                    trade.put("currentSectionId", sectionId);
+                    trade.put("desiredSectionId", desiredSectionId);
+                    trade.put("courseId", section.getSubject().getId().toString());
+                    trade.put("courseName", section.getSubject().getName());
+                    trade.put("currentSectionName", section.getName());
+                    trade.put("note", note);
+                    trade.put("status", "PENDING");
+                    trade.put("createdAt", System.currentTimeMillis());
+
+                    // Get trades list from Volatile or create new
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> trades = (List<Map<String, Object>>) Optional.ofNullable(Volatile.getInstance()
+                                                                                                               .get("trades"))
+                                                                                           .orElse(new ArrayList<>());
+
+                    // Check if student already has a pending trade for this section
+                    boolean hasPendingTrade = trades.stream()
+                                                    .anyMatch(t -> t.get("offeredBy")
+                                                                    .equals(studentId) && t.get("currentSectionId")
+                                                                                           .equals(sectionId) && t.get("status")
+                                                                                                                  .equals("PENDING"));
+
+                    if (hasPendingTrade) {
+                        return Single.error(new IllegalStateException("Already have a pending trade for this section"));
+                    }
 
-                // Check if student already has a pending trade for this section
-                boolean hasPendingTrade = trades.stream()
-                                                .anyMatch(t -> t.get("offeredBy")
-                                                                .equals(studentId) && t.get("currentSectionId")
-                                                                                       .equals(sectionId) && t.get("status")
-                                                                                                              .equals("PENDING"));
+                    trades.add(trade);
+                    Volatile.getInstance().put("trades", trades);
 
-                if (hasPendingTrade) {
-                    return Single.error(new IllegalStateException("Already have a pending trade for this section"));
-                }
-
-                trades.add(trade);
-                Volatile.getInstance().put("trades", trades);
-
-                return Single.just(JsonUtils.toJson(trade));
+                    return Single.just(JsonUtils.toJson(trade));
+                }).onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to offer trade: " + error.getMessage())));
             } catch (Exception e) {
                 return Single.error(new RuntimeException("Failed to offer trade: " + e.getMessage()));
             }
@@ -2685,11 +2613,10 @@ public class Main {
             try {
                 String studentId = JsonUtils.getString(params, "studentId");
 
-                return DB.read(Course.class, 1000, 0)
-                         .filter(course -> course.getStudent()
-                                                 .getId()
-                                                 .toString()
-                                                 .equals(studentId) && course.getStatus() == CourseStatus.REGISTERED)
+                return DB.query(Course.class)
+                         .where("student.id", UUID.fromString(studentId))
+                         .and("status", CourseStatus.REGISTERED)
+                         .list()
                          .map(course -> JsonUtils.createObject()
                                                  .put("id", course.getSection().getId().toString())
                                                  .put("name", course.getSection().getName())
@@ -2718,35 +2645,29 @@ public class Main {
                 Optional<SessionInfo> senderSession = SessionManager.getInstance().getSession(senderToken);
 
                 if (senderSession.isPresent()) {
-                    String senderEmail = DB.read(User.class, 1, 0)
-                                           .filter(user -> user.getId()
-                                                               .toString()
-                                                               .equals(senderSession.get().getUserId()))
-                                           .firstElement()
-                                           .map(User::getEmail)
-                                           .blockingGet();
-
-                    // Find recipient's session token by email
-                    Optional<SessionInfo> recipientSession = SessionManager.getInstance()
-                                                                           .getActiveSessions()
-                                                                           .stream()
-                                                                           .filter(session -> session.getUserId()
-                                                                                                     .equals(recipientEmail))
-                                                                           .findFirst();
-
-                    if (recipientSession.isPresent()) {
-                        String recipientToken = recipientSession.get().getSessionToken();
-
-                        Request forwardRequest = Request.create(request.getId(), "receiveMessage", JsonUtils.createObject()
-                                                                                                            .put("sender", senderEmail)  // Send sender's email instead of session token
-                                                                                                            .put("message", messageContent), recipientToken);
-
-                        return SessionManager.getInstance()
-                                             .sendRequest(recipientToken, forwardRequest)
-                                             .map(response -> JsonUtils.createObject().put("status", "delivered"));
-                    } else {
-                        return Single.error(new IllegalStateException("Recipient is not online."));
-                    }
+                    return DB.findById(User.class, UUID.fromString(senderSession.get().getUserId())).map(User::getEmail).toSingle().<JsonNode>flatMap(senderEmail -> {
+                        // Find recipient's session token by email
+                        Optional<SessionInfo> recipientSession = SessionManager.getInstance()
+                                                                               .getActiveSessions()
+                                                                               .stream()
+                                                                               .filter(session -> session.getUserId()
+                                                                                                         .equals(recipientEmail))
+                                                                               .findFirst();
+
+                        if (recipientSession.isPresent()) {
+                            String recipientToken = recipientSession.get().getSessionToken();
+
+                            Request forwardRequest = Request.create(request.getId(), "receiveMessage", JsonUtils.createObject()
+                                                                                                                .put("sender", senderEmail)  // Send sender's email instead of session token
+                                                                                                                .put("message", messageContent), recipientToken);
+
+                            return SessionManager.getInstance()
+                                                 .sendRequest(recipientToken, forwardRequest)
+                                                 .map(response -> JsonUtils.createObject().put("status", "delivered"));
+                        } else {
+                            return Single.error(new IllegalStateException("Recipient is not online."));
+                        }
+                    });
                 } else {
                     return Single.error(new IllegalStateException("Sender not recognized."));
                 }
@@ -2794,6 +2715,32 @@ public class Main {
                 response.put("disk", diskUsage);
                 response.put("network", networkUsage);
 
+                RefCache.Stats cache = RefCache.stats();
+                response.set("refCache", JsonUtils.createObject()
+                                                  .put("hits", cache.hits())
+                                                  .put("misses", cache.misses())
+                                                  .put("evictions", cache.evictions())
+                                                  .put("invalidations", cache.invalidations())
+                                                  .put("size", cache.size()));
+
+                WriteBatcher.Stats batches = DB.getWriteBatcher().stats();
+                response.set("writeBatch", JsonUtils.createObject()
+                                                    .put("batches", batches.batches())
+                                                    .put("operations", batches.operations())
+                                                    .put("retries", batches.retries())
+                                                    .put("queued", batches.queued()));
+
+                if (SeatLedger.current() != null) {
+                    SeatLedger.Stats ledger = SeatLedger.current().stats();
+                    response.set("seatLedger", JsonUtils.createObject()
+                                                        .put("sections", ledger.sections())
+                                                        .put("courses", ledger.courses())
+                                                        .put("registrations", ledger.registrations())
+                                                        .put("fsyncs", ledger.fsyncs())
+                                                        .put("walBytes", ledger.walBytes())
+                                                        .put("dirtyCourses", ledger.dirtyCourses()));
+                }
+
                 log.info("Server stats fetched: {}", response);
                 return Single.just(response);
             } catch (Exception e) {
@@ -2801,11 +2748,787 @@ public class Main {
                 return Single.error(new RuntimeException("Failed to get server stats: " + e.getMessage()));
             }
         }));
+
+        // pool gauges, per operation pool wait vs run time and the latest slow statements (see DbTelemetry)
+        server.registerMethod("getDbStats", (_, _) -> Single.defer(() -> {
+            try {
+                DbTelemetry.Snapshot snapshot = DbTelemetry.snapshot();
+                ObjectNode           response = JsonUtils.createObject()
+                                                         .put("operations", snapshot.operations())
+                                                         .put("acquireMillis", snapshot.acquireMillis())
+                                                         .put("runMillis", snapshot.runMillis())
+                                                         .put("slowTotal", snapshot.slowTotal())
+                                                         .put("schedulerRunning", DbScheduler.running())
+                                                         .put("schedulerWaiting", DbScheduler.waiting())
+                                                         .put("platformThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+
+                ArrayNode pools = response.putArray("pools");
+                snapshot.pools().forEach(pool -> pools.addObject()
+                                                      .put("name", pool.name())
+                                                      .put("active", pool.active())
+                                                      .put("idle", pool.idle())
+                                                      .put("pending", pool.pending())
+                                                      .put("total", pool.total()));
+
+                ArrayNode operations = response.putArray("byOperation");
+                snapshot.byOperation().forEach(operation -> {
+                    ObjectNode node = operations.addObject()
+                                                .put("name", operation.name())
+                                                .put("count", operation.count())
+                                                .put("failures", operation.failures())
+                                                .put("items", operation.items());
+                    node.set("acquire", timing(operation.acquire()));
+                    node.set("run", timing(operation.run()));
+                });
+
+                ArrayNode slow = response.putArray("slow");
+                snapshot.slow().forEach(statement -> slow.addObject()
+                                                         .put("at", statement.at())
+                                                         .put("scope", statement.scope())
+                                                         .put("shape", statement.shape())
+                                                         .put("binds", statement.binds())
+                                                         .put("millis", statement.millis()));
+
+                Replicas.Stats replicas = Replicas.stats();
+                response.put("primaryReads", replicas.primaryReads());
+                ArrayNode replicaArray = response.putArray("replicas");
+                replicas.replicas().forEach(replica -> replicaArray.addObject()
+                                                                   .put("url", replica.url())
+                                                                   .put("usable", replica.usable())
+                                                                   .put("lagBytes", replica.lagBytes())
+                                                                   .put("reads", replica.reads())
+                                                                   .put("problem", replica.problem()));
+
+                return Single.just(response);
+            } catch (Exception e) {
+                log.error("Failed to get database stats", e);
+                return Single.error(new RuntimeException("Failed to get database stats: " + e.getMessage()));
+            }
+        }));
+
+        // what changed in a client table since its last seq (see ChangeFeed): rows in the getAll shape plus deleted ids,
+        // or reload=true and the seq to continue from once the client has fetched the whole table again
+        server.registerMethod("Sync.changesSince", (params, _) -> Single.defer(() -> {
+            try {
+                String type = JsonUtils.getString(params, "type");
+                long   seq  = JsonUtils.getLong(params, "seq");
+                if (!SYNC_TYPES.contains(type)) throw new IllegalArgumentException("Sync not supported for " + type);
+
+                ChangeFeed.Delta delta    = ChangeFeed.since(type, seq);
+                ObjectNode       response = JsonUtils.createObject().put("type", type).put("seq", delta.seq()).put("reload", delta.reload());
+                List<UUID>       upserted = new ArrayList<>();
+                ArrayNode        deleted  = response.putArray("deleted");
+                delta.changes().forEach(change -> {
+                    if (change.kind() == ChangeFeed.Kind.DELETE) deleted.add(change.id().toString());
+                    else upserted.add(change.id());
+                });
+
+                return syncRows(type, upserted)
+                         .map(rows -> {
+                             ArrayNode upserts = response.putArray("upserts");
+                             rows.forEach(upserts::add);
+                             return (JsonNode) response;
+                         })
+                         .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to sync " + type + ": " + error.getMessage())));
+            } catch (Exception e) {
+                return Single.error(new RuntimeException("Invalid sync parameters: " + e.getMessage()));
+            }
+        }));
+    }
+
+    // rows of a sync delta, read on the primary so they are at least as new as the change that named them
+    private static Single<List<JsonNode>> syncRows(String type, List<UUID> ids) {
+        if (ids.isEmpty()) return Single.just(List.of());
+
+        Map<String, List<UUID>> parameters = Map.of("ids", ids);
+        return switch (type) {
+            case "Course" -> DB.projectOnPrimary("SELECT " + COURSE_SELECT + " FROM Course e " + COURSE_JOINS + " WHERE e.id IN :ids", CourseRow.class, parameters)
+                               .map(rows -> rows.stream().map(Main::buildCourseJson).toList());
+            case "Section" -> DB.projectOnPrimary("SELECT " + SECTION_SELECT + " FROM Section e " + SECTION_JOINS + " WHERE e.id IN :ids", SectionRow.class, parameters)
+                                .flatMap(rows -> buildSectionJson(rows, true));
+            case "Student" -> DB.projectOnPrimary("SELECT e.id, e.name, e.email, e.universityId FROM Student e WHERE e.id IN :ids", StudentRow.class, parameters)
+                                .map(rows -> rows.stream().map(Main::buildStudentJson).toList());
+            default -> Single.error(new IllegalArgumentException("Sync not supported for " + type));
+        };
+    }
+
+    // Helper method for paged getAll: keyset page by (sortField, id) with an opaque "nextCursor"
+    // old clients that still send a non-zero "offset" without a cursor get the offset read
+    private static <T> Single<ObjectNode> readPage(Class<T> type, JsonNode params, String sortField, boolean ascending, int limit, Function<T, JsonNode> mapper) {
+        String cursor = JsonUtils.getStringOptional(params, "cursor").orElse(null);
+        int    offset = JsonUtils.getIntOptional(params, "offset").orElse(0);
+
+        Single<Page<JsonNode>> page = cursor == null && offset > 0
+                                      ? DB.read(type, sortField, ascending, limit, offset).map(mapper::apply).toList().map(list -> new Page<>(list, null))
+                                      : DB.readAfter(type, sortField, ascending, cursor, limit, mapper);
+
+        return page.map(result -> pageResponse(result, Function.identity()));
+    }
+
+    // Same paging as readPage but over a projection (see DB.projectAfter), select/joins use "e" as the root alias
+    private static <R> Single<Page<R>> projectPage(Class<?> type, String select, String joins, Class<R> recordType, JsonNode params, String sortField, boolean ascending, int limit) {
+        String cursor = JsonUtils.getStringOptional(params, "cursor").orElse(null);
+        int    offset = JsonUtils.getIntOptional(params, "offset").orElse(0);
+        String order  = ascending ? " ASC" : " DESC";
+
+        if (cursor == null && offset > 0) {
+            String hql = "SELECT " + select + " FROM " + type.getSimpleName() + " e " + joins + " ORDER BY e." + sortField + order + ", e.id" + order;
+            return DB.project(hql, recordType, Map.of(), limit, offset).map(rows -> new Page<>(rows, null));
+        }
+
+        return DB.projectAfter(type, select, joins, recordType, sortField, ascending, cursor, limit);
+    }
+
+    // Helper method to build {"items": [...], "nextCursor": ...}
+    private static <R> ObjectNode pageResponse(Page<R> page, Function<R, JsonNode> mapper) {
+        ObjectNode response = JsonUtils.createObject();
+        ArrayNode  items    = JsonUtils.createArray();
+        page.items().forEach(item -> items.add(mapper.apply(item)));
+        response.set("items", items);
+        if (page.nextCursor() != null) response.put("nextCursor", page.nextCursor());
+        return response;
+    }
+
+    // Helper method to read an array of id strings
+    private static List<UUID> uuids(ArrayNode ids) {
+        List<UUID> uuids = new ArrayList<>(ids.size());
+        ids.forEach(id -> uuids.add(UUID.fromString(id.asText())));
+        return uuids;
+    }
+
+    // Helper method to build one DbTelemetry timing, all in milliseconds
+    private static JsonNode timing(DbTelemetry.Timing timing) {
+        return JsonUtils.createObject()
+                        .put("totalMillis", timing.totalMillis())
+                        .put("p50Millis", timing.p50Millis())
+                        .put("p95Millis", timing.p95Millis())
+                        .put("p99Millis", timing.p99Millis())
+                        .put("maxMillis", timing.maxMillis());
+    }
+
+    // Helper method to build one Search.query result
+    private static JsonNode searchHit(String type, UUID id, String title, String subtitle) {
+        return JsonUtils.createObject()
+                        .put("type", type)
+                        .put("id", id.toString())
+                        .put("title", title)
+                        .put("subtitle", subtitle);
     }
 
-    // Helper method to get first time slot
-    private static int getFirstTimeSlot(Section section) {
-        return section.getSpaceTimeSlots().stream().findFirst().map(SpaceTime::getTimeSlot).orElse(1);
+    // Moves a course into a section (or back to SELECTED when sectionId is null), inside the caller's transaction
+    // the seat is claimed by a conditional UPDATE on sections.seats_taken, so concurrent callers can never overbook
+    // Course.updateRegistration runs it in a write batch with other registrations, see DB.batched
+    public static JsonNode registerCourse(Session session, UUID courseId, UUID sectionId) {
+        // Load course with existing section if any
+        var course = session.createQuery("SELECT c FROM Course c " + "LEFT JOIN FETCH c.section s " + "JOIN FETCH c.trimester t " + "WHERE c.id = :courseId", Course.class)
+                            .setParameter("courseId", courseId)
+                            .uniqueResult();
+
+        if (course == null) {
+            throw new IllegalArgumentException("Course not found");
+        }
+
+        // Verify trimester is in SECTION_SELECTION
+        if (course.getTrimester().getStatus() != TrimesterStatus.SECTION_SELECTION) {
+            throw new IllegalStateException("Section selection is not active");
+        }
+
+        if (course.getTrimester().getAllocationMode() == AllocationMode.PREFERENCE) {
+            throw new IllegalStateException("Sections are allocated from preferences in this trimester, use Course.submitPreferences");
+        }
+
+        if (sectionId != null) {
+            // Load new section with space-times
+            var section = session.createQuery("SELECT s FROM Section s " + "JOIN FETCH s.spaceTimeSlots " + "WHERE s.id = :sectionId", Section.class)
+                                 .setParameter("sectionId", sectionId)
+                                 .uniqueResult();
+
+            if (section == null) {
+                throw new IllegalArgumentException("Section not found");
+            }
+
+            // Claim the seat atomically, re-registering into the same section takes nothing
+            moveSeat(session, course, heldSeat(course), section);
+
+            course.setStatus(CourseStatus.REGISTERED);
+            course.setSection(section);
+        } else {
+            moveSeat(session, course, heldSeat(course), null);
+
+            course.setStatus(CourseStatus.SELECTED);
+            course.setSection(null);
+        }
+
+        session.merge(course);
+
+        return registrationResponse(course.getId(), course.getStatus(), course.getSection() == null ? null : course.getSection().getId());
+    }
+
+    // Course.updateStatus inside the caller's transaction, the seat follows the status
+    public static JsonNode updateCourseStatus(Session session, UUID courseId, CourseStatus newStatus, UUID sectionId, Double grade) {
+        Course course = session.get(Course.class, courseId);
+        if (course == null) throw new IllegalArgumentException("Course not found");
+        UUID held = heldSeat(course);
+
+        if (sectionId != null) {
+            Section section = session.get(Section.class, sectionId);
+            if (section == null) throw new IllegalArgumentException("Section not found");
+            course.setSection(section);
+        }
+
+        if (newStatus == CourseStatus.SELECTED || newStatus == CourseStatus.REGISTERED) requireEligible(course.getStudent().getId(), course.getSubject());
+        course.setStatus(newStatus);
+        if (grade != null) {
+            course.setGrade(grade);
+        }
+
+        Section wanted = newStatus == CourseStatus.REGISTERED ? course.getSection() : null;
+        requireOutsideLedger(courseId, held, wanted == null ? null : wanted.getId());
+        moveSeat(session, course, held, wanted);
+        Eligibility.savedOnCommit(session, course);
+
+        ObjectNode courseObj = JsonUtils.createObject()
+                                        .put("id", course.getId().toString())
+                                        .put("status", course.getStatus().toString());
+
+        if (course.getSection() != null) {
+            courseObj.put("sectionId", course.getSection().getId().toString());
+            courseObj.put("sectionName", course.getSection().getName());
+        }
+        if (course.getGrade() != null) {
+            courseObj.put("grade", course.getGrade());
+        }
+
+        return courseObj;
+    }
+
+    // Course.delete inside the caller's transaction, a registered course gives its seat back
+    public static JsonNode deleteCourse(Session session, UUID courseId) {
+        Course course = session.get(Course.class, courseId);
+        if (course == null) throw new IllegalArgumentException("Course not found");
+
+        UUID held = heldSeat(course);
+        requireOutsideLedger(courseId, held);
+        moveSeat(session, course, held, null);
+        session.remove(course);
+        Eligibility.removedOnCommit(session, courseId);
+
+        return JsonUtils.createObject().put("success", true);
+    }
+
+    // moves a course's seat from held to wanted inside the caller's transaction, either may be null and the same section moves nothing
+    // every write that puts a course into or out of REGISTERED comes through here, so the counter and the clash check see all of them
+    private static void moveSeat(Session session, Course course, UUID held, Section wanted) {
+        UUID target = wanted == null ? null : wanted.getId();
+        if (Objects.equals(held, target)) return;
+
+        if (target != null) {
+            // the student's row serializes their own registrations, so two clashing sections can't both pass the check
+            session.createNativeQuery("SELECT user_id FROM students WHERE user_id = :id FOR NO KEY UPDATE", UUID.class)
+                   .setParameter("id", course.getStudent().getId())
+                   .getSingleResult();
+            // a section loaded elsewhere has no slots fetched, its mask comes from the database
+            long mask = Hibernate.isInitialized(wanted.getSpaceTimeSlots()) ? ScheduleMask.of(wanted.getSpaceTimeSlots()) : ScheduleMask.forSection(session, target);
+            long busy = ScheduleMask.forStudent(session, course.getStudent().getId(), course.getTrimester().getId(), course.getId());
+            if (ScheduleMask.clashes(busy, mask)) {
+                throw new IllegalStateException("Section clashes with your registered schedule");
+            }
+            if (!DB.takeSeat(session, target)) {
+                throw new IllegalStateException("Section is full");
+            }
+        }
+        if (held != null) DB.releaseSeat(session, held);
+    }
+
+    // the seat ledger writes its trimester's courses and seat counts from memory, a write around it would be lost on its next flush
+    private static void requireOutsideLedger(UUID courseId, UUID... sectionIds) {
+        SeatLedger ledger = SeatLedger.current();
+        if (ledger == null) return;
+        if ((courseId != null && ledger.owns(courseId)) || Arrays.stream(sectionIds).anyMatch(id -> id != null && ledger.tracks(id))) {
+            throw new IllegalStateException("Registrations of this trimester are held by the seat ledger, use Course.updateRegistration");
+        }
+    }
+
+    // the section a course holds a seat in: only REGISTERED courses count (see DB.reconcileSeats),
+    // a dropped or completed course keeps its section but not the seat
+    private static UUID heldSeat(Course course) {
+        return course.getStatus() == CourseStatus.REGISTERED && course.getSection() != null ? course.getSection().getId() : null;
+    }
+
+    // Helper method to build the Course.updateRegistration response, same shape for both paths
+    private static JsonNode registrationResponse(UUID courseId, CourseStatus status, UUID sectionId) {
+        ObjectNode response = JsonUtils.createObject()
+                                       .put("success", true)
+                                       .put("courseId", courseId.toString())
+                                       .put("status", status.toString());
+
+        if (sectionId != null) {
+            response.put("sectionId", sectionId.toString());
+        }
+
+        return response;
+    }
+
+    // runs inside a write batch, so the session and transaction belong to the caller
+    public static JsonNode submitPreferences(Session session, UUID courseId, List<UUID> sectionIds) {
+        var course = session.createQuery("SELECT c FROM Course c JOIN FETCH c.trimester WHERE c.id = :courseId", Course.class)
+                            .setParameter("courseId", courseId)
+                            .uniqueResult();
+
+        if (course == null) {
+            throw new IllegalArgumentException("Course not found");
+        }
+
+        if (course.getTrimester().getStatus() != TrimesterStatus.SECTION_SELECTION) {
+            throw new IllegalStateException("Section selection is not active");
+        }
+
+        if (course.getTrimester().getAllocationMode() != AllocationMode.PREFERENCE) {
+            throw new IllegalStateException("Sections are first come first served in this trimester, use Course.updateRegistration");
+        }
+
+        if (course.getStatus() != CourseStatus.SELECTED) {
+            throw new IllegalStateException("Only selected courses take preferences");
+        }
+
+        // every ranked section has to be one of this course's subject in this trimester
+        long matching = sectionIds.isEmpty() ? 0 : session.createSelectionQuery("""
+                                                                                SELECT COUNT(s) FROM Section s
+                                                                                WHERE s.id IN (:sectionIds) AND s.subject = :subject AND s.trimester = :trimester
+                                                                                """, Long.class)
+                                                          .setParameter("sectionIds", sectionIds)
+                                                          .setParameter("subject", course.getSubject())
+                                                          .setParameter("trimester", course.getTrimester())
+                                                          .getSingleResult();
+
+        if (matching != sectionIds.size()) {
+            throw new IllegalArgumentException("Sections must belong to the course's subject and trimester");
+        }
+
+        // a bulk delete passes no hibernate event, the change feed hears about the rows once this commits
+        List<UUID> replaced = session.createSelectionQuery("SELECT p.id FROM SectionPreference p WHERE p.course = :course", UUID.class).setParameter("course", course).getResultList();
+        session.createMutationQuery("DELETE FROM SectionPreference p WHERE p.course = :course").setParameter("course", course).executeUpdate();
+        ChangeFeed.recordAfterCommit(session, SectionPreference.class, replaced, ChangeFeed.Kind.DELETE);
+        for (int i = 0; i < sectionIds.size(); i++) {
+            SectionPreference preference = new SectionPreference();
+            preference.setCourse(course);
+            preference.setSection(session.getReference(Section.class, sectionIds.get(i)));
+            preference.setPreferenceRank(i + 1);
+            session.persist(preference);
+        }
+
+        ArrayNode ranked = JsonUtils.createArray();
+        sectionIds.forEach(id -> ranked.add(id.toString()));
+
+        ObjectNode response = JsonUtils.createObject().put("success", true).put("courseId", courseId.toString());
+        response.set("sectionIds", ranked);
+        return response;
+    }
+
+    // everything the subject needs from the prerequisite graph, each entry before the subjects that need it, with its own direct requirements
+    private static Single<JsonNode> prerequisiteChain(UUID subjectId) {
+        List<UUID> chain = PrerequisiteGraph.chain(subjectId);
+        List<UUID> ids   = new ArrayList<>(chain);
+        ids.add(subjectId);
+
+        return DB.project("SELECT e.id, e.name FROM Subject e WHERE e.id IN (:ids)", IdName.class, Map.of("ids", ids))
+                 .map(rows -> {
+                     Map<UUID, String> names = rows.stream().collect(Collectors.toMap(IdName::id, IdName::name));
+                     ArrayNode         items = JsonUtils.createArray();
+                     for (UUID id : chain) items.add(requirementsJson(id, names));
+
+                     ObjectNode response = requirementsJson(subjectId, names);
+                     response.set("chain", items);
+                     return (JsonNode) response;
+                 })
+                 .onErrorResumeNext(error -> Single.error(new RuntimeException("Failed to get prerequisite chain: " + error.getMessage())));
+    }
+
+    private static ObjectNode requirementsJson(UUID subjectId, Map<UUID, String> names) {
+        ObjectNode subject  = JsonUtils.createObject().put("subjectId", subjectId.toString()).put("subjectName", names.get(subjectId));
+        ArrayNode  requires = subject.putArray("requires");
+        for (PrerequisiteGraph.Requirement requirement : PrerequisiteGraph.direct(subjectId)) {
+            requires.add(JsonUtils.createObject()
+                                  .put("prerequisiteId", requirement.prerequisiteId().toString())
+                                  .put("prerequisiteName", names.get(requirement.prerequisiteId()))
+                                  .put("minimumGrade", requirement.minimumGrade()));
+        }
+        return subject;
+    }
+
+    // one Section.seats push per viewing session and window, with the sections of the subjects it subscribed to
+    private static void pushSeats(List<SeatFeed.Update> updates) {
+        Map<String, List<SeatFeed.Update>> bySubject = updates.stream().collect(Collectors.groupingBy(update -> SUBJECT_TAG + update.subjectId()));
+
+        for (SessionInfo session : SessionManager.getInstance().getActiveSessions()) {
+            ArrayNode sections = JsonUtils.createArray();
+            for (String tag : session.getTags()) {
+                for (SeatFeed.Update update : bySubject.getOrDefault(tag, List.of())) {
+                    sections.add(JsonUtils.createObject()
+                                          .put("sectionId", update.sectionId().toString())
+                                          .put("currentCapacity", update.seatsTaken())
+                                          .put("maxCapacity", update.maxCapacity()));
+                }
+            }
+            if (sections.isEmpty()) continue;
+
+            ObjectNode params = JsonUtils.createObject();
+            params.set("sections", sections);
+            ServerRPC.getInstance()
+                     .call("Section.seats", params, session.getSessionToken())
+                     .subscribe(_ -> {}, error -> log.debug("Seat push to {} failed: {}", session.getSessionToken(), error.getMessage()));
+        }
+    }
+
+    // throws unless the student has every prerequisite of the subject, see Eligibility
+    // missing subjects are named from the reference cache (warmed at boot) without loading, this runs inside write batches
+    // (so does Eligibility, it throws rather than load while its boot load is not in yet)
+    private static void requireEligible(UUID studentId, Subject subject) {
+        if (Eligibility.eligible(studentId, subject.getId())) return;
+
+        String missing = Eligibility.missing(studentId, subject.getId())
+                                    .stream()
+                                    .map(requirement -> RefCache.cached(Subject.class, requirement.prerequisiteId())
+                                                                .map(Subject::getCodeName)
+                                                                .orElse(requirement.prerequisiteId().toString()) + " (" + requirement.minimumGrade() + ")")
+                                    .collect(Collectors.joining(", "));
+        throw new IllegalStateException("Prerequisites not met for " + subject.getName() + ": " + missing);
+    }
+
+    // allocates a preference trimester and tells every online student what they got
+    private static Single<JsonNode> allocateSections(UUID trimesterId, SectionAllocator.Strategy strategy, long seed) {
+        return SectionAllocator.allocate(trimesterId, strategy, seed).map(result -> allocated(trimesterId, result));
+    }
+
+    private static JsonNode allocated(UUID trimesterId, SectionAllocator.Result result) {
+        Map<UUID, ArrayNode> byStudent = new HashMap<>();
+        for (SectionAllocator.Placement placement : result.placements()) {
+            ObjectNode course = JsonUtils.createObject().put("courseId", placement.courseId().toString());
+            if (placement.sectionId() != null) course.put("sectionId", placement.sectionId().toString());
+            byStudent.computeIfAbsent(placement.studentId(), _ -> JsonUtils.createArray()).add(course);
+        }
+
+        for (SessionInfo session : SessionManager.getInstance().getActiveSessions()) {
+            ArrayNode courses;
+            try {
+                courses = byStudent.get(UUID.fromString(session.getUserId()));
+            } catch (IllegalArgumentException e) {
+                continue; // not a user session
+            }
+            if (courses == null) continue;
+
+            ObjectNode params = JsonUtils.createObject().put("trimesterId", trimesterId.toString());
+            params.set("courses", courses);
+            ServerRPC.getInstance()
+                     .call("Course.allocated", params, session.getSessionToken())
+                     .subscribe(_ -> {}, error -> log.debug("Allocation push to {} failed: {}", session.getSessionToken(), error.getMessage()));
+        }
+
+        return JsonUtils.createObject()
+                        .put("strategy", result.strategy().toString())
+                        .put("seed", result.seed())
+                        .put("courses", result.courses())
+                        .put("allocated", result.allocated())
+                        .put("rounds", result.rounds())
+                        .put("millis", result.millis());
+    }
+
+    // Section selection board for a student: sections of every selected/registered subject grouped by day
+    // runs a fixed 3 statements (trimester, courses, sections) regardless of how many sections there are
+    public static JsonNode buildSchedule(UUID userId) {
+        return buildSchedule(userId, false);
+    }
+
+    // sections that overlap the student's other registered courses are flagged with "clashes", or left out with hideClashes
+    // the layout comes from the shared SectionCatalog snapshot, only the student's courses and seat counts are read per call
+    public static JsonNode buildSchedule(UUID userId, boolean hideClashes) {
+        // a read of the student's own rows, a replica a moment behind is fine; the layout is built on the primary
+        return DB.<JsonNode>execReplica(session -> {
+            // 1. Get active trimester
+            var trimester = session.createQuery("FROM Trimester t WHERE t.status = :status", Trimester.class)
+                                   .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                                   .setMaxResults(1)
+                                   .uniqueResult();
+
+            if (trimester == null) {
+                return JsonUtils.createObject()
+                                .put("error", "No active section selection period found");
+            }
+
+            // 2. Student's courses: courseId, subjectId, subjectName, subjectCode, subjectType, status, sectionId
+            List<Object[]> courses = session.createSelectionQuery("""
+                                                                  SELECT c.id, sub.id, sub.name, sub.codeName, sub.type, c.status, sec.id
+                                                                  FROM Course c JOIN c.subject sub LEFT JOIN c.section sec
+                                                                  WHERE c.student.id = :userId AND c.trimester.id = :trimesterId AND c.status IN (:statuses)
+                                                                  """, Object[].class)
+                                            .setParameter("userId", userId)
+                                            .setParameter("trimesterId", trimester.getId())
+                                            .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                                            .getResultList();
+
+            if (courses.isEmpty()) {
+                return JsonUtils.createObject().put("error", "No courses found for section selection");
+            }
+
+            // 3. Shared section layout, live seat counts on top
+            SectionCatalog.Snapshot catalog    = SectionCatalog.of(trimester.getId());
+            Set<UUID>               subjectIds = courses.stream().map(row -> (UUID) row[1]).collect(Collectors.toSet());
+            Map<UUID, Integer>      seats      = liveSeats(session, trimester.getId(), subjectIds);
+
+            ObjectNode response = JsonUtils.createObject();
+            response.put("trimesterId", trimester.getId().toString())
+                    .put("trimesterCode", trimester.getCode())
+                    .put("catalogVersion", catalog.version());
+
+            ArrayNode subjectsArray = JsonUtils.createArray();
+            for (Object[] course : courses) {
+                UUID       subjectId = (UUID) course[1];
+                UUID       sectionId = course[5] == CourseStatus.REGISTERED ? (UUID) course[6] : null;
+                ObjectNode subjectNode = JsonUtils.createObject()
+                                                  .put("subjectId", subjectId.toString())
+                                                  .put("subjectName", (String) course[2])
+                                                  .put("subjectCode", (String) course[3])
+                                                  .put("courseId", course[0].toString())
+                                                  .put("subjectType", course[4].toString());
+
+                // What the student's other registered courses already occupy
+                long busy = ScheduleMask.EMPTY;
+                for (Object[] other : courses) {
+                    if (other != course && other[5] == CourseStatus.REGISTERED && other[6] != null) busy |= catalog.mask((UUID) other[6]);
+                }
+
+                ArrayNode daysArray = JsonUtils.createArray();
+                for (SectionCatalog.Group group : catalog.groups(subjectId)) {
+                    ObjectNode dayNode       = JsonUtils.createObject().put("day", group.day());
+                    ArrayNode  sectionsArray = JsonUtils.createArray();
+
+                    for (SectionCatalog.Entry section : group.sections()) {
+                        boolean isRegistered = section.sectionId().equals(sectionId);
+                        boolean clashes      = ScheduleMask.clashes(busy, section.mask());
+                        if (clashes && hideClashes && !isRegistered) continue;
+
+                        sectionsArray.add(JsonUtils.createObject()
+                                                   .put("sectionId", section.sectionId().toString())
+                                                   .put("sectionCode", section.code())
+                                                   .put("currentCapacity", seats.getOrDefault(section.sectionId(), 0))
+                                                   .put("maxCapacity", section.maxCapacity())
+                                                   .put("timeSlot", section.timeSlot())
+                                                   .put("isRegistered", isRegistered)
+                                                   .put("clashes", clashes));
+                    }
+                    dayNode.set("sections", sectionsArray);
+                    daysArray.add(dayNode);
+                }
+
+                subjectNode.set("days", daysArray);
+                subjectsArray.add(subjectNode);
+            }
+
+            response.set("subjects", subjectsArray);
+            return response;
+        }, "Course.getSchedule");
+    }
+
+    // seats taken per section of these subjects; while the seat ledger tracks a section its count wins, the table lags behind it
+    private static Map<UUID, Integer> liveSeats(Session session, UUID trimesterId, Set<UUID> subjectIds) {
+        Map<UUID, Integer> seats  = new HashMap<>();
+        SeatLedger         ledger = SeatLedger.current();
+        session.createSelectionQuery("SELECT s.id, s.seatsTaken FROM Section s WHERE s.trimester.id = :trimesterId AND s.subject.id IN (:subjectIds)", Object[].class)
+               .setParameter("trimesterId", trimesterId)
+               .setParameter("subjectIds", subjectIds)
+               .getResultList()
+               .forEach(row -> {
+                   UUID sectionId = (UUID) row[0];
+                   seats.put(sectionId, ledger != null && ledger.tracks(sectionId) ? ledger.seatsTaken(sectionId) : (Integer) row[1]);
+               });
+        return seats;
+    }
+
+    // candidate sections of every SELECTED course around the REGISTERED ones, laid out by SectionCatalog
+    public static JsonNode generateRoutines(UUID userId, RoutineGenerator.Preferences preferences, int limit) {
+        // the reads go to a replica like Course.getSchedule, the search runs after the connection is back in the pool
+        RoutineInput input = DB.execReplica(session -> {
+            var trimester = session.createQuery("FROM Trimester t WHERE t.status = :status", Trimester.class)
+                                   .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                                   .setMaxResults(1)
+                                   .uniqueResult();
+            if (trimester == null) throw new IllegalStateException("No active section selection period found");
+
+            // courseId, subjectId, subjectCode, status, sectionId
+            List<Object[]> courses = session.createSelectionQuery("""
+                                                                  SELECT c.id, c.subject.id, c.subject.codeName, c.status, s.id FROM Course c LEFT JOIN c.section s
+                                                                  WHERE c.student.id = :userId AND c.trimester.id = :trimesterId AND c.status IN (:statuses)
+                                                                  """, Object[].class)
+                                            .setParameter("userId", userId)
+                                            .setParameter("trimesterId", trimester.getId())
+                                            .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                                            .getResultList();
+            if (courses.isEmpty()) throw new IllegalStateException("No courses found for section selection");
+
+            Set<UUID> subjectIds = courses.stream().map(row -> (UUID) row[1]).collect(Collectors.toSet());
+
+            SectionCatalog.Snapshot catalog  = SectionCatalog.of(trimester.getId());
+            Map<UUID, Integer>      seats    = liveSeats(session, trimester.getId(), subjectIds);
+            Map<UUID, Set<UUID>>    teachers = new HashMap<>();
+            if (!preferences.preferredFaculty().isEmpty() && !seats.isEmpty()) {
+                session.createSelectionQuery("SELECT s.id, f.id FROM Section s JOIN s.teachers f WHERE s.id IN (:sectionIds)", Object[].class)
+                       .setParameter("sectionIds", seats.keySet())
+                       .getResultList()
+                       .forEach(row -> teachers.computeIfAbsent((UUID) row[0], _ -> new HashSet<>()).add((UUID) row[1]));
+            }
+
+            long                                fixed   = ScheduleMask.EMPTY;
+            List<Object[]>                      open    = new ArrayList<>();
+            List<List<RoutineGenerator.Option>> options = new ArrayList<>();
+            for (Object[] course : courses) {
+                if (course[3] == CourseStatus.REGISTERED) {
+                    if (course[4] != null) fixed |= catalog.mask((UUID) course[4]);
+                    continue;
+                }
+
+                List<RoutineGenerator.Option> candidates = new ArrayList<>();
+                for (SectionCatalog.Entry section : catalog.sections((UUID) course[1])) {
+                    boolean full = seats.getOrDefault(section.sectionId(), 0) >= section.maxCapacity();
+                    candidates.add(new RoutineGenerator.Option((UUID) course[0], section.sectionId(), section.code(), section.mask(), full, teachers.getOrDefault(section.sectionId(), Set.of())));
+                }
+                open.add(course);
+                options.add(candidates);
+            }
+            return new RoutineInput(trimester.getId(), open, fixed, options);
+        }, "Schedule.generate");
+
+        RoutineGenerator.Result result   = RoutineGenerator.generate(input.fixed(), input.options(), preferences, limit);
+        ArrayNode               routines = JsonUtils.createArray();
+        for (RoutineGenerator.Routine routine : result.routines()) {
+            ArrayNode picks = JsonUtils.createArray();
+            for (int i = 0; i < input.open().size(); i++) {
+                RoutineGenerator.Option option = routine.sections().get(i);
+                picks.add(JsonUtils.createObject()
+                                   .put("courseId", option.courseId().toString())
+                                   .put("subjectId", input.open().get(i)[1].toString())
+                                   .put("subjectCode", (String) input.open().get(i)[2])
+                                   .put("sectionId", option.sectionId().toString())
+                                   .put("sectionCode", option.sectionCode())
+                                   .put("full", option.full()));
+            }
+            routines.add(JsonUtils.createObject().put("score", routine.cost()).set("sections", picks));
+        }
+
+        ObjectNode response = JsonUtils.createObject()
+                                       .put("trimesterId", input.trimesterId().toString())
+                                       .put("courses", input.open().size())
+                                       .put("visited", result.visited())
+                                       .put("millis", result.millis());
+        response.set("routines", routines);
+        return response;
+    }
+
+    private static JsonNode buildStudentJson(StudentRow student) {
+        return JsonUtils.createObject()
+                        .put("id", student.id().toString())
+                        .put("name", student.name())
+                        .put("email", student.email())
+                        .put("universityId", student.universityId().toString());
+    }
+
+    // Helper method to build course JSON
+    private static JsonNode buildCourseJson(CourseRow course) {
+        ObjectNode courseObj = JsonUtils.createObject()
+                                        .put("id", course.id().toString())
+                                        .put("version", course.version())
+                                        .put("studentId", course.studentId().toString())
+                                        .put("studentName", course.studentName())
+                                        .put("subjectId", course.subjectId().toString())
+                                        .put("subjectName", course.subjectName())
+                                        .put("trimesterId", course.trimesterId().toString())
+                                        .put("trimesterCode", course.trimesterCode())
+                                        .put("status", course.status().toString());
+
+        if (course.sectionId() != null) {
+            courseObj.put("sectionId", course.sectionId().toString());
+            courseObj.put("sectionName", course.sectionName());
+        }
+        if (course.grade() != null) {
+            courseObj.put("grade", course.grade());
+        }
+
+        return courseObj;
+    }
+
+    // Helper method to build section JSON for a whole page
+    // slots and teachers of every section come from one IN query each instead of two lazy loads per section
+    private static Single<List<JsonNode>> buildSectionJson(List<SectionRow> sections) {
+        return buildSectionJson(sections, false);
+    }
+
+    // primary: slots and teachers from the primary too, for sync deltas
+    private static Single<List<JsonNode>> buildSectionJson(List<SectionRow> sections, boolean primary) {
+        if (sections.isEmpty()) return Single.just(List.of());
+
+        Map<String, List<UUID>> ids         = Map.of("ids", sections.stream().map(SectionRow::id).toList());
+        String                  slotsHql    = "SELECT s.id, st.id, st.name, st.roomNumber, st.dayOfWeek, st.timeSlot FROM Section s JOIN s.spaceTimeSlots st WHERE s.id IN :ids";
+        String                  teachersHql = "SELECT s.id, t.id, t.name, t.shortcode FROM Section s JOIN s.teachers t WHERE s.id IN :ids";
+
+        return Single.zip(primary ? DB.projectOnPrimary(slotsHql, SlotRow.class, ids) : DB.project(slotsHql, SlotRow.class, ids),
+                          primary ? DB.projectOnPrimary(teachersHql, TeacherRow.class, ids) : DB.project(teachersHql, TeacherRow.class, ids),
+                          (slotRows, teacherRows) -> {
+                              Map<UUID, List<SlotRow>>    slotsBySection    = slotRows.stream().collect(Collectors.groupingBy(SlotRow::sectionId));
+                              Map<UUID, List<TeacherRow>> teachersBySection = teacherRows.stream().collect(Collectors.groupingBy(TeacherRow::sectionId));
+                              List<JsonNode>              result            = new ArrayList<>(sections.size());
+
+                              for (SectionRow section : sections) {
+                                  ObjectNode sectionObj = JsonUtils.createObject()
+                                                                   .put("id", section.id().toString())
+                                                                   .put("name", section.name())
+                                                                   .put("section", section.section())
+                                                                   .put("subjectId", section.subjectId().toString())
+                                                                   .put("subjectName", section.subjectName())
+                                                                   .put("trimesterId", section.trimesterId().toString())
+                                                                   .put("maxCapacity", section.maxCapacity())
+                                                                   .put("currentCapacity", section.currentCapacity());
+
+                                  // Add space-time slots
+                                  ArrayNode slots = JsonUtils.createArray();
+                                  slotsBySection.getOrDefault(section.id(), List.of()).forEach(slot -> {
+                                      slots.add(JsonUtils.createObject()
+                                                         .put("id", slot.id().toString())
+                                                         .put("name", slot.name())
+                                                         .put("roomNumber", slot.roomNumber())
+                                                         .put("dayOfWeek", slot.dayOfWeek().toString())
+                                                         .put("timeSlot", slot.timeSlot()));
+                                  });
+                                  sectionObj.set("spaceTimeSlots", slots);
+
+                                  // Add teachers
+                                  ArrayNode teachers = JsonUtils.createArray();
+                                  teachersBySection.getOrDefault(section.id(), List.of()).forEach(teacher -> {
+                                      teachers.add(JsonUtils.createObject()
+                                                            .put("id", teacher.id().toString())
+                                                            .put("name", teacher.name())
+                                                            .put("shortcode", teacher.shortcode()));
+                                  });
+                                  sectionObj.set("teachers", teachers);
+
+                                  result.add(sectionObj);
+                              }
+
+                              return result;
+                          });
+    }
+
+    private static JsonNode importProgressJson(CsvImport.Progress progress) {
+        ObjectNode response = JsonUtils.createObject()
+                                       .put("importId", progress.importId().toString())
+                                       .put("kind", progress.kind().toString())
+                                       .put("rows", progress.rows())
+                                       .put("inserted", progress.inserted())
+                                       .put("failed", progress.failed())
+                                       .put("done", progress.done())
+                                       .put("millis", progress.millis());
+
+        ArrayNode errors = response.putArray("errors");
+        progress.errors().forEach(error -> errors.add(JsonUtils.createObject().put("row", error.row()).put("message", error.message())));
+        return response;
     }
 
     // Helper method to build trimester JSON
@@ -2815,7 +3538,8 @@ public class Main {
                                            .put("code", trimester.getCode())
                                            .put("year", trimester.getYear())
                                            .put("season", trimester.getSeason().toString())
-                                           .put("status", trimester.getStatus().toString());
+                                           .put("status", trimester.getStatus().toString())
+                                           .put("allocationMode", trimester.getAllocationMode().toString());
 
         if (trimester.getCourseSelectionStart() != null) trimesterObj.put("courseSelectionStart", trimester.getCourseSelectionStart()
                                                                                                            .toString());
@@ -2864,35 +3588,4 @@ public class Main {
 
         return notificationObj;
     }
-
-    // Helper to group sections by day, combining Sat/Thu and Sun/Wed
-    private static Map<String, List<Section>> groupSectionsByDay(List<Section> sections, SubjectType subjectType) {
-        Map<String, List<Section>> grouped = new HashMap<>();
-
-        for (Section section : sections) {
-            for (SpaceTime slot : section.getSpaceTimeSlots()) {
-                String day = slot.getDayOfWeek().toString();
-
-                // Convert to proper case (e.g., "Saturday")
-                day = day.charAt(0) + day.substring(1).toLowerCase();
-
-                // Process day based on subject type
-                if (subjectType == SubjectType.THEORY) {
-                    // Combine days for theory
-                    if (day.equals("Saturday") || day.equals("Tuesday")) {
-                        day = "Sat+Tue";
-                    } else if (day.equals("Sunday") || day.equals("Wednesday")) {
-                        day = "Sun+Wed";
-                    }
-                } else {
-                    // Short format for lab (first 3 letters capitalized)
-                    day = day.substring(0, 3); // "Sat", "Sun", etc.
-                }
-
-                grouped.computeIfAbsent(day, k -> new ArrayList<>()).add(section);
-            }
-        }
-
-        return grouped;
-    }
 }
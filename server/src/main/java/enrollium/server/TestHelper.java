@@ -19,11 +19,14 @@ public class TestHelper {
 
     // Common cleanup methods
     public static void cleanupTestData(Class<?> entityClass) {
-        DB.read(entityClass, 1_000_000, 0)
-          .filter(entity -> TEST_CREATOR.equals(((BaseEntity) entity).getCreatedBy()))
-          .toList()
-          .blockingGet()
-          .forEach(entity -> DB.delete(entityClass, ((BaseEntity) entity).getId()).blockingAwait());
+        DB.stream(entityClass, "e.createdBy = :creator", Map.of("creator", TEST_CREATOR), DB.STREAM_FETCH_SIZE)
+          .concatMapCompletable(entity -> DB.delete(entityClass, ((BaseEntity) entity).getId()))
+          .blockingAwait();
+    }
+
+    // Registration helper, blocks on the same write batch Course.updateRegistration uses
+    public static void register(UUID courseId, UUID sectionId) {
+        DB.batched("Course.updateRegistration", session -> Main.registerCourse(session, courseId, sectionId)).blockingGet();
     }
 
     // Student helpers
@@ -171,6 +174,7 @@ public class TestHelper {
     // Clean up all test data in correct order
     public static void cleanupAllTestData() {
         // Clean in reverse dependency order
+        cleanupTestData(SectionPreference.class);
         cleanupTestData(Course.class);
         cleanupTestData(Section.class);
         cleanupTestData(Prerequisite.class);
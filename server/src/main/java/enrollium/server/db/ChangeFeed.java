@@ -0,0 +1,126 @@
+package enrollium.server.db;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* What changed per entity type, so client tables fetch a delta instead of reloading
+ *
+ * hibernate's insert/update/delete events append (seq, id, kind) to the log of the entity's type once the transaction commits
+ * (DB.afterCommit, so a write batch operation rolled back to its savepoint logs nothing),
+ * seq only grows within a type; writes below hibernate append themselves (SeatLedger, SectionAllocator), bulk resets compact
+ * ChangeFeed.since(type, seq): the latest change of every id after seq, or reload when seq is older than the log:
+ * - more than CHANGE_FEED_SIZE changes of that type ago
+ * - before a compaction (clearAll, load generator)
+ * - from an earlier run: sequences start at the boot time in microseconds, the log itself is in memory
+ * the client reads seq before it reloads, so changes that land during the reload come again, applying them twice is fine
+ * seats taken are not logged, SeatFeed pushes those
+ */
+public class ChangeFeed {
+    private static final int              RETAIN = Integer.parseInt(System.getenv().getOrDefault("CHANGE_FEED_SIZE", "10000"));
+    private static final long             START  = System.currentTimeMillis() * 1000;
+    private static final Map<String, Log> logs   = new ConcurrentHashMap<>();
+
+    // called before the SessionFactory is handed out
+    static void attach(SessionFactory factory) {
+        EventListenerRegistry registry = factory.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener              listener = new Listener();
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+    }
+
+    // for rows written below hibernate, after their commit
+    public static void record(Class<?> type, Collection<UUID> ids, Kind kind) {
+        Log log = log(type.getSimpleName());
+        ids.forEach(id -> log.append(id, kind));
+    }
+
+    // same, once the session's transaction commits (nothing if it rolls back)
+    public static void recordAfterCommit(Session session, Class<?> type, Collection<UUID> ids, Kind kind) {
+        DB.afterCommit(session, () -> record(type, ids, kind));
+    }
+
+    // every client of every type reloads on its next call, for bulk writes nobody logged row by row
+    public static void compactAll() {
+        logs.values().forEach(Log::compact);
+    }
+
+    public static Delta since(String type, long seq) {
+        return log(type).since(seq);
+    }
+
+    private static Log log(String type) {
+        return logs.computeIfAbsent(type, _ -> new Log());
+    }
+
+    public enum Kind {INSERT, UPDATE, DELETE}
+
+    public record Change(long seq, UUID id, Kind kind) {}
+
+    // seq: where the client continues from; on reload it has to fetch the whole table and changes is empty
+    public record Delta(boolean reload, long seq, List<Change> changes) {}
+
+    private static final class Log {
+        private final ArrayDeque<Change> changes = new ArrayDeque<>();
+        private       long               floor   = START;
+        private       long               head    = START;
+
+        private synchronized void append(UUID id, Kind kind) {
+            changes.addLast(new Change(++head, id, kind));
+            if (changes.size() > RETAIN) floor = changes.removeFirst().seq();
+        }
+
+        private synchronized void compact() {
+            changes.clear();
+            floor = head;
+        }
+
+        private synchronized Delta since(long seq) {
+            if (seq < floor || seq > head) return new Delta(true, head, List.of());
+
+            // latest per id, except that a row inserted since seq stays an insert
+            Map<UUID, Change> latest = new LinkedHashMap<>();
+            for (Change change : changes) {
+                if (change.seq() <= seq) continue;
+                Change previous = latest.get(change.id());
+                if (previous != null && previous.kind() == Kind.INSERT && change.kind() == Kind.UPDATE) change = new Change(change.seq(), change.id(), Kind.INSERT);
+                latest.put(change.id(), change);
+            }
+            return new Delta(false, head, List.copyOf(latest.values()));
+        }
+    }
+
+    // fires as the statement is flushed, the change is logged after the commit
+    private static class Listener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+        private static void append(EventSource session, EntityPersister persister, Object id, Kind kind) {
+            if (id instanceof UUID uuid) DB.afterCommit(session, () -> log(persister.getMappedClass().getSimpleName()).append(uuid, kind));
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            append(event.getSession(), event.getPersister(), event.getId(), Kind.INSERT);
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            append(event.getSession(), event.getPersister(), event.getId(), Kind.UPDATE);
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            append(event.getSession(), event.getPersister(), event.getId(), Kind.DELETE);
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package enrollium.server.db;
+
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/* Typed query builder that compiles to parameterized JPQL
+ *
+ * DB.query(Course.class).where("student.id", studentId).and("status", CourseStatus.REGISTERED).list()
+ *
+ * paths are entity field names (dots walk many-to-one associations), values are always bound as parameters
+ * collections need an explicit join: DB.query(Section.class).join("teachers", "t").where("t.id", teacherId)
+ *
+ * https://docs.jboss.org/hibernate/orm/6.6/querylanguage/html_single/Hibernate_Query_Language.html
+ */
+public class Criteria<T> {
+    private static final Pattern             PATH        = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+    private static final Set<String>         COMPARISONS = Set.of("=", "<>", "<", "<=", ">", ">=");
+    private final        Class<T>            type;
+    private final        List<String>        joins       = new ArrayList<>();
+    private final        Set<String>         aliases     = new HashSet<>();
+    private final        List<String>        conditions  = new ArrayList<>();
+    private final        List<String>        orders      = new ArrayList<>();
+    private final        Map<String, Object> parameters  = new LinkedHashMap<>();
+    private              boolean             distinct    = false;
+    private              int                 limit       = -1;
+    private              int                 offset      = 0;
+
+    Criteria(Class<T> type) {
+        this.type = type;
+    }
+
+    // equality, null becomes IS NULL
+    public Criteria<T> where(String path, Object value) {
+        if (value == null) conditions.add(path(path) + " IS NULL");
+        else conditions.add(path(path) + " = :" + bind(value));
+        return this;
+    }
+
+    // reads better when chaining, same as where
+    public Criteria<T> and(String path, Object value) {
+        return where(path, value);
+    }
+
+    public Criteria<T> where(String path, String comparison, Object value) {
+        if (!COMPARISONS.contains(comparison)) throw new IllegalArgumentException("Unsupported comparison: " + comparison);
+
+        conditions.add(path(path) + " " + comparison + " :" + bind(value));
+        return this;
+    }
+
+    public Criteria<T> in(String path, Collection<?> values) {
+        // IN () is invalid sql, an empty list simply matches nothing
+        if (values.isEmpty()) conditions.add("1 = 0");
+        else conditions.add(path(path) + " IN :" + bind(values));
+        return this;
+    }
+
+    // inner join on a collection, rows come back once thanks to DISTINCT
+    public Criteria<T> join(String path, String alias) {
+        joins.add("JOIN " + path(path) + " " + alias(alias));
+        distinct = true;
+        return this;
+    }
+
+    // loads an association in the same query instead of one query per row later
+    public Criteria<T> fetch(String path) {
+        joins.add("LEFT JOIN FETCH " + path(path));
+        return this;
+    }
+
+    public Criteria<T> orderBy(String path, boolean ascending) {
+        orders.add(path(path) + (ascending ? " ASC" : " DESC"));
+        return this;
+    }
+
+    public Criteria<T> page(int limit, int offset) {
+        this.limit  = limit;
+        this.offset = offset;
+        return this;
+    }
+
+    public String toJpql() {
+        return "SELECT " + (distinct ? "DISTINCT " : "") + "e" + from() + (orders.isEmpty() ? "" : " ORDER BY " + String.join(", ", orders));
+    }
+
+    // rows are emitted while the session is open, so lazy associations can be read downstream (same as DB.read)
+    public Observable<T> list() {
+        String OpName = "Query " + type.getSimpleName();
+
+        return Observable.<T>create(emitter -> {
+            try {
+                DB.execReplica(session -> {
+                    query(session).stream().forEach(emitter::onNext);
+                    return null;
+                }, OpName);
+
+                emitter.onComplete();
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    public Maybe<T> first() {
+        String OpName = "Query First " + type.getSimpleName();
+
+        return Maybe.<T>create(emitter -> {
+            try {
+                T result = DB.execReplica(session -> query(session).setMaxResults(1).getResultList().stream().findFirst().orElse(null), OpName);
+
+                if (result != null) emitter.onSuccess(result);
+                else emitter.onComplete();
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    public Single<Long> count() {
+        String OpName = "Query Count " + type.getSimpleName();
+        String hql    = "SELECT COUNT(" + (distinct ? "DISTINCT " : "") + "e)" + from().replace("LEFT JOIN FETCH", "LEFT JOIN");
+
+        return Single.<Long>create(emitter -> {
+            try {
+                emitter.onSuccess(DB.execReplica(session -> {
+                    SelectionQuery<Long> query = session.createSelectionQuery(hql, Long.class);
+                    DB.bind(query, parameters);
+                    return query.getSingleResult();
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    private SelectionQuery<T> query(Session session) {
+        SelectionQuery<T> query = session.createSelectionQuery(toJpql(), type);
+        DB.bind(query, parameters);
+
+        if (limit >= 0) query.setMaxResults(limit);
+        if (offset > 0) query.setFirstResult(offset);
+
+        return query;
+    }
+
+    private String from() {
+        StringBuilder hql = new StringBuilder(" FROM ").append(type.getSimpleName()).append(" e");
+        joins.forEach(join -> hql.append(' ').append(join));
+        if (!conditions.isEmpty()) hql.append(" WHERE ").append(String.join(" AND ", conditions));
+        return hql.toString();
+    }
+
+    private String bind(Object value) {
+        String name = "p" + parameters.size();
+        parameters.put(name, value);
+        return name;
+    }
+
+    private String alias(String alias) {
+        if (!PATH.matcher(alias).matches() || alias.contains(".") || alias.equals("e")) throw new IllegalArgumentException("Invalid alias: " + alias);
+
+        aliases.add(alias);
+        return alias;
+    }
+
+    // paths starting with a join alias are used as-is, anything else hangs off the root entity
+    private String path(String path) {
+        if (!PATH.matcher(path).matches()) throw new IllegalArgumentException("Invalid path: " + path);
+
+        String head = path.contains(".") ? path.substring(0, path.indexOf('.')) : path;
+        return aliases.contains(head) ? path : "e." + path;
+    }
+}
@@ -0,0 +1,516 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import jakarta.persistence.PrePersist;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/* Streaming CSV import of students, sections and enrollments
+ *
+ * CsvImport.begin(kind, copy), then feed(chunk, last) once per chunk; the first chunk starts with a header row, columns
+ * are matched by name in any order, and a chunk may end mid-row (the tail waits for the next chunk)
+ * feed runs on DbScheduler, chunks one after another in the order feed was called
+ * - STUDENTS:    universityId, name, email, password
+ * - SECTIONS:    trimester (code), subject (codeName), section, name, maxCapacity, slots, teachers
+ *                slots are roomNumber/DAY/timeSlot and teachers are shortcodes, both ';'-separated
+ * - ENROLLMENTS: universityId, subject, trimester, status, section (code, empty while SELECTED), grade
+ *
+ * per chunk the rows are parsed and validated in parallel (Bean Validation and the entity's own @PrePersist checks),
+ * then the valid ones go in with one DB.saveAll; copy=true sends enrollments through postgres COPY instead
+ * a bad row is reported with its row number and skipped, a chunk the database rejects is reported as a whole
+ * names resolve through lookups loaded once in begin, so a row costs no query
+ * after the last chunk seat counts are recounted (enrollments) and the import is forgotten
+ */
+public class CsvImport {
+    public static final  String                       CREATOR    = "import";
+    private static final int                          MAX_ERRORS = 100;
+    private static final Duration                     IDLE       = Duration.ofMinutes(30);
+    private static final Map<UUID, CsvImport>         running    = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, List<Method>>  callbacks  = new ConcurrentHashMap<>();
+    private static final Validator                    validator  = Validation.buildDefaultValidatorFactory().getValidator();
+    private final        UUID                         id         = UUID.randomUUID();
+    private final        long                         started    = System.nanoTime();
+    private final        Kind                         kind;
+    private final        boolean                      copy;
+    private final        Lookups                      lookups;
+    private final        List<RowError>               errors     = new ArrayList<>();
+    private final        StringBuilder                pending    = new StringBuilder();
+    // students: emails and university ids taken so far, enrollments: student/subject/trimester/section keys
+    private final        Set<Object>                  taken      = new HashSet<>();
+    private              Map<String, Integer>         header;
+    private              long                         row, inserted, failed;
+    private              boolean                      done;
+    // the chunk before, the next one starts once it is through; guarded by this
+    private              Completable                  previous   = Completable.complete();
+    private volatile     long                         touched    = System.nanoTime();
+
+    private CsvImport(Kind kind, boolean copy) {
+        this.kind    = kind;
+        this.copy    = copy;
+        this.lookups = Lookups.load(kind);
+        if (kind == Kind.STUDENTS) {
+            taken.addAll(lookups.emails());
+            taken.addAll(lookups.universityIds());
+        }
+    }
+
+    public static CsvImport begin(Kind kind, boolean copy) {
+        if (copy && kind != Kind.ENROLLMENTS) throw new IllegalArgumentException("Only enrollments can be copied");
+        running.values().removeIf(CsvImport::idle);
+
+        CsvImport started = new CsvImport(kind, copy);
+        running.put(started.id, started);
+        return started;
+    }
+
+    public static CsvImport get(UUID importId) {
+        CsvImport found = running.get(importId);
+        if (found == null) throw new IllegalArgumentException("Import not found: " + importId);
+        return found;
+    }
+
+    public synchronized Single<Progress> feed(String chunk, boolean last) {
+        touched = System.nanoTime();
+
+        Single<Progress> step = previous.onErrorComplete()
+                                        .andThen(Single.defer(() -> {
+                                            Batch batch = parse(chunk, last);
+                                            return (batch == null ? Completable.complete() : insert(batch)).andThen(last ? finish() : Single.fromCallable(this::progress));
+                                        }))
+                                        .subscribeOn(DbScheduler.get())
+                                        .cache();
+        previous = step.ignoreElement();
+        return step;
+    }
+
+    public synchronized Progress progress() {
+        return new Progress(id, kind, Math.max(0, row - 1), inserted, failed, List.copyOf(errors), done, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // splits and validates the chunk's complete rows, null when none of them can be written
+    private synchronized Batch parse(String chunk, boolean last) {
+        if (done) throw new IllegalStateException("Import already finished");
+
+        pending.append(chunk);
+        List<List<String>> records = new ArrayList<>();
+        pending.delete(0, split(pending, last, records));
+
+        if (header == null && !records.isEmpty()) {
+            Map<String, Integer> columns = new HashMap<>();
+            List<String>         names   = records.removeFirst();
+            for (int i = 0; i < names.size(); i++) columns.put(names.get(i).trim().toLowerCase(), i);
+            for (String required : kind.required) {
+                if (columns.containsKey(required.toLowerCase())) continue;
+                done = true;
+                running.remove(id);
+                throw new IllegalArgumentException("Missing column: " + required);
+            }
+            header = columns;
+            row++;
+        }
+        if (records.isEmpty()) return null;
+
+        long first = row + 1;
+        row += records.size();
+
+        // parse and validate in parallel, the order of rows is kept
+        Object[] parsed = new Object[records.size()];
+        IntStream.range(0, records.size()).parallel().forEach(i -> {
+            try {
+                BaseEntity entity = kind.build.apply(new Row(header, records.get(i), lookups));
+                check(entity);
+                parsed[i] = entity;
+            } catch (Exception e) {
+                parsed[i] = new RowError(first + i, message(e));
+            }
+        });
+
+        List<BaseEntity> valid = new ArrayList<>();
+        List<Object>     keys  = new ArrayList<>();
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] instanceof RowError error) {
+                reject(error);
+                continue;
+            }
+
+            BaseEntity       entity    = (BaseEntity) parsed[i];
+            List<Object>     own       = keys(entity);
+            Optional<Object> duplicate = own.stream().filter(taken::contains).findFirst();
+            if (duplicate.isPresent()) {
+                reject(new RowError(first + i, "Duplicate " + duplicate.get()));
+                continue;
+            }
+            taken.addAll(own);
+            keys.addAll(own);
+            valid.add(entity);
+        }
+        return valid.isEmpty() ? null : new Batch(first, row, valid, keys);
+    }
+
+    private Completable insert(Batch batch) {
+        Completable write = copy
+                            ? Completable.fromAction(() -> copyCourses(batch.valid().stream().map(Course.class::cast).toList()))
+                            : DB.saveAll(batch.valid()).ignoreElement();
+        return write.doOnComplete(() -> inserted(batch)).onErrorComplete(error -> {
+            rejected(batch, error);
+            return true;
+        });
+    }
+
+    private synchronized void inserted(Batch batch) {
+        inserted += batch.valid().size();
+    }
+
+    // nothing of the chunk was written, its keys are free again
+    private synchronized void rejected(Batch batch, Throwable error) {
+        batch.keys().forEach(taken::remove);
+        failed += batch.valid().size();
+        record(new RowError(batch.first(), "Rows " + batch.first() + "-" + batch.last() + " rejected: " + message(error)));
+    }
+
+    private List<Object> keys(BaseEntity entity) {
+        return switch (entity) {
+            case Student student -> List.of(student.getEmail(), student.getUniversityId());
+            case Course course -> List.of(course.getStudent().getId() + "/" + course.getSubject().getId() + "/" + course.getTrimester().getId() + "/" + //
+                                          (course.getSection() == null ? "" : course.getSection().getId()));
+            default -> List.of();
+        };
+    }
+
+    private synchronized Single<Progress> finish() {
+        done = true;
+        running.remove(id);
+        if (kind != Kind.ENROLLMENTS || inserted == 0) return Single.just(progress());
+        return DB.reconcileSeats().map(_ -> progress());
+    }
+
+    private void reject(RowError error) {
+        failed++;
+        record(error);
+    }
+
+    private void record(RowError error) {
+        if (errors.size() < MAX_ERRORS) errors.add(error);
+    }
+
+    private boolean idle() {
+        return System.nanoTime() - touched > IDLE.toNanos();
+    }
+
+    // COPY bypasses hibernate, so eligibility reloads on next use, the change feed is told the new ids; seats are recounted by finish
+    private static void copyCourses(List<Course> courses) {
+        String        now  = LocalDateTime.now().toString();
+        StringBuilder rows = new StringBuilder(courses.size() * 200);
+        List<UUID>    ids  = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            rows.append(id).append(',').append(now).append(',').append(now).append(",0,").append(CREATOR).append(',')
+                .append(course.getStatus()).append(',')
+                .append(course.getStudent().getId()).append(',')
+                .append(course.getSubject().getId()).append(',')
+                .append(course.getTrimester().getId()).append(',')
+                .append(course.getSection() == null ? "" : course.getSection().getId()).append(',')
+                .append(course.getGrade() == null ? "" : course.getGrade()).append('\n');
+        }
+
+        DB.exec(session -> session.doReturningWork(connection -> {
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                return copy.copyIn("COPY courses (id, created_at, updated_at, version, created_by, status, student_id, subject_id, trimester_id, section_id, grade) FROM STDIN WITH (FORMAT csv)", new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }), "Copy Courses");
+        Eligibility.clear();
+        ChangeFeed.record(Course.class, ids, ChangeFeed.Kind.INSERT);
+    }
+
+    // Bean Validation, then the entity's @PrePersist methods from BaseEntity down, as persist would run them
+    private static void check(BaseEntity entity) throws Exception {
+        Set<ConstraintViolation<BaseEntity>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+        }
+
+        for (Method callback : callbacks.computeIfAbsent(entity.getClass(), CsvImport::prePersist)) {
+            try {
+                callback.invoke(entity);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+    }
+
+    private static List<Method> prePersist(Class<?> type) {
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            List<Method> declared = new ArrayList<>();
+            for (Method method : current.getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(PrePersist.class)) continue;
+                method.setAccessible(true);
+                declared.add(method);
+            }
+            methods.addAll(0, declared);
+        }
+        return methods;
+    }
+
+    private static String message(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    // splits complete records off the front of text, returns how much was consumed
+    // a record is only complete once its line break is seen, or at the end of the last chunk
+    static int split(CharSequence text, boolean last, List<List<String>> records) {
+        List<String>  fields   = new ArrayList<>();
+        StringBuilder field    = new StringBuilder();
+        boolean       quoted   = false;
+        int           consumed = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            // a quote or carriage return at the very end can't be read yet
+            if (!last && i + 1 == text.length() && (c == '"' || c == '\r')) return consumed;
+
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (i + 1 < text.length() && text.charAt(i + 1) == '"') field.append(text.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') i++;
+                fields.add(field.toString());
+                if (fields.size() > 1 || !fields.getFirst().isBlank()) records.add(fields);
+                fields = new ArrayList<>();
+                field.setLength(0);
+                consumed = i + 1;
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (last && (!fields.isEmpty() || !field.isEmpty())) {
+            fields.add(field.toString());
+            if (fields.size() > 1 || !fields.getFirst().isBlank()) records.add(fields);
+            consumed = text.length();
+        }
+        return consumed;
+    }
+
+    private static Student student(Row row) {
+        Student student = new Student();
+        student.setUniversityId(row.integer("universityId"));
+        student.setName(row.required("name"));
+        student.setEmail(row.required("email"));
+        student.setPassword(row.required("password"));
+        student.setCreatedBy(CREATOR);
+        return student;
+    }
+
+    private static Section section(Row row) {
+        Section section = new Section();
+        section.setTrimester(row.find("trimester", row.lookups().trimesters(), Integer::valueOf));
+        section.setSubject(row.find("subject", row.lookups().subjects(), Function.identity()));
+        section.setSection(row.required("section"));
+        section.setName(row.required("name"));
+        section.setMaxCapacity(row.integer("maxCapacity"));
+        for (String slot : row.list("slots")) section.getSpaceTimeSlots().add(row.lookup("slot", slot, row.lookups().slots(), CsvImport::slotKey));
+        for (String teacher : row.list("teachers")) section.getTeachers().add(row.lookup("teacher", teacher, row.lookups().faculty(), Function.identity()));
+        section.setCreatedBy(CREATOR);
+        return section;
+    }
+
+    private static Course enrollment(Row row) {
+        Course course = new Course();
+        course.setStudent(row.find("universityId", row.lookups().students(), Integer::valueOf));
+        course.setSubject(row.find("subject", row.lookups().subjects(), Function.identity()));
+        course.setTrimester(row.find("trimester", row.lookups().trimesters(), Integer::valueOf));
+        course.setStatus(row.status());
+
+        String code = row.optional("section");
+        if (code != null) {
+            String key = course.getTrimester().getId() + "/" + course.getSubject().getId() + "/" + code;
+            course.setSection(row.lookup("section", key, row.lookups().sections(), Function.identity()));
+        }
+        String grade = row.optional("grade");
+        if (grade != null) course.setGrade(row.number("grade", grade));
+        course.setCreatedBy(CREATOR);
+        return course;
+    }
+
+    // roomNumber/DAY/timeSlot
+    private static String slotKey(String text) {
+        String[] parts = text.split("/");
+        if (parts.length != 3) throw new IllegalArgumentException("Slot must be roomNumber/DAY/timeSlot: " + text);
+        return parts[0].trim() + "/" + DayOfWeek.valueOf(parts[1].trim().toUpperCase()) + "/" + Integer.parseInt(parts[2].trim());
+    }
+
+    // a detached stand-in carrying only id and version, enough for hibernate to write the foreign key
+    private static <T extends BaseEntity> T reference(T entity, UUID id, Long version) {
+        entity.setId(id);
+        entity.setVersion(version);
+        return entity;
+    }
+
+    public enum Kind {
+        STUDENTS(CsvImport::student, "universityId", "name", "email", "password"),
+        SECTIONS(CsvImport::section, "trimester", "subject", "section", "name", "maxCapacity", "slots"),
+        ENROLLMENTS(CsvImport::enrollment, "universityId", "subject", "trimester", "status");
+
+        private final Function<Row, BaseEntity> build;
+        private final List<String>              required;
+
+        Kind(Function<Row, BaseEntity> build, String... required) {
+            this.build    = build;
+            this.required = List.of(required);
+        }
+    }
+
+    private record Row(Map<String, Integer> header, List<String> fields, Lookups lookups) {
+        private String optional(String column) {
+            Integer index = header.get(column.toLowerCase());
+            if (index == null || index >= fields.size()) return null;
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private String required(String column) {
+            String value = optional(column);
+            if (value == null) throw new IllegalArgumentException(column + " is required");
+            return value;
+        }
+
+        private int integer(String column) {
+            String value = required(column);
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + " is not a whole number: " + value);
+            }
+        }
+
+        private double number(String column, String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + " is not a number: " + value);
+            }
+        }
+
+        private CourseStatus status() {
+            String value = required("status");
+            try {
+                return CourseStatus.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("status must be one of " + Arrays.toString(CourseStatus.values()) + ": " + value);
+            }
+        }
+
+        private List<String> list(String column) {
+            String value = optional(column);
+            if (value == null) return List.of();
+            return Arrays.stream(value.split(";")).map(String::trim).filter(part -> !part.isEmpty()).toList();
+        }
+
+        private <K, T> T find(String column, Map<K, T> known, Function<String, K> key) {
+            return lookup(column, required(column), known, key);
+        }
+
+        private <K, T> T lookup(String what, String text, Map<K, T> known, Function<String, K> key) {
+            T found;
+            try {
+                found = known.get(key.apply(text));
+            } catch (IllegalArgumentException e) {
+                found = null;
+            }
+            if (found == null) throw new IllegalArgumentException("Unknown " + what + ": " + text);
+            return found;
+        }
+    }
+
+    // everything a row may name, loaded once per import
+    private record Lookups(Map<Integer, Trimester> trimesters, Map<String, Subject> subjects, Map<String, SpaceTime> slots,
+                           Map<String, Faculty> faculty, Map<Integer, Student> students, Map<String, Section> sections,
+                           Set<String> emails, Set<Integer> universityIds) {
+        private static Lookups load(Kind kind) {
+            return DB.execReadOnly(session -> {
+                Map<Integer, Trimester> trimesters = new HashMap<>();
+                Map<String, Subject>    subjects   = new HashMap<>();
+                Map<String, SpaceTime>  slots      = new HashMap<>();
+                Map<String, Faculty>    faculty    = new HashMap<>();
+                Map<Integer, Student>   students   = new HashMap<>();
+                Map<String, Section>    sections   = new HashMap<>();
+                Set<String>             emails     = new HashSet<>();
+                Set<Integer>            ids        = new HashSet<>();
+
+                if (kind == Kind.STUDENTS) {
+                    emails.addAll(session.createSelectionQuery("SELECT u.email FROM User u", String.class).getResultList());
+                    ids.addAll(session.createSelectionQuery("SELECT s.universityId FROM Student s", Integer.class).getResultList());
+                    return new Lookups(trimesters, subjects, slots, faculty, students, sections, emails, ids);
+                }
+
+                session.createSelectionQuery("FROM Trimester", Trimester.class).getResultList().forEach(trimester -> trimesters.put(trimester.getCode(), trimester));
+                session.createSelectionQuery("FROM Subject", Subject.class).getResultList().forEach(subject -> subjects.put(subject.getCodeName(), subject));
+
+                if (kind == Kind.SECTIONS) {
+                    session.createSelectionQuery("FROM SpaceTime", SpaceTime.class)
+                           .getResultList()
+                           .forEach(slot -> slots.put(slot.getRoomNumber() + "/" + slot.getDayOfWeek() + "/" + slot.getTimeSlot(), slot));
+                    session.createSelectionQuery("FROM Faculty", Faculty.class).getResultList().forEach(teacher -> faculty.put(teacher.getShortcode(), teacher));
+                } else {
+                    Map<UUID, Trimester> trimesterById = new HashMap<>();
+                    Map<UUID, Subject>   subjectById   = new HashMap<>();
+                    trimesters.values().forEach(trimester -> trimesterById.put(trimester.getId(), trimester));
+                    subjects.values().forEach(subject -> subjectById.put(subject.getId(), subject));
+
+                    session.createSelectionQuery("SELECT s.universityId, s.id, s.version FROM Student s", Object[].class)
+                           .getResultList()
+                           .forEach(row -> students.put((Integer) row[0], reference(new Student(), (UUID) row[1], (Long) row[2])));
+                    session.createSelectionQuery("SELECT s.id, s.version, s.trimester.id, s.subject.id, s.section FROM Section s", Object[].class)
+                           .getResultList()
+                           .forEach(row -> {
+                               Section section = reference(new Section(), (UUID) row[0], (Long) row[1]);
+                               section.setTrimester(trimesterById.get((UUID) row[2]));
+                               section.setSubject(subjectById.get((UUID) row[3]));
+                               sections.put(row[2] + "/" + row[3] + "/" + row[4], section);
+                           });
+                }
+                return new Lookups(trimesters, subjects, slots, faculty, students, sections, emails, ids);
+            }, "Load Import Lookups " + kind);
+        }
+    }
+
+    // the valid rows of one chunk, first..last are the chunk's row numbers
+    private record Batch(long first, long last, List<BaseEntity> valid, List<Object> keys) {}
+
+    public record RowError(long row, String message) {}
+
+    public record Progress(UUID importId, Kind kind, long rows, long inserted, long failed, List<RowError> errors, boolean done, long millis) {}
+}
@@ -0,0 +1,46 @@
+package enrollium.server.db;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+// keyset (seek) pagination position: sort key + id of the last row of a page
+// encoded as an opaque url-safe base64 token so clients just pass it back as-is
+// https://use-the-index-luke.com/no-offset
+public record Cursor(String key, UUID id) {
+    private static final String SEPARATOR = "\n";
+
+    public static String encode(Object key, UUID id) {
+        String raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String token) {
+        try {
+            String raw   = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int    split = raw.lastIndexOf(SEPARATOR);
+            if (split < 0) throw new IllegalArgumentException("missing separator");
+
+            return new Cursor(raw.substring(0, split), UUID.fromString(raw.substring(split + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
+    // converts the stored key back to the java type of the sort field
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object keyAs(Class<?> javaType) {
+        if (javaType == String.class) return key;
+        if (javaType == UUID.class) return UUID.fromString(key);
+        if (javaType == Integer.class || javaType == int.class) return Integer.valueOf(key);
+        if (javaType == Long.class || javaType == long.class) return Long.valueOf(key);
+        if (javaType == Double.class || javaType == double.class) return Double.valueOf(key);
+        if (javaType == LocalDateTime.class) return LocalDateTime.parse(key);
+        if (javaType == LocalDate.class) return LocalDate.parse(key);
+        if (javaType.isEnum()) return Enum.valueOf((Class<? extends Enum>) javaType, key);
+
+        throw new IllegalArgumentException("Unsupported cursor key type: " + javaType.getSimpleName());
+    }
+}
@@ -1,26 +1,42 @@
 package enrollium.server.db;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import enrollium.server.db.entity.*;
 import enrollium.server.db.entity.types.*;
 import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
 import net.datafaker.Faker;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.query.SelectionQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -39,20 +55,30 @@ import java.util.stream.Stream;
  * Maybe: Emits zero or one item, or an error
  * Completable: Emits only completion or error
  *
- * `.subscribeOn(Schedulers.io())` in every stream to run it io operation optimized thread
+ * `.subscribeOn(DbScheduler.get())` in every stream to run it on a virtual thread, at most one per pooled connection
  * https://reactivex.io/documentation/operators/subscribeon.html
  */
 
 
 // Singleton - only one instance of this will exist
 public class DB {
-    public static final     String         DEMOPASS = "demopass";
+    public static final     String                        DEMOPASS           = "demopass";
+    // rows per jdbc batch (and per flush) in saveAll/updateAll
+    public static final     int                           BULK_BATCH         = Integer.parseInt(System.getenv().getOrDefault("DB_BULK_BATCH", "500"));
+    // rows per round trip of DB.stream's cursor
+    public static final     int                           STREAM_FETCH_SIZE  = Integer.parseInt(System.getenv().getOrDefault("DB_STREAM_FETCH_SIZE", "500"));
+    // connections in the primary pool, also what DbScheduler lets run at once
+    public static final     int                           POOL_SIZE          = Integer.parseInt(System.getenv().getOrDefault("DB_POOL_SIZE", "10"));
     // volatile to make it only run once across all the threads
     // https://www.geeksforgeeks.org/volatile-keyword-in-java/
-    private static final    Faker          faker    = new Faker();
-    private static final    Logger         log      = LoggerFactory.getLogger(DB.class);
-    private static final    Random         random   = new Random();
-    private static volatile SessionFactory sessionFactory;
+    private static final    Faker                         faker              = new Faker();
+    private static final    Logger                        log                = LoggerFactory.getLogger(DB.class);
+    private static final    Random                        random             = new Random();
+    // canonical constructor per projection record, looked up once
+    private static final    Map<Class<?>, Constructor<?>> recordConstructors = new ConcurrentHashMap<>();
+    private static volatile SessionFactory                sessionFactory;
+    private static volatile HikariDataSource              dataSource;
+    private static volatile WriteBatcher                  writeBatcher;
 
     // setup db connection or return existing connection
     public static SessionFactory getSessionFactory() {
@@ -75,29 +101,48 @@ public class DB {
                         conf.addAnnotatedClass(enrollium.server.db.entity.Notification.class);
                         conf.addAnnotatedClass(enrollium.server.db.entity.Prerequisite.class);
                         conf.addAnnotatedClass(enrollium.server.db.entity.Section.class);
+                        conf.addAnnotatedClass(enrollium.server.db.entity.SectionPreference.class);
                         conf.addAnnotatedClass(enrollium.server.db.entity.SpaceTime.class);
                         conf.addAnnotatedClass(enrollium.server.db.entity.Subject.class);
                         conf.addAnnotatedClass(enrollium.server.db.entity.Trimester.class);
 
-                        conf.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
                         conf.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
-                        conf.setProperty("hibernate.show_sql", "true");
-                        conf.setProperty("hibernate.hbm2ddl.auto", "update");
+                        // statement counts per call come from StatementStats, full sql logging is opt-in
+                        conf.setProperty("hibernate.show_sql", System.getenv().getOrDefault("DB_SHOW_SQL", "false"));
+                        // the schema comes from Migrations, hibernate only checks its mapping fits (DB_SCHEMA_CHECK=none skips even that)
+                        conf.setProperty("hibernate.hbm2ddl.auto", System.getenv().getOrDefault("DB_SCHEMA_CHECK", "validate"));
                         conf.setProperty("jakarta.persistence.validation.mode", "auto");
-
-                        conf.setProperty("hibernate.connection.url", //
-                                System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/enrollium"));
-                        conf.setProperty("hibernate.connection.username", //
-                                System.getenv().getOrDefault("DB_USERNAME", "enrollium"));
-                        conf.setProperty("hibernate.connection.password", //
-                                System.getenv().getOrDefault("DB_PASSWORD", "enrollium"));
+                        // send same-shaped inserts/updates of a flush in one jdbc batch
+                        conf.setProperty("hibernate.jdbc.batch_size", "50");
+                        conf.setProperty("hibernate.order_inserts", "true");
+                        conf.setProperty("hibernate.order_updates", "true");
 
                         // connection pool
-                        conf.setProperty("hibernate.hikari.maximumPoolSize", "10");
-                        conf.setProperty("hibernate.hikari.minimumIdle", "5");
-                        conf.setProperty("hibernate.hikari.idleTimeout", "300000");
-
-                        sessionFactory = conf.buildSessionFactory();
+                        // hibernate.hikari.* settings need the hibernate-hikaricp module, without it hibernate used its
+                        // built-in pool, which throws instead of waiting once all connections are busy
+                        // so the pool is built here and handed to hibernate as a DataSource
+                        // https://github.com/brettwooldridge/HikariCP#gear-configuration-knobs-baby
+                        HikariConfig pool = new HikariConfig();
+                        pool.setJdbcUrl(System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/enrollium"));
+                        pool.setUsername(System.getenv().getOrDefault("DB_USERNAME", "enrollium"));
+                        pool.setPassword(System.getenv().getOrDefault("DB_PASSWORD", "enrollium"));
+                        pool.setMaximumPoolSize(POOL_SIZE);
+                        pool.setMinimumIdle(5);
+                        pool.setIdleTimeout(300000);
+                        // pgjdbc sends a jdbc batch of inserts as multi-row INSERTs instead of one statement per row
+                        pool.addDataSourceProperty("reWriteBatchedInserts", "true");
+                        dataSource = new HikariDataSource(pool);
+                        conf.getProperties().put("hibernate.connection.datasource", dataSource);
+                        Migrations.apply(dataSource);
+
+                        StatementStats.install();
+                        StatementStats.configure(conf);
+
+                        SessionFactory factory = conf.buildSessionFactory();
+                        StatementStats.attach(factory);
+                        ChangeFeed.attach(factory);
+                        sessionFactory = factory;
+                        Replicas.start(dataSource);
 
                         Duration duration = Duration.between(start, Instant.now());
                         log.info("SessionFactory initialized in {} ms", duration.toMillis());
@@ -111,18 +156,51 @@ public class DB {
         return sessionFactory;
     }
 
+    // the pool behind the SessionFactory, for work below hibernate (boot warm-up)
+    static HikariDataSource getDataSource() {
+        getSessionFactory();
+        return dataSource;
+    }
+
+    // group commit, see WriteBatcher
+    // the window and size are tunable, WRITE_BATCH_WINDOW_MS=0 still groups whatever queued up during the last commit
+    public static WriteBatcher getWriteBatcher() {
+        if (writeBatcher == null) {
+            synchronized (DB.class) {
+                if (writeBatcher == null) {
+                    writeBatcher = new WriteBatcher(Duration.ofMillis(Long.parseLong(System.getenv().getOrDefault("WRITE_BATCH_WINDOW_MS", "2"))), //
+                                                    Integer.parseInt(System.getenv().getOrDefault("WRITE_BATCH_SIZE", "64")), //
+                                                    Integer.parseInt(System.getenv().getOrDefault("WRITE_BATCH_WORKERS", "1")));
+                }
+            }
+        }
+        return writeBatcher;
+    }
+
+    // runs the operation in a shared transaction with whatever else is queued, completes after that commit
+    public static <T> Single<T> batched(String name, Function<Session, T> operation) {
+        return getWriteBatcher().submit(name, operation);
+    }
+
     // do the operation in a transaction with logs
     // takes a lambda functions (function pointer) to execute under transaction...
     // https://stackoverflow.com/a/58508080
     // https://www.geeksforgeeks.org/function-interface-in-java-with-examples/
-    private static <T> T exec(Function<Session, T> operation, String name) {
-        Instant start = Instant.now();
+    static <T> T exec(Function<Session, T> operation, String name) {
+        long acquiring = System.nanoTime();
+        return exec(acquiring, getSessionFactory().openSession(), operation, name);
+    }
 
-        Session     session = getSessionFactory().openSession();
+    // acquiring: when getting the connection started, the wait up to beginTransaction is the pool's (see DbTelemetry)
+    private static <T> T exec(long acquiring, Session session, Function<Session, T> operation, String name) {
         Transaction tx      = null;
+        long        running = 0;
 
-        try {
-            tx = session.beginTransaction();
+        // counted on its own unless an RPC call (or test) is already tracking this thread
+        try (StatementStats.Scope _ = StatementStats.openIfAbsent(name)) {
+            // hibernate takes the connection from the pool here
+            tx      = session.beginTransaction();
+            running = System.nanoTime();
 
             // run the lambda using the current session
             T result = operation.apply(session);
@@ -132,11 +210,16 @@ public class DB {
                 tx.commit();
             }
 
-            Duration duration = Duration.between(start, Instant.now());
-            log.info("{} completed in {} ms", name, duration.toMillis());
+            long finished = System.nanoTime();
+            DbTelemetry.operation(name, running - acquiring, finished - running, false);
+            log.debug("{} completed in {} ms, {} ms of it waiting for a connection", name, (finished - acquiring) / 1_000_000, (running - acquiring) / 1_000_000);
 
             return result;
         } catch (Exception e) {
+            long failed = System.nanoTime();
+            if (running == 0) DbTelemetry.operation(name, failed - acquiring, 0, true);
+            else DbTelemetry.operation(name, running - acquiring, failed - running, true);
+
             if (tx != null && tx.isActive()) {
                 try {
                     // when fails
@@ -156,6 +239,72 @@ public class DB {
         }
     }
 
+    // same as exec but read-only: loaded entities get no snapshot for dirty checking and nothing is flushed
+    // https://docs.jboss.org/hibernate/orm/6.6/userguide/html_single/Hibernate_User_Guide.html#best-practices-fetching
+    static <T> T execReadOnly(Function<Session, T> operation, String name) {
+        return exec(session -> {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return operation.apply(session);
+        }, name);
+    }
+
+    // execReadOnly on a replica when one is usable (see Replicas), on the primary otherwise
+    // for reads that can be up to DB_REPLICA_MAX_LAG_BYTES behind the last commit: never for a cache fill (it would keep
+    // the stale copy after the invalidation already ran) nor for a copy that is about to be merged back (see findOnPrimary)
+    public static <T> T execReplica(Function<Session, T> operation, String name) {
+        Replicas.Replica replica = Replicas.pick();
+        if (replica == null) return execReadOnly(operation, name);
+
+        long       acquiring = System.nanoTime();
+        Connection connection;
+        try {
+            connection = replica.connection();
+        } catch (SQLException e) {
+            log.warn("{} falls back to the primary, replica {} unreachable: {}", name, replica.url(), e.getMessage());
+            return execReadOnly(operation, name);
+        }
+        // hibernate does not close a connection it was handed, the pool gets it back here
+        try (connection) {
+            return exec(acquiring, getSessionFactory().withOptions().connection(connection).openSession(), session -> {
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+                return operation.apply(session);
+            }, name + " (replica)");
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to release replica connection: " + e.getMessage(), e);
+        }
+    }
+
+    // binds named parameters, collections become IN lists
+    static void bind(SelectionQuery<?> query, Map<String, ?> parameters) {
+        parameters.forEach((name, value) -> {
+            if (value instanceof Collection<?> values) query.setParameterList(name, values);
+            else query.setParameter(name, value);
+        });
+    }
+
+    // builds a record from the first n columns of a tuple row, n = number of record components
+    static <R> R instantiate(Class<R> recordType, Object[] row) {
+        Constructor<?> constructor = recordConstructors.computeIfAbsent(recordType, type -> {
+            if (!type.isRecord()) throw new IllegalArgumentException(type.getSimpleName() + " is not a record");
+            try {
+                Class<?>[] types = Arrays.stream(type.getRecordComponents()).map(RecordComponent::getType).toArray(Class<?>[]::new);
+                Constructor<?> canonical = type.getDeclaredConstructor(types);
+                canonical.setAccessible(true);
+                return canonical;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("No canonical constructor on " + type.getSimpleName(), e);
+            }
+        });
+
+        try {
+            return recordType.cast(constructor.newInstance(Arrays.copyOf(row, constructor.getParameterCount())));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new RuntimeException("Failed to build " + recordType.getSimpleName() + " from " + Arrays.toString(row) + ": " + e.getMessage(), e);
+        }
+    }
+
     // creates an entry.
     // single bc returns only one object
     public static <T> Single<T> save(T entity) {
@@ -163,14 +312,16 @@ public class DB {
 
         return Single.<T>create(emitter -> {
             try {
-                emitter.onSuccess(exec(session -> {
+                exec(session -> {
                     session.persist(entity);
                     return entity;
-                }, OpName));
+                }, OpName);
+                invalidateCached(entity);
+                emitter.onSuccess(entity);
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
     }
 
     // reads entry
@@ -180,7 +331,7 @@ public class DB {
 
         return Observable.<T>create(emitter -> {
             try {
-                exec(session -> {
+                execReplica(session -> {
                     session.createQuery("FROM " + type.getSimpleName(), type)
                            .setMaxResults(limit)
                            .setFirstResult(offset)
@@ -193,7 +344,7 @@ public class DB {
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
     }
 
     // sorted read
@@ -203,7 +354,7 @@ public class DB {
 
         return Observable.<T>create(emitter -> {
             try {
-                exec(session -> {
+                execReplica(session -> {
                     session.createQuery("FROM " + type.getSimpleName() + " e ORDER BY e." + fieldToBy + " " + order, type)
                            .setMaxResults(limit)
                            .setFirstResult(offset)
@@ -216,7 +367,246 @@ public class DB {
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // keyset (seek) read: rows strictly after the cursor ordered by (sortField, id)
+    // unlike offset this stays an index range scan no matter how deep the page is
+    // sortField must be non-null; cursor is the token from the previous Page or null for the first page
+    // https://use-the-index-luke.com/sql/partial-results/fetch-next-page
+    public static <T> Single<Page<T>> readAfter(Class<T> type, String sortField, String cursor, int limit) {
+        return readAfter(type, sortField, true, cursor, limit, Function.identity());
+    }
+
+    // same seek read, optionally walking the index backwards (e.g. newest first)
+    // mapper runs while the session is still open so lazy associations can be touched
+    public static <T, R> Single<Page<R>> readAfter(Class<T> type, String sortField, boolean ascending, String cursor, int limit, Function<T, R> mapper) {
+        String OpName = "Read After " + type.getSimpleName();
+        Cursor after  = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        // a row-value comparison, so postgres seeks straight to the cursor in the (sortField, id) index
+        // instead of filtering an OR of two predicates
+        String cmp    = ascending ? " > " : " < ";
+        String order  = ascending ? " ASC" : " DESC";
+
+        return Single.<Page<R>>create(emitter -> {
+            try {
+                emitter.onSuccess(execReplica(session -> {
+                    String hql = "SELECT e, e." + sortField + ", e.id FROM " + type.getSimpleName() + " e" //
+                                 + (after == null ? "" : " WHERE (e." + sortField + ", e.id)" + cmp + "(:key, :id)") //
+                                 + " ORDER BY e." + sortField + order + ", e.id" + order;
+
+                    var query = session.createSelectionQuery(hql, Object[].class).setMaxResults(limit);
+
+                    if (after != null) {
+                        Class<?> keyType = session.getMetamodel().entity(type).getAttribute(sortField).getJavaType();
+                        query.setParameter("key", after.keyAs(keyType)).setParameter("id", after.id());
+                    }
+
+                    List<Object[]> rows  = query.getResultList();
+                    List<R>        items = new ArrayList<>(rows.size());
+                    rows.forEach(row -> items.add(mapper.apply(type.cast(row[0]))));
+
+                    // a short page means we reached the end
+                    String next = null;
+                    if (!rows.isEmpty() && rows.size() == limit) {
+                        Object[] last = rows.getLast();
+                        next = Cursor.encode(last[1], (UUID) last[2]);
+                    }
+
+                    return new Page<>(items, next);
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // every row of the type, as fast as downstream asks for them: a server-side cursor fetches DB_STREAM_FETCH_SIZE rows
+    // per round trip only when requested, and the session is cleared each fetch so only that many entities are held
+    // for scans over whole tables (cleanup, exports), a page for the client still comes from readAfter
+    // the cursor keeps its connection until the stream completes, fails or is cancelled, all three close it
+    // rows are read-only and detached by the time a later fetch clears the session: don't touch lazy associations
+    // https://docs.jboss.org/hibernate/orm/6.6/userguide/html_single/Hibernate_User_Guide.html#hql-api-scroll
+    // https://jdbc.postgresql.org/documentation/query/#getting-results-based-on-a-cursor
+    public static <T> Flowable<T> stream(Class<T> type) {
+        return stream(type, "", Map.of(), STREAM_FETCH_SIZE);
+    }
+
+    // where is an HQL condition on "e" (empty for every row)
+    public static <T> Flowable<T> stream(Class<T> type, String where, Map<String, ?> parameters, int fetchSize) {
+        String OpName = "Stream " + type.getSimpleName();
+        String hql    = "FROM " + type.getSimpleName() + " e" + (where.isEmpty() ? "" : " WHERE " + where);
+
+        return Flowable.<T, Scroll<T>>generate(() -> {
+            long    acquiring = System.nanoTime();
+            Session session   = getSessionFactory().openSession();
+            try {
+                // postgres only uses a cursor inside a transaction
+                session.beginTransaction();
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+
+                SelectionQuery<T> query = session.createSelectionQuery(hql, type).setFetchSize(fetchSize);
+                bind(query, parameters);
+                return new Scroll<>(OpName, session, query.scroll(ScrollMode.FORWARD_ONLY), fetchSize, acquiring, System.nanoTime());
+            } catch (Exception e) {
+                session.close();
+                throw e;
+            }
+        }, (scroll, emitter) -> {
+            if (!scroll.results().next()) {
+                emitter.onComplete();
+                return;
+            }
+            // the previous fetch's entities are all downstream by now
+            if (scroll.rows().getAndIncrement() % scroll.fetchSize() == 0) scroll.session().clear();
+            emitter.onNext(scroll.results().get());
+        }, Scroll::close).subscribeOn(DbScheduler.get());
+    }
+
+    // tuple projection into a record: the select list must match the record components in order
+    // no managed entities, no lazy loading, no dirty checking, just the columns the caller needs
+    // https://thorben-janssen.com/dto-projections/
+    public static <R> Single<List<R>> project(String hql, Class<R> recordType, Map<String, ?> parameters, int limit, int offset) {
+        String OpName = "Project " + recordType.getSimpleName();
+
+        return Single.<List<R>>create(emitter -> {
+            try {
+                emitter.onSuccess(execReplica(session -> {
+                    SelectionQuery<Object[]> query = session.createSelectionQuery(hql, Object[].class);
+                    bind(query, parameters);
+
+                    if (limit >= 0) query.setMaxResults(limit);
+                    if (offset > 0) query.setFirstResult(offset);
+
+                    List<R> rows = new ArrayList<>();
+                    query.getResultList().forEach(row -> rows.add(instantiate(recordType, row)));
+                    StatementStats.rows(rows.size());
+                    return rows;
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    public static <R> Single<List<R>> project(String hql, Class<R> recordType, Map<String, ?> parameters) {
+        return project(hql, recordType, parameters, -1, 0);
+    }
+
+    // project on the primary, for rows that must be at least as new as something just committed (ChangeFeed deltas)
+    public static <R> Single<List<R>> projectOnPrimary(String hql, Class<R> recordType, Map<String, ?> parameters) {
+        String OpName = "ProjectOnPrimary " + recordType.getSimpleName();
+
+        return Single.<List<R>>create(emitter -> {
+            try {
+                emitter.onSuccess(execReadOnly(session -> {
+                    SelectionQuery<Object[]> query = session.createSelectionQuery(hql, Object[].class);
+                    bind(query, parameters);
+
+                    List<R> rows = new ArrayList<>();
+                    query.getResultList().forEach(row -> rows.add(instantiate(recordType, row)));
+                    StatementStats.rows(rows.size());
+                    return rows;
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    public static <R> Single<List<R>> project(String hql, Class<R> recordType) {
+        return project(hql, recordType, Map.of(), -1, 0);
+    }
+
+    // keyset page of a projection, see readAfter
+    // select/joins use "e" as the root alias, e.g. select "e.id, s.name" with joins "LEFT JOIN e.section s"
+    public static <R> Single<Page<R>> projectAfter(Class<?> type, String select, String joins, Class<R> recordType, String sortField, boolean ascending, String cursor, int limit) {
+        String OpName = "Project After " + recordType.getSimpleName();
+        Cursor after  = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        String cmp    = ascending ? " > " : " < ";
+        String order  = ascending ? " ASC" : " DESC";
+
+        return Single.<Page<R>>create(emitter -> {
+            try {
+                emitter.onSuccess(execReplica(session -> {
+                    // sort key and id ride along at the end of each row for the next cursor
+                    String hql = "SELECT " + select + ", e." + sortField + ", e.id FROM " + type.getSimpleName() + " e " + joins //
+                                 + (after == null ? "" : " WHERE (e." + sortField + ", e.id)" + cmp + "(:key, :id)") //
+                                 + " ORDER BY e." + sortField + order + ", e.id" + order;
+
+                    SelectionQuery<Object[]> query = session.createSelectionQuery(hql, Object[].class).setMaxResults(limit);
+
+                    if (after != null) {
+                        Class<?> keyType = session.getMetamodel().entity(type).getAttribute(sortField).getJavaType();
+                        query.setParameter("key", after.keyAs(keyType)).setParameter("id", after.id());
+                    }
+
+                    List<Object[]> rows  = query.getResultList();
+                    List<R>        items = new ArrayList<>(rows.size());
+                    rows.forEach(row -> items.add(instantiate(recordType, row)));
+                    StatementStats.rows(rows.size());
+
+                    String next = null;
+                    if (!rows.isEmpty() && rows.size() == limit) {
+                        Object[] last = rows.getLast();
+                        next = Cursor.encode(last[last.length - 2], (UUID) last[last.length - 1]);
+                    }
+
+                    return new Page<>(items, next);
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // fuzzy search pushed down to postgres
+    // ILIKE '%term%' is served by the pg_trgm GIN indexes (see V2__trigram_search.sql), best trigram similarity first
+    // fields are entity field names from our own code, never from the client
+    // https://www.postgresql.org/docs/current/pgtrgm.html#PGTRGM-INDEX
+    public static <T> Observable<T> search(Class<T> type, String term, int limit, int offset, String... fields) {
+        String OpName = "Search " + type.getSimpleName();
+
+        if (fields.length == 0) throw new IllegalArgumentException("At least one search field is required");
+
+        StringJoiner where = new StringJoiner(" OR ");
+        StringJoiner rank  = new StringJoiner(", ");
+        for (String field : fields) {
+            where.add("e." + field + " ILIKE :pattern ESCAPE '\\'");
+            rank.add("FUNCTION('similarity', e." + field + ", :term)");
+        }
+
+        String order = fields.length == 1 ? rank.toString() : "GREATEST(" + rank + ")";
+        String hql   = "FROM " + type.getSimpleName() + " e WHERE " + where + " ORDER BY " + order + " DESC, e.id";
+
+        // escape LIKE wildcards so "_" or "%" typed by a user match literally
+        String pattern = "%" + term.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+        return Observable.<T>create(emitter -> {
+            try {
+                execReplica(session -> {
+                    session.createSelectionQuery(hql, type)
+                           .setParameter("pattern", pattern)
+                           .setParameter("term", term.trim())
+                           .setMaxResults(limit)
+                           .setFirstResult(offset)
+                           .stream()
+                           .forEach(emitter::onNext);
+                    return null;
+                }, OpName);
+
+                emitter.onComplete();
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // typed filters pushed down to sql instead of filtering a read page in java
+    // see Criteria for the supported clauses
+    public static <T> Criteria<T> query(Class<T> type) {
+        return new Criteria<>(type);
     }
 
     // updates entry
@@ -226,11 +616,69 @@ public class DB {
 
         return Single.<T>create(emitter -> {
             try {
-                emitter.onSuccess(exec(session -> session.merge(entity), OpName));
+                T merged = exec(session -> session.merge(entity), OpName);
+                invalidateCached(merged);
+                emitter.onSuccess(merged);
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // inserts all entities in one transaction, BULK_BATCH rows per jdbc batch
+    // the session is flushed and cleared after every batch so it never holds more than one batch of entities;
+    // callbacks and validation run exactly as in save (a StatelessSession would skip both, and the many-to-many rows)
+    // https://docs.jboss.org/hibernate/orm/6.6/userguide/html_single/Hibernate_User_Guide.html#batch-session-batch-insert
+    public static <T> Single<List<T>> saveAll(List<T> entities) {
+        String OpName = "SaveAll " + (entities.isEmpty() ? "" : entities.getFirst().getClass().getSimpleName());
+
+        return Single.<List<T>>create(emitter -> {
+            try {
+                exec(session -> {
+                    session.setJdbcBatchSize(BULK_BATCH);
+                    for (int i = 0; i < entities.size(); i++) {
+                        session.persist(entities.get(i));
+                        if ((i + 1) % BULK_BATCH == 0) {
+                            session.flush();
+                            session.clear();
+                        }
+                    }
+                    return null;
+                }, OpName);
+                DbTelemetry.items(OpName, entities.size());
+                entities.forEach(DB::invalidateCached);
+                emitter.onSuccess(entities);
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // merges all entities in one transaction, same batching as saveAll; returns the merged copies in order
+    public static <T> Single<List<T>> updateAll(List<T> entities) {
+        String OpName = "UpdateAll " + (entities.isEmpty() ? "" : entities.getFirst().getClass().getSimpleName());
+
+        return Single.<List<T>>create(emitter -> {
+            try {
+                List<T> merged = exec(session -> {
+                    session.setJdbcBatchSize(BULK_BATCH);
+                    List<T> copies = new ArrayList<>(entities.size());
+                    for (int i = 0; i < entities.size(); i++) {
+                        copies.add(session.merge(entities.get(i)));
+                        if ((i + 1) % BULK_BATCH == 0) {
+                            session.flush();
+                            session.clear();
+                        }
+                    }
+                    return copies;
+                }, OpName);
+                DbTelemetry.items(OpName, entities.size());
+                merged.forEach(DB::invalidateCached);
+                emitter.onSuccess(merged);
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
     }
 
     // finds entry using UUID and deletes it
@@ -248,19 +696,110 @@ public class DB {
 
                     return null;
                 }, OpName);
+                RefCache.invalidate(type, id);
+                SectionCatalog.invalidate(type);
+                if (type == Prerequisite.class) PrerequisiteGraph.removed(id);
+                if (type == Course.class) Eligibility.removed(id);
 
                 emitter.onComplete();
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // runs the action once the session's transaction commits, nothing on rollback
+    // inside a write batch it is kept with the calling operation and dropped if that operation rolls back to its savepoint
+    static void afterCommit(Session session, Runnable action) {
+        if (WriteBatcher.collect(session, action)) return;
+        if (!session.getTransaction().isActive()) {
+            action.run();
+            return;
+        }
+
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) action.run();
+            }
+        });
+    }
+
+    // claims a seat inside the caller's transaction, false when the section is full (or missing)
+    // the UPDATE row-locks the section until commit and postgres re-checks the WHERE after waiting,
+    // so concurrent claims on the last seat serialize and only one of them matches
+    // https://www.postgresql.org/docs/current/transaction-iso.html#XACT-READ-COMMITTED
+    public static boolean takeSeat(Session session, UUID sectionId) {
+        boolean taken = session.createNativeMutationQuery("UPDATE sections SET seats_taken = seats_taken + 1 WHERE id = :id AND seats_taken < max_capacity")
+                               .setParameter("id", sectionId)
+                               .executeUpdate() == 1;
+        if (taken) SeatFeed.touchOnCommit(session, sectionId);
+        return taken;
+    }
+
+    public static void releaseSeat(Session session, UUID sectionId) {
+        int released = session.createNativeMutationQuery("UPDATE sections SET seats_taken = seats_taken - 1 WHERE id = :id AND seats_taken > 0")
+                              .setParameter("id", sectionId)
+                              .executeUpdate();
+        if (released == 1) SeatFeed.touchOnCommit(session, sectionId);
+    }
+
+    // recounts seats_taken from REGISTERED courses (the same rule SeatLedger loads by), returns how many sections were off
+    // sections are locked first so registrations in flight commit before we count (the count then sees them)
+    public static Single<Integer> reconcileSeats() {
+        String OpName = "Reconcile Seats";
+
+        return Single.<Integer>create(emitter -> {
+            try {
+                emitter.onSuccess(exec(session -> {
+                    session.createNativeQuery("SELECT id FROM sections ORDER BY id FOR UPDATE", UUID.class).getResultList();
+
+                    return session.createNativeMutationQuery("""
+                                          UPDATE sections s SET seats_taken = counted.taken
+                                          FROM (SELECT sec.id, COUNT(c.id) AS taken FROM sections sec LEFT JOIN courses c ON c.section_id = sec.id AND c.status = 'REGISTERED' GROUP BY sec.id) counted
+                                          WHERE counted.id = s.id AND s.seats_taken <> counted.taken
+                                          """)
+                                  .executeUpdate();
+                }, OpName));
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // drops the committed entity from the reference cache and the section catalog, and keeps the prerequisite graph and eligibility in step
+    private static void invalidateCached(Object entity) {
+        if (entity instanceof BaseEntity base) RefCache.invalidate(Hibernate.getClass(entity), base.getId());
+        if (entity != null) SectionCatalog.invalidate(Hibernate.getClass(entity));
+        if (entity instanceof Prerequisite prerequisite) PrerequisiteGraph.saved(prerequisite);
+        if (entity instanceof Course course) Eligibility.saved(course);
     }
 
-    // finds by UUID
+    // finds by UUID, on a replica when one is usable
     // maybe bc can be null or obj
     public static <T> Maybe<T> findById(Class<T> type, UUID id) {
         String OpName = "FindById " + type.getSimpleName();
 
+        return Maybe.<T>create(emitter -> {
+            try {
+                T result = execReplica(session -> session.get(type, id), OpName);
+
+                if (result != null) emitter.onSuccess(result);
+                else emitter.onComplete();
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // findById on the primary, for a copy that gets changed and merged back through update
+    // (a replica's copy could carry an old version and fail the merge) and for filling caches
+    public static <T> Maybe<T> findOnPrimary(Class<T> type, UUID id) {
+        String OpName = "FindOnPrimary " + type.getSimpleName();
+
         return Maybe.<T>create(emitter -> {
             try {
                 T result = exec(session -> session.get(type, id), OpName);
@@ -270,7 +809,7 @@ public class DB {
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
     }
 
     // returns number of entries
@@ -280,12 +819,12 @@ public class DB {
 
         return Single.<Long>create(emitter -> {
             try {
-                emitter.onSuccess(exec(session -> session.createSelectionQuery("SELECT COUNT(e) FROM " + type.getSimpleName() + " e", Long.class)
+                emitter.onSuccess(execReplica(session -> session.createSelectionQuery("SELECT COUNT(e) FROM " + type.getSimpleName() + " e", Long.class)
                                                          .getSingleResult(), OpName));
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
     }
 
     // checks if exists
@@ -295,13 +834,37 @@ public class DB {
 
         return Maybe.<Boolean>create(emitter -> {
             try {
-                emitter.onSuccess(exec(session -> session.createSelectionQuery("SELECT COUNT(e) > 0 FROM " + type.getSimpleName() + " e WHERE e.id = :id", Boolean.class)
+                emitter.onSuccess(execReplica(session -> session.createSelectionQuery("SELECT COUNT(e) > 0 FROM " + type.getSimpleName() + " e WHERE e.id = :id", Boolean.class)
                                                          .setParameter("id", id)
                                                          .getSingleResult(), OpName));
             } catch (Exception e) {
                 emitter.onError(e);
             }
-        }).subscribeOn(Schedulers.io());
+        }).subscribeOn(DbScheduler.get());
+    }
+
+    // deletes every row and drops everything cached from them, shared by resetAndSeed and LoadGenerator
+    static void clearAll() {
+        exec(session -> {
+            log.info("Starting to clear all tables...");
+
+            // List of tables in reverse dependency order
+            String[] tables = {"SectionPreference", "Course", "Notification", "Section", "Prerequisite", "SpaceTime", "Faculty", "Subject", "Trimester", "Student", "User"};
+
+            // Loop through tables and clear them
+            for (String table : tables) {
+                session.createMutationQuery("DELETE FROM " + table).executeUpdate();
+                log.info("Table {} cleared successfully.", table);
+            }
+
+            log.info("All tables have been cleared successfully.");
+            return null;
+        }, "Reset Database Schema");
+        ChangeFeed.compactAll();
+        RefCache.clear();
+        SectionCatalog.clear();
+        PrerequisiteGraph.clear();
+        Eligibility.clear();
     }
 
     public static Completable resetAndSeed() {
@@ -310,21 +873,7 @@ public class DB {
             try {
                 return Completable.fromCallable(() -> {
                     // First delete all data
-                    exec(session -> {
-                        log.info("Starting to clear all tables...");
-
-                        // List of tables in reverse dependency order
-                        String[] tables = {"Course", "Notification", "Section", "Prerequisite", "SpaceTime", "Faculty", "Subject", "Trimester", "Student", "User"};
-
-                        // Loop through tables and clear them
-                        for (String table : tables) {
-                            session.createMutationQuery("DELETE FROM " + table).executeUpdate();
-                            log.info("Table {} cleared successfully.", table);
-                        }
-
-                        log.info("All tables have been cleared successfully.");
-                        return null;
-                    }, "Reset Database Schema");
+                    clearAll();
 
                     // Create all objects first
                     List<Faculty>      admins         = new ArrayList<>();
@@ -1490,6 +2039,13 @@ public class DB {
                         return true;
                     }, "Persist All Entities");
 
+                    // seeded prerequisites and courses were inserted directly, both reload on next use
+                    PrerequisiteGraph.clear();
+                    Eligibility.clear();
+
+                    // seeded courses were inserted directly, count their seats once
+                    log.info("Seat counts fixed for {} sections", reconcileSeats().blockingGet());
+
                     log.info("Database reset and seed completed successfully");
                     return true;
                 });
@@ -1508,4 +2064,22 @@ public class DB {
         }
         return null;
     }
+
+    // DB.stream's open cursor, closed once whether the stream completed, failed or was cancelled
+    private record Scroll<T>(String name, Session session, ScrollableResults<T> results, int fetchSize, long acquiring, long running, AtomicLong rows) {
+        private Scroll(String name, Session session, ScrollableResults<T> results, int fetchSize, long acquiring, long running) {
+            this(name, session, results, fetchSize, acquiring, running, new AtomicLong());
+        }
+
+        private void close() {
+            try {
+                results.close();
+                if (session.getTransaction().isActive()) session.getTransaction().commit();
+            } finally {
+                session.close();
+                DbTelemetry.operation(name, running - acquiring, System.nanoTime() - running, false);
+                log.debug("{} closed after {} rows", name, rows.get());
+            }
+        }
+    }
 }
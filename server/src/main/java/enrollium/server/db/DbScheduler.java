@@ -0,0 +1,54 @@
+package enrollium.server.db;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/* Where DB work runs: one virtual thread per task, at most as many running as there are pooled connections
+ *
+ * DB's streams subscribeOn(DbScheduler.get()) instead of Schedulers.io(), which keeps a platform thread for every
+ * blocked task and grows without limit under load; here a task beyond the permits parks cheaply on the semaphore
+ * instead of on a hikari wait, so the thread count stays flat however many calls queue up
+ * permits: DB_POOL_SIZE plus every replica pool (DB_SCHEDULER_PERMITS overrides)
+ *
+ * never block inside a task on another DB stream (blockingGet): with every permit held that waits forever,
+ * chain it with flatMap, or load several ids at once (RefCache.findAll)
+ *
+ * virtual() is the same without the gate, for continuations that must not hold up the caller (WriteBatcher)
+ * https://openjdk.org/jeps/444
+ */
+public class DbScheduler {
+    private static final int             PERMITS = Integer.parseInt(System.getenv().getOrDefault("DB_SCHEDULER_PERMITS", String.valueOf(DB.POOL_SIZE + Replicas.connections())));
+    private static final Semaphore       permits = new Semaphore(PERMITS);
+    private static final ExecutorService threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("db-", 0).factory());
+    private static final Scheduler       gated   = Schedulers.from(task -> threads.execute(() -> {
+        permits.acquireUninterruptibly();
+        try {
+            task.run();
+        } finally {
+            permits.release();
+        }
+    }));
+    private static final Scheduler       ungated = Schedulers.from(threads);
+
+    public static Scheduler get() {
+        return gated;
+    }
+
+    public static Scheduler virtual() {
+        return ungated;
+    }
+
+    // tasks running now, at most PERMITS
+    public static int running() {
+        return PERMITS - permits.availablePermits();
+    }
+
+    // tasks parked for a permit
+    public static int waiting() {
+        return permits.getQueueLength();
+    }
+}
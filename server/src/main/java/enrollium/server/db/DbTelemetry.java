@@ -0,0 +1,170 @@
+package enrollium.server.db;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/* Where database time goes below the RPC layer
+ *
+ * operations: every named DB.exec is recorded twice, the wait for a pool connection and the run inside the transaction,
+ * each in a fixed-bucket histogram; a long wait is pool contention, a long run is the database itself
+ * items: what a bulk operation carried (rows of a saveAll, operations of a write batch), counted apart so the name stays fixed
+ * slow statements: a JDBC execute taking DB_SLOW_MS or longer goes into a ring of the last DB_SLOW_LOG_SIZE, with its shape
+ * (StatementStats.shape), how many bind placeholders it had and the scope that ran it
+ * pools: hikari's active/idle/pending gauges, for the primary and each replica
+ * Main's getDbStats returns snapshot(), the ServerStats page graphs it
+ *
+ * percentiles are bucket upper bounds, precise enough to compare operations without keeping every sample
+ */
+public class DbTelemetry {
+    private static final Logger                              log            = LoggerFactory.getLogger(DbTelemetry.class);
+    private static final long[]                              BOUNDS_MICROS  = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000};
+    private static final long                                SLOW_NANOS     = Long.parseLong(System.getenv().getOrDefault("DB_SLOW_MS", "200")) * 1_000_000;
+    private static final int                                 SLOW_LOG_SIZE  = Integer.parseInt(System.getenv().getOrDefault("DB_SLOW_LOG_SIZE", "100"));
+    // operation names come from entity types and fixed labels, this only bounds a caller that builds them from data
+    private static final int                                 MAX_OPERATIONS = 1000;
+    private static final Map<String, Operation>              operations     = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<SlowStatement> slowLog        = new AtomicReferenceArray<>(SLOW_LOG_SIZE);
+    private static final AtomicLong                          slowTotal      = new AtomicLong();
+
+    static void operation(String name, long acquireNanos, long runNanos, boolean failed) {
+        Operation operation = named(name);
+        operation.acquire.record(acquireNanos);
+        operation.run.record(runNanos);
+        if (failed) operation.failures.incrementAndGet();
+    }
+
+    static void items(String name, long items) {
+        named(name).items.addAndGet(items);
+    }
+
+    private static Operation named(String name) {
+        Operation operation = operations.get(name);
+        if (operation != null) return operation;
+        return operations.computeIfAbsent(operations.size() >= MAX_OPERATIONS ? "(other)" : name, _ -> new Operation());
+    }
+
+    static void statement(String sql, long nanos, String scope) {
+        if (nanos < SLOW_NANOS || sql == null) return;
+
+        int binds = 0;
+        for (int i = 0; i < sql.length(); i++) if (sql.charAt(i) == '?') binds++;
+        SlowStatement slow = new SlowStatement(System.currentTimeMillis(), scope, StatementStats.shape(sql), binds, nanos / 1e6);
+
+        slowLog.set((int) (slowTotal.getAndIncrement() % SLOW_LOG_SIZE), slow);
+        log.warn("Slow statement: {} ms scope={} binds={} sql={}", Math.round(slow.millis()), scope, binds, slow.shape());
+    }
+
+    public static Snapshot snapshot() {
+        List<OperationStats> stats   = new ArrayList<>();
+        long                 count   = 0;
+        double               acquire = 0;
+        double               run     = 0;
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Operation operation = entry.getValue();
+            Timing    acquired  = operation.acquire.timing();
+            Timing    ran       = operation.run.timing();
+            long      calls     = operation.run.count.get();
+            stats.add(new OperationStats(entry.getKey(), calls, operation.failures.get(), operation.items.get(), acquired, ran));
+            count += calls;
+            acquire += acquired.totalMillis();
+            run += ran.totalMillis();
+        }
+        stats.sort(Comparator.comparingDouble((OperationStats operation) -> operation.run().totalMillis() + operation.acquire().totalMillis()).reversed());
+
+        // newest first
+        List<SlowStatement> slow  = new ArrayList<>();
+        long                total = slowTotal.get();
+        for (long i = total - 1; i >= Math.max(0, total - SLOW_LOG_SIZE); i--) {
+            SlowStatement statement = slowLog.get((int) (i % SLOW_LOG_SIZE));
+            if (statement != null) slow.add(statement);
+        }
+
+        List<Pool> pools = new ArrayList<>();
+        pools.add(pool("primary", DB.getDataSource()));
+        Replicas.all().forEach(replica -> pools.add(pool(replica.url(), replica.pool())));
+
+        return new Snapshot(count, acquire, run, stats, total, slow, pools);
+    }
+
+    // zeroes the operation histograms and the slow log, the pool gauges are live anyway
+    public static void reset() {
+        operations.clear();
+        for (int i = 0; i < SLOW_LOG_SIZE; i++) slowLog.set(i, null);
+        slowTotal.set(0);
+    }
+
+    private static Pool pool(String name, HikariDataSource dataSource) {
+        HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+        // null until the pool has started
+        if (bean == null) return new Pool(name, 0, 0, 0, 0);
+        return new Pool(name, bean.getActiveConnections(), bean.getIdleConnections(), bean.getThreadsAwaitingConnection(), bean.getTotalConnections());
+    }
+
+    private static final class Operation {
+        private final Histogram  acquire  = new Histogram();
+        private final Histogram  run      = new Histogram();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong items    = new AtomicLong();
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+        private final AtomicLong      count   = new AtomicLong();
+        private final AtomicLong      nanos   = new AtomicLong();
+        private final AtomicLong      max     = new AtomicLong();
+
+        private void record(long elapsed) {
+            long micros = elapsed / 1_000;
+            int  bucket = 0;
+            while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) bucket++;
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            nanos.addAndGet(elapsed);
+            max.accumulateAndGet(elapsed, Math::max);
+        }
+
+        private Timing timing() {
+            return new Timing(nanos.get() / 1e6, percentile(0.50), percentile(0.95), percentile(0.99), max.get() / 1e6);
+        }
+
+        // upper bound of the bucket holding the q-th sample, the max for the open-ended last bucket
+        private double percentile(double q) {
+            long samples = count.get();
+            if (samples == 0) return 0;
+
+            long rank = (long) Math.ceil(q * samples);
+            long seen = 0;
+            for (int bucket = 0; bucket < BOUNDS_MICROS.length; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank) return Math.min(BOUNDS_MICROS[bucket] / 1e3, max.get() / 1e6);
+            }
+            return max.get() / 1e6;
+        }
+    }
+
+    // all in milliseconds, totalMillis is the sum over every call
+    public record Timing(double totalMillis, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {}
+
+    // items stays 0 for operations that don't report any
+    public record OperationStats(String name, long count, long failures, long items, Timing acquire, Timing run) {}
+
+    // at: epoch millis, scope: the RPC call or operation that ran it (null outside any)
+    public record SlowStatement(long at, String scope, String shape, int binds, double millis) {}
+
+    // pending: threads waiting for a connection
+    public record Pool(String name, int active, int idle, int pending, int total) {}
+
+    // operations, acquireMillis and runMillis are totals since start (or reset), take deltas between snapshots for rates
+    public record Snapshot(long operations, double acquireMillis, double runMillis, List<OperationStats> byOperation, long slowTotal, List<SlowStatement> slow, List<Pool> pools) {}
+}
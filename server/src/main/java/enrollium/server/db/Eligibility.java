@@ -0,0 +1,361 @@
+package enrollium.server.db;
+
+import enrollium.server.db.PrerequisiteGraph.Requirement;
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.types.CourseStatus;
+import io.reactivex.rxjava3.core.Single;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/* Which subjects each student may take, decided by their completed courses
+ *
+ * Eligibility.eligible(studentId, subjectId): a subject without prerequisites is open to everyone, otherwise the
+ * student needs every direct prerequisite COMPLETED with at least its minimum grade (best attempt counts); direct is
+ * enough, a prerequisite could only be completed once its own prerequisites were
+ *
+ * subjects with prerequisites get dense ids and every student a bitset over them, so a check is one bit test
+ * Eligibility.precompute() loads at boot (Warmup), when a trimester opens course selection and after a bulk write clears it:
+ * - all completed courses are streamed once, on DbScheduler
+ * - bitsets are computed in parallel, fork-join over partitions of students
+ * - one load at a time, everyone asking while it runs shares it
+ * eligible/missing never load, they run inside write batches: before the first load is in they throw (and start it)
+ *
+ * kept current without another full pass:
+ * - DB calls saved/removed after a Course write commits, only that student is recomputed from their stored grades
+ * - writes committing while a load runs are kept and replayed on top of its scan, so a load always finishes
+ * - a prerequisite change (PrerequisiteGraph.version) recomputes every bitset from the stored grades, no query
+ */
+public class Eligibility {
+    private static final    Logger                           log       = LoggerFactory.getLogger(Eligibility.class);
+    private static final    ReentrantReadWriteLock           lock      = new ReentrantReadWriteLock();
+    // bumped under the write lock by clear(), a load started before it is thrown away
+    private static final    AtomicLong                       clears    = new AtomicLong();
+    // Course writes that committed while a load was scanning, replayed once it is in; guarded by the write lock
+    private static final    List<Runnable>                   racing    = new ArrayList<>();
+    private static          int                              loading;
+    // the load in flight, null when none; guarded by the write lock
+    private static          Single<Summary>                  inFlight;
+    // studentId -> courseId -> completion
+    private static final    Map<UUID, Map<UUID, Completion>> completed = new HashMap<>();
+    // courseId -> studentId, for deletes
+    private static final    Map<UUID, UUID>                  owners    = new HashMap<>();
+    private static final    Map<UUID, long[]>                eligible  = new HashMap<>();
+    private static volatile Rules                            rules     = Rules.NONE;
+    private static volatile boolean                          loaded;
+
+    public static boolean eligible(UUID studentId, UUID subjectId) {
+        ensureCurrent();
+        lock.readLock().lock();
+        try {
+            Integer subject = rules.index().get(subjectId);
+            if (subject == null) return true;
+
+            long[] bits = eligible.get(studentId);
+            return bits != null && (bits[subject >>> 6] & 1L << subject) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the requirements the student is still missing for the subject, empty when eligible
+    public static List<Requirement> missing(UUID studentId, UUID subjectId) {
+        ensureCurrent();
+        lock.readLock().lock();
+        try {
+            Integer subject = rules.index().get(subjectId);
+            if (subject == null) return List.of();
+
+            Map<UUID, Double> best = best(completed.getOrDefault(studentId, Map.of()));
+            return rules.requirements()
+                        .get(subject)
+                        .stream()
+                        .filter(requirement -> best.getOrDefault(requirement.prerequisiteId(), -1.0) < requirement.minimumGrade())
+                        .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // full rebuild from the database, joins the one in flight if there is one
+    public static Single<Summary> precompute() {
+        lock.writeLock().lock();
+        try {
+            if (inFlight != null) return inFlight;
+
+            Single<Summary> started = Single.fromCallable(() -> {
+                                                long    begun = System.nanoTime();
+                                                boolean done  = false;
+                                                while (!done) done = load();
+                                                lock.readLock().lock();
+                                                try {
+                                                    return new Summary(completed.size(), rules.index().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begun));
+                                                } finally {
+                                                    lock.readLock().unlock();
+                                                }
+                                            })
+                                            .subscribeOn(DbScheduler.get())
+                                            .doFinally(() -> {
+                                                lock.writeLock().lock();
+                                                try {
+                                                    inFlight = null;
+                                                } finally {
+                                                    lock.writeLock().unlock();
+                                                }
+                                            })
+                                            .cache();
+            inFlight = started;
+            // runs whether or not the caller waits for it
+            started.subscribe(_ -> {}, error -> log.error("Eligibility load failed: {}", error.getMessage()));
+            return started;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // marks the course once the caller's transaction commits, for writes that don't go through DB.save/update
+    public static void savedOnCommit(Session session, Course course) {
+        DB.afterCommit(session, () -> saved(course));
+    }
+
+    // forgets the course once the caller's transaction commits, for deletes that don't go through DB.delete
+    public static void removedOnCommit(Session session, UUID courseId) {
+        DB.afterCommit(session, () -> removed(courseId));
+    }
+
+    // called by DB after a Course insert or update commits
+    static void saved(Course course) {
+        apply(() -> {
+            UUID studentId = course.getStudent().getId();
+            UUID previous  = forget(course.getId());
+            if (course.getStatus() == CourseStatus.COMPLETED && course.getGrade() != null) {
+                completed.computeIfAbsent(studentId, _ -> new HashMap<>()).put(course.getId(), new Completion(course.getSubject().getId(), course.getGrade()));
+                owners.put(course.getId(), studentId);
+            }
+
+            recompute(studentId);
+            if (previous != null && !previous.equals(studentId)) recompute(previous);
+        });
+    }
+
+    // called by DB after a Course delete commits
+    static void removed(UUID courseId) {
+        apply(() -> {
+            UUID studentId = forget(courseId);
+            if (studentId != null) recompute(studentId);
+        });
+    }
+
+    // drops everything after a bulk write and loads again, a load in flight starts over
+    static void clear() {
+        lock.writeLock().lock();
+        try {
+            clears.incrementAndGet();
+            racing.clear();
+            loaded = false;
+            completed.clear();
+            owners.clear();
+            eligible.clear();
+            rules = Rules.NONE;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        precompute();
+    }
+
+    // fails closed while nothing is loaded: the caller may hold a write batch's connection, so the scan is never run here
+    private static void ensureCurrent() {
+        if (!loaded) {
+            precompute();
+            throw new IllegalStateException("Eligibility is still loading, try again shortly");
+        }
+        if (rules.version() == PrerequisiteGraph.version()) return;
+
+        PrerequisiteGraph.Requirements requirements = PrerequisiteGraph.requirements();
+        lock.writeLock().lock();
+        try {
+            if (rules.version() == requirements.version()) return;
+            rules = Rules.of(requirements);
+            eligible.clear();
+            eligible.putAll(compute(rules, completed));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a change to the loaded state; while nothing is loaded it is dropped (the next load reads it from the database),
+    // while a load is scanning it is also kept: the scan may have missed it, so that load replays it
+    private static void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) change.run();
+            if (loading > 0) racing.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // false if clear() ran while loading, the caller runs it again
+    private static boolean load() {
+        long seen;
+        lock.writeLock().lock();
+        try {
+            seen = clears.get();
+            loading++; // before the scan starts, a write committing from here on is kept in racing
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            return install(seen, scan());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (--loading == 0) racing.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static Map<UUID, Map<UUID, Completion>> scan() {
+        return DB.execReadOnly(session -> {
+            Map<UUID, Map<UUID, Completion>> byStudent = new HashMap<>();
+            try (Stream<Object[]> rows = session.createSelectionQuery("SELECT c.id, c.student.id, c.subject.id, c.grade FROM Course c WHERE c.status = :status AND c.grade IS NOT NULL", Object[].class)
+                                                .setParameter("status", CourseStatus.COMPLETED)
+                                                .setFetchSize(1000)
+                                                .getResultStream()) {
+                rows.forEach(row -> byStudent.computeIfAbsent((UUID) row[1], _ -> new HashMap<>()).put((UUID) row[0], new Completion((UUID) row[2], (Double) row[3])));
+            }
+            return byStudent;
+        }, "Load Completed Courses");
+    }
+
+    // installs a scan and replays the writes that raced it; a write the scan already saw is applied again, which is idempotent
+    private static boolean install(long seen, Map<UUID, Map<UUID, Completion>> history) {
+        Rules             fresh = Rules.of(PrerequisiteGraph.requirements());
+        Map<UUID, long[]> bits  = compute(fresh, history);
+
+        lock.writeLock().lock();
+        try {
+            if (clears.get() != seen) return false;
+            completed.clear();
+            completed.putAll(history);
+            owners.clear();
+            history.forEach((studentId, courses) -> courses.keySet().forEach(courseId -> owners.put(courseId, studentId)));
+            eligible.clear();
+            eligible.putAll(bits);
+            rules  = fresh;
+            loaded = true;
+            racing.forEach(Runnable::run);
+            racing.clear();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // drops a stored completion, returns whose it was
+    private static UUID forget(UUID courseId) {
+        UUID studentId = owners.remove(courseId);
+        if (studentId != null) completed.get(studentId).remove(courseId);
+        return studentId;
+    }
+
+    private static void recompute(UUID studentId) {
+        Map<UUID, Completion> courses = completed.get(studentId);
+        if (courses == null || courses.isEmpty()) {
+            completed.remove(studentId);
+            eligible.remove(studentId);
+        } else {
+            eligible.put(studentId, rules.bits(courses));
+        }
+    }
+
+    private static Map<UUID, long[]> compute(Rules rules, Map<UUID, Map<UUID, Completion>> history) {
+        UUID[]   students = history.keySet().toArray(UUID[]::new);
+        long[][] bits     = new long[students.length][];
+        ForkJoinPool.commonPool().invoke(new Partition(rules, history, students, bits, 0, students.length));
+
+        Map<UUID, long[]> byStudent = new HashMap<>(students.length * 2);
+        for (int i = 0; i < students.length; i++) byStudent.put(students[i], bits[i]);
+        return byStudent;
+    }
+
+    private static Map<UUID, Double> best(Map<UUID, Completion> courses) {
+        Map<UUID, Double> best = new HashMap<>();
+        for (Completion completion : courses.values()) best.merge(completion.subjectId(), completion.grade(), Math::max);
+        return best;
+    }
+
+    private static class Partition extends RecursiveAction {
+        private static final int                              SEQUENTIAL = 512;
+        private final        Rules                            rules;
+        private final        Map<UUID, Map<UUID, Completion>> history;
+        private final        UUID[]                           students;
+        private final        long[][]                         bits;
+        private final        int                              from, to;
+
+        private Partition(Rules rules, Map<UUID, Map<UUID, Completion>> history, UUID[] students, long[][] bits, int from, int to) {
+            this.rules    = rules;
+            this.history  = history;
+            this.students = students;
+            this.bits     = bits;
+            this.from     = from;
+            this.to       = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SEQUENTIAL) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Partition(rules, history, students, bits, from, middle), new Partition(rules, history, students, bits, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) bits[i] = rules.bits(history.get(students[i]));
+        }
+    }
+
+    // subjects with prerequisites, by dense id
+    private record Rules(long version, Map<UUID, Integer> index, List<List<Requirement>> requirements) {
+        private static final Rules NONE = new Rules(-1, Map.of(), List.of());
+
+        private static Rules of(PrerequisiteGraph.Requirements graph) {
+            Map<UUID, Integer>      index        = new HashMap<>();
+            List<List<Requirement>> requirements = new ArrayList<>();
+            graph.bySubject().keySet().stream().sorted().forEach(subjectId -> {
+                index.put(subjectId, requirements.size());
+                requirements.add(graph.bySubject().get(subjectId));
+            });
+            return new Rules(graph.version(), Map.copyOf(index), List.copyOf(requirements));
+        }
+
+        private long[] bits(Map<UUID, Completion> courses) {
+            Map<UUID, Double> best = best(courses);
+            long[]            bits = new long[(requirements.size() + 63) >>> 6];
+            for (int subject = 0; subject < requirements.size(); subject++) {
+                boolean met = true;
+                for (Requirement requirement : requirements.get(subject)) {
+                    if (best.getOrDefault(requirement.prerequisiteId(), -1.0) < requirement.minimumGrade()) {
+                        met = false;
+                        break;
+                    }
+                }
+                if (met) bits[subject >>> 6] |= 1L << subject;
+            }
+            return bits;
+        }
+    }
+
+    private record Completion(UUID subjectId, double grade) {}
+
+    public record Summary(int students, int subjects, long millis) {}
+}
@@ -0,0 +1,364 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.*;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import net.datafaker.Faker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Synthetic data at benchmark volumes, for capacity planning
+ *
+ * LoadGenerator.seed(scaleFactor, randomSeed) wipes the database like resetAndSeed and fills it with, per 1.0 of scale:
+ * - 50k students, each with a grade history of 0-4 completed trimesters and registrations in the ongoing one (~300k courses)
+ * - 3k sections over five trimesters (four COMPLETED, one ONGOING), a sixth trimester in COURSE_SELECTION without any
+ * - 100 subjects on four levels, each above the first mostly needing one or two subjects from the level below
+ * students only take subjects whose prerequisites they met, failed subjects are retaken later
+ *
+ * deterministic: every random choice comes from a Random derived from (randomSeed, partition), never from thread timing,
+ * so the same arguments give the same rows (ids and timestamps aside); Summary.checksum lets two runs be compared
+ * students are generated in partitions of PARTITION in parallel and loaded through DB.saveAll, LOADERS at a time
+ * section capacities are raised to what was registered once everything is in
+ */
+public class LoadGenerator {
+    public static final  String      CREATOR   = "loadgen";
+    private static final Logger      log       = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final int         PARTITION = 1000;
+    private static final int         LOADERS   = Integer.parseInt(System.getenv().getOrDefault("LOADGEN_LOADERS", "4"));
+    private static final String[]    PREFIXES  = {"CSE", "EEE", "MAT", "PHY", "ENG", "SOC", "BDS", "ECO"};
+    // UIU grade points, best first
+    private static final double[]    GRADES    = {4.0, 3.67, 3.33, 3.0, 2.67, 2.33, 2.0, 1.67, 1.33, 1.0, 0.0};
+    private static final double[]    MINIMUMS  = {1.0, 1.0, 2.0, 2.5};
+    private static final int         COMPLETED = 4;  // trimesters with grades, then one ONGOING, then one in COURSE_SELECTION
+    private static final int         LOAD      = 2;  // courses per student per trimester
+    private static final DayOfWeek[] DAYS      = {DayOfWeek.SATURDAY, DayOfWeek.SUNDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY};
+
+    public static Single<Summary> seed(double scaleFactor, long randomSeed) {
+        return Single.defer(() -> {
+            if (scaleFactor <= 0) return Single.error(new IllegalArgumentException("Scale factor must be positive"));
+            return Single.fromCallable(() -> {
+                long started = System.nanoTime();
+                log.info("Generating load data at scale {} with seed {}", scaleFactor, randomSeed);
+                DB.clearAll();
+
+                Catalog    catalog  = Catalog.load(scaleFactor, randomSeed);
+                int        students = (int) Math.round(50_000 * scaleFactor);
+                AtomicLong courses  = new AtomicLong();
+                AtomicLong checksum = new AtomicLong(catalog.checksum);
+
+                Flowable.range(0, (students + PARTITION - 1) / PARTITION)
+                        .parallel()
+                        .runOn(Schedulers.computation(), 1)
+                        .map(partition -> Partition.generate(catalog, randomSeed, partition, students))
+                        .sequential(1)
+                        .flatMapSingle(partition -> DB.saveAll(partition.rows()).map(_ -> partition), false, LOADERS)
+                        .blockingForEach(partition -> {
+                            courses.addAndGet(partition.courses());
+                            checksum.addAndGet(partition.checksum());
+                        });
+
+                // saveAll takes no seats: count them, then let every section hold what was registered into it
+                log.info("Seat counts fixed for {} sections", DB.reconcileSeats().blockingGet());
+                DB.exec(session -> session.createNativeMutationQuery("UPDATE sections SET max_capacity = seats_taken WHERE seats_taken > max_capacity").executeUpdate(), "Fit Section Capacities");
+
+                // every write above went through saveAll, but the capacities did not; start the caches over
+                // and send every client table back to a full reload instead of a delta of the whole load
+                ChangeFeed.compactAll();
+                RefCache.clear();
+                SectionCatalog.clear();
+                PrerequisiteGraph.clear();
+                Eligibility.clear();
+
+                Summary summary = new Summary(scaleFactor, randomSeed, students, catalog.sectionCount(), courses.get(), checksum.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                log.info("Load data generated: {}", summary);
+                return summary;
+            });
+        }).subscribeOn(Schedulers.io());
+    }
+
+    // SplitMix64 finalizer, decorrelates the per-partition streams of one seed
+    private static long stream(long seed, long stream) {
+        long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Faker faker(Random random) {
+        return new Faker(Locale.ENGLISH, random);
+    }
+
+    // A, B, ..., Z, AA, AB, ...
+    private static String letters(int index) {
+        StringBuilder letters = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) letters.insert(0, (char) ('A' + (i - 1) % 26));
+        return letters.toString();
+    }
+
+    private static long mix(long hash, Object... values) {
+        return hash * 31 + Arrays.hashCode(values);
+    }
+
+    // everything but the students, generated from stream -1 and stored before any partition runs
+    private static class Catalog {
+        private final List<Faculty>      teachers      = new ArrayList<>();
+        private final List<Subject>      subjects      = new ArrayList<>();
+        private final List<Prerequisite> prerequisites = new ArrayList<>();
+        private final List<SpaceTime>    slots         = new ArrayList<>();
+        private final List<Trimester>    trimesters    = new ArrayList<>();
+        private final List<Section>      sections      = new ArrayList<>();
+        private final List<SpaceTime[]>  theoryPlaces  = new ArrayList<>();
+        private final List<SpaceTime[]>  labPlaces     = new ArrayList<>();
+        // subject index -> prerequisite subject indexes, and their minimum grades
+        private       int[][]            needs;
+        private       double[][]         minimums;
+        // trimester -> subject index -> its sections
+        private       Section[][][]      offered;
+        private       long               checksum;
+
+        // sections are built once the rest has ids: slots and teachers sit in hash sets, and unsaved entities all compare equal
+        private static Catalog load(double scaleFactor, long randomSeed) {
+            Catalog catalog = new Catalog();
+            Random  random  = new Random(stream(randomSeed, -1));
+            Faker   faker   = faker(random);
+            catalog.subjects(Math.max(8, (int) Math.round(100 * scaleFactor)), random, faker);
+            catalog.teachers(Math.max(4, (int) Math.round(120 * scaleFactor)), faker);
+            catalog.trimesters();
+            int perTrimester = Math.max(catalog.subjects.size(), (int) Math.round(600 * scaleFactor));
+            catalog.rooms(perTrimester);
+
+            log.info("Loading {} teachers, {} subjects, {} prerequisites, {} slots", catalog.teachers.size(), catalog.subjects.size(), catalog.prerequisites.size(), catalog.slots.size());
+            DB.saveAll(catalog.teachers).blockingGet();
+            DB.saveAll(catalog.subjects).blockingGet();
+            DB.saveAll(catalog.prerequisites).blockingGet();
+            DB.saveAll(catalog.slots).blockingGet();
+            DB.saveAll(catalog.trimesters).blockingGet();
+
+            catalog.sections(perTrimester, random);
+            log.info("Loading {} sections", catalog.sections.size());
+            DB.saveAll(catalog.sections).blockingGet();
+            return catalog;
+        }
+
+        private void subjects(int count, Random random, Faker faker) {
+            needs    = new int[count][];
+            minimums = new double[count][];
+            for (int i = 0; i < count; i++) {
+                int     level   = i * 4 / count;
+                boolean lab     = i % 4 == 3;
+                Subject subject = new Subject();
+                subject.setCreatedBy(CREATOR);
+                subject.setCodeName(PREFIXES[i % PREFIXES.length] + (level + 1) + "%03d".formatted(i));
+                subject.setName(faker.educator().course() + (lab ? " Laboratory" : ""));
+                subject.setCredits(lab ? 1 : 3);
+                subject.setType(lab ? SubjectType.LAB : SubjectType.THEORY);
+                subjects.add(subject);
+                checksum = mix(checksum, subject.getCodeName(), subject.getName());
+
+                // one or two from the level below, some subjects above the first stay open
+                int from = (level - 1) * count / 4, to = level * count / 4;
+                int wanted = level == 0 || random.nextInt(10) < 3 ? 0 : Math.min(to - from, 1 + random.nextInt(2));
+                needs[i]    = wanted == 0 ? new int[0] : random.ints(from, to).distinct().limit(wanted).toArray();
+                minimums[i] = new double[wanted];
+                for (int n = 0; n < wanted; n++) {
+                    minimums[i][n] = MINIMUMS[random.nextInt(MINIMUMS.length)];
+                    Prerequisite prerequisite = new Prerequisite();
+                    prerequisite.setCreatedBy(CREATOR);
+                    prerequisite.setSubject(subject);
+                    prerequisite.setPrerequisite(subjects.get(needs[i][n]));
+                    prerequisite.setMinimumGrade(minimums[i][n]);
+                    prerequisites.add(prerequisite);
+                    checksum = mix(checksum, i, needs[i][n], minimums[i][n]);
+                }
+            }
+        }
+
+        private void teachers(int count, Faker faker) {
+            for (int i = 0; i < count; i++) {
+                String  firstName = faker.name().firstName();
+                String  lastName  = faker.name().lastName();
+                Faculty teacher   = new Faculty();
+                teacher.setCreatedBy(CREATOR);
+                teacher.setName("%s %s".formatted(firstName, lastName));
+                teacher.setEmail("%s.%d@uiu.ac.bd".formatted((firstName.charAt(0) + lastName).toLowerCase().replaceAll("[^a-z]", ""), i));
+                teacher.setShortcode("%c%c%d".formatted(firstName.charAt(0), lastName.charAt(0), i).toUpperCase());
+                teacher.setPassword(DB.DEMOPASS);
+                teacher.setType(UserType.TEACHER);
+                teachers.add(teacher);
+                checksum = mix(checksum, teacher.getName(), teacher.getEmail());
+            }
+        }
+
+        private void trimesters() {
+            Season[] seasons = {Season.SPRING, Season.SUMMER, Season.FALL};
+            for (int t = 0; t <= COMPLETED + 1; t++) {
+                int           year      = 2023 + t / 3;
+                LocalDateTime opens     = LocalDateTime.of(year, 1 + t % 3 * 4, 1, 9, 0);
+                Trimester     trimester = new Trimester();
+                trimester.setCreatedBy(CREATOR);
+                trimester.setYear(year);
+                trimester.setSeason(seasons[t % 3]);
+                trimester.setCode(year % 100 * 10 + t % 3 + 1);
+                trimester.setStatus(t < COMPLETED ? TrimesterStatus.COMPLETED : t == COMPLETED ? TrimesterStatus.ONGOING : TrimesterStatus.COURSE_SELECTION);
+                trimester.setCourseSelectionStart(opens);
+                trimester.setCourseSelectionEnd(opens.plusDays(6));
+                if (t <= COMPLETED) {
+                    trimester.setSectionRegistrationStart(opens.plusDays(8));
+                    trimester.setSectionRegistrationEnd(opens.plusDays(14));
+                }
+                trimesters.add(trimester);
+            }
+        }
+
+        // enough rooms for perTrimester sections at once, every trimester reuses them
+        // a theory room fits 12 sections (Sat+Tue or Sun+Wed, 6 slots), a lab room 12 (4 days, 3 slots)
+        private void rooms(int perTrimester) {
+            int theory = 0;
+            for (int j = 0; j < perTrimester; j++) if (subjects.get(j % subjects.size()).getType() == SubjectType.THEORY) theory++;
+            for (int room = 0; room < (theory + 11) / 12; room++) room(SubjectType.THEORY, room, theoryPlaces);
+            for (int room = 0; room < (perTrimester - theory + 11) / 12; room++) room(SubjectType.LAB, room, labPlaces);
+        }
+
+        // perTrimester sections in every trimester that has any, subjects round robin so each gets at least one
+        private void sections(int perTrimester, Random random) {
+            offered = new Section[COMPLETED + 1][subjects.size()][];
+            for (int t = 0; t <= COMPLETED; t++) {
+                List<List<Section>> bySubject = new ArrayList<>();
+                for (int s = 0; s < subjects.size(); s++) bySubject.add(new ArrayList<>());
+                int theoryUsed = 0, labUsed = 0;
+                for (int j = 0; j < perTrimester; j++) {
+                    Subject subject = subjects.get(j % subjects.size());
+                    boolean lab     = subject.getType() == SubjectType.LAB;
+                    Section section = new Section();
+                    section.setCreatedBy(CREATOR);
+                    section.setSection(letters(j / subjects.size()));
+                    section.setSubject(subject);
+                    section.setTrimester(trimesters.get(t));
+                    section.setName(subject.getCodeName() + " - " + section.getSection() + " - " + trimesters.get(t).getCode());
+                    int     teacher = random.nextInt(teachers.size());
+                    section.setSpaceTimeSlots(new HashSet<>(Arrays.asList(lab ? labPlaces.get(labUsed++) : theoryPlaces.get(theoryUsed++))));
+                    section.setMaxCapacity(lab ? 20 : 40);
+                    section.setTeachers(new HashSet<>(List.of(teachers.get(teacher))));
+                    sections.add(section);
+                    bySubject.get(j % subjects.size()).add(section);
+                    checksum = mix(checksum, section.getName(), teacher);
+                }
+                for (int s = 0; s < subjects.size(); s++) offered[t][s] = bySubject.get(s).toArray(Section[]::new);
+            }
+        }
+
+        // one room's slots, and the slot sets a section can occupy in it
+        private void room(SubjectType type, int room, List<SpaceTime[]> places) {
+            String                      number = (type == SubjectType.LAB ? "L" : "R") + (1001 + room);
+            int                         last   = type == SubjectType.LAB ? 3 : 6;
+            Map<DayOfWeek, SpaceTime[]> byDay  = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DAYS) {
+                SpaceTime[] daySlots = new SpaceTime[last + 1];
+                for (int slot = 1; slot <= last; slot++) {
+                    SpaceTime spaceTime = new SpaceTime();
+                    spaceTime.setCreatedBy(CREATOR);
+                    spaceTime.setName((type == SubjectType.LAB ? "Lab " : "Room ") + number);
+                    spaceTime.setRoomNumber(number);
+                    spaceTime.setRoomType(type);
+                    spaceTime.setDayOfWeek(day);
+                    spaceTime.setTimeSlot(slot);
+                    slots.add(spaceTime);
+                    daySlots[slot] = spaceTime;
+                }
+                byDay.put(day, daySlots);
+            }
+            for (int slot = 1; slot <= last; slot++) {
+                if (type == SubjectType.LAB) {
+                    for (DayOfWeek day : DAYS) places.add(new SpaceTime[]{byDay.get(day)[slot]});
+                } else {
+                    places.add(new SpaceTime[]{byDay.get(DayOfWeek.SATURDAY)[slot], byDay.get(DayOfWeek.TUESDAY)[slot]});
+                    places.add(new SpaceTime[]{byDay.get(DayOfWeek.SUNDAY)[slot], byDay.get(DayOfWeek.WEDNESDAY)[slot]});
+                }
+            }
+        }
+
+        private int sectionCount() {
+            return sections.size();
+        }
+    }
+
+    // one partition of students with their courses, a pure function of (catalog, randomSeed, partition)
+    private record Partition(List<BaseEntity> rows, int courses, long checksum) {
+        private static Partition generate(Catalog catalog, long randomSeed, int partition, int total) {
+            Random           random   = new Random(stream(randomSeed, partition));
+            Faker            faker    = faker(random);
+            List<Student>    students = new ArrayList<>();
+            List<Course>     courses  = new ArrayList<>();
+            long             checksum = 0;
+            int              subjects = catalog.subjects.size();
+
+            for (int index = partition * PARTITION; index < Math.min(total, (partition + 1) * PARTITION); index++) {
+                String  firstName    = faker.name().firstName();
+                String  lastName     = faker.name().lastName();
+                int     universityId = 110_000_000 + index;
+                Student student      = new Student();
+                student.setCreatedBy(CREATOR);
+                student.setName("%s %s".formatted(firstName, lastName));
+                student.setUniversityId(universityId);
+                student.setEmail("%s.%d@bscse.uiu.ac.bd".formatted((firstName.charAt(0) + lastName).toLowerCase().replaceAll("[^a-z]", ""), universityId));
+                student.setPassword(DB.DEMOPASS);
+                students.add(student);
+                checksum = mix(checksum, universityId, student.getName(), student.getEmail());
+
+                // lower is better, a student's grades scatter around their own ability
+                double   ability = Math.clamp(3 + random.nextGaussian() * 2, 0, GRADES.length - 1);
+                double[] best    = new double[subjects];
+                Arrays.fill(best, -1);
+                for (int t = COMPLETED - random.nextInt(COMPLETED + 1); t <= COMPLETED; t++) {
+                    for (int subject : pick(catalog, best, random)) {
+                        Section[] offered = catalog.offered[t][subject];
+                        Course    course  = new Course();
+                        course.setCreatedBy(CREATOR);
+                        course.setStudent(student);
+                        course.setSubject(catalog.subjects.get(subject));
+                        course.setTrimester(catalog.trimesters.get(t));
+                        course.setSection(offered[random.nextInt(offered.length)]);
+                        if (t < COMPLETED) {
+                            double grade = GRADES[Math.clamp(Math.round(ability + random.nextGaussian() * 1.5), 0, GRADES.length - 1)];
+                            course.setStatus(CourseStatus.COMPLETED);
+                            course.setGrade(grade);
+                            best[subject] = Math.max(best[subject], grade);
+                        } else {
+                            course.setStatus(random.nextInt(100) < 3 ? CourseStatus.DROPPED : CourseStatus.REGISTERED);
+                        }
+                        courses.add(course);
+                        checksum = mix(checksum, universityId, subject, t, course.getStatus().name(), course.getGrade(), course.getSection().getSection());
+                    }
+                }
+            }
+
+            List<BaseEntity> rows = new ArrayList<>(students.size() + courses.size());
+            rows.addAll(students);
+            rows.addAll(courses);
+            return new Partition(rows, courses.size(), checksum);
+        }
+
+        // up to LOAD subjects not passed yet whose prerequisites are met, in subject order before shuffling
+        private static int[] pick(Catalog catalog, double[] best, Random random) {
+            List<Integer> open = new ArrayList<>();
+            for (int subject = 0; subject < best.length; subject++) {
+                if (best[subject] >= 1.0) continue;
+                boolean met = true;
+                for (int n = 0; n < catalog.needs[subject].length && met; n++) met = best[catalog.needs[subject][n]] >= catalog.minimums[subject][n];
+                if (met) open.add(subject);
+            }
+            Collections.shuffle(open, random);
+            return open.stream().limit(LOAD).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public record Summary(double scaleFactor, long randomSeed, int students, int sections, long courses, long checksum, long millis) {}
+}
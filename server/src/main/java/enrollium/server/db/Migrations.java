@@ -0,0 +1,139 @@
+package enrollium.server.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/* Versioned schema migrations, applied before the SessionFactory is built
+ *
+ * SCRIPTS lists resources/db/migration/V<version>__<description>.sql in order, a new script goes at the end
+ * Migrations.apply(dataSource) holds a postgres advisory lock while it runs, so servers booting together apply each once:
+ * - schema_history keeps version, description, checksum (CRC32 of the script) and when it ran
+ * - each pending script runs in one transaction with its history row, a failure rolls both back and stops the boot
+ * - an applied script whose checksum changed stops the boot: change the schema with a new version, never by editing one
+ * hibernate only validates its mapping against the result (hbm2ddl.auto=validate), it no longer alters anything
+ */
+public class Migrations {
+    private static final Logger       log     = LoggerFactory.getLogger(Migrations.class);
+    private static final List<String> SCRIPTS = List.of( //
+            "V1__baseline.sql", //
+            "V2__trigram_search.sql", //
+            "V3__course_status_indexes.sql" //
+    );
+    private static final Pattern      NAME    = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    // arbitrary, only has to differ from other advisory locks taken on the same database
+    private static final long         LOCK    = 0x656E726F6C6CL;
+
+    public static void apply(DataSource dataSource) throws SQLException {
+        long            started    = System.nanoTime();
+        List<Migration> migrations = load();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + LOCK + ")");
+            }
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("""
+                                      CREATE TABLE IF NOT EXISTS schema_history (
+                                          version     integer      NOT NULL PRIMARY KEY,
+                                          description varchar(200) NOT NULL,
+                                          checksum    bigint       NOT NULL,
+                                          applied_at  timestamp    NOT NULL DEFAULT now(),
+                                          millis      bigint       NOT NULL
+                                      )""");
+                }
+
+                Map<Integer, Long> applied = applied(connection);
+                int                ran     = 0;
+                for (Migration migration : migrations) {
+                    Long checksum = applied.remove(migration.version());
+                    if (checksum == null) {
+                        run(connection, migration);
+                        ran++;
+                    } else if (checksum != migration.checksum()) {
+                        throw new IllegalStateException("Migration V" + migration.version() + " was changed after it was applied (checksum " + checksum + ", now " + migration.checksum() + ")");
+                    }
+                }
+                // a newer server already migrated this database, this one may still work with it
+                if (!applied.isEmpty()) log.warn("Database has migrations this build does not know: {}", applied.keySet());
+
+                log.info("Schema at V{}, {} migrations applied in {} ms", migrations.getLast().version(), ran, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + LOCK + ")");
+                }
+            }
+        }
+    }
+
+    private static List<Migration> load() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String script : SCRIPTS) {
+            Matcher name = NAME.matcher(script);
+            if (!name.matches()) throw new IllegalStateException("Migration script name must look like V<version>__<description>.sql: " + script);
+
+            int version = Integer.parseInt(name.group(1));
+            if (!migrations.isEmpty() && version <= migrations.getLast().version())
+                throw new IllegalStateException("Migration scripts must be listed in increasing version order: " + script);
+
+            try (InputStream in = Migrations.class.getResourceAsStream("/db/migration/" + script)) {
+                if (in == null) throw new IllegalStateException("Migration script not found: " + script);
+                byte[] bytes = in.readAllBytes();
+                CRC32  crc   = new CRC32();
+                crc.update(bytes);
+                migrations.add(new Migration(version, name.group(2).replace('_', ' '), new String(bytes, StandardCharsets.UTF_8), crc.getValue()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read migration script " + script + ": " + e.getMessage(), e);
+            }
+        }
+        return migrations;
+    }
+
+    // version -> checksum
+    private static Map<Integer, Long> applied(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new TreeMap<>();
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery("SELECT version, checksum FROM schema_history")) {
+            while (rows.next()) applied.put(rows.getInt(1), rows.getLong(2));
+        }
+        return applied;
+    }
+
+    // the script and its history row commit together, postgres ddl is transactional
+    private static void run(Connection connection, Migration migration) throws SQLException {
+        long started = System.nanoTime();
+        connection.setAutoCommit(false);
+        try {
+            // pgjdbc splits a multi-statement script itself
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(migration.sql());
+            }
+            try (PreparedStatement history = connection.prepareStatement("INSERT INTO schema_history (version, description, checksum, millis) VALUES (?, ?, ?, ?)")) {
+                history.setInt(1, migration.version());
+                history.setString(2, migration.description());
+                history.setLong(3, migration.checksum());
+                history.setLong(4, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                history.executeUpdate();
+            }
+            connection.commit();
+            log.info("Applied migration V{} {} in {} ms", migration.version(), migration.description(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw new SQLException("Migration V" + migration.version() + " " + migration.description() + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private record Migration(int version, String description, String sql, long checksum) {}
+}
@@ -0,0 +1,7 @@
+package enrollium.server.db;
+
+import java.util.List;
+
+// one page of a keyset read
+// nextCursor is null when there is nothing after this page
+public record Page<T>(List<T> items, String nextCursor) {}
@@ -0,0 +1,281 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.Prerequisite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* The subject prerequisite DAG, in memory
+ *
+ * subjects get dense int ids on first sight; requires[s] holds s's direct prerequisites (grades[s] their minimum grades)
+ * and closure[s] is the bitset of everything s needs transitively, so "does a need b" is one bit test
+ *
+ * PrerequisiteGraph.wouldCycle(subject, prerequisite) backs Prerequisite's @PrePersist check:
+ * subject -> prerequisite closes a cycle iff they are the same subject or prerequisite already needs subject
+ *
+ * DB calls saved/removed after a Prerequisite write commits
+ * - insert: closure[prerequisite] + prerequisite is ORed into subject and everything that needs subject
+ * - delete: subject and everything that needs it are recomputed from their remaining edges
+ * loaded with one query on first use, clear() drops it and the next caller reloads (resetAndSeed)
+ * a load that overlaps a write is thrown away and run again, so it never misses a committed edge
+ */
+public class PrerequisiteGraph {
+    private static final    Logger                 log      = LoggerFactory.getLogger(PrerequisiteGraph.class);
+    private static final    ReentrantReadWriteLock lock     = new ReentrantReadWriteLock();
+    // bumped under the write lock by every committed write, see ensureLoaded and version
+    private static final    AtomicLong             writes   = new AtomicLong();
+    private static final    Map<UUID, Integer>     index    = new HashMap<>();
+    // Prerequisite row id -> {subject, prerequisite}
+    private static final    Map<UUID, int[]>       edges    = new HashMap<>();
+    private static          UUID[]                 subjects = new UUID[0];
+    private static          int[][]                requires = new int[0][];
+    private static          double[][]             grades   = new double[0][];
+    private static          int[]                  degree   = new int[0];
+    private static          long[][]               closure  = new long[0][];
+    private static          int                    size;
+    private static volatile boolean                loaded;
+
+    public static boolean wouldCycle(UUID subjectId, UUID prerequisiteId) {
+        if (subjectId.equals(prerequisiteId)) return true;
+        return needs(prerequisiteId, subjectId);
+    }
+
+    // true if subject needs prerequisite directly or through a chain
+    public static boolean needs(UUID subjectId, UUID prerequisiteId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Integer subject = index.get(subjectId), prerequisite = index.get(prerequisiteId);
+            return subject != null && prerequisite != null && has(closure[subject], prerequisite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // everything the subject needs, each prerequisite before the subjects that need it
+    public static List<UUID> chain(UUID subjectId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Integer subject = index.get(subjectId);
+            if (subject == null) return List.of();
+
+            List<Integer> members = new ArrayList<>();
+            for (int other = 0; other < size; other++) if (has(closure[subject], other)) members.add(other);
+            // a subject's closure strictly contains those of its prerequisites, so fewer bits come first
+            members.sort(Comparator.comparingInt((Integer other) -> cardinality(closure[other])).thenComparing(other -> subjects[other]));
+            return members.stream().map(other -> subjects[other]).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<Requirement> direct(UUID subjectId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Integer subject = index.get(subjectId);
+            if (subject == null) return List.of();
+
+            List<Requirement> requirements = new ArrayList<>(degree[subject]);
+            for (int i = 0; i < degree[subject]; i++) requirements.add(new Requirement(subjects[requires[subject][i]], grades[subject][i]));
+            return requirements;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // every subject with prerequisites and their direct requirements, stamped with the version they were read at
+    public static Requirements requirements() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Map<UUID, List<Requirement>> bySubject = new HashMap<>();
+            for (int subject = 0; subject < size; subject++) {
+                if (degree[subject] == 0) continue;
+                List<Requirement> requirements = new ArrayList<>(degree[subject]);
+                for (int i = 0; i < degree[subject]; i++) requirements.add(new Requirement(subjects[requires[subject][i]], grades[subject][i]));
+                bySubject.put(subjects[subject], List.copyOf(requirements));
+            }
+            return new Requirements(writes.get(), Map.copyOf(bySubject));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // changes whenever an edge is added, removed or the graph is dropped; anything derived from the graph compares it
+    public static long version() {
+        return writes.get();
+    }
+
+    // called by DB after a Prerequisite insert or update commits
+    static void saved(Prerequisite prerequisite) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            if (!loaded) return; // a load in flight sees the bump and runs again
+            if (edges.containsKey(prerequisite.getId())) unlink(prerequisite.getId());
+            link(prerequisite.getId(), prerequisite.getSubject().getId(), prerequisite.getPrerequisite().getId(), prerequisite.getMinimumGrade());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // called by DB after a Prerequisite delete commits
+    static void removed(UUID prerequisiteId) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            if (loaded && edges.containsKey(prerequisiteId)) unlink(prerequisiteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static void clear() {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            loaded = false;
+            index.clear();
+            edges.clear();
+            subjects = new UUID[0];
+            requires = new int[0][];
+            grades   = new double[0][];
+            degree   = new int[0];
+            closure  = new long[0][];
+            size     = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void ensureLoaded() {
+        while (!loaded) {
+            long           seen = writes.get();
+            List<Object[]> rows = DB.execReadOnly(session -> session.createSelectionQuery("SELECT p.id, p.subject.id, p.prerequisite.id, p.minimumGrade FROM Prerequisite p", Object[].class)
+                                                                    .getResultList(), "Load Prerequisite Graph");
+            lock.writeLock().lock();
+            try {
+                if (loaded || writes.get() != seen) continue;
+                for (Object[] row : rows) {
+                    if (wouldCycleLocked((UUID) row[1], (UUID) row[2])) {
+                        log.warn("Skipping prerequisite {}: it closes a cycle", row[0]);
+                        continue;
+                    }
+                    link((UUID) row[0], (UUID) row[1], (UUID) row[2], (Double) row[3]);
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static boolean wouldCycleLocked(UUID subjectId, UUID prerequisiteId) {
+        Integer subject = index.get(subjectId), prerequisite = index.get(prerequisiteId);
+        return subjectId.equals(prerequisiteId) || subject != null && prerequisite != null && has(closure[prerequisite], subject);
+    }
+
+    private static void link(UUID id, UUID subjectId, UUID prerequisiteId, double minimumGrade) {
+        int subject      = intern(subjectId);
+        int prerequisite = intern(prerequisiteId);
+
+        if (degree[subject] == requires[subject].length) {
+            requires[subject] = Arrays.copyOf(requires[subject], Math.max(4, degree[subject] * 2));
+            grades[subject]   = Arrays.copyOf(grades[subject], requires[subject].length);
+        }
+        requires[subject][degree[subject]] = prerequisite;
+        grades[subject][degree[subject]++] = minimumGrade;
+        edges.put(id, new int[]{subject, prerequisite});
+
+        // subject and everything that needs it now also need prerequisite and its closure
+        long[] gained = closure[prerequisite].clone();
+        set(gained, prerequisite);
+        for (int other = 0; other < size; other++) {
+            if (other == subject || has(closure[other], subject)) {
+                for (int word = 0; word < gained.length; word++) closure[other][word] |= gained[word];
+            }
+        }
+    }
+
+    private static void unlink(UUID id) {
+        int[] edge    = edges.remove(id);
+        int   subject = edge[0];
+        for (int i = 0; i < degree[subject]; i++) {
+            if (requires[subject][i] != edge[1]) continue;
+            degree[subject]--;
+            requires[subject][i] = requires[subject][degree[subject]];
+            grades[subject][i]   = grades[subject][degree[subject]];
+            break;
+        }
+
+        // closures not containing subject are untouched; the rest are rebuilt from their edges
+        boolean[] stale = new boolean[size];
+        for (int other = 0; other < size; other++) {
+            if (other == subject || has(closure[other], subject)) {
+                stale[other] = true;
+                Arrays.fill(closure[other], 0L);
+            }
+        }
+        for (int other = 0; other < size; other++) if (stale[other]) rebuild(other, stale);
+    }
+
+    private static void rebuild(int subject, boolean[] stale) {
+        stale[subject] = false;
+        for (int i = 0; i < degree[subject]; i++) {
+            int prerequisite = requires[subject][i];
+            if (stale[prerequisite]) rebuild(prerequisite, stale);
+            for (int word = 0; word < closure[subject].length; word++) closure[subject][word] |= closure[prerequisite][word];
+            set(closure[subject], prerequisite);
+        }
+    }
+
+    private static int intern(UUID subjectId) {
+        Integer existing = index.get(subjectId);
+        if (existing != null) return existing;
+
+        if (size == subjects.length) {
+            int capacity = Math.max(64, size * 2);
+            subjects = Arrays.copyOf(subjects, capacity);
+            requires = Arrays.copyOf(requires, capacity);
+            grades   = Arrays.copyOf(grades, capacity);
+            degree   = Arrays.copyOf(degree, capacity);
+            closure  = Arrays.copyOf(closure, capacity);
+            for (int other = 0; other < size; other++) closure[other] = Arrays.copyOf(closure[other], words(capacity));
+        }
+
+        int subject = size++;
+        subjects[subject] = subjectId;
+        requires[subject] = new int[0];
+        grades[subject]   = new double[0];
+        closure[subject]  = new long[words(subjects.length)];
+        index.put(subjectId, subject);
+        return subject;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean has(long[] bits, int bit) {
+        return (bits[bit >>> 6] & 1L << bit) != 0;
+    }
+
+    private static void set(long[] bits, int bit) {
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    private static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) count += Long.bitCount(word);
+        return count;
+    }
+
+    public record Requirement(UUID prerequisiteId, double minimumGrade) {}
+
+    public record Requirements(long version, Map<UUID, List<Requirement>> bySubject) {}
+}
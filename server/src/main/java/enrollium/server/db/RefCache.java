@@ -0,0 +1,201 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.*;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Read-through cache for reference data that barely changes during a trimester
+ *
+ * RefCache.find(Subject.class, id) instead of DB.findById(Subject.class, id)
+ *
+ * entries are detached entities: read them, attach them to new entities, never modify them
+ * (handlers that update an entity load a fresh copy through DB.findOnPrimary)
+ *
+ * DB.save/update/delete invalidate the id after commit; a load that started before an invalidation is not stored
+ * (stripe stamps), and an entry is never replaced by an older @Version of the same row
+ *
+ * https://docs.aws.amazon.com/whitepapers/latest/database-caching-strategies-using-redis/cache-validity.html
+ */
+public class RefCache {
+    private static final Set<Class<?>>       TYPES         = Set.of(Subject.class, SpaceTime.class, Trimester.class, Faculty.class);
+    private static final int                 MAX_ENTRIES   = Integer.parseInt(System.getenv().getOrDefault("REF_CACHE_SIZE", "10000"));
+    private static final long                TTL_NANOS     = Duration.ofMinutes(Long.parseLong(System.getenv().getOrDefault("REF_CACHE_TTL_MINUTES", "10"))).toNanos();
+    private static final int                 STRIPES       = 256;
+    // bumped on every invalidation of a key in the stripe
+    private static final AtomicLongArray     stamps        = new AtomicLongArray(STRIPES);
+    private static final AtomicLong          hits          = new AtomicLong();
+    private static final AtomicLong          misses        = new AtomicLong();
+    private static final AtomicLong          evictions     = new AtomicLong();
+    private static final AtomicLong          invalidations = new AtomicLong();
+    // access ordered, so the eldest entry is the least recently used one
+    private static final Map<Key, Entry>     entries       = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= MAX_ENTRIES) return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    public static boolean caches(Class<?> type) {
+        return TYPES.contains(type);
+    }
+
+    // falls through to DB.findById for types that are not cached
+    public static <T> Maybe<T> find(Class<T> type, UUID id) {
+        if (!caches(type)) return DB.findById(type, id);
+
+        return Maybe.defer(() -> {
+            Key key    = new Key(type, id);
+            T   cached = lookup(key, type);
+
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Maybe.just(cached);
+            }
+
+            misses.incrementAndGet();
+            long stamp = stamps.get(stripe(key));
+            // from the primary: a lagging replica could hand back the row as it was before the invalidation
+            return DB.findOnPrimary(type, id).doOnSuccess(entity -> store(key, entity, stamp));
+        });
+    }
+
+    // several ids of one type at once: hits from the cache, every miss in one IN (...) query on the primary
+    // (any type, only cached ones are stored); in the order of ids, fails with NoSuchElementException if one does not exist
+    public static <T> Single<List<T>> findAll(Class<T> type, Collection<UUID> ids) {
+        return Single.defer(() -> {
+            boolean         cached  = caches(type);
+            Map<UUID, T>    found   = new HashMap<>();
+            Map<UUID, Long> missing = new HashMap<>();
+            for (UUID id : ids) {
+                if (found.containsKey(id) || missing.containsKey(id)) continue;
+
+                Key key = new Key(type, id);
+                T   hit = cached ? lookup(key, type) : null;
+                if (hit != null) found.put(id, hit);
+                else missing.put(id, stamps.get(stripe(key)));
+            }
+            if (cached) {
+                hits.addAndGet(found.size());
+                misses.addAndGet(missing.size());
+            }
+            if (missing.isEmpty()) return Single.just(ordered(type, ids, found));
+
+            return Single.fromCallable(() -> DB.execReadOnly(session -> session.createSelectionQuery("FROM " + type.getSimpleName() + " e WHERE e.id IN (:ids)", type)
+                                                                                .setParameterList("ids", missing.keySet())
+                                                                                .getResultList(), "FindAll " + type.getSimpleName()))
+                         .subscribeOn(DbScheduler.get())
+                         .map(rows -> {
+                             for (T row : rows) {
+                                 UUID id = ((BaseEntity) row).getId();
+                                 found.put(id, row);
+                                 if (cached) store(new Key(type, id), row, missing.get(id));
+                             }
+                             return ordered(type, ids, found);
+                         });
+        });
+    }
+
+    // what the cache holds right now, without loading anything (for messages where an id will do instead)
+    public static <T> Optional<T> cached(Class<T> type, UUID id) {
+        return caches(type) ? Optional.ofNullable(lookup(new Key(type, id), type)) : Optional.empty();
+    }
+
+    // every row of a cached type in one query (boot warm-up), stamps are read first like in find; returns the row count
+    static int preload(Class<?> type) {
+        if (!caches(type)) return 0;
+
+        long[] seen = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) seen[i] = stamps.get(i);
+        List<?> rows = DB.execReadOnly(session -> session.createSelectionQuery("FROM " + type.getSimpleName(), type).getResultList(), "Preload " + type.getSimpleName());
+        for (Object row : rows) {
+            Key key = new Key(type, ((BaseEntity) row).getId());
+            store(key, row, seen[stripe(key)]);
+        }
+        return rows.size();
+    }
+
+    // called by DB after a write commits; a User id also drops a cached Faculty with that id
+    static void invalidate(Class<?> type, UUID id) {
+        if (id == null) return;
+
+        for (Class<?> cached : TYPES) {
+            if (!type.isAssignableFrom(cached)) continue;
+
+            Key key = new Key(cached, id);
+            stamps.incrementAndGet(stripe(key));
+            synchronized (entries) {
+                if (entries.remove(key) != null) invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    static void clear() {
+        for (int i = 0; i < STRIPES; i++) stamps.incrementAndGet(i);
+        synchronized (entries) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public static Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size());
+        }
+    }
+
+    private static <T> T lookup(Key key, Class<T> type) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+
+            if (entry.expiresAt() - System.nanoTime() < 0) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                return null;
+            }
+
+            return type.cast(entry.value());
+        }
+    }
+
+    private static void store(Key key, Object entity, long stamp) {
+        long version = entity instanceof BaseEntity base && base.getVersion() != null ? base.getVersion() : 0;
+
+        synchronized (entries) {
+            // invalidated while we were loading, what we have may already be stale
+            if (stamps.get(stripe(key)) != stamp) return;
+
+            Entry existing = entries.get(key);
+            if (existing != null && existing.version() > version) return;
+
+            entries.put(key, new Entry(entity, version, System.nanoTime() + TTL_NANOS));
+        }
+    }
+
+    private static <T> List<T> ordered(Class<T> type, Collection<UUID> ids, Map<UUID, T> found) {
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            T entity = found.get(id);
+            if (entity == null) throw new NoSuchElementException(type.getSimpleName() + " not found: " + id);
+            ordered.add(entity);
+        }
+        return ordered;
+    }
+
+    private static int stripe(Key key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {}
+
+    private record Key(Class<?> type, UUID id) {}
+
+    private record Entry(Object value, long version, long expiresAt) {}
+}
@@ -0,0 +1,177 @@
+package enrollium.server.db;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Streaming replicas that take DB's read-only operations off the primary
+ *
+ * DB_REPLICA_URLS=jdbc:postgresql://replica1:5432/enrollium,jdbc:postgresql://replica2:5432/enrollium
+ * (same DB_USERNAME/DB_PASSWORD as the primary, DB_REPLICA_POOL_SIZE connections each)
+ * every DB_REPLICA_CHECK_MS a check reads the primary's WAL position and asks each replica how far its replay is behind:
+ * a replica is used only while it answers, is still in recovery and is at most DB_REPLICA_MAX_LAG_BYTES behind
+ * reads go round robin over the usable replicas, with none usable (or none configured) they go to the primary
+ * a replica whose connection fails is dropped until the next check finds it healthy again, a failing check drops what it could not verify
+ * nothing is usable before the first check, so a booting server reads from the primary
+ */
+public class Replicas {
+    private static final    Logger        log           = LoggerFactory.getLogger(Replicas.class);
+    private static final    long          CHECK_MS      = Long.parseLong(System.getenv().getOrDefault("DB_REPLICA_CHECK_MS", "1000"));
+    private static final    long          MAX_LAG_BYTES = Long.parseLong(System.getenv().getOrDefault("DB_REPLICA_MAX_LAG_BYTES", "1048576"));
+    private static final    int           POOL_SIZE     = Integer.parseInt(System.getenv().getOrDefault("DB_REPLICA_POOL_SIZE", String.valueOf(DB.POOL_SIZE)));
+    private static final    AtomicInteger next          = new AtomicInteger();
+    private static final    AtomicLong    primaryReads  = new AtomicLong();
+    private static volatile List<Replica> replicas      = List.of();
+
+    // connections all replica pools together can hold, known before they start (see DbScheduler)
+    static int connections() {
+        String urls = System.getenv().getOrDefault("DB_REPLICA_URLS", "");
+        return (int) Arrays.stream(urls.split(",")).filter(url -> !url.isBlank()).count() * POOL_SIZE;
+    }
+
+    // called once by DB after the primary pool exists
+    static void start(DataSource primary) {
+        String urls = System.getenv().getOrDefault("DB_REPLICA_URLS", "");
+        replicas = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).map(Replica::new).toList();
+        if (replicas.isEmpty()) return;
+
+        log.info("Routing reads to {} replicas, max lag {} bytes, checked every {} ms", replicas.size(), MAX_LAG_BYTES, CHECK_MS);
+        // check catches what it can, should the interval still end no replica is left serving reads nobody checks
+        Observable.interval(0, CHECK_MS, TimeUnit.MILLISECONDS, Schedulers.io()).subscribe(_ -> check(primary), e -> {
+            log.error("Replica checks stopped, reads stay on the primary", e);
+            replicas.forEach(replica -> replica.down("checks stopped: " + e.getMessage()));
+        });
+    }
+
+    // a usable replica, null when reads should go to the primary
+    static Replica pick() {
+        List<Replica> usable = replicas.stream().filter(replica -> replica.usable).toList();
+        if (usable.isEmpty()) {
+            primaryReads.incrementAndGet();
+            return null;
+        }
+        return usable.get(Math.floorMod(next.getAndIncrement(), usable.size()));
+    }
+
+    static List<Replica> all() {
+        return replicas;
+    }
+
+    public static Stats stats() {
+        return new Stats(primaryReads.get(), replicas.stream().map(replica -> new Status(replica.url, replica.usable, replica.lagBytes, replica.reads.get(), replica.problem)).toList());
+    }
+
+    private static void check(DataSource primary) {
+        String position;
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement(); ResultSet row = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+            row.next();
+            position = row.getString(1);
+        } catch (SQLException | RuntimeException e) {
+            // without the primary's position the lag is unknown
+            replicas.forEach(replica -> replica.down("primary position unknown: " + e.getMessage()));
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT pg_is_in_recovery(), pg_wal_lsn_diff(?::pg_lsn, pg_last_wal_replay_lsn())")) {
+                statement.setString(1, position);
+                try (ResultSet row = statement.executeQuery()) {
+                    row.next();
+                    // a promoted replica takes writes of its own, it no longer follows this primary
+                    if (!row.getBoolean(1)) {
+                        replica.down("not in recovery");
+                        continue;
+                    }
+                    // replay can pass the position read a moment ago
+                    long lag = Math.max(0, row.getLong(2));
+                    if (lag > MAX_LAG_BYTES) replica.down(lag, "lagging " + lag + " bytes");
+                    else replica.up(lag);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // anything that keeps a replica from answering drops it, the next check tries again
+                replica.down(e.getMessage());
+            }
+        }
+    }
+
+    static final class Replica {
+        private final    String           url;
+        private final    HikariDataSource pool;
+        private final    AtomicLong       reads    = new AtomicLong();
+        private volatile boolean          usable;
+        private volatile long             lagBytes = -1;
+        private volatile String           problem  = "not checked yet";
+
+        private Replica(String url) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url);
+            config.setUsername(System.getenv().getOrDefault("DB_USERNAME", "enrollium"));
+            config.setPassword(System.getenv().getOrDefault("DB_PASSWORD", "enrollium"));
+            config.setMaximumPoolSize(POOL_SIZE);
+            config.setMinimumIdle(2);
+            config.setIdleTimeout(300000);
+            config.setReadOnly(true);
+            // a replica that is down must not hold up a read that can still go to the primary
+            config.setConnectionTimeout(1000);
+            // nor the boot, the checks find out when it comes up
+            config.setInitializationFailTimeout(-1);
+            this.url  = url;
+            this.pool = new HikariDataSource(config);
+        }
+
+        Connection connection() throws SQLException {
+            try {
+                Connection connection = pool.getConnection();
+                reads.incrementAndGet();
+                return connection;
+            } catch (SQLException e) {
+                down(e.getMessage());
+                throw e;
+            }
+        }
+
+        String url() {
+            return url;
+        }
+
+        HikariDataSource pool() {
+            return pool;
+        }
+
+        private void up(long lag) {
+            if (!usable) log.info("Replica {} usable, {} bytes behind", url, lag);
+            lagBytes = lag;
+            problem  = null;
+            usable   = true;
+        }
+
+        private void down(String reason) {
+            down(-1, reason);
+        }
+
+        private void down(long lag, String reason) {
+            if (usable) log.warn("Replica {} dropped: {}", url, reason);
+            usable   = false;
+            lagBytes = lag;
+            problem  = reason;
+        }
+    }
+
+    // lagBytes is -1 when unknown, problem is null while usable
+    public record Status(String url, boolean usable, long lagBytes, long reads, String problem) {}
+
+    // primaryReads: read-only operations that found no usable replica
+    public record Stats(long primaryReads, List<Status> replicas) {}
+}
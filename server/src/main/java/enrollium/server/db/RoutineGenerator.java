@@ -0,0 +1,233 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.types.SubjectType;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Conflict-free routines for one student, best first
+ *
+ * RoutineGenerator.generate(fixed, options, preferences, limit): options holds the candidate sections of every course
+ * still to place, fixed is the timetable the student already has (ScheduleMask)
+ *
+ * backtracking over the courses with the fewest options first, a branch is cut as soon as
+ * - its next section overlaps what is picked so far (one AND)
+ * - its cost plus the cheapest option of every course left can't beat the limit-th best routine found anywhere
+ * the pairs of choices for the first two courses are searched in parallel as fork-join tasks; each task keeps its own
+ * best list and publishes its limit-th cost, so every task prunes with the best bound seen so far
+ *
+ * cost (lower is better) is additive per section, which keeps the bound exact:
+ * early slots and slots on wanted free days cost, a preferred teacher earns; the number of days on campus breaks ties
+ * ties are settled by section order, so the same input always gives the same routines
+ */
+public class RoutineGenerator {
+    private static final int  EARLY_COST   = 10; // per early theory slot
+    private static final int  FREE_DAY     = 10; // per slot on a day the student wants free
+    private static final int  FACULTY_GAIN = 5;  // per section taught by a preferred teacher
+    private static final int  DAY_COST     = 1;  // per day with any class
+    private static final long DAY_BITS     = 0b111111L;
+
+    public static Result generate(long fixed, List<List<Option>> courses, Preferences preferences, int limit) {
+        long started = System.nanoTime();
+        if (courses.isEmpty()) return new Result(List.of(), 0, 0);
+
+        long early = ScheduleMask.EMPTY, free = ScheduleMask.EMPTY;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            for (int slot = 1; slot < preferences.earliestSlot(); slot++) early |= ScheduleMask.of(day, slot, SubjectType.THEORY);
+            if (preferences.freeDays().contains(day)) free |= DAY_BITS << (day.getValue() - 1) * 6;
+        }
+
+        // usable options only, cheapest first; courses with the fewest options go first
+        List<Integer>  order  = new ArrayList<>();
+        List<Option[]> usable = new ArrayList<>();
+        for (int course = 0; course < courses.size(); course++) {
+            long     earlyMask = early, freeMask = free;
+            Option[] options = courses.get(course)
+                                      .stream()
+                                      .filter(option -> preferences.includeFull() || !option.full())
+                                      .filter(option -> !ScheduleMask.clashes(option.mask(), fixed))
+                                      .map(option -> option.withCost(cost(option, earlyMask, freeMask, preferences.preferredFaculty())))
+                                      .sorted(Comparator.comparingInt(Option::cost).thenComparing(Option::sectionId))
+                                      .toArray(Option[]::new);
+            if (options.length == 0) return new Result(List.of(), 0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            order.add(course);
+            usable.add(options);
+        }
+        order.sort(Comparator.comparingInt(course -> usable.get(course).length));
+
+        Search search = new Search(order.stream().map(usable::get).toArray(Option[][]::new), fixed, limit);
+        List<Routine> found = search.run();
+
+        // back to the caller's course order
+        List<Routine> routines = new ArrayList<>();
+        for (Routine routine : found) {
+            Option[] picked = new Option[courses.size()];
+            for (int depth = 0; depth < order.size(); depth++) picked[order.get(depth)] = routine.sections().get(depth);
+            routines.add(new Routine(routine.cost(), List.of(picked), routine.mask()));
+        }
+        return new Result(routines, search.visited.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static int cost(Option option, long early, long free, Set<UUID> preferredFaculty) {
+        int cost = EARLY_COST * Long.bitCount(option.mask() & early) + FREE_DAY * Long.bitCount(option.mask() & free);
+        for (UUID teacher : option.teachers()) {
+            if (preferredFaculty.contains(teacher)) {
+                cost -= FACULTY_GAIN;
+                break;
+            }
+        }
+        return cost;
+    }
+
+    private static int days(long mask) {
+        int days = 0;
+        for (int day = 0; day < 7; day++) if ((mask >>> day * 6 & DAY_BITS) != 0) days++;
+        return days;
+    }
+
+    private static class Search {
+        private final Option[][]    options;
+        private final long          fixed;
+        private final int           limit;
+        private final int[]         cheapestRest; // sum of the cheapest option of courses depth.. end
+        private final AtomicInteger bound   = new AtomicInteger(Integer.MAX_VALUE);
+        private final LongAdder     visited = new LongAdder();
+
+        private Search(Option[][] options, long fixed, int limit) {
+            this.options      = options;
+            this.fixed        = fixed;
+            this.limit        = limit;
+            this.cheapestRest = new int[options.length + 1];
+            for (int depth = options.length - 1; depth >= 0; depth--) cheapestRest[depth] = cheapestRest[depth + 1] + options[depth][0].cost();
+        }
+
+        private List<Routine> run() {
+            // the first two levels are the units of parallel work
+            List<int[]> seeds = new ArrayList<>();
+            if (options.length == 1) {
+                for (int i = 0; i < options[0].length; i++) seeds.add(new int[]{i});
+            } else {
+                for (int i = 0; i < options[0].length; i++) {
+                    for (int j = 0; j < options[1].length; j++) {
+                        if (!ScheduleMask.clashes(options[0][i].mask(), options[1][j].mask())) seeds.add(new int[]{i, j});
+                    }
+                }
+            }
+
+            List<Routine> best = ForkJoinPool.commonPool().invoke(new Task(seeds, 0, seeds.size()));
+            return best.size() > limit ? best.subList(0, limit) : best;
+        }
+
+        private class Task extends RecursiveTask<List<Routine>> {
+            private static final int         SEQUENTIAL = 4;
+            private final        List<int[]> seeds;
+            private final        int         from, to;
+
+            private Task(List<int[]> seeds, int from, int to) {
+                this.seeds = seeds;
+                this.from  = from;
+                this.to    = to;
+            }
+
+            @Override
+            protected List<Routine> compute() {
+                if (to - from > SEQUENTIAL) {
+                    int  middle = (from + to) >>> 1;
+                    Task left   = new Task(seeds, from, middle);
+                    left.fork();
+                    List<Routine> right = new Task(seeds, middle, to).compute();
+                    return merge(left.join(), right);
+                }
+
+                Best     best   = new Best();
+                Option[] picked = new Option[options.length];
+                for (int seed = from; seed < to; seed++) {
+                    long mask = fixed;
+                    int  cost = 0;
+                    for (int depth = 0; depth < seeds.get(seed).length; depth++) {
+                        picked[depth] = options[depth][seeds.get(seed)[depth]];
+                        mask |= picked[depth].mask();
+                        cost += picked[depth].cost();
+                    }
+                    search(seeds.get(seed).length, mask, cost, picked, best);
+                }
+                return best.sorted();
+            }
+
+            private void search(int depth, long mask, int cost, Option[] picked, Best best) {
+                visited.increment();
+                if (cost + cheapestRest[depth] > bound.get()) return;
+
+                if (depth == options.length) {
+                    best.offer(new Routine(cost + DAY_COST * days(mask), List.of(picked.clone()), mask));
+                    return;
+                }
+
+                for (Option option : options[depth]) {
+                    if (ScheduleMask.clashes(mask, option.mask())) continue;
+                    // options are sorted by cost, nothing further along can do better
+                    if (cost + option.cost() + cheapestRest[depth + 1] > bound.get()) break;
+
+                    picked[depth] = option;
+                    search(depth + 1, mask | option.mask(), cost + option.cost(), picked, best);
+                }
+            }
+
+            private List<Routine> merge(List<Routine> a, List<Routine> b) {
+                List<Routine> merged = new ArrayList<>(a);
+                merged.addAll(b);
+                merged.sort(ORDER);
+                return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+            }
+        }
+
+        // this task's best routines; once full, its worst cost is a bound for every task
+        private class Best {
+            private final PriorityQueue<Routine> worstFirst = new PriorityQueue<>(ORDER.reversed());
+
+            private void offer(Routine routine) {
+                if (worstFirst.size() == limit && ORDER.compare(routine, worstFirst.peek()) >= 0) return;
+                worstFirst.add(routine);
+                if (worstFirst.size() > limit) worstFirst.poll();
+                if (worstFirst.size() == limit) bound.accumulateAndGet(worstFirst.peek().cost(), Math::min);
+            }
+
+            private List<Routine> sorted() {
+                List<Routine> routines = new ArrayList<>(worstFirst);
+                routines.sort(ORDER);
+                return routines;
+            }
+        }
+    }
+
+    private static final Comparator<Routine> ORDER = Comparator.comparingInt(Routine::cost).thenComparing((a, b) -> {
+        for (int i = 0; i < a.sections().size(); i++) {
+            int compared = a.sections().get(i).sectionId().compareTo(b.sections().get(i).sectionId());
+            if (compared != 0) return compared;
+        }
+        return 0;
+    });
+
+    // earliestSlot: theory slots before it count as early (1 = none); freeDays are days the student would rather keep free
+    public record Preferences(int earliestSlot, Set<DayOfWeek> freeDays, Set<UUID> preferredFaculty, boolean includeFull) {}
+
+    // one candidate section for one course, cost is filled in by generate
+    public record Option(UUID courseId, UUID sectionId, String sectionCode, long mask, boolean full, Set<UUID> teachers, int cost) {
+        public Option(UUID courseId, UUID sectionId, String sectionCode, long mask, boolean full, Set<UUID> teachers) {
+            this(courseId, sectionId, sectionCode, mask, full, teachers, 0);
+        }
+
+        private Option withCost(int cost) {
+            return new Option(courseId, sectionId, sectionCode, mask, full, teachers, cost);
+        }
+    }
+
+    public record Routine(int cost, List<Option> sections, long mask) {}
+
+    public record Result(List<Routine> routines, long visited, long millis) {}
+}
@@ -0,0 +1,82 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.SpaceTime;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.SubjectType;
+import org.hibernate.Session;
+
+import java.time.DayOfWeek;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/* A week's timetable as one long
+ *
+ * bit (day - 1) * 6 + (slot - 1) for theory slot 1..6 of Monday..Sunday, 42 bits in use
+ * lab slot k takes as long as theory slots 2k-1 and 2k, so it sets both bits
+ *
+ * two timetables clash iff (a & b) != 0; a student's timetable is the OR of their REGISTERED sections
+ * callers that already hold a section's spaceTimeSlots build the mask in memory, the loaders below cost one query each
+ */
+public final class ScheduleMask {
+    public static final  long EMPTY         = 0L;
+    private static final int  SLOTS_PER_DAY = 6;
+
+    private ScheduleMask() {}
+
+    public static long of(DayOfWeek day, int timeSlot, SubjectType type) {
+        long bits = type == SubjectType.LAB ? 0b11L << (timeSlot - 1) * 2 : 1L << (timeSlot - 1);
+        return bits << (day.getValue() - 1) * SLOTS_PER_DAY;
+    }
+
+    public static long of(Collection<SpaceTime> slots) {
+        long mask = EMPTY;
+        for (SpaceTime slot : slots) mask |= of(slot.getDayOfWeek(), slot.getTimeSlot(), slot.getRoomType());
+        return mask;
+    }
+
+    public static boolean clashes(long a, long b) {
+        return (a & b) != 0;
+    }
+
+    // every section of the trimester, sections without slots are left out
+    public static Map<UUID, Long> forTrimester(Session session, UUID trimesterId) {
+        Map<UUID, Long> masks = new HashMap<>();
+        session.createSelectionQuery("""
+                                     SELECT s.id, st.dayOfWeek, st.timeSlot, st.roomType FROM Section s JOIN s.spaceTimeSlots st
+                                     WHERE s.trimester.id = :trimesterId
+                                     """, Object[].class)
+               .setParameter("trimesterId", trimesterId)
+               .getResultList()
+               .forEach(row -> masks.merge((UUID) row[0], of((DayOfWeek) row[1], (Integer) row[2], (SubjectType) row[3]), (a, b) -> a | b));
+        return masks;
+    }
+
+    public static long forSection(Session session, UUID sectionId) {
+        long mask = EMPTY;
+        for (Object[] row : session.createSelectionQuery("SELECT st.dayOfWeek, st.timeSlot, st.roomType FROM Section s JOIN s.spaceTimeSlots st WHERE s.id = :sectionId", Object[].class)
+                                   .setParameter("sectionId", sectionId)
+                                   .getResultList()) {
+            mask |= of((DayOfWeek) row[0], (Integer) row[1], (SubjectType) row[2]);
+        }
+        return mask;
+    }
+
+    // what the student already sits in this trimester, leaving out one course (the one being moved), may be null
+    public static long forStudent(Session session, UUID studentId, UUID trimesterId, UUID exceptCourseId) {
+        long mask = EMPTY;
+        for (Object[] row : session.createSelectionQuery("""
+                                                         SELECT st.dayOfWeek, st.timeSlot, st.roomType FROM Course c JOIN c.section s JOIN s.spaceTimeSlots st
+                                                         WHERE c.student.id = :studentId AND c.trimester.id = :trimesterId AND c.status = :status AND c.id <> :exceptCourseId
+                                                         """, Object[].class)
+                                   .setParameter("studentId", studentId)
+                                   .setParameter("trimesterId", trimesterId)
+                                   .setParameter("status", CourseStatus.REGISTERED)
+                                   .setParameter("exceptCourseId", exceptCourseId == null ? new UUID(0, 0) : exceptCourseId)
+                                   .getResultList()) {
+            mask |= of((DayOfWeek) row[0], (Integer) row[1], (SubjectType) row[2]);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,93 @@
+package enrollium.server.db;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* Coalesced seat counts for everyone looking at a schedule
+ *
+ * SeatFeed.start(publisher): every WINDOW_MILLIS the sections whose seat count changed are drained and handed to the
+ * publisher in one batch with their current count, however often they changed inside the window
+ *
+ * DB.takeSeat/releaseSeat mark a section once their transaction commits, the seat ledger marks it as it claims
+ * counts are read when the window closes (ledger first, else one query), so a late or repeated update is harmless:
+ * every batch carries absolute counts, never increments
+ * nothing is recorded until start() is called
+ */
+public class SeatFeed {
+    public static final     long                   WINDOW_MILLIS = Long.parseLong(System.getenv().getOrDefault("SEAT_FEED_MILLIS", "200"));
+    private static final    Logger                 log           = LoggerFactory.getLogger(SeatFeed.class);
+    private static final    Set<UUID>              dirty         = ConcurrentHashMap.newKeySet();
+    private static volatile Consumer<List<Update>> publisher;
+    private static          Disposable             job;
+
+    public static synchronized void start(Consumer<List<Update>> publisher) {
+        stop();
+        SeatFeed.publisher = publisher;
+        job                = Observable.interval(WINDOW_MILLIS, WINDOW_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io()).subscribe(_ -> publish(), error -> log.error("Seat feed stopped: {}", error.getMessage()));
+    }
+
+    public static synchronized void stop() {
+        if (job != null) job.dispose();
+        job       = null;
+        publisher = null;
+        dirty.clear();
+    }
+
+    public static void touch(UUID sectionId) {
+        if (publisher != null && sectionId != null) dirty.add(sectionId);
+    }
+
+    // marks the section once the caller's transaction commits, a rollback changed nothing
+    static void touchOnCommit(Session session, UUID sectionId) {
+        if (publisher == null) return;
+        DB.afterCommit(session, () -> touch(sectionId));
+    }
+
+    // current counts of everything marked since the last call
+    public static List<Update> drain() {
+        List<UUID> ids = new ArrayList<>(dirty);
+        if (ids.isEmpty()) return List.of();
+        ids.forEach(dirty::remove);
+
+        SeatLedger ledger = SeatLedger.current();
+        try {
+            return DB.execReadOnly(session -> session.createSelectionQuery("SELECT s.id, s.subject.id, s.seatsTaken, s.maxCapacity FROM Section s WHERE s.id IN (:ids)", Object[].class)
+                                                     .setParameter("ids", ids)
+                                                     .getResultList()
+                                                     .stream()
+                                                     .map(row -> {
+                                                         UUID sectionId = (UUID) row[0];
+                                                         int  taken     = ledger != null && ledger.tracks(sectionId) ? ledger.seatsTaken(sectionId) : (Integer) row[2];
+                                                         return new Update(sectionId, (UUID) row[1], taken, (Integer) row[3]);
+                                                     })
+                                                     .toList(), "Drain Seat Feed");
+        } catch (RuntimeException e) {
+            // marked again so the next window retries them, otherwise they stay stale until their next change
+            dirty.addAll(ids);
+            throw e;
+        }
+    }
+
+    private static void publish() {
+        Consumer<List<Update>> target = publisher;
+        if (target == null || dirty.isEmpty()) return;
+
+        try {
+            List<Update> updates = drain();
+            if (!updates.isEmpty()) target.accept(updates);
+        } catch (Exception e) {
+            log.warn("Seat feed window failed, its sections go out with the next one: {}", e.getMessage());
+        }
+    }
+
+    public record Update(UUID sectionId, UUID subjectId, int seatsTaken, int maxCapacity) {}
+}
@@ -0,0 +1,667 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.types.AllocationMode;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/* In-memory seat allocation for the trimester in SECTION_SELECTION
+ *
+ * SeatLedger.current().register(courseId, sectionId) instead of a session and a transaction per click
+ *
+ * sections and courses get a dense int index when loaded: seat counters live in an AtomicIntegerArray (CAS per section)
+ * and course -> section (a course is one student's seat in one subject) in an int[] guarded by striped locks, one stripe
+ * per student so a section overlapping the student's other sections (ScheduleMask) is refused without a race
+ *
+ * every change is appended to a memory mapped write-ahead log, a caller completes once a group fsync covers its record
+ * dirty courses and sections are written behind in JDBC batches; a checkpoint flushes everything, reloads from the
+ * database (picking up admin edits and counter drift) and starts a new log generation
+ * on open, log records newer than the last checkpoint are replayed into the database before loading
+ * readers of sections.seats_taken lag the ledger by at most one write-behind interval (SEAT_LEDGER_FLUSH_MS)
+ *
+ * enabled with SEAT_LEDGER=true, otherwise Course.updateRegistration stays on DB.takeSeat
+ *
+ * https://martinfowler.com/articles/lmax.html
+ * https://www.postgresql.org/docs/current/wal-async-commit.html
+ */
+public class SeatLedger implements AutoCloseable {
+    public static final     boolean                ENABLED            = Boolean.parseBoolean(System.getenv().getOrDefault("SEAT_LEDGER", "false"));
+    private static final    Logger                 log                = LoggerFactory.getLogger(SeatLedger.class);
+    private static final    Path                   WAL_PATH           = Path.of(System.getenv().getOrDefault("SEAT_LEDGER_WAL", "seat-ledger.wal"));
+    private static final    int                    WAL_BYTES          = Integer.parseInt(System.getenv().getOrDefault("SEAT_LEDGER_WAL_MB", "64")) * 1024 * 1024;
+    private static final    long                   FLUSH_MILLIS       = Long.parseLong(System.getenv().getOrDefault("SEAT_LEDGER_FLUSH_MS", "200"));
+    private static final    long                   CHECKPOINT_MINUTES = Long.parseLong(System.getenv().getOrDefault("SEAT_LEDGER_CHECKPOINT_MINUTES", "5"));
+    // log layout: generation (8) then records of course (16) + section (16) + crc32 of generation and both ids (4)
+    private static final    int                    HEADER             = 8;
+    private static final    int                    RECORD             = 36;
+    private static final    int                    STRIPES            = 256;
+    private static final    UUID                   NONE               = new UUID(0, 0);
+    private static volatile SeatLedger             current;
+    // read side for registrations, write side only to grow the arrays and for checkpoints
+    private final           ReentrantReadWriteLock lock               = new ReentrantReadWriteLock();
+    private final           Object[]               stripes            = new Object[STRIPES];
+    private final           Map<UUID, Integer>     subjectIndex       = new ConcurrentHashMap<>();
+    private final           Map<UUID, Integer>     sectionIndex       = new ConcurrentHashMap<>();
+    private final           Map<UUID, Integer>     courseIndex        = new ConcurrentHashMap<>();
+    private final           Map<UUID, Integer>     studentIndex       = new ConcurrentHashMap<>();
+    private final           Set<Integer>           dirtySections      = ConcurrentHashMap.newKeySet();
+    private final           Set<Integer>           dirtyCourses       = ConcurrentHashMap.newKeySet();
+    private final           AtomicLong             registrations      = new AtomicLong();
+    private final           AtomicLong             fsyncs             = new AtomicLong();
+    private final           AtomicBoolean          checkpointQueued   = new AtomicBoolean();
+    private final           CompositeDisposable    jobs               = new CompositeDisposable();
+    private final           Path                   walPath;
+    private final           int                    walBytes;
+    // sections
+    private                 UUID[]                 sectionIds         = new UUID[0];
+    private                 int[]                  sectionSubject     = new int[0];
+    private                 int[]                  capacity           = new int[0];
+    private                 AtomicIntegerArray     taken              = new AtomicIntegerArray(0);
+    private                 long[]                 sectionMask        = new long[0];
+    private                 int                    sections;
+    // courses, courseSection is -1 while SELECTED; a student's courses are chained through courseNext
+    private                 UUID[]                 courseIds          = new UUID[0];
+    private                 int[]                  courseSubject      = new int[0];
+    private                 int[]                  courseSection      = new int[0];
+    private                 int[]                  courseStudent      = new int[0];
+    private                 int[]                  courseNext         = new int[0];
+    private                 int                    courses;
+    // students, first course of the chain
+    private                 int[]                  studentFirst       = new int[0];
+    private                 int                    students;
+    // write-ahead log, guarded by walLock
+    private final           Object                 walLock            = new Object();
+    private                 FileChannel            channel;
+    private                 MappedByteBuffer       wal;
+    private                 long                   generation;
+    private                 int                    written;
+    private                 int                    synced;
+    private final           Deque<Pending>         pending            = new ArrayDeque<>();
+    private                 Thread                 syncer;
+    private volatile        boolean                running;
+    private volatile        UUID                   trimesterId;
+
+    private SeatLedger(Path walPath, int walBytes) {
+        this.walPath  = walPath;
+        this.walBytes = walBytes;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+    }
+
+    // null unless the server started one
+    public static SeatLedger current() {
+        return current;
+    }
+
+    // server startup: recovers the log, loads the active trimester and schedules write-behind and checkpoints
+    public static SeatLedger start() throws IOException {
+        SeatLedger ledger = open(WAL_PATH, WAL_BYTES, null);
+
+        ledger.jobs.add(Observable.interval(FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io())
+                                  .subscribe(_ -> ledger.flush(), error -> log.error("Seat ledger write-behind stopped: {}", error.getMessage())));
+        ledger.jobs.add(Observable.interval(CHECKPOINT_MINUTES, CHECKPOINT_MINUTES, TimeUnit.MINUTES, Schedulers.io())
+                                  .subscribe(_ -> ledger.checkpoint(), error -> log.error("Seat ledger checkpoints stopped: {}", error.getMessage())));
+
+        current = ledger;
+        return ledger;
+    }
+
+    // trimesterId null follows whichever trimester is in SECTION_SELECTION; nothing runs in the background
+    public static SeatLedger open(Path walPath, int walBytes, UUID trimesterId) throws IOException {
+        SeatLedger ledger = new SeatLedger(walPath, walBytes);
+        ledger.trimesterId = trimesterId;
+        ledger.recover();
+
+        ledger.running = true;
+        ledger.syncer  = Thread.ofPlatform().name("seat-ledger-fsync").daemon().start(ledger::syncLoop);
+
+        ledger.lock.writeLock().lock();
+        try {
+            ledger.load();
+            ledger.flush();
+        } finally {
+            ledger.lock.writeLock().unlock();
+        }
+
+        return ledger;
+    }
+
+    // false sends the caller to the regular database path, e.g. a course outside the trimester being selected
+    public boolean owns(UUID courseId) {
+        return running && courseIndex(courseId) >= 0;
+    }
+
+    // sectionId null goes back to SELECTED; completes once the change is durable in the log
+    public Single<Registration> register(UUID courseId, UUID sectionId) {
+        return Single.defer(() -> {
+            int course = courseIndex(courseId);
+            if (course < 0) return Single.error(new IllegalArgumentException("Course not found"));
+            int section = sectionId == null ? -1 : sectionIndex(sectionId);
+
+            CompletableFuture<Void> durable;
+
+            lock.readLock().lock();
+            try {
+                if (section >= 0 && sectionSubject[section] != courseSubject[course])
+                    return Single.error(new IllegalArgumentException("Section's subject must match course's subject"));
+
+                // striped by student, so the timetable check sees the student's other registrations settled
+                synchronized (stripes[courseStudent[course] % STRIPES]) {
+                    int previous = courseSection[course];
+                    // same section again takes nothing
+                    if (previous == section) return Single.just(new Registration(courseId, sectionId));
+
+                    if (section >= 0 && ScheduleMask.clashes(timetable(course), sectionMask[section]))
+                        return Single.error(new IllegalStateException("Section clashes with your registered schedule"));
+                    if (section >= 0 && !claim(section)) return Single.error(new IllegalStateException("Section is full"));
+
+                    durable = append(courseId, sectionId == null ? NONE : sectionId);
+                    if (durable == null) {
+                        if (section >= 0) taken.decrementAndGet(section);
+                        return Single.error(new IllegalStateException("Seat ledger is checkpointing, try again"));
+                    }
+
+                    if (previous >= 0) {
+                        taken.decrementAndGet(previous);
+                        dirtySections.add(previous);
+                        SeatFeed.touch(sectionIds[previous]);
+                    }
+                    if (section >= 0) {
+                        dirtySections.add(section);
+                        SeatFeed.touch(sectionId);
+                    }
+                    courseSection[course] = section;
+                    dirtyCourses.add(course);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            registrations.incrementAndGet();
+            return Completable.fromCompletionStage(durable).toSingleDefault(new Registration(courseId, sectionId));
+        });
+    }
+
+    // false for sections outside the loaded trimester, their count lives in the table only
+    public boolean tracks(UUID sectionId) {
+        return running && sectionIndex.containsKey(sectionId);
+    }
+
+    public int seatsTaken(UUID sectionId) {
+        Integer section = sectionIndex.get(sectionId);
+        return section == null ? 0 : taken.get(section);
+    }
+
+    // writes dirty courses and seat counts to the database in one transaction
+    // the read lock is held until commit: a checkpoint reloading in between would miss what is in flight,
+    // and a failed flush puts back indexes that belong to the loaded generation
+    public void flush() {
+        if (dirtyCourses.isEmpty() && dirtySections.isEmpty()) return;
+
+        List<Integer>   flushedCourses  = new ArrayList<>();
+        List<Integer>   flushedSections = new ArrayList<>();
+        List<UUID[]>    courseRows      = new ArrayList<>();
+        List<Object[]>  sectionRows     = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            // unmark before reading, a change racing with us marks it again for the next flush
+            for (Integer course : List.copyOf(dirtyCourses)) {
+                dirtyCourses.remove(course);
+                flushedCourses.add(course);
+                synchronized (stripes[courseStudent[course] % STRIPES]) {
+                    int section = courseSection[course];
+                    courseRows.add(new UUID[]{courseIds[course], section < 0 ? null : sectionIds[section]});
+                }
+            }
+            for (Integer section : List.copyOf(dirtySections)) {
+                dirtySections.remove(section);
+                flushedSections.add(section);
+                sectionRows.add(new Object[]{sectionIds[section], taken.get(section)});
+            }
+
+            DB.exec(session -> {
+                session.doWork(connection -> {
+                    writeCourses(connection, courseRows);
+                    try (PreparedStatement statement = connection.prepareStatement("UPDATE sections SET seats_taken = ? WHERE id = ?")) {
+                        for (Object[] row : sectionRows) {
+                            statement.setInt(1, (Integer) row[1]);
+                            statement.setObject(2, row[0]);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                });
+                return null;
+            }, "Seat Ledger Flush");
+            // seat counts are left to SeatFeed, the courses are rows clients keep
+            ChangeFeed.record(Course.class, courseRows.stream().map(row -> row[0]).toList(), ChangeFeed.Kind.UPDATE);
+        } catch (Exception e) {
+            dirtyCourses.addAll(flushedCourses);
+            dirtySections.addAll(flushedSections);
+            log.error("Seat ledger flush failed, will retry: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // flush, start a new log generation and reload from the database
+    public void checkpoint() {
+        lock.writeLock().lock();
+        try {
+            awaitSynced();
+            flush();
+
+            if (!dirtyCourses.isEmpty() || !dirtySections.isEmpty()) {
+                log.warn("Seat ledger checkpoint skipped, changes are not in the database yet");
+                return;
+            }
+
+            startGeneration(generation + 1);
+            load();
+            flush();
+        } catch (Exception e) {
+            log.error("Seat ledger checkpoint failed: {}", e.getMessage());
+        } finally {
+            checkpointQueued.set(false);
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (walLock) {
+            return new Stats(sections, courses, registrations.get(), fsyncs.get(), written - HEADER, dirtyCourses.size());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        jobs.dispose();
+        checkpoint();
+        halt();
+    }
+
+    // stops without flushing, which is what a crash leaves behind; recovery replays the log on the next open
+    public void halt() throws IOException {
+        if (current == this) current = null;
+        jobs.dispose();
+
+        synchronized (walLock) {
+            running = false;
+            walLock.notifyAll();
+        }
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // never acknowledged, the caller gets an error instead of waiting forever
+        synchronized (walLock) {
+            pending.forEach(waiting -> waiting.durable().completeExceptionally(new IllegalStateException("Seat ledger stopped")));
+            pending.clear();
+        }
+        channel.close();
+    }
+
+    // sections the student holds through their other courses, caller holds the student's stripe
+    private long timetable(int course) {
+        long busy = ScheduleMask.EMPTY;
+        for (int other = studentFirst[courseStudent[course]]; other >= 0; other = courseNext[other]) {
+            if (other != course && courseSection[other] >= 0) busy |= sectionMask[courseSection[other]];
+        }
+        return busy;
+    }
+
+    private boolean claim(int section) {
+        while (true) {
+            int seats = taken.get(section);
+            if (seats >= capacity[section]) return false;
+            if (taken.compareAndSet(section, seats, seats + 1)) return true;
+        }
+    }
+
+    // index of a course in the ledger, loaded on first use; -1 when it is not part of the trimester being selected
+    private int courseIndex(UUID courseId) {
+        Integer index = courseIndex.get(courseId);
+        if (index != null) return index;
+
+        UUID trimester = trimesterId;
+        if (trimester == null) return -1;
+
+        Object[] row = DB.exec(session -> session.createSelectionQuery("""
+                                                                      SELECT c.subject.id, sec.id, c.student.id, c.status FROM Course c LEFT JOIN c.section sec
+                                                                      WHERE c.id = :id AND c.trimester.id = :trimesterId AND c.status IN (:statuses)
+                                                                      """, Object[].class)
+                                                 .setParameter("id", courseId)
+                                                 .setParameter("trimesterId", trimester)
+                                                 .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                                                 .uniqueResult(), "Seat Ledger Course");
+        if (row == null) return -1;
+
+        // its seat is already in the section's count, loaded or reconciled at the next checkpoint; only REGISTERED holds one
+        int section = row[1] == null || row[3] != CourseStatus.REGISTERED ? -1 : sectionIndex((UUID) row[1]);
+
+        lock.writeLock().lock();
+        try {
+            index = courseIndex.get(courseId);
+            return index != null ? index : addCourse(courseId, (UUID) row[0], (UUID) row[2], section);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int sectionIndex(UUID sectionId) {
+        Integer index = sectionIndex.get(sectionId);
+        if (index != null) return index;
+
+        long[]   mask = new long[1];
+        Object[] row  = DB.exec(session -> {
+            mask[0] = ScheduleMask.forSection(session, sectionId);
+            return session.createSelectionQuery("""
+                                                SELECT s.trimester.id, s.subject.id, s.maxCapacity,
+                                                       (SELECT COUNT(c) FROM Course c WHERE c.section = s AND c.status = :registered)
+                                                FROM Section s WHERE s.id = :id
+                                                """, Object[].class)
+                          .setParameter("id", sectionId)
+                          .setParameter("registered", CourseStatus.REGISTERED)
+                          .uniqueResult();
+        }, "Seat Ledger Section");
+        if (row == null) throw new IllegalArgumentException("Section not found");
+        if (!row[0].equals(trimesterId)) throw new IllegalArgumentException("Section's trimester must match course's trimester");
+
+        lock.writeLock().lock();
+        try {
+            index = sectionIndex.get(sectionId);
+            return index != null ? index : addSection(sectionId, (UUID) row[1], (Integer) row[2], ((Long) row[3]).intValue(), mask[0]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // everything below runs with the write lock held
+
+    private void load() {
+        sectionIndex.clear();
+        courseIndex.clear();
+        subjectIndex.clear();
+        studentIndex.clear();
+        sections = 0;
+        courses  = 0;
+        students = 0;
+
+        // the trimester we had may have moved on, follow the one that is open now
+        UUID trimester = trimesterId == null ? null : selectionTrimester(trimesterId);
+        if (trimester == null) trimester = selectionTrimester(null);
+        trimesterId = trimester;
+        if (trimester == null) {
+            log.info("Seat ledger idle, no trimester in section selection");
+            return;
+        }
+
+        List<Object[]> sectionRows = DB.exec(session -> session.createSelectionQuery("SELECT s.id, s.subject.id, s.maxCapacity, s.seatsTaken FROM Section s WHERE s.trimester.id = :trimesterId", Object[].class)
+                                                               .setParameter("trimesterId", trimester)
+                                                               .getResultList(), "Seat Ledger Sections");
+        Map<UUID, Long> masks = DB.exec(session -> ScheduleMask.forTrimester(session, trimester), "Seat Ledger Timetables");
+        List<Object[]> courseRows = DB.exec(session -> session.createSelectionQuery("""
+                                                                                   SELECT c.id, c.subject.id, sec.id, c.student.id, c.status FROM Course c LEFT JOIN c.section sec
+                                                                                   WHERE c.trimester.id = :trimesterId AND c.status IN (:statuses)
+                                                                                   """, Object[].class)
+                                                              .setParameter("trimesterId", trimester)
+                                                              .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                                                              .getResultList(), "Seat Ledger Courses");
+
+        int[] stored = new int[sectionRows.size()];
+        for (Object[] row : sectionRows) stored[addSection((UUID) row[0], (UUID) row[1], (Integer) row[2], 0, masks.getOrDefault((UUID) row[0], ScheduleMask.EMPTY))] = (Integer) row[3];
+
+        for (Object[] row : courseRows) {
+            // same rule as DB.reconcileSeats: a seat is a REGISTERED course, a SELECTED one keeping an old section holds none
+            Integer section = row[2] == null || row[4] != CourseStatus.REGISTERED ? null : sectionIndex.get((UUID) row[2]);
+            addCourse((UUID) row[0], (UUID) row[1], (UUID) row[3], section == null ? -1 : section);
+            if (section != null) taken.incrementAndGet(section);
+        }
+
+        // the counts we just rebuilt win over seats_taken
+        for (int section = 0; section < stored.length; section++) {
+            if (stored[section] != taken.get(section)) dirtySections.add(section);
+        }
+        if (!dirtySections.isEmpty()) log.warn("Seat ledger reconciled {} section counters", dirtySections.size());
+
+        StatementStats.rows(sectionRows.size() + courseRows.size());
+        log.info("Seat ledger loaded {} sections and {} courses", sections, courses);
+    }
+
+    private static UUID selectionTrimester(UUID id) {
+        // preference trimesters hand out seats in SectionAllocator, nothing to register one by one
+        // synchronous, load and checkpoint may already run on DbScheduler and must not wait on another stream there
+        return DB.execReadOnly(session -> {
+            var query = session.createSelectionQuery("SELECT t.id FROM Trimester t WHERE t.status = :status AND t.allocationMode = :mode" + (id == null ? "" : " AND t.id = :id"), UUID.class)
+                               .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                               .setParameter("mode", AllocationMode.FIRST_COME)
+                               .setMaxResults(1);
+            if (id != null) query.setParameter("id", id);
+            return query.uniqueResult();
+        }, "Seat Ledger Trimester");
+    }
+
+    private int addSection(UUID sectionId, UUID subjectId, int maxCapacity, int seats, long mask) {
+        if (sections == sectionIds.length) {
+            int size = Math.max(64, sections * 2);
+            sectionIds     = Arrays.copyOf(sectionIds, size);
+            sectionSubject = Arrays.copyOf(sectionSubject, size);
+            capacity       = Arrays.copyOf(capacity, size);
+            sectionMask    = Arrays.copyOf(sectionMask, size);
+            AtomicIntegerArray grown = new AtomicIntegerArray(size);
+            for (int i = 0; i < sections; i++) grown.set(i, taken.get(i));
+            taken = grown;
+        }
+
+        int index = sections++;
+        sectionIds[index]     = sectionId;
+        sectionSubject[index] = subjectIndex.computeIfAbsent(subjectId, _ -> subjectIndex.size());
+        capacity[index]       = maxCapacity;
+        sectionMask[index]    = mask;
+        taken.set(index, seats);
+        sectionIndex.put(sectionId, index);
+        return index;
+    }
+
+    private int addCourse(UUID courseId, UUID subjectId, UUID studentId, int section) {
+        if (courses == courseIds.length) {
+            int size = Math.max(1024, courses * 2);
+            courseIds     = Arrays.copyOf(courseIds, size);
+            courseSubject = Arrays.copyOf(courseSubject, size);
+            courseSection = Arrays.copyOf(courseSection, size);
+            courseStudent = Arrays.copyOf(courseStudent, size);
+            courseNext    = Arrays.copyOf(courseNext, size);
+        }
+
+        int student = studentIndex.computeIfAbsent(studentId, _ -> addStudent());
+        int index   = courses++;
+        courseIds[index]     = courseId;
+        courseSubject[index] = subjectIndex.computeIfAbsent(subjectId, _ -> subjectIndex.size());
+        courseSection[index] = section;
+        courseStudent[index] = student;
+        courseNext[index]    = studentFirst[student];
+
+        studentFirst[student] = index;
+        courseIndex.put(courseId, index);
+        return index;
+    }
+
+    private int addStudent() {
+        if (students == studentFirst.length) studentFirst = Arrays.copyOf(studentFirst, Math.max(256, students * 2));
+
+        studentFirst[students] = -1;
+        return students++;
+    }
+
+    // write-ahead log
+
+    private void recover() throws IOException {
+        channel = FileChannel.open(walPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        wal     = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(walBytes, channel.size()));
+
+        long                  stored  = wal.getLong(0);
+        Map<UUID, UUID>       latest  = new LinkedHashMap<>();
+        int                   records = 0;
+        for (int position = HEADER; position + RECORD <= wal.capacity(); position += RECORD) {
+            if (wal.getInt(position + 32) != checksum(stored, position)) break;
+
+            UUID course  = new UUID(wal.getLong(position), wal.getLong(position + 8));
+            UUID section = new UUID(wal.getLong(position + 16), wal.getLong(position + 24));
+            latest.put(course, NONE.equals(section) ? null : section);
+            records++;
+        }
+
+        if (!latest.isEmpty()) {
+            List<UUID[]> rows = new ArrayList<>();
+            latest.forEach((course, section) -> rows.add(new UUID[]{course, section}));
+
+            DB.exec(session -> {
+                session.doWork(connection -> writeCourses(connection, rows));
+                return null;
+            }, "Seat Ledger Recovery");
+            log.warn("Seat ledger replayed {} log records into {} courses", records, latest.size());
+        }
+
+        // seat counters are rebuilt by load(), the old records are void from here on
+        startGeneration(stored + 1);
+    }
+
+    private void startGeneration(long next) {
+        synchronized (walLock) {
+            generation = next;
+            wal.putLong(0, generation);
+            wal.force();
+            written = HEADER;
+            synced  = HEADER;
+        }
+    }
+
+    // null when the log is full, a checkpoint is queued to empty it
+    private CompletableFuture<Void> append(UUID courseId, UUID sectionId) {
+        synchronized (walLock) {
+            if (written + RECORD > wal.capacity()) {
+                queueCheckpoint();
+                return null;
+            }
+
+            int position = written;
+            wal.putLong(position, courseId.getMostSignificantBits());
+            wal.putLong(position + 8, courseId.getLeastSignificantBits());
+            wal.putLong(position + 16, sectionId.getMostSignificantBits());
+            wal.putLong(position + 24, sectionId.getLeastSignificantBits());
+            wal.putInt(position + 32, checksum(generation, position));
+            written += RECORD;
+
+            if (written > wal.capacity() / 2) queueCheckpoint();
+
+            CompletableFuture<Void> durable = new CompletableFuture<>();
+            pending.add(new Pending(written, durable));
+            walLock.notifyAll();
+            return durable;
+        }
+    }
+
+    private int checksum(long generation, int position) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, generation));
+        crc.update(wal.slice(position, 32));
+        return (int) crc.getValue();
+    }
+
+    // group commit: one fsync covers every record appended while the previous one was running
+    private void syncLoop() {
+        while (true) {
+            int from, target;
+            synchronized (walLock) {
+                while (running && synced == written) {
+                    try {
+                        walLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                from   = synced;
+                target = written;
+            }
+
+            wal.force(from, target - from);
+            fsyncs.incrementAndGet();
+
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            synchronized (walLock) {
+                synced = target;
+                while (!pending.isEmpty() && pending.peek().end() <= target) done.add(pending.poll().durable());
+                walLock.notifyAll();
+            }
+            // callers continue on this thread, outside the lock
+            done.forEach(durable -> durable.complete(null));
+        }
+    }
+
+    private void awaitSynced() throws InterruptedException {
+        synchronized (walLock) {
+            while (running && synced != written) walLock.wait();
+        }
+    }
+
+    private void queueCheckpoint() {
+        if (checkpointQueued.compareAndSet(false, true)) Schedulers.io().scheduleDirect(this::checkpoint);
+    }
+
+    // null section means SELECTED; rows an admin moved out of SELECTED/REGISTERED are left alone
+    private static void writeCourses(Connection connection, List<UUID[]> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                                                                       UPDATE courses SET section_id = ?, status = ?, version = version + 1, updated_at = now()
+                                                                       WHERE id = ? AND status IN ('SELECTED', 'REGISTERED')
+                                                                       """)) {
+            for (UUID[] row : rows) {
+                if (row[1] == null) statement.setNull(1, Types.OTHER);
+                else statement.setObject(1, row[1]);
+                statement.setString(2, (row[1] == null ? CourseStatus.SELECTED : CourseStatus.REGISTERED).name());
+                statement.setObject(3, row[0]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    public record Registration(UUID courseId, UUID sectionId) {
+        public CourseStatus status() {
+            return sectionId == null ? CourseStatus.SELECTED : CourseStatus.REGISTERED;
+        }
+    }
+
+    public record Stats(int sections, int courses, long registrations, long fsyncs, int walBytes, int dirtyCourses) {}
+
+    private record Pending(int end, CompletableFuture<Void> durable) {}
+}
@@ -0,0 +1,312 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.types.CourseStatus;
+import io.reactivex.rxjava3.core.Single;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/* Seat allocation from ranked preferences, the alternative to first-come-first-served registration
+ *
+ * in a trimester with AllocationMode.PREFERENCE students rank sections for each SELECTED course during
+ * SECTION_SELECTION (Course.submitPreferences) and no seat is handed out until the window closes
+ * SectionAllocator.allocate(trimesterId, strategy, seed) then matches everything in one go:
+ *
+ * deferred acceptance with the courses proposing, in rounds
+ * - every course without a seat proposes to its best remaining section that has room and doesn't overlap the student's
+ *   timetable (ScheduleMask); a section keeps its best maxCapacity proposers by priority and rejects the rest
+ * - a student can end up holding two overlapping sections (different subjects accept in the same round),
+ *   the one further down its own preference list is given up
+ * - rejected and released courses move on to their next choice, until a round changes nothing
+ * a section only hears from courses of its own subject, so proposals run in parallel per subject and clash checks in
+ * parallel per student (fork-join through parallel streams), no two tasks write the same slot
+ *
+ * priority: LOTTERY draws one number per student from the seed (logged, so a run can be repeated),
+ * SUBMISSION_ORDER favours whoever submitted preferences first
+ * results are written with one bulk UPDATE, seats_taken is recounted afterwards
+ *
+ * https://en.wikipedia.org/wiki/Gale%E2%80%93Shapley_algorithm
+ * https://www.nber.org/papers/w11765
+ */
+public class SectionAllocator {
+    private static final Logger log = LoggerFactory.getLogger(SectionAllocator.class);
+
+    // matching and write on a DB thread, the seat recount chained after it rather than blocked on inside that task
+    public static Single<Result> allocate(UUID trimesterId, Strategy strategy, long seed) {
+        return Single.fromCallable(() -> place(trimesterId, strategy, seed))
+                     .subscribeOn(DbScheduler.get())
+                     .flatMap(result -> DB.reconcileSeats().map(_ -> result));
+    }
+
+    private static Result place(UUID trimesterId, Strategy strategy, long seed) {
+        long started = System.nanoTime();
+
+        Map<UUID, Integer>       sectionIndex = new HashMap<>();
+        List<UUID>               sectionIds   = new ArrayList<>();
+        List<Integer>            capacities   = new ArrayList<>();
+        List<UUID>               subjects     = new ArrayList<>();
+        Map<UUID, Long>          sectionMasks = new HashMap<>();
+        Map<UUID, Long>          studentMasks = new HashMap<>();
+        Map<UUID, Object[]>      courses      = new LinkedHashMap<>(); // course -> {student, subject}
+        Map<UUID, List<UUID>>    preferences  = new HashMap<>();
+        Map<UUID, LocalDateTime> submitted    = new HashMap<>();
+
+        DB.exec(session -> {
+            sectionMasks.putAll(ScheduleMask.forTrimester(session, trimesterId));
+
+            session.createSelectionQuery("SELECT s.id, s.subject.id, s.maxCapacity FROM Section s WHERE s.trimester.id = :trimesterId", Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .getResultList()
+                   .forEach(row -> {
+                       sectionIndex.put((UUID) row[0], sectionIds.size());
+                       sectionIds.add((UUID) row[0]);
+                       subjects.add((UUID) row[1]);
+                       capacities.add((Integer) row[2]);
+                   });
+
+            // seats already taken (registered by an admin, or by an earlier run) count against capacity and timetables
+            session.createSelectionQuery("SELECT c.student.id, c.section.id FROM Course c WHERE c.trimester.id = :trimesterId AND c.status = :status", Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .setParameter("status", CourseStatus.REGISTERED)
+                   .getResultList()
+                   .forEach(row -> {
+                       Integer section = sectionIndex.get((UUID) row[1]);
+                       if (section != null) capacities.set(section, capacities.get(section) - 1);
+                       studentMasks.merge((UUID) row[0], sectionMasks.getOrDefault((UUID) row[1], 0L), (a, b) -> a | b);
+                   });
+
+            session.createSelectionQuery("SELECT c.id, c.student.id, c.subject.id FROM Course c WHERE c.trimester.id = :trimesterId AND c.status = :status", Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .setParameter("status", CourseStatus.SELECTED)
+                   .getResultList()
+                   .forEach(row -> courses.put((UUID) row[0], new Object[]{row[1], row[2]}));
+
+            session.createSelectionQuery("""
+                                         SELECT p.course.id, p.section.id, p.createdAt FROM SectionPreference p
+                                         WHERE p.course.trimester.id = :trimesterId AND p.course.status = :status
+                                         ORDER BY p.course.id, p.preferenceRank
+                                         """, Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .setParameter("status", CourseStatus.SELECTED)
+                   .getResultList()
+                   .forEach(row -> {
+                       preferences.computeIfAbsent((UUID) row[0], _ -> new ArrayList<>()).add((UUID) row[1]);
+                       UUID student = (UUID) courses.get((UUID) row[0])[0];
+                       submitted.merge(student, (LocalDateTime) row[2], (a, b) -> a.isBefore(b) ? a : b);
+                   });
+            return null;
+        }, "Allocate Load");
+
+        // dense indexes for the matching, courses without preferences keep waiting in SELECTED
+        List<UUID>         courseIds      = new ArrayList<>();
+        List<UUID>         studentIds     = new ArrayList<>();
+        Map<UUID, Integer> studentIndex   = new HashMap<>();
+        Map<UUID, Integer> subjectIndex   = new HashMap<>();
+        List<int[]>        ranked         = new ArrayList<>();
+        List<Integer>      owners         = new ArrayList<>();
+        List<Integer>      courseSubjects = new ArrayList<>();
+
+        courses.forEach((courseId, row) -> {
+            List<UUID> choices = preferences.get(courseId);
+            if (choices == null) return;
+
+            int[] sections = choices.stream()
+                                    .map(sectionIndex::get)
+                                    .filter(section -> section != null && subjects.get(section).equals(row[1]))
+                                    .mapToInt(Integer::intValue)
+                                    .toArray();
+            if (sections.length == 0) return;
+
+            courseIds.add(courseId);
+            ranked.add(sections);
+            owners.add(studentIndex.computeIfAbsent((UUID) row[0], student -> {
+                studentIds.add(student);
+                return studentIds.size() - 1;
+            }));
+            courseSubjects.add(subjectIndex.computeIfAbsent((UUID) row[1], _ -> subjectIndex.size()));
+        });
+
+        long[] priority = new long[studentIds.size()];
+        long[] fixed    = new long[studentIds.size()];
+        for (int i = 0; i < studentIds.size(); i++) {
+            UUID student = studentIds.get(i);
+            fixed[i]    = studentMasks.getOrDefault(student, 0L);
+            priority[i] = switch (strategy) {
+                case LOTTERY -> new SplittableRandom(seed ^ student.getMostSignificantBits() ^ Long.rotateLeft(student.getLeastSignificantBits(), 32)).nextLong();
+                case SUBMISSION_ORDER -> {
+                    LocalDateTime first = submitted.get(student);
+                    yield first == null ? Long.MAX_VALUE : first.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + first.getNano() / 1_000;
+                }
+            };
+        }
+
+        Problem problem = new Problem(capacities.stream().mapToInt(capacity -> Math.max(0, capacity)).toArray(), //
+                                      sectionIds.stream().mapToLong(id -> sectionMasks.getOrDefault(id, 0L)).toArray(), //
+                                      owners.stream().mapToInt(Integer::intValue).toArray(), //
+                                      courseSubjects.stream().mapToInt(Integer::intValue).toArray(), //
+                                      ranked.toArray(int[][]::new), fixed, priority);
+        Matching matching = solve(problem);
+
+        List<Placement> placements = new ArrayList<>(courseIds.size());
+        List<UUID>      placed     = new ArrayList<>();
+        List<UUID>      seats      = new ArrayList<>();
+        for (int c = 0; c < courseIds.size(); c++) {
+            UUID section = matching.sections()[c] < 0 ? null : sectionIds.get(matching.sections()[c]);
+            placements.add(new Placement(courseIds.get(c), studentIds.get(problem.courseStudent()[c]), section));
+            if (section == null) continue;
+            placed.add(courseIds.get(c));
+            seats.add(section);
+        }
+
+        int written = DB.exec(session -> session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("""
+                                                                           UPDATE courses c SET section_id = v.section_id, status = 'REGISTERED', version = c.version + 1, updated_at = now()
+                                                                           FROM unnest(?, ?) AS v(course_id, section_id)
+                                                                           WHERE c.id = v.course_id AND c.status = 'SELECTED'
+                                                                           """)) {
+                statement.setArray(1, connection.createArrayOf("uuid", placed.toArray()));
+                statement.setArray(2, connection.createArrayOf("uuid", seats.toArray()));
+                return statement.executeUpdate();
+            }
+        }), "Allocate Write");
+        ChangeFeed.record(Course.class, placed, ChangeFeed.Kind.UPDATE);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Allocated {} of {} courses in trimester {} ({}, seed {}, {} rounds, {} ms)", written, courseIds.size(), trimesterId, strategy, seed, matching.rounds(), millis);
+        return new Result(trimesterId, strategy, seed, courseIds.size(), written, matching.rounds(), millis, placements);
+    }
+
+    // the matching itself, on dense indexes so it runs (and is tested) without a database
+    public static Matching solve(Problem problem) {
+        int    courses  = problem.courseStudent().length;
+        int    students = problem.studentMask().length;
+        int[]  held     = new int[courses]; // section index, -1 while waiting
+        int[]  next     = new int[courses]; // position in the course's preferences
+        long[] mask     = problem.studentMask().clone(); // fixed seats plus everything held
+        Arrays.fill(held, -1);
+
+        int[][] bySubject = group(problem.courseSubject(), IntStream.of(problem.courseSubject()).max().orElse(-1) + 1);
+        int[][] byStudent = group(problem.courseStudent(), students);
+
+        int rounds = 0;
+        while (true) {
+            rounds++;
+            AtomicBoolean proposed = new AtomicBoolean();
+            AtomicBoolean released = new AtomicBoolean();
+
+            IntStream.range(0, bySubject.length).parallel().forEach(subject -> {
+                if (propose(problem, bySubject[subject], held, next, mask)) proposed.set(true);
+            });
+            IntStream.range(0, students).parallel().forEach(student -> {
+                if (resolveClashes(problem, student, byStudent[student], held, next, mask)) released.set(true);
+            });
+
+            if (!proposed.get() && !released.get()) return new Matching(held, rounds);
+        }
+    }
+
+    // one round for one subject, true if any course proposed somewhere new
+    private static boolean propose(Problem problem, int[] courses, int[] held, int[] next, long[] mask) {
+        Map<Integer, List<Integer>> candidates = new HashMap<>();
+        boolean                     proposed   = false;
+
+        for (int course : courses) {
+            if (held[course] >= 0) {
+                candidates.computeIfAbsent(held[course], _ -> new ArrayList<>()).add(course);
+                continue;
+            }
+
+            int[] choices = problem.preferences()[course];
+            long  busy    = mask[problem.courseStudent()[course]];
+            while (next[course] < choices.length) {
+                int section = choices[next[course]];
+                if (problem.capacity()[section] > 0 && !ScheduleMask.clashes(problem.sectionMask()[section], busy)) break;
+                next[course]++;
+            }
+            if (next[course] == choices.length) continue;
+
+            candidates.computeIfAbsent(choices[next[course]], _ -> new ArrayList<>()).add(course);
+            proposed = true;
+        }
+
+        candidates.forEach((section, proposers) -> {
+            proposers.sort(Comparator.<Integer>comparingLong(course -> problem.priority()[problem.courseStudent()[course]])
+                                     .thenComparingInt(Integer::intValue));
+            int capacity = problem.capacity()[section];
+            for (int i = 0; i < proposers.size(); i++) {
+                int course = proposers.get(i);
+                if (i < capacity) {
+                    held[course] = section;
+                } else {
+                    held[course] = -1;
+                    next[course]++;
+                }
+            }
+        });
+        return proposed;
+    }
+
+    // keeps the best ranked of overlapping sections held by one student, true if any was given up
+    private static boolean resolveClashes(Problem problem, int student, int[] courses, int[] held, int[] next, long[] mask) {
+        int[] holding = IntStream.of(courses)
+                                 .filter(course -> held[course] >= 0)
+                                 .boxed()
+                                 .sorted(Comparator.<Integer>comparingInt(course -> next[course]).thenComparingInt(Integer::intValue))
+                                 .mapToInt(Integer::intValue)
+                                 .toArray();
+
+        long    taken    = problem.studentMask()[student];
+        boolean released = false;
+        for (int course : holding) {
+            long section = problem.sectionMask()[held[course]];
+            if (ScheduleMask.clashes(taken, section)) {
+                held[course] = -1;
+                next[course]++;
+                released = true;
+            } else {
+                taken |= section;
+            }
+        }
+        mask[student] = taken;
+        return released;
+    }
+
+    private static int[][] group(int[] owner, int groups) {
+        int[] sizes = new int[groups];
+        for (int value : owner) sizes[value]++;
+
+        int[][] members = new int[groups][];
+        for (int i = 0; i < groups; i++) members[i] = new int[sizes[i]];
+
+        int[] filled = new int[groups];
+        for (int i = 0; i < owner.length; i++) members[owner[i]][filled[owner[i]]++] = i;
+        return members;
+    }
+
+    public enum Strategy {
+        LOTTERY,
+        SUBMISSION_ORDER
+    }
+
+    /* capacity, sectionMask: per section
+     * courseStudent, courseSubject, preferences (section indexes, best first): per course
+     * studentMask (seats the student already has), priority (lower goes first): per student
+     */
+    public record Problem(int[] capacity, long[] sectionMask, int[] courseStudent, int[] courseSubject, int[][] preferences, long[] studentMask, long[] priority) {}
+
+    // section index per course, -1 if none of its choices could be given
+    public record Matching(int[] sections, int rounds) {}
+
+    // sectionId is null if the course got none of its choices
+    public record Placement(UUID courseId, UUID studentId, UUID sectionId) {}
+
+    public record Result(UUID trimesterId, Strategy strategy, long seed, int courses, int allocated, int rounds, long millis, List<Placement> placements) {}
+}
@@ -0,0 +1,148 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.Section;
+import enrollium.server.db.entity.SpaceTime;
+import enrollium.server.db.entity.Subject;
+import enrollium.server.db.entity.Trimester;
+import enrollium.server.db.entity.types.SubjectType;
+import org.hibernate.Session;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Read-only view of a trimester's sections, shared by every Course.getSchedule call
+ *
+ * SectionCatalog.of(session, trimesterId): sections grouped by subject and day label, with their first slot and ScheduleMask
+ * (SectionCatalog.of(trimesterId) for callers on a replica, it builds on the primary)
+ * built with one query on first use and kept until a Section, SpaceTime, Subject or Trimester is written
+ *
+ * a snapshot is never modified; DB bumps the generation after such a write commits and the next caller builds a new one
+ * a build that started before a bump is returned to its caller but not kept, so a stale snapshot is never published
+ * seat counts and the student's own registrations are not part of it, callers overlay those per request
+ */
+public class SectionCatalog {
+    private static final Set<Class<?>>       TYPES      = Set.of(Section.class, SpaceTime.class, Subject.class, Trimester.class);
+    private static final AtomicLong          generation = new AtomicLong();
+    private static final Map<UUID, Snapshot> snapshots  = new ConcurrentHashMap<>();
+
+    public static Snapshot of(Session session, UUID trimesterId) {
+        long     version = generation.get();
+        Snapshot cached  = snapshots.get(trimesterId);
+        if (cached != null && cached.version() == version) return cached;
+
+        Snapshot built = build(session, trimesterId, version);
+        if (generation.get() == version) snapshots.merge(trimesterId, built, (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        return built;
+    }
+
+    // same, a missing snapshot is built on the primary: a caller reading from a replica must not publish what it lags behind on
+    public static Snapshot of(UUID trimesterId) {
+        Snapshot cached = snapshots.get(trimesterId);
+        if (cached != null && cached.version() == generation.get()) return cached;
+        return DB.execReadOnly(session -> of(session, trimesterId), "Section Catalog");
+    }
+
+    // called by DB after a write commits
+    static void invalidate(Class<?> type) {
+        for (Class<?> watched : TYPES) {
+            if (type.isAssignableFrom(watched) || watched.isAssignableFrom(type)) {
+                generation.incrementAndGet();
+                snapshots.clear();
+                return;
+            }
+        }
+    }
+
+    static void clear() {
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    // theory days run in pairs (Sat+Tue, Sun+Wed), labs are one day each
+    public static String dayLabel(DayOfWeek dayOfWeek, SubjectType subjectType) {
+        String day = dayOfWeek.toString();
+        day = day.charAt(0) + day.substring(1).toLowerCase();
+
+        if (subjectType == SubjectType.THEORY) {
+            if (day.equals("Saturday") || day.equals("Tuesday")) return "Sat+Tue";
+            if (day.equals("Sunday") || day.equals("Wednesday")) return "Sun+Wed";
+            return day;
+        }
+        return day.substring(0, 3);
+    }
+
+    private static Snapshot build(Session session, UUID trimesterId, long version) {
+        // sectionId, subjectId, subjectType, code, maxCapacity, dayOfWeek, timeSlot, roomType; one row per slot
+        List<Object[]> rows = new ArrayList<>(session.createSelectionQuery("""
+                                                                           SELECT s.id, s.subject.id, s.subject.type, s.section, s.maxCapacity, st.dayOfWeek, st.timeSlot, st.roomType
+                                                                           FROM Section s JOIN s.spaceTimeSlots st
+                                                                           WHERE s.trimester.id = :trimesterId
+                                                                           """, Object[].class)
+                                                     .setParameter("trimesterId", trimesterId)
+                                                     .getResultList());
+        // week order (days are stored by name), then slot and section code
+        rows.sort(Comparator.<Object[], DayOfWeek>comparing(row -> (DayOfWeek) row[5])
+                            .thenComparing(row -> (Integer) row[6])
+                            .thenComparing(row -> (String) row[3]));
+
+        Map<UUID, Long>                             masks     = new HashMap<>();
+        Map<UUID, Integer>                          firstSlot = new HashMap<>();
+        Map<UUID, Map<String, LinkedHashSet<UUID>>> byDay     = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            UUID        sectionId = (UUID) row[0];
+            SubjectType type      = (SubjectType) row[2];
+            DayOfWeek   day       = (DayOfWeek) row[5];
+            int         slot      = (Integer) row[6];
+
+            masks.merge(sectionId, ScheduleMask.of(day, slot, (SubjectType) row[7]), (a, b) -> a | b);
+            firstSlot.merge(sectionId, slot, Math::min);
+            byDay.computeIfAbsent((UUID) row[1], _ -> new LinkedHashMap<>()).computeIfAbsent(dayLabel(day, type), _ -> new LinkedHashSet<>()).add(sectionId);
+        }
+
+        Map<UUID, Entry> sections = new HashMap<>();
+        for (Object[] row : rows) {
+            UUID sectionId = (UUID) row[0];
+            sections.computeIfAbsent(sectionId, _ -> new Entry(sectionId, (String) row[3], (Integer) row[4], firstSlot.get(sectionId), masks.get(sectionId)));
+        }
+
+        Map<UUID, Layout> subjects = new HashMap<>();
+        byDay.forEach((subjectId, days) -> {
+            List<Group>         groups   = new ArrayList<>();
+            LinkedHashSet<UUID> distinct = new LinkedHashSet<>();
+            days.forEach((label, ids) -> {
+                groups.add(new Group(label, ids.stream().map(sections::get).toList()));
+                distinct.addAll(ids);
+            });
+            subjects.put(subjectId, new Layout(List.copyOf(groups), distinct.stream().map(sections::get).toList()));
+        });
+
+        return new Snapshot(trimesterId, version, Map.copyOf(subjects), Map.copyOf(sections));
+    }
+
+    public record Snapshot(UUID trimesterId, long version, Map<UUID, Layout> subjects, Map<UUID, Entry> sections) {
+        private static final Layout NONE = new Layout(List.of(), List.of());
+
+        // by day label, a section shows up under every label it meets on
+        public List<Group> groups(UUID subjectId) {
+            return subjects.getOrDefault(subjectId, NONE).groups();
+        }
+
+        // each section of the subject once
+        public List<Entry> sections(UUID subjectId) {
+            return subjects.getOrDefault(subjectId, NONE).sections();
+        }
+
+        public long mask(UUID sectionId) {
+            Entry entry = sections.get(sectionId);
+            return entry == null ? ScheduleMask.EMPTY : entry.mask();
+        }
+    }
+
+    public record Layout(List<Group> groups, List<Entry> sections) {}
+
+    public record Group(String day, List<Entry> sections) {}
+
+    public record Entry(UUID sectionId, String code, int maxCapacity, int timeSlot, long mask) {}
+}
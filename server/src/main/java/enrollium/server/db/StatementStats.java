@@ -0,0 +1,222 @@
+package enrollium.server.db;
+
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Function;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/* Per-invocation SQL accounting
+ *
+ * a Scope is opened per RPC call (ServerRPC interceptor) or per DB.exec when nothing else is tracking
+ * every statement Hibernate prepares is counted against the current scope, together with JDBC time and rows materialized
+ * when one statement shape repeats more than REPEAT_LIMIT times the scope logs an N+1 warning on close
+ *
+ * the scope lives in a ThreadLocal and follows the call across RxJava schedulers (see propagate, installed by DB.getSessionFactory)
+ *
+ * https://docs.jboss.org/hibernate/orm/6.6/userguide/html_single/Hibernate_User_Guide.html#settings-hibernate.session_factory.statement_inspector
+ * https://vladmihalcea.com/n-plus-1-query-problem/
+ */
+public class StatementStats {
+    private static final Logger              log          = LoggerFactory.getLogger(StatementStats.class);
+    private static final int                 REPEAT_LIMIT = Integer.parseInt(System.getenv().getOrDefault("SQL_REPEAT_LIMIT", "10"));
+    // "IN (?,?,?)" and "IN (?)" are the same query, only the batch differs
+    private static final Pattern             IN_LIST      = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern             WHITESPACE   = Pattern.compile("\\s+");
+    private static final ThreadLocal<Scope>  current      = new ThreadLocal<>();
+    // the statement this thread prepared last, for the slow statement log (see DbTelemetry)
+    private static final ThreadLocal<String> inspected    = new ThreadLocal<>();
+    private static final AtomicBoolean       installed    = new AtomicBoolean();
+
+    // puts propagate in front of whatever schedule handler is already set, once; called before the SessionFactory is built
+    static void install() {
+        if (!installed.compareAndSet(false, true)) return;
+
+        Function<? super Runnable, ? extends Runnable> previous = RxJavaPlugins.getScheduleHandler();
+        if (previous == null) RxJavaPlugins.setScheduleHandler(StatementStats::propagate);
+        else RxJavaPlugins.setScheduleHandler(task -> propagate(previous.apply(task)));
+    }
+
+    // hooks Hibernate into the counters, called before the SessionFactory is built
+    static void configure(Configuration conf) {
+        conf.setProperty("hibernate.session_factory.statement_inspector", Inspector.class.getName());
+        conf.setProperty("hibernate.session.events.auto", Timer.class.getName());
+    }
+
+    // entities hydrated by any query count as rows
+    static void attach(SessionFactory factory) {
+        factory.unwrap(SessionFactoryImplementor.class)
+               .getServiceRegistry()
+               .getService(EventListenerRegistry.class)
+               .appendListeners(EventType.POST_LOAD, (PostLoadEventListener) _ -> rows(1));
+    }
+
+    // opens a scope on this thread, close it in the same thread (try-with-resources)
+    public static Scope open(String name) {
+        Scope scope = new Scope(name, current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    // null when an outer scope is already counting, try-with-resources skips closing null
+    static Scope openIfAbsent(String name) {
+        return current.get() == null ? open(name) : null;
+    }
+
+    // counts everything the call does from subscription until it terminates
+    public static <T> Single<T> track(String name, Single<T> call) {
+        return Single.defer(() -> {
+            Scope scope = new Scope(name, null);
+
+            return Single.<T>unsafeCreate(observer -> {
+                Scope previous = current.get();
+                current.set(scope);
+                try {
+                    call.subscribe(observer);
+                } finally {
+                    current.set(previous);
+                }
+            }).doFinally(scope::report);
+        });
+    }
+
+    // rows read outside of entity loading, e.g. projections
+    static void rows(int count) {
+        Scope scope = current.get();
+        if (scope != null) scope.rows.addAndGet(count);
+    }
+
+    // carries the scope of the scheduling thread into the task, io/computation threads are shared
+    private static Runnable propagate(Runnable task) {
+        Scope scope = current.get();
+        if (scope == null) return task;
+
+        return () -> {
+            Scope previous = current.get();
+            current.set(scope);
+            try {
+                task.run();
+            } finally {
+                current.set(previous);
+            }
+        };
+    }
+
+    static String shape(String sql) {
+        return IN_LIST.matcher(WHITESPACE.matcher(sql.trim()).replaceAll(" ")).replaceAll("(?)");
+    }
+
+    public static class Scope implements AutoCloseable {
+        private final String                     name;
+        private final Scope                      previous;
+        private final long                       start      = System.nanoTime();
+        private final AtomicInteger              statements = new AtomicInteger();
+        private final AtomicLong                 rows       = new AtomicLong();
+        private final AtomicLong                 jdbcNanos  = new AtomicLong();
+        private final Map<String, AtomicInteger> shapes     = new ConcurrentHashMap<>();
+
+        private Scope(String name, Scope previous) {
+            this.name     = name;
+            this.previous = previous;
+        }
+
+        public int statements() {
+            return statements.get();
+        }
+
+        public long rows() {
+            return rows.get();
+        }
+
+        public long jdbcMillis() {
+            return jdbcNanos.get() / 1_000_000;
+        }
+
+        // how often the most repeated statement ran
+        public int maxRepeats() {
+            return shapes.values().stream().mapToInt(AtomicInteger::get).max().orElse(0);
+        }
+
+        public Map<String, Integer> shapes() {
+            Map<String, Integer> copy = new ConcurrentHashMap<>();
+            shapes.forEach((sql, count) -> copy.put(sql, count.get()));
+            return copy;
+        }
+
+        private void statement(String sql) {
+            statements.incrementAndGet();
+            shapes.computeIfAbsent(shape(sql), _ -> new AtomicInteger()).incrementAndGet();
+        }
+
+        private void report() {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            shapes.forEach((sql, count) -> {
+                if (count.get() > REPEAT_LIMIT)
+                    log.warn("N+1 suspected: scope={} repeats={} statements={} sql={}", name, count.get(), statements.get(), sql);
+            });
+
+            log.debug("SQL stats: scope={} statements={} rows={} jdbcMs={} totalMs={}", name, statements.get(), rows.get(), jdbcMillis(), millis);
+        }
+
+        @Override
+        public void close() {
+            current.set(previous);
+            report();
+        }
+    }
+
+    // sees every SQL string Hibernate is about to prepare
+    public static class Inspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            inspected.set(sql);
+            Scope scope = current.get();
+            if (scope != null) scope.statement(sql);
+            return sql;
+        }
+    }
+
+    // one instance per session, measures time spent inside JDBC execute calls
+    public static class Timer implements SessionEventListener {
+        private long started;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            started = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            long  nanos = System.nanoTime() - started;
+            Scope scope = current.get();
+            if (scope != null) scope.jdbcNanos.addAndGet(nanos);
+            DbTelemetry.statement(inspected.get(), nanos, scope == null ? null : scope.name);
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            started = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            jdbcExecuteStatementEnd();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package enrollium.server.db;
+
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/* What a fresh server loads before it accepts connections, so the first requests find everything ready
+ *
+ * each step is independent of the others once the SessionFactory exists, Main runs them in parallel as boot phases
+ * none of them is needed for correctness: every cache still loads itself on first use if a step is skipped
+ * (eligibility in the background, course writes that need it are refused until it is in)
+ */
+public class Warmup {
+    private static final Logger log = LoggerFactory.getLogger(Warmup.class);
+
+    // opens the pool's minimum idle connections now instead of on the first requests (hikari fills them lazily)
+    public static void pool() throws SQLException {
+        int              idle        = DB.getDataSource().getMinimumIdle();
+        List<Connection> connections = new ArrayList<>(idle);
+        try {
+            for (int i = 0; i < idle; i++) connections.add(DB.getDataSource().getConnection());
+        } finally {
+            for (Connection connection : connections) connection.close();
+        }
+        log.info("Pool warmed with {} connections", connections.size());
+    }
+
+    // every Subject, SpaceTime, Trimester and Faculty into RefCache
+    public static void references() {
+        int rows = 0;
+        for (Class<?> type : List.of(Subject.class, SpaceTime.class, Trimester.class, Faculty.class)) rows += RefCache.preload(type);
+        log.info("Reference cache warmed with {} rows", rows);
+    }
+
+    // the prerequisite DAG, then eligibility: course writes refuse students until it is in, whatever state the trimesters are in
+    public static void prerequisites() {
+        int subjects = PrerequisiteGraph.requirements().bySubject().size();
+        log.info("Prerequisite graph and eligibility warmed, {} subjects with prerequisites: {}", subjects, Eligibility.precompute().blockingGet());
+    }
+
+    // section catalogs of the trimesters students look at schedules for
+    public static void sections() {
+        List<UUID> trimesters = trimesters(TrimesterStatus.SECTION_SELECTION, TrimesterStatus.ONGOING);
+        DB.execReadOnly(session -> {
+            trimesters.forEach(trimesterId -> SectionCatalog.of(session, trimesterId));
+            return null;
+        }, "Warm Section Catalogs");
+        log.info("Section catalogs warmed for {} trimesters", trimesters.size());
+    }
+
+    private static List<UUID> trimesters(TrimesterStatus... statuses) {
+        return DB.execReadOnly(session -> session.createSelectionQuery("SELECT t.id FROM Trimester t WHERE t.status IN (:statuses)", UUID.class)
+                                                 .setParameterList("statuses", List.of(statuses))
+                                                 .getResultList(), "Open Trimesters");
+    }
+}
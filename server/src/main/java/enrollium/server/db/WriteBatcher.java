@@ -0,0 +1,238 @@
+package enrollium.server.db;
+
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleEmitter;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/* Group commit for small write transactions
+ *
+ * DB.batched("Course.updateRegistration", session -> ...) instead of one session and one commit per call
+ *
+ * a worker takes the first queued operation, waits up to the window for more (or until it has maxOperations)
+ * and runs them all in one transaction, so a burst of clicks shares one commit and one WAL flush in postgres
+ *
+ * every operation runs under its own savepoint and is flushed before the next one starts, so an operation that throws
+ * is rolled back alone; callers complete only after the shared commit
+ * after-commit hooks (DB.afterCommit: seat pushes, eligibility, change feed) are kept per operation and run after the
+ * commit only for operations whose savepoint was released, the rolled back ones' hooks are dropped with their SQL
+ * operations that hit a database error (deadlock, lock timeout) and every operation of a batch whose commit failed are
+ * retried once in a transaction of their own
+ *
+ * operations must return a non-null plain value (json, ids): the session is cleared whenever a neighbour fails
+ * they write through the session directly, so RefCache is not invalidated; keep them to courses and sections
+ *
+ * https://www.postgresql.org/docs/current/runtime-config-wal.html#GUC-COMMIT-DELAY
+ * https://docs.jboss.org/hibernate/orm/6.6/userguide/html_single/Hibernate_User_Guide.html#batch-jdbcbatch
+ */
+public class WriteBatcher implements AutoCloseable {
+    private static final Logger                      log        = LoggerFactory.getLogger(WriteBatcher.class);
+    // the operation running on this worker thread and the session it runs in, see collect
+    private static final ThreadLocal<Operation<?>>   current    = new ThreadLocal<>();
+    private static final ThreadLocal<Session>        batchOf    = new ThreadLocal<>();
+    private final        BlockingQueue<Operation<?>> queue      = new LinkedBlockingQueue<>();
+    private final        AtomicLong                  batches    = new AtomicLong();
+    private final        AtomicLong                  operations = new AtomicLong();
+    private final        AtomicLong                  retries    = new AtomicLong();
+    private final        long                        windowNanos;
+    private final        int                         maxOperations;
+    private final        List<Thread>                workers    = new ArrayList<>();
+    private volatile     boolean                     running    = true;
+
+    public WriteBatcher(Duration window, int maxOperations, int workers) {
+        this.windowNanos   = window.toNanos();
+        this.maxOperations = maxOperations;
+        for (int i = 0; i < workers; i++) this.workers.add(Thread.ofPlatform().name("write-batcher-" + i).daemon().start(this::work));
+    }
+
+    public <T> Single<T> submit(String name, Function<Session, T> operation) {
+        return Single.<T>create(emitter -> {
+            if (!running) emitter.onError(new IllegalStateException("Write batcher stopped"));
+            else queue.add(new Operation<>(name, operation, emitter));
+        }).observeOn(DbScheduler.virtual()); // callers continue on virtual threads, the worker goes straight back to the queue
+    }
+
+    // keeps the action with the batch operation running in this session, false outside a batch
+    static boolean collect(Session session, Runnable action) {
+        Operation<?> operation = current.get();
+        if (operation == null || batchOf.get() != session) return false;
+        operation.hooks.add(action);
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(batches.get(), operations.get(), retries.get(), queue.size());
+    }
+
+    // finishes what is queued, then stops the workers
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void work() {
+        List<Operation<?>> batch = new ArrayList<>(maxOperations);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Operation<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxOperations) {
+                    long         left = deadline - System.nanoTime();
+                    Operation<?> next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                run(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // run() completes every operation itself, this is only a last resort so no caller hangs
+                log.error("Write batch crashed: {}", e.getMessage(), e);
+                batch.forEach(operation -> operation.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void run(List<Operation<?>> batch) {
+        List<Operation<?>> retry = new ArrayList<>();
+
+        try {
+            DB.exec(session -> {
+                batchOf.set(session);
+                try {
+                    for (Operation<?> operation : batch) {
+                        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+                        current.set(operation);
+                        try {
+                            operation.apply(session);
+                            session.flush();
+                            session.doWork(connection -> connection.releaseSavepoint(savepoint));
+                        } catch (Exception e) {
+                            session.doWork(connection -> connection.rollback(savepoint));
+                            session.clear(); // drops the failed operation's half-done entities, everything before it is flushed
+                            operation.hooks.clear(); // and what it meant to announce after the commit
+
+                            if (transientFailure(e)) retry.add(operation);
+                            else operation.error = e;
+                            operation.result = null;
+                        } finally {
+                            current.remove();
+                        }
+                    }
+                } finally {
+                    batchOf.remove();
+                }
+
+                // hibernate marks the transaction rollback-only on some flush errors, a savepoint doesn't undo that
+                if (session.getTransaction().getRollbackOnly()) throw new IllegalStateException("Write batch marked for rollback");
+                return null;
+            }, "Write Batch");
+            DbTelemetry.items("Write Batch", batch.size());
+            batch.forEach(Operation::committed);
+        } catch (Exception e) {
+            // nothing of this batch was committed, only the operations that failed on their own stay failed
+            log.warn("Write batch of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            retry.clear();
+            for (Operation<?> operation : batch) {
+                operation.hooks.clear();
+                if (operation.error == null) retry.add(operation);
+            }
+        }
+
+        for (Operation<?> operation : retry) {
+            retries.incrementAndGet();
+            operation.result = null;
+            try {
+                DB.exec(session -> {
+                    operation.apply(session);
+                    return null;
+                }, operation.name);
+            } catch (Exception e) {
+                operation.error = e;
+            }
+        }
+
+        batches.incrementAndGet();
+        operations.addAndGet(batch.size());
+        batch.forEach(Operation::complete);
+    }
+
+    // deadlocks, serialization failures and lock timeouts (sqlstate class 40, 55P03) are worth running again
+    private static boolean transientFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null)
+                return sql.getSQLState().startsWith("40") || sql.getSQLState().equals("55P03");
+        }
+        return false;
+    }
+
+    public record Stats(long batches, long operations, long retries, int queued) {}
+
+    private static class Operation<T> {
+        private final String               name;
+        private final Function<Session, T> body;
+        private final SingleEmitter<T>     emitter;
+        private final List<Runnable>       hooks = new ArrayList<>();
+        private       T                    result;
+        private       Exception            error;
+
+        private Operation(String name, Function<Session, T> body, SingleEmitter<T> emitter) {
+            this.name    = name;
+            this.body    = body;
+            this.emitter = emitter;
+        }
+
+        private void apply(Session session) {
+            result = body.apply(session);
+        }
+
+        // the shared commit went through, runs what this operation registered through DB.afterCommit
+        private void committed() {
+            for (Runnable hook : hooks) {
+                try {
+                    hook.run();
+                } catch (Exception e) {
+                    log.error("After-commit hook of {} failed: {}", name, e.getMessage(), e);
+                }
+            }
+            hooks.clear();
+        }
+
+        private void fail(Exception e) {
+            emitter.tryOnError(e);
+        }
+
+        private void complete() {
+            if (error != null) emitter.tryOnError(error);
+            else if (result == null) emitter.tryOnError(new IllegalStateException(name + " returned null"));
+            else emitter.onSuccess(result);
+        }
+    }
+}
@@ -10,7 +10,10 @@ import lombok.Setter;
 
 
 @Entity
-@Table(name = "courses", uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "subject_id", "trimester_id", "section_id"}))
+@Table(name = "courses", uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "subject_id", "trimester_id", "section_id"}), //
+       indexes = {@Index(name = "idx_courses_seek", columnList = "created_at, id"), //
+                  @Index(name = "idx_courses_student_trimester_status", columnList = "student_id, trimester_id, status"), //
+                  @Index(name = "idx_courses_section_status", columnList = "section_id, status")})
 @Getter
 @Setter
 public class Course extends BaseEntity {
@@ -11,7 +11,10 @@ import lombok.Setter;
 
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {@Index(name = "idx_notifications_seek", columnList = "created_at, id"), //
+                                           @Index(name = "idx_notifications_scope_trimester", columnList = "scope, trimester_id, created_at"), //
+                                           @Index(name = "idx_notifications_scope_section", columnList = "scope, section_id, created_at"), //
+                                           @Index(name = "idx_notifications_scope_user", columnList = "scope, user_id, created_at")})
 @Getter
 @Setter
 public class Notification extends BaseEntity {
@@ -1,20 +1,17 @@
 package enrollium.server.db.entity;
 
-import enrollium.server.db.DB;
+import enrollium.server.db.PrerequisiteGraph;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.Session;
-
-import java.util.List;
-import java.util.UUID;
 
 
 @Entity
-@Table(name = "prerequisite", uniqueConstraints = @UniqueConstraint(columnNames = {"subject_id", "prerequisite_id"}))
+@Table(name = "prerequisite", uniqueConstraints = @UniqueConstraint(columnNames = {"subject_id", "prerequisite_id"}), //
+       indexes = @Index(name = "idx_prerequisite_seek", columnList = "created_at, id"))
 @Getter
 @Setter
 public class Prerequisite extends BaseEntity {
@@ -41,24 +38,8 @@ public class Prerequisite extends BaseEntity {
         if (subject.getId().equals(prerequisite.getId()))
             throw new IllegalArgumentException("A subject cannot be its own prerequisite");
 
-        // Get current session and check for cycles
-        if (hasCircularDependency(DB.getSessionFactory().openSession(), subject.getId(), prerequisite.getId()))
+        // The prerequisite must not already need this subject, one bit test on the in-memory graph
+        if (PrerequisiteGraph.wouldCycle(subject.getId(), prerequisite.getId()))
             throw new IllegalArgumentException("Circular prerequisite dependency detected");
     }
-
-    private boolean hasCircularDependency(Session session, UUID startId, UUID currentId) {
-        // If we reach back to the start, we found a cycle
-        if (startId.equals(currentId)) return true;
-
-        // Find all prerequisites of the current subject
-        @SuppressWarnings("unchecked")
-        List<UUID> nextPrereqs = session.createQuery("SELECT p.prerequisite.id FROM Prerequisite p WHERE p.subject.id = :subjectId")
-                                        .setParameter("subjectId", currentId)
-                                        .getResultList();
-
-        // Recursively check each prerequisite
-        for (UUID prereqId : nextPrereqs) if (hasCircularDependency(session, startId, prereqId)) return true;
-
-        return false;
-    }
 }
@@ -4,13 +4,15 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.HashSet;
 import java.util.Set;
 
 
 @Entity
-@Table(name = "sections"
+@Table(name = "sections", indexes = {@Index(name = "idx_sections_seek", columnList = "created_at, id"), //
+                                     @Index(name = "idx_sections_trimester_subject", columnList = "trimester_id, subject_id")}
 //        , uniqueConstraints = @UniqueConstraint(columnNames = {"trimester_id", "space_time_id"})
 )
 @Getter
@@ -48,10 +50,18 @@ public class Section extends BaseEntity {
     @Min(value = 1, message = "Max capacity must be at least 1")
     private Integer        maxCapacity;
     //
+    // denormalized registrations.size(), only ever changed by conditional updates (DB.takeSeat/releaseSeat)
+    // not updatable so merging a stale Section can't overwrite it, DB.reconcileSeats() repairs drift
+    @Column(name = "seats_taken", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Min(value = 0, message = "Seats taken cannot be negative")
+    private Integer        seatsTaken     = 0;
+    //
     @ManyToMany
     @JoinTable(name = "section_faculty",//
                joinColumns = @JoinColumn(name = "section_id"),//
-               inverseJoinColumns = @JoinColumn(name = "faculty_id")//
+               inverseJoinColumns = @JoinColumn(name = "faculty_id"),//
+               indexes = @Index(name = "idx_section_faculty_faculty", columnList = "faculty_id")//
                )
     private Set<Faculty>   teachers       = new HashSet<>();
     //
@@ -59,7 +69,7 @@ public class Section extends BaseEntity {
     private Set<Course>    registrations  = new HashSet<>();
 
     public int getCurrentCapacity() {
-        return this.registrations.size();
+        return this.seatsTaken;
     }
 
     @PrePersist
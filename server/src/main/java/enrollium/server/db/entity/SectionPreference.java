@@ -0,0 +1,35 @@
+package enrollium.server.db.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+
+// one ranked section choice of a SELECTED course, only used by trimesters in AllocationMode.PREFERENCE
+@Entity
+@Table(name = "section_preferences", uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "preference_rank"}), //
+       indexes = @Index(name = "idx_section_preferences_course", columnList = "course_id"))
+@Getter
+@Setter
+public class SectionPreference extends BaseEntity {
+    @ManyToOne
+    @JoinColumn(name = "course_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @NotNull(message = "Course cannot be null")
+    private Course  course;
+    //
+    @ManyToOne
+    @JoinColumn(name = "section_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @NotNull(message = "Section cannot be null")
+    private Section section;
+    //
+    @Column(name = "preference_rank", nullable = false)
+    @NotNull(message = "Rank cannot be null")
+    @Min(value = 1, message = "Rank must be at least 1")
+    private Integer preferenceRank;
+}
@@ -10,7 +10,9 @@ import java.time.DayOfWeek;
 
 
 @Entity
-@Table(name = "space_time", uniqueConstraints = @UniqueConstraint(columnNames = {"room_number", "day_of_week", "timeslot"}))
+@Table(name = "space_time", uniqueConstraints = @UniqueConstraint(columnNames = {"room_number", "day_of_week", "timeslot"}), //
+       indexes = {@Index(name = "idx_space_time_seek", columnList = "created_at, id"), //
+                  @Index(name = "idx_space_time_type_day", columnList = "roomType, day_of_week")})
 @Getter
 @Setter
 public class SpaceTime extends BaseEntity {
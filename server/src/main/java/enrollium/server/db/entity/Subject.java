@@ -12,7 +12,7 @@ import java.util.Set;
 
 
 @Entity
-@Table(name = "subjects")
+@Table(name = "subjects", indexes = @Index(name = "idx_subjects_seek", columnList = "created_at, id"))
 @Getter
 @Setter
 public class Subject extends BaseEntity {
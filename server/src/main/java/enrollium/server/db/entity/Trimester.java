@@ -1,5 +1,6 @@
 package enrollium.server.db.entity;
 
+import enrollium.server.db.entity.types.AllocationMode;
 import enrollium.server.db.entity.types.Season;
 import enrollium.server.db.entity.types.TrimesterStatus;
 import jakarta.persistence.*;
@@ -7,13 +8,14 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 
 @Entity
-@Table(name = "trimesters")
+@Table(name = "trimesters", indexes = @Index(name = "idx_trimesters_seek", columnList = "created_at, id"))
 @Getter
 @Setter
 public class Trimester extends BaseEntity {
@@ -48,6 +50,12 @@ public class Trimester extends BaseEntity {
     //
     @Column(name = "section_registration_end")
     private LocalDateTime   sectionRegistrationEnd;
+    //
+    @Enumerated(EnumType.STRING)
+    @Column(name = "allocation_mode", nullable = false)
+    @ColumnDefault("'FIRST_COME'")
+    @NotNull(message = "Allocation mode cannot be null")
+    private AllocationMode  allocationMode = AllocationMode.FIRST_COME;
 
     @PrePersist
     @PreUpdate
@@ -12,7 +12,7 @@ import lombok.Setter;
 
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_seek", columnList = "created_at, id"))
 @Inheritance(strategy = InheritanceType.JOINED)
 @Getter
 @Setter
@@ -0,0 +1,6 @@
+package enrollium.server.db.entity.types;
+
+public enum AllocationMode {
+    FIRST_COME,         // Course.updateRegistration hands out seats as they are asked for
+    PREFERENCE          // Students rank sections, seats are allocated when section selection closes
+}
@@ -0,0 +1,201 @@
+-- the schema hbm2ddl used to create (column sizes and checks come from the bean validation annotations), so validate passes on an empty database
+-- IF NOT EXISTS everywhere: databases created by hbm2ddl already have all of it, constraints included (inline, skipped with the table)
+-- columns added since the first release get an ALTER below as well, a table that already exists skips them in its CREATE
+
+CREATE TABLE IF NOT EXISTS users (
+    id         uuid         NOT NULL PRIMARY KEY,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6),
+    version    bigint,
+    created_by varchar(255),
+    updated_by varchar(255),
+    info       varchar(1000),
+    type       varchar(255) NOT NULL CHECK (type IN ('STUDENT', 'TEACHER', 'ADMIN')),
+    email      varchar(64)  NOT NULL UNIQUE,
+    name       varchar(100) NOT NULL,
+    password   varchar(60)  NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS students (
+    user_id       uuid    NOT NULL PRIMARY KEY REFERENCES users (id),
+    university_id integer NOT NULL UNIQUE CHECK (university_id >= 0)
+);
+
+CREATE TABLE IF NOT EXISTS faculty (
+    user_id   uuid         NOT NULL PRIMARY KEY REFERENCES users (id),
+    shortcode varchar(10)  NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS subjects (
+    id         uuid         NOT NULL PRIMARY KEY,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6),
+    version    bigint,
+    created_by varchar(255),
+    updated_by varchar(255),
+    info       varchar(1000),
+    name       varchar(100) NOT NULL,
+    code_name  varchar(8)   NOT NULL UNIQUE,
+    credits    integer      NOT NULL CHECK (credits >= 1 AND credits <= 5),
+    type       varchar(255) NOT NULL CHECK (type IN ('THEORY', 'LAB'))
+);
+
+CREATE TABLE IF NOT EXISTS faculty_subjects (
+    faculty_id uuid NOT NULL REFERENCES faculty (user_id),
+    subject_id uuid NOT NULL REFERENCES subjects (id),
+    PRIMARY KEY (faculty_id, subject_id)
+);
+
+CREATE TABLE IF NOT EXISTS prerequisite (
+    id              uuid         NOT NULL PRIMARY KEY,
+    created_at      timestamp(6) NOT NULL,
+    updated_at      timestamp(6),
+    version         bigint,
+    created_by      varchar(255),
+    updated_by      varchar(255),
+    info            varchar(1000),
+    subject_id      uuid         NOT NULL REFERENCES subjects (id),
+    prerequisite_id uuid         NOT NULL REFERENCES subjects (id),
+    minimum_grade   float(53)    NOT NULL CHECK (minimum_grade >= 0.0 AND minimum_grade <= 4.0),
+    UNIQUE (subject_id, prerequisite_id)
+);
+
+CREATE TABLE IF NOT EXISTS space_time (
+    id          uuid         NOT NULL PRIMARY KEY,
+    created_at  timestamp(6) NOT NULL,
+    updated_at  timestamp(6),
+    version     bigint,
+    created_by  varchar(255),
+    updated_by  varchar(255),
+    info        varchar(1000),
+    room_name   varchar(100) NOT NULL,
+    room_number varchar(8)   NOT NULL,
+    roomType    varchar(255) NOT NULL CHECK (roomType IN ('THEORY', 'LAB')),
+    day_of_week varchar(255) NOT NULL CHECK (day_of_week IN ('MONDAY', 'TUESDAY', 'WEDNESDAY', 'THURSDAY', 'FRIDAY', 'SATURDAY', 'SUNDAY')),
+    timeslot    integer      NOT NULL CHECK (timeslot >= 1 AND timeslot <= 6),
+    UNIQUE (room_number, day_of_week, timeslot)
+);
+
+CREATE TABLE IF NOT EXISTS trimesters (
+    id                         uuid         NOT NULL PRIMARY KEY,
+    created_at                 timestamp(6) NOT NULL,
+    updated_at                 timestamp(6),
+    version                    bigint,
+    created_by                 varchar(255),
+    updated_by                 varchar(255),
+    info                       varchar(1000),
+    code                       integer      NOT NULL UNIQUE CHECK (code >= 30),
+    year                       integer      NOT NULL CHECK (year >= 2003),
+    season                     varchar(255) NOT NULL CHECK (season IN ('SPRING', 'SUMMER', 'FALL')),
+    status                     varchar(255) NOT NULL CHECK (status IN ('UPCOMING', 'COURSE_SELECTION', 'SECTION_CREATION', 'SECTION_SELECTION', 'ONGOING', 'COMPLETED')),
+    course_selection_start     timestamp(6),
+    course_selection_end       timestamp(6),
+    section_registration_start timestamp(6),
+    section_registration_end   timestamp(6),
+    allocation_mode            varchar(255) DEFAULT 'FIRST_COME' NOT NULL CHECK (allocation_mode IN ('FIRST_COME', 'PREFERENCE'))
+);
+
+CREATE TABLE IF NOT EXISTS sections (
+    id           uuid         NOT NULL PRIMARY KEY,
+    created_at   timestamp(6) NOT NULL,
+    updated_at   timestamp(6),
+    version      bigint,
+    created_by   varchar(255),
+    updated_by   varchar(255),
+    info         varchar(1000),
+    name         varchar(100) NOT NULL,
+    section      varchar(4)   NOT NULL,
+    subject_id   uuid         NOT NULL REFERENCES subjects (id),
+    trimester_id uuid         NOT NULL REFERENCES trimesters (id),
+    max_capacity integer      NOT NULL CHECK (max_capacity >= 1),
+    seats_taken  integer      DEFAULT 0 NOT NULL CHECK (seats_taken >= 0)
+);
+
+CREATE TABLE IF NOT EXISTS section_space_times (
+    section_id    uuid NOT NULL REFERENCES sections (id),
+    space_time_id uuid NOT NULL REFERENCES space_time (id),
+    PRIMARY KEY (section_id, space_time_id)
+);
+
+CREATE TABLE IF NOT EXISTS section_faculty (
+    section_id uuid NOT NULL REFERENCES sections (id),
+    faculty_id uuid NOT NULL REFERENCES faculty (user_id),
+    PRIMARY KEY (section_id, faculty_id)
+);
+
+CREATE TABLE IF NOT EXISTS courses (
+    id           uuid         NOT NULL PRIMARY KEY,
+    created_at   timestamp(6) NOT NULL,
+    updated_at   timestamp(6),
+    version      bigint,
+    created_by   varchar(255),
+    updated_by   varchar(255),
+    info         varchar(1000),
+    status       varchar(255) NOT NULL CHECK (status IN ('SELECTED', 'REGISTERED', 'COMPLETED', 'DROPPED')),
+    student_id   uuid         NOT NULL REFERENCES students (user_id),
+    subject_id   uuid         NOT NULL REFERENCES subjects (id),
+    trimester_id uuid         NOT NULL REFERENCES trimesters (id),
+    section_id   uuid REFERENCES sections (id),
+    grade        float(53) CHECK (grade >= 0.0 AND grade <= 4.0),
+    UNIQUE (student_id, subject_id, trimester_id, section_id)
+);
+
+CREATE TABLE IF NOT EXISTS section_preferences (
+    id              uuid         NOT NULL PRIMARY KEY,
+    created_at      timestamp(6) NOT NULL,
+    updated_at      timestamp(6),
+    version         bigint,
+    created_by      varchar(255),
+    updated_by      varchar(255),
+    info            varchar(1000),
+    course_id       uuid         NOT NULL REFERENCES courses (id) ON DELETE CASCADE,
+    section_id      uuid         NOT NULL REFERENCES sections (id) ON DELETE CASCADE,
+    preference_rank integer      NOT NULL CHECK (preference_rank >= 1),
+    UNIQUE (course_id, preference_rank)
+);
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id           uuid         NOT NULL PRIMARY KEY,
+    created_at   timestamp(6) NOT NULL,
+    updated_at   timestamp(6),
+    version      bigint,
+    created_by   varchar(255),
+    updated_by   varchar(255),
+    info         varchar(1000),
+    sender_id    uuid         NOT NULL REFERENCES users (id),
+    title        varchar(128) NOT NULL,
+    content      text         NOT NULL,
+    category     varchar(255) NOT NULL CHECK (category IN ('URGENT', 'ACADEMIC', 'ADMINISTRATIVE', 'GENERAL')),
+    scope        varchar(255) NOT NULL CHECK (scope IN ('GLOBAL', 'TRIMESTER', 'SECTION', 'USER')),
+    trimester_id uuid REFERENCES trimesters (id),
+    section_id   uuid REFERENCES sections (id),
+    user_id      uuid REFERENCES users (id)
+);
+
+-- columns a database created before allocation modes and stored seat counts lacks
+ALTER TABLE trimesters ADD COLUMN IF NOT EXISTS allocation_mode varchar(255) DEFAULT 'FIRST_COME' NOT NULL CHECK (allocation_mode IN ('FIRST_COME', 'PREFERENCE'));
+ALTER TABLE sections ADD COLUMN IF NOT EXISTS seats_taken integer DEFAULT 0 NOT NULL CHECK (seats_taken >= 0);
+
+-- seats_taken is a counter of REGISTERED courses (DB.reconcileSeats), recounted here for the rows it was just added to
+UPDATE sections s
+SET seats_taken = (SELECT COUNT(*) FROM courses c WHERE c.section_id = s.id AND c.status = 'REGISTERED')
+WHERE seats_taken <> (SELECT COUNT(*) FROM courses c WHERE c.section_id = s.id AND c.status = 'REGISTERED');
+
+-- the @Index declarations on the entities, same names hbm2ddl used
+CREATE INDEX IF NOT EXISTS idx_users_seek ON users (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_subjects_seek ON subjects (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_prerequisite_seek ON prerequisite (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_space_time_seek ON space_time (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_space_time_type_day ON space_time (roomType, day_of_week);
+CREATE INDEX IF NOT EXISTS idx_trimesters_seek ON trimesters (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_sections_seek ON sections (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_sections_trimester_subject ON sections (trimester_id, subject_id);
+CREATE INDEX IF NOT EXISTS idx_section_faculty_faculty ON section_faculty (faculty_id);
+CREATE INDEX IF NOT EXISTS idx_courses_seek ON courses (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_courses_student_trimester_status ON courses (student_id, trimester_id, status);
+CREATE INDEX IF NOT EXISTS idx_courses_section_status ON courses (section_id, status);
+CREATE INDEX IF NOT EXISTS idx_section_preferences_course ON section_preferences (course_id);
+CREATE INDEX IF NOT EXISTS idx_notifications_seek ON notifications (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_notifications_scope_trimester ON notifications (scope, trimester_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_notifications_scope_section ON notifications (scope, section_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_notifications_scope_user ON notifications (scope, user_id, created_at);
@@ -0,0 +1,12 @@
+-- trigram indexes backing DB.search(), https://www.postgresql.org/docs/current/pgtrgm.html
+-- trusted extension since PG13, the database owner can create it
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (email gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_subjects_name_trgm ON subjects USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_subjects_code_name_trgm ON subjects USING gin (code_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_sections_name_trgm ON sections USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_space_time_room_number_trgm ON space_time USING gin (room_number gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_space_time_room_name_trgm ON space_time USING gin (room_name gin_trgm_ops);
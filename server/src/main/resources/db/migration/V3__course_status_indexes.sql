@@ -0,0 +1,5 @@
+-- Eligibility.load reads every graded COMPLETED course: a partial index holding just those rows, scanned index-only
+CREATE INDEX IF NOT EXISTS idx_courses_completed ON courses (student_id) INCLUDE (id, subject_id, grade) WHERE status = 'COMPLETED' AND grade IS NOT NULL;
+
+-- per-trimester course lists by status (allocation, routines), without touching the heap for the ids
+CREATE INDEX IF NOT EXISTS idx_courses_trimester_status ON courses (trimester_id, status) INCLUDE (student_id, subject_id, section_id);
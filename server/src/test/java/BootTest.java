@@ -0,0 +1,47 @@
+import enrollium.server.Boot;
+import enrollium.server.TestHelper;
+import enrollium.server.db.RefCache;
+import enrollium.server.db.Warmup;
+import enrollium.server.db.entity.Subject;
+import io.reactivex.rxjava3.core.Completable;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Boot Tests")
+class BootTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should run merged phases in parallel and record each")
+    void parallelPhases() {
+        long started = System.nanoTime();
+        Completable.mergeArray(Boot.phase("first", () -> Thread.sleep(300)), Boot.phase("second", () -> Thread.sleep(300))).blockingAwait();
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(millis < 550, "Phases should overlap, took " + millis + " ms");
+        assertTrue(Boot.phases().stream().anyMatch(phase -> phase.name().equals("first") && phase.millis() >= 300), "First phase should be recorded");
+        assertTrue(Boot.phases().stream().anyMatch(phase -> phase.name().equals("second") && phase.millis() >= 300), "Second phase should be recorded");
+    }
+
+    @Test
+    @DisplayName("Should serve warmed references from the cache")
+    void warmReferences() throws Exception {
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Warmup.pool();
+        Warmup.references();
+
+        long hits = RefCache.stats().hits();
+        RefCache.find(Subject.class, subject.getId()).blockingGet();
+        assertEquals(hits + 1, RefCache.stats().hits(), "First read after warm-up should be a hit");
+    }
+}
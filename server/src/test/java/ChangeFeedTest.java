@@ -0,0 +1,70 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.ChangeFeed;
+import enrollium.server.db.DB;
+import enrollium.server.db.entity.Subject;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Change Feed Tests")
+class ChangeFeedTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    private static long head() {
+        return ChangeFeed.since("Subject", 0).seq();
+    }
+
+    @Test
+    @DisplayName("Should report inserts, updates and tombstones after a seq")
+    void delta() {
+        long    start   = head();
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+        subject.setName("Renamed " + TestHelper.randomString(5));
+        DB.update(subject).blockingGet();
+
+        ChangeFeed.Delta inserted = ChangeFeed.since("Subject", start);
+        assertFalse(inserted.reload(), "A recent seq should get a delta");
+        assertEquals(List.of(ChangeFeed.Kind.INSERT), kinds(inserted, subject.getId()), "Insert then update is still one insert");
+
+        Subject current = DB.findOnPrimary(Subject.class, subject.getId()).blockingGet();
+        current.setName("Renamed again " + TestHelper.randomString(5));
+        DB.update(current).blockingGet();
+        ChangeFeed.Delta updated = ChangeFeed.since("Subject", inserted.seq());
+        assertEquals(List.of(ChangeFeed.Kind.UPDATE), kinds(updated, subject.getId()));
+
+        DB.delete(Subject.class, subject.getId()).blockingAwait();
+        ChangeFeed.Delta deleted = ChangeFeed.since("Subject", updated.seq());
+        assertEquals(List.of(ChangeFeed.Kind.DELETE), kinds(deleted, subject.getId()), "Deleting should leave a tombstone");
+        assertTrue(deleted.seq() > updated.seq(), "Seq should only grow");
+    }
+
+    @Test
+    @DisplayName("Should send clients back to a reload after compaction or with an unknown seq")
+    void reload() {
+        long start = head();
+        TestHelper.saveEntity(TestHelper.createValidSubject());
+        assertFalse(ChangeFeed.since("Subject", start).reload());
+
+        ChangeFeed.compactAll();
+        assertTrue(ChangeFeed.since("Subject", start).reload(), "Compacted changes cannot be replayed");
+        assertFalse(ChangeFeed.since("Subject", head()).reload(), "The seq returned with a reload should continue");
+        assertTrue(ChangeFeed.since("Subject", 0).reload(), "A seq from an earlier run should reload");
+        assertTrue(ChangeFeed.since("Subject", Long.MAX_VALUE).reload(), "A seq from the future should reload");
+    }
+
+    private static List<ChangeFeed.Kind> kinds(ChangeFeed.Delta delta, UUID id) {
+        return delta.changes().stream().filter(change -> change.id().equals(id)).map(ChangeFeed.Change::kind).toList();
+    }
+}
@@ -0,0 +1,102 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.ChangeFeed;
+import enrollium.server.db.CsvImport;
+import enrollium.server.db.DB;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import io.reactivex.rxjava3.core.Single;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("CSV Import Tests")
+class CsvImportTest {
+    @BeforeAll
+    static void setupDatabase() {
+        try (var session = DB.getSessionFactory().openSession()) {
+            assertTrue(session.isConnected(), "Database should be connected");
+        }
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        cleanupImported(Course.class);
+        cleanupImported(Student.class);
+        TestHelper.cleanupAllTestData();
+    }
+
+    private static void cleanupImported(Class<?> type) {
+        DB.stream(type, "e.createdBy = :creator", Map.of("creator", CsvImport.CREATOR), DB.STREAM_FETCH_SIZE)
+          .concatMapCompletable(entity -> DB.delete(type, ((BaseEntity) entity).getId()))
+          .blockingAwait();
+    }
+
+    // feeds the text in pieces of the given size, cutting rows anywhere; only the last one is waited for, the rest queue up
+    private static CsvImport.Progress feed(CsvImport running, String csv, int size) {
+        Single<CsvImport.Progress> progress = null;
+        for (int from = 0; from < csv.length(); from += size) {
+            progress = running.feed(csv.substring(from, Math.min(csv.length(), from + size)), from + size >= csv.length());
+        }
+        return progress.blockingGet();
+    }
+
+    @Test
+    @DisplayName("Should import students across chunks and report bad rows")
+    void importStudents() {
+        int           base = 100_000 + (int) (Math.random() * 800_000);
+        String        tag  = UUID.randomUUID().toString().substring(0, 8);
+        StringBuilder csv  = new StringBuilder("email,name,universityId,password\n");
+        for (int i = 0; i < 40; i++) csv.append("import").append(i).append('.').append(tag).append("@uiu.ac.bd,\"Student, ").append(i).append("\",").append(base + i).append(",password").append(i).append('\n');
+        csv.append("short.").append(tag).append("@uiu.ac.bd,Short,").append(base + 40).append(",short\n");
+        csv.append("import0.").append(tag).append("@uiu.ac.bd,Again,").append(base + 41).append(",password41\n");
+
+        CsvImport.Progress progress = feed(CsvImport.begin(CsvImport.Kind.STUDENTS, false), csv.toString(), 97);
+
+        assertTrue(progress.done(), "Last chunk should finish the import");
+        assertEquals(42, progress.rows(), "Should count every data row");
+        assertEquals(40, progress.inserted(), "Valid rows should be inserted");
+        assertEquals(List.of(42L, 43L), progress.errors().stream().map(CsvImport.RowError::row).toList(), "Short password and repeated email should be reported by row");
+        assertEquals(1L, (long) DB.query(Student.class).where("universityId", base + 7).count().blockingGet(), "Imported student should be stored");
+    }
+
+    @Test
+    @DisplayName("Should import enrollments with saveAll and with COPY")
+    void importEnrollments() {
+        Student   student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        Subject   taken     = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject   selected  = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterForOngoing());
+        Section   section   = TestHelper.saveEntity(TestHelper.createValidSection(taken, trimester));
+
+        String header = "universityId,subject,trimester,status,section,grade\n";
+        String rows   = student.getUniversityId() + "," + taken.getCodeName() + "," + trimester.getCode() + ",REGISTERED," + section.getSection() + ",\n" + //
+                        student.getUniversityId() + ",NOPE," + trimester.getCode() + ",SELECTED,,\n";
+
+        CsvImport.Progress saved = feed(CsvImport.begin(CsvImport.Kind.ENROLLMENTS, false), header + rows, 1000);
+        assertEquals(1, saved.inserted(), "Known subject should be inserted");
+        assertTrue(saved.errors().getFirst().message().contains("Unknown subject"), "Unknown subject should be reported");
+        assertEquals(1, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Seats should be recounted at the end");
+
+        long               seq    = ChangeFeed.since("Course", 0).seq();
+        String             copied = student.getUniversityId() + "," + selected.getCodeName() + "," + trimester.getCode() + ",SELECTED,,\n";
+        CsvImport.Progress copy   = feed(CsvImport.begin(CsvImport.Kind.ENROLLMENTS, true), header + copied, 1000);
+        assertEquals(1, copy.inserted(), "COPY should insert the row");
+        Course copiedCourse = DB.query(Course.class).where("subject.id", selected.getId()).first().blockingGet();
+        assertEquals(CourseStatus.SELECTED, copiedCourse.getStatus(), "Copied course should be readable through hibernate");
+        assertTrue(ChangeFeed.since("Course", seq).changes().stream().anyMatch(change -> change.id().equals(copiedCourse.getId()) && change.kind() == ChangeFeed.Kind.INSERT),
+                   "COPY should reach the change feed");
+    }
+
+    @Test
+    @DisplayName("Should refuse a header without required columns")
+    void requireColumns() {
+        CsvImport running = CsvImport.begin(CsvImport.Kind.SECTIONS, false);
+        assertThrows(IllegalArgumentException.class, () -> running.feed("subject,section\n", false).blockingGet(), "Missing columns should fail the import");
+    }
+}
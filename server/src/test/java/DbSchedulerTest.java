@@ -0,0 +1,55 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.RefCache;
+import enrollium.server.db.entity.Subject;
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("DB Scheduler Tests")
+class DbSchedulerTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should keep the platform thread count flat under many concurrent calls")
+    void flatThreads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        DB.count(Subject.class).blockingGet(); // pool and scheduler up before measuring
+        threads.resetPeakThreadCount();
+        int before = threads.getThreadCount();
+
+        List<Long> counts = Flowable.range(0, 500).flatMapSingle(_ -> DB.count(Subject.class), false, 500).toList().blockingGet();
+
+        assertEquals(500, counts.size(), "Every call should complete");
+        assertTrue(threads.getPeakThreadCount() - before < 20, "Calls should park on virtual threads, peak grew by " + (threads.getPeakThreadCount() - before));
+    }
+
+    @Test
+    @DisplayName("Should load several ids in one call, in request order")
+    void findAll() throws Exception {
+        Subject first  = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject second = TestHelper.saveEntity(TestHelper.createValidSubject());
+        RefCache.find(Subject.class, first.getId()).blockingGet(); // one hit, one miss
+
+        List<Subject> subjects = RefCache.findAll(Subject.class, List.of(second.getId(), first.getId(), second.getId())).blockingGet();
+        assertEquals(List.of(second.getId(), first.getId(), second.getId()), subjects.stream().map(Subject::getId).toList());
+
+        assertThrows(NoSuchElementException.class, () -> RefCache.findAll(Subject.class, List.of(first.getId(), UUID.randomUUID())).blockingGet(), "Unknown id should fail");
+    }
+}
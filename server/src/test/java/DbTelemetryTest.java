@@ -0,0 +1,77 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.DbTelemetry;
+import enrollium.server.db.entity.Subject;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Database Telemetry Tests")
+class DbTelemetryTest {
+    @BeforeEach
+    void reset() {
+        DbTelemetry.reset();
+    }
+
+    @Test
+    @DisplayName("Should record pool wait and run time per operation")
+    void operationHistograms() {
+        for (int i = 0; i < 5; i++) DB.count(Subject.class).blockingGet();
+
+        DbTelemetry.OperationStats count = DbTelemetry.snapshot()
+                                                      .byOperation()
+                                                      .stream()
+                                                      .filter(operation -> operation.name().equals("Count Subject"))
+                                                      .findFirst()
+                                                      .orElseThrow();
+        assertEquals(5, count.count(), "Every call should be recorded");
+        assertEquals(0, count.failures(), "No call failed");
+        assertTrue(count.run().totalMillis() > 0, "Run time should be measured");
+        assertTrue(count.run().p50Millis() <= count.run().p99Millis(), "Percentiles should be ordered");
+        assertTrue(count.run().p99Millis() <= count.run().maxMillis(), "Percentiles should not pass the max");
+    }
+
+    @Test
+    @DisplayName("Should name bulk writes by type and count their rows apart")
+    void bulkItems() {
+        DB.saveAll(List.of(TestHelper.createValidSubject(), TestHelper.createValidSubject())).blockingGet();
+        DB.saveAll(List.of(TestHelper.createValidSubject(), TestHelper.createValidSubject(), TestHelper.createValidSubject())).blockingGet();
+
+        List<DbTelemetry.OperationStats> saves = DbTelemetry.snapshot()
+                                                            .byOperation()
+                                                            .stream()
+                                                            .filter(operation -> operation.name().startsWith("SaveAll"))
+                                                            .toList();
+        assertEquals(1, saves.size(), "Batch size should not split the operation");
+        assertEquals("SaveAll Subject", saves.getFirst().name());
+        assertEquals(2, saves.getFirst().count(), "Both calls should be recorded");
+        assertEquals(5, saves.getFirst().items(), "Rows of both calls should be counted");
+    }
+
+    @Test
+    @DisplayName("Should keep slow statements with their shape and bind count")
+    void slowStatements() {
+        try (Session session = DB.getSessionFactory().openSession()) {
+            session.createNativeQuery("SELECT 1 FROM pg_sleep(0.25) WHERE 1 IN (:a, :b)", Integer.class).setParameter("a", 1).setParameter("b", 2).getResultList();
+        }
+
+        DbTelemetry.Snapshot snapshot = DbTelemetry.snapshot();
+        assertEquals(1, snapshot.slowTotal(), "The sleeping statement should be logged");
+        assertTrue(snapshot.slow().getFirst().shape().contains("IN (?)"), "IN lists should be folded in the shape");
+        assertEquals(2, snapshot.slow().getFirst().binds(), "Bind placeholders should be counted before folding");
+        assertTrue(snapshot.slow().getFirst().millis() >= 250, "Execution time should be kept");
+    }
+
+    @Test
+    @DisplayName("Should report the primary pool")
+    void poolGauges() {
+        DbTelemetry.Pool primary = DbTelemetry.snapshot().pools().getFirst();
+        assertEquals("primary", primary.name());
+        assertTrue(primary.total() > 0, "Pool should hold connections");
+        assertTrue(primary.pending() >= 0, "Waiting threads should be reported");
+    }
+}
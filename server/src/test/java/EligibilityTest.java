@@ -0,0 +1,95 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.Eligibility;
+import enrollium.server.db.PrerequisiteGraph;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Eligibility Tests")
+class EligibilityTest {
+    private Student   student;
+    private Subject   basics;
+    private Subject   advanced;
+    private Trimester trimester;
+
+    @BeforeAll
+    static void setupDatabase() {
+        try (var session = DB.getSessionFactory().openSession()) {
+            assertTrue(session.isConnected(), "Database should be connected");
+        }
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @BeforeEach
+    void setUp() {
+        student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        basics    = TestHelper.saveEntity(TestHelper.createValidSubject());
+        advanced  = TestHelper.saveEntity(TestHelper.createValidSubject());
+        trimester = TestHelper.saveEntity(TestHelper.createValidTrimester());
+        TestHelper.saveEntity(TestHelper.createPrerequisite(advanced, basics, 2.5));
+        Eligibility.precompute().blockingGet();
+    }
+
+    private Course complete(Subject subject, double grade) {
+        Course course = TestHelper.createValidCourse(student, subject, trimester);
+        course.setSection(TestHelper.saveEntity(TestHelper.createValidSection(subject, trimester)));
+        course.setStatus(CourseStatus.COMPLETED);
+        course.setGrade(grade);
+        return TestHelper.saveEntity(course);
+    }
+
+    @Test
+    @DisplayName("Should open subjects without prerequisites to everyone")
+    void openWithoutPrerequisites() {
+        assertTrue(Eligibility.eligible(student.getId(), basics.getId()), "Basics has no prerequisites");
+        assertFalse(Eligibility.eligible(student.getId(), advanced.getId()), "Advanced needs basics first");
+        assertEquals(List.of(new PrerequisiteGraph.Requirement(basics.getId(), 2.5)), Eligibility.missing(student.getId(), advanced.getId()), "Should name the missing prerequisite");
+    }
+
+    @Test
+    @DisplayName("Should follow grade changes without a full rebuild")
+    void followGradeChanges() {
+        Course course = complete(basics, 2.0);
+        assertFalse(Eligibility.eligible(student.getId(), advanced.getId()), "2.0 is below the minimum grade");
+
+        course.setGrade(3.0);
+        DB.update(course).blockingGet();
+        assertTrue(Eligibility.eligible(student.getId(), advanced.getId()), "3.0 meets the minimum grade");
+
+        DB.delete(Course.class, course.getId()).blockingAwait();
+        assertFalse(Eligibility.eligible(student.getId(), advanced.getId()), "Deleted completion should not count");
+    }
+
+    @Test
+    @DisplayName("Should count the best attempt and match a full rebuild")
+    void bestAttemptCounts() {
+        complete(basics, 1.5);
+        complete(basics, 3.5);
+
+        assertTrue(Eligibility.eligible(student.getId(), advanced.getId()), "Best attempt should count");
+        Eligibility.precompute().blockingGet();
+        assertTrue(Eligibility.eligible(student.getId(), advanced.getId()), "Full rebuild should agree");
+    }
+
+    @Test
+    @DisplayName("Should pick up new prerequisites")
+    void followPrerequisiteChanges() {
+        complete(basics, 3.0);
+        Subject extra = TestHelper.saveEntity(TestHelper.createValidSubject());
+        assertTrue(Eligibility.eligible(student.getId(), advanced.getId()), "Basics is enough so far");
+
+        TestHelper.saveEntity(TestHelper.createPrerequisite(advanced, extra, 2.0));
+        assertFalse(Eligibility.eligible(student.getId(), advanced.getId()), "Advanced now needs extra too");
+    }
+}
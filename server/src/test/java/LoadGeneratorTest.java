@@ -0,0 +1,52 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.LoadGenerator;
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.Section;
+import enrollium.server.db.entity.Student;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Load Generator Tests")
+class LoadGeneratorTest {
+    @BeforeAll
+    static void setupDatabase() {
+        try (var session = DB.getSessionFactory().openSession()) {
+            assertTrue(session.isConnected(), "Database should be connected");
+        }
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        // the generator wiped the demo data, put it back
+        DB.resetAndSeed().blockingAwait();
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should give the same dataset for the same seed")
+    void sameSeedSameData() {
+        LoadGenerator.Summary first  = LoadGenerator.seed(0.01, 7).blockingGet();
+        LoadGenerator.Summary second = LoadGenerator.seed(0.01, 7).blockingGet();
+        LoadGenerator.Summary other  = LoadGenerator.seed(0.01, 8).blockingGet();
+
+        assertEquals(500, first.students(), "0.01 of 50k students");
+        assertEquals(first.courses(), second.courses(), "Same seed should give the same courses");
+        assertEquals(first.checksum(), second.checksum(), "Same seed should give the same rows");
+        assertNotEquals(first.checksum(), other.checksum(), "Another seed should give other rows");
+    }
+
+    @Test
+    @DisplayName("Should store everything it generated and fit section capacities")
+    void storesGenerated() {
+        LoadGenerator.Summary summary = LoadGenerator.seed(0.01, 11).blockingGet();
+
+        assertEquals(summary.students(), (long) DB.query(Student.class).count().blockingGet(), "Every student should be stored");
+        assertEquals(summary.courses(), (long) DB.query(Course.class).count().blockingGet(), "Every course should be stored");
+        assertEquals(summary.sections(), (long) DB.query(Section.class).count().blockingGet(), "Every section should be stored");
+        DB.read(Section.class, summary.sections(), 0)
+          .blockingForEach(section -> assertTrue(section.getCurrentCapacity() <= section.getMaxCapacity(), "Section should hold its registrations"));
+    }
+}
@@ -0,0 +1,56 @@
+import enrollium.server.db.DB;
+import enrollium.server.db.Migrations;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Schema Migration Tests")
+class MigrationsTest {
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void setupDatabase() {
+        dataSource = (DataSource) DB.getSessionFactory().getProperties().get("hibernate.connection.datasource");
+        assertNotNull(dataSource, "SessionFactory should expose its pool");
+    }
+
+    private static List<Integer> versions() {
+        try (Session session = DB.getSessionFactory().openSession()) {
+            return session.createNativeQuery("SELECT version FROM schema_history ORDER BY version", Integer.class).getResultList();
+        }
+    }
+
+    private static void shiftChecksum(long by) {
+        try (Session session = DB.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createNativeMutationQuery("UPDATE schema_history SET checksum = checksum + :by WHERE version = 1").setParameter("by", by).executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @Test
+    @DisplayName("Should record every migration once, in order")
+    void appliedInOrder() throws Exception {
+        List<Integer> applied = versions();
+        assertEquals(List.of(1, 2, 3), applied, "Boot should have applied all migrations");
+
+        Migrations.apply(dataSource);
+        assertEquals(applied, versions(), "Applying again should not run anything");
+    }
+
+    @Test
+    @DisplayName("Should refuse a migration edited after it was applied")
+    void refuseChangedChecksum() {
+        shiftChecksum(1);
+        try {
+            assertThrows(IllegalStateException.class, () -> Migrations.apply(dataSource), "Changed script should stop the boot");
+        } finally {
+            shiftChecksum(-1);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import enrollium.server.db.DB;
+import enrollium.server.db.Page;
+import enrollium.server.db.entity.Course;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+// manual benchmark: keyset vs offset paging over a 200k row courses table
+// needs the seeded demo database (subjects + trimesters), run it by removing @Disabled
+// https://use-the-index-luke.com/no-offset
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PaginationBenchmark {
+    private static final String        CREATOR   = "bench-creator";
+    private static final int           ROWS      = 200_000;
+    private static final int           PAGE_SIZE = 200;
+    private static final List<Integer> MARKS     = List.of(1, 10, 100, 250, 500, 750, 1000);
+
+    @BeforeAll
+    void seed() {
+        try (Session session = DB.getSessionFactory().openSession()) {
+            session.beginTransaction();
+
+            // enough synthetic students that students x subjects x trimesters >= ROWS
+            session.createNativeMutationQuery("""
+                    INSERT INTO users (id, created_at, updated_at, version, created_by, type, email, name, password)
+                    SELECT gen_random_uuid(), now(), now(), 0, :creator, 'STUDENT', 'bench' || g || '@bench.local', 'Bench Student ' || g,
+                           '$2a$04$benchbenchbenchbenchbeOq9yDqG3bq4M0o6kq7yZx7t6b5j1Y3K'
+                    FROM generate_series(1, 1000) g
+                    """).setParameter("creator", CREATOR).executeUpdate();
+            session.createNativeMutationQuery("""
+                    INSERT INTO students (user_id, university_id)
+                    SELECT id, 900000000 + row_number() OVER () FROM users WHERE created_by = :creator
+                    """).setParameter("creator", CREATOR).executeUpdate();
+            session.createNativeMutationQuery("""
+                    INSERT INTO courses (id, created_at, updated_at, version, created_by, status, student_id, subject_id, trimester_id)
+                    SELECT gen_random_uuid(), clock_timestamp(), clock_timestamp(), 0, :creator, 'SELECTED', s.user_id, su.id, t.id
+                    FROM students s
+                    JOIN users u ON u.id = s.user_id AND u.created_by = :creator
+                    CROSS JOIN subjects su
+                    CROSS JOIN trimesters t
+                    LIMIT :rows
+                    """).setParameter("creator", CREATOR).setParameter("rows", ROWS).executeUpdate();
+            session.createNativeMutationQuery("ANALYZE courses").executeUpdate();
+
+            session.getTransaction().commit();
+        }
+    }
+
+    @AfterAll
+    void cleanup() {
+        try (Session session = DB.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createNativeMutationQuery("DELETE FROM courses WHERE created_by = :creator")
+                   .setParameter("creator", CREATOR)
+                   .executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM students WHERE user_id IN (SELECT id FROM users WHERE created_by = :creator)")
+                   .setParameter("creator", CREATOR)
+                   .executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM users WHERE created_by = :creator")
+                   .setParameter("creator", CREATOR)
+                   .executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @Test
+    @DisplayName("Keyset page latency stays flat with depth")
+    void keysetPages() {
+        String cursor = null;
+
+        for (int page = 1; page <= ROWS / PAGE_SIZE; page++) {
+            long         start  = System.nanoTime();
+            Page<Course> result = DB.readAfter(Course.class, "createdAt", cursor, PAGE_SIZE).blockingGet();
+            long         micros = (System.nanoTime() - start) / 1_000;
+
+            if (MARKS.contains(page)) System.out.printf("keyset page %4d: %7d us%n", page, micros);
+            if (result.nextCursor() == null) break;
+
+            cursor = result.nextCursor();
+        }
+    }
+
+    @Test
+    @DisplayName("Offset page latency grows with depth")
+    void offsetPages() {
+        for (int page : MARKS) {
+            long start = System.nanoTime();
+            DB.read(Course.class, "createdAt", true, PAGE_SIZE, (page - 1) * PAGE_SIZE).toList().blockingGet();
+            long micros = (System.nanoTime() - start) / 1_000;
+
+            System.out.printf("offset page %4d: %7d us%n", page, micros);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.Page;
+import enrollium.server.db.entity.Subject;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Keyset Pagination Tests")
+class PaginationTest {
+    private static final int       ROWS      = 23;
+    private static final int       PAGE_SIZE = 5;
+    private static final Set<UUID> created   = new HashSet<>();
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+        for (int i = 0; i < ROWS; i++) created.add(TestHelper.saveEntity(TestHelper.createValidSubject()).getId());
+
+        // half of them share one timestamp, so pages have to break ties on the id
+        try (Session session = DB.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createNativeMutationQuery("UPDATE subjects SET created_at = '2020-01-01 00:00:00' WHERE id IN (:ids)")
+                   .setParameter("ids", created.stream().limit(ROWS / 2).toList())
+                   .executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    private record SubjectId(UUID id) {}
+
+    // every id on every page, in page order
+    private static List<UUID> walk(boolean ascending, boolean projected) {
+        List<UUID> seen   = new ArrayList<>();
+        String     cursor = null;
+        do {
+            Page<UUID> page = projected
+                              ? DB.projectAfter(Subject.class, "e.id", "", SubjectId.class, "createdAt", ascending, cursor, PAGE_SIZE)
+                                  .map(result -> new Page<>(result.items().stream().map(SubjectId::id).toList(), result.nextCursor()))
+                                  .blockingGet()
+                              : DB.readAfter(Subject.class, "createdAt", ascending, cursor, PAGE_SIZE, Subject::getId).blockingGet();
+            assertTrue(page.items().size() <= PAGE_SIZE, "A page should respect the limit");
+            seen.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private static void assertComplete(List<UUID> seen) {
+        assertEquals(seen.size(), new HashSet<>(seen).size(), "No row should appear on two pages");
+        assertTrue(seen.containsAll(created), "Every row should appear on some page");
+    }
+
+    @Test
+    @DisplayName("Should page forwards without gaps or duplicates")
+    void forwards() {
+        assertComplete(walk(true, false));
+    }
+
+    @Test
+    @DisplayName("Should page backwards without gaps or duplicates")
+    void backwards() {
+        List<UUID> backwards = walk(false, false);
+        assertComplete(backwards);
+        assertEquals(walk(true, false).reversed(), backwards, "Descending should be the exact reverse");
+    }
+
+    @Test
+    @DisplayName("Should page a projection like the entities")
+    void projected() {
+        assertEquals(walk(true, false), walk(true, true), "Projection pages should match entity pages");
+    }
+}
@@ -1,5 +1,6 @@
 import enrollium.server.TestHelper;
 import enrollium.server.db.DB;
+import enrollium.server.db.PrerequisiteGraph;
 import enrollium.server.db.entity.Prerequisite;
 import enrollium.server.db.entity.Subject;
 import jakarta.validation.ConstraintViolationException;
@@ -342,4 +343,38 @@ class PrerequisiteTest {
             assertNotNull(foundPrereq, "Prerequisite subject should still exist after prerequisite deletion");
         }
     }
+
+
+    @Nested
+    @DisplayName("Prerequisite Graph Tests")
+    class GraphTests {
+        @Test
+        @DisplayName("Should list the whole chain, prerequisites first")
+        void listChain() {
+            Subject first  = TestHelper.saveEntity(TestHelper.createValidSubject());
+            Subject second = TestHelper.saveEntity(TestHelper.createValidSubject());
+            Subject third  = TestHelper.saveEntity(TestHelper.createValidSubject());
+            TestHelper.saveEntity(TestHelper.createPrerequisite(third, second, 2.0));
+            TestHelper.saveEntity(TestHelper.createPrerequisite(second, first, 2.5));
+
+            assertEquals(List.of(first.getId(), second.getId()), PrerequisiteGraph.chain(third.getId()), "Should reach the first subject through the second");
+            assertTrue(PrerequisiteGraph.needs(third.getId(), first.getId()), "Third should need first transitively");
+            assertEquals(List.of(new PrerequisiteGraph.Requirement(first.getId(), 2.5)), PrerequisiteGraph.direct(second.getId()), "Should keep the minimum grade");
+        }
+
+        @Test
+        @DisplayName("Should allow the reverse edge once the chain is deleted")
+        void forgetDeletedEdges() {
+            Subject      subjectA = TestHelper.saveEntity(TestHelper.createValidSubject());
+            Subject      subjectB = TestHelper.saveEntity(TestHelper.createValidSubject());
+            Prerequisite prereqAB = TestHelper.saveEntity(TestHelper.createPrerequisite(subjectA, subjectB, 2.0));
+
+            assertTrue(PrerequisiteGraph.wouldCycle(subjectB.getId(), subjectA.getId()), "B -> A should close a cycle while A -> B exists");
+
+            DB.delete(Prerequisite.class, prereqAB.getId()).blockingAwait();
+
+            assertFalse(PrerequisiteGraph.needs(subjectA.getId(), subjectB.getId()), "Deleted edge should be gone from the closure");
+            assertDoesNotThrow(() -> TestHelper.saveEntity(TestHelper.createPrerequisite(subjectB, subjectA, 2.0)), "B -> A should be allowed now");
+        }
+    }
 }
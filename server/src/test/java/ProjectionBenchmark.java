@@ -0,0 +1,82 @@
+import com.sun.management.ThreadMXBean;
+import enrollium.server.db.DB;
+import enrollium.server.db.Page;
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.Section;
+import enrollium.server.db.entity.types.CourseStatus;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// manual benchmark: heap and statements per getAll page, managed entities vs record projections
+// needs the seeded demo database, run it by removing @Disabled
+// https://thorben-janssen.com/dto-projections/
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ProjectionBenchmark {
+    private static final int          PAGE_SIZE = 100;
+    private static final int          ROUNDS    = 50;
+    private static final ThreadMXBean threads   = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private              Statistics   statistics;
+
+    @BeforeAll
+    void setup() {
+        statistics = DB.getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    @DisplayName("Course page: entities vs projection")
+    void coursePage() {
+        // what the old handler touched per row: student, subject, trimester and section
+        measure("course entities", () -> DB.readAfter(Course.class, "createdAt", true, null, PAGE_SIZE, course -> {
+            String section = course.getSection() == null ? "" : course.getSection().getName();
+            return course.getStudent().getName() + course.getSubject().getName() + course.getTrimester().getCode() + section;
+        }).blockingGet());
+        measure("course projection", () -> DB.projectAfter(Course.class, //
+                                                           "e.id, e.version, st.id, st.name, su.id, su.name, t.id, t.code, e.status, sec.id, sec.name, e.grade", //
+                                                           "JOIN e.student st JOIN e.subject su JOIN e.trimester t LEFT JOIN e.section sec", //
+                                                           CourseRow.class, "createdAt", true, null, PAGE_SIZE)
+                                             .blockingGet());
+    }
+
+    @Test
+    @DisplayName("Section page: entities vs projection")
+    void sectionPage() {
+        // slots and teachers are loaded per section
+        measure("section entities", () -> DB.readAfter(Section.class, "createdAt", true, null, PAGE_SIZE, //
+                                                       section -> section.getCurrentCapacity() + section.getSpaceTimeSlots().size() + section.getTeachers().size())
+                                            .blockingGet());
+        measure("section projection", () -> DB.projectAfter(Section.class, //
+                                                            "e.id, e.name, e.maxCapacity, e.seatsTaken", "", //
+                                                            SectionRow.class, "createdAt", true, null, PAGE_SIZE)
+                                              .blockingGet());
+    }
+
+    // the query runs on an io thread, so allocation is summed over all threads
+    private void measure(String name, Supplier<Page<?>> page) {
+        page.get(); // warm up caches and the query plan cache
+
+        statistics.clear();
+        long bytes = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ROUNDS; i++) page.get();
+
+        long micros = (System.nanoTime() - start) / 1_000 / ROUNDS;
+        long kb     = (threads.getTotalThreadAllocatedBytes() - bytes) / 1_024 / ROUNDS;
+        long sql    = statistics.getPrepareStatementCount() / ROUNDS;
+
+        System.out.printf("%-20s %7d us %7d KB %4d statements per page%n", name, micros, kb, sql);
+    }
+
+    private record CourseRow(UUID id, Long version, UUID studentId, String studentName, UUID subjectId, String subjectName, UUID trimesterId, Integer trimesterCode,
+                             CourseStatus status, UUID sectionId, String sectionName, Double grade) {}
+
+    private record SectionRow(UUID id, String name, Integer maxCapacity, Integer currentCapacity) {}
+}
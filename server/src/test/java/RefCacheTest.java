@@ -0,0 +1,69 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.RefCache;
+import enrollium.server.db.entity.Student;
+import enrollium.server.db.entity.Subject;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Reference Cache Tests")
+class RefCacheTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should serve repeated reads from the cache")
+    void repeatedReadsHit() {
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        long hits = RefCache.stats().hits();
+        RefCache.find(Subject.class, subject.getId()).blockingGet();
+        Subject cached = RefCache.find(Subject.class, subject.getId()).blockingGet();
+
+        assertEquals(subject.getName(), cached.getName(), "Should return the stored subject");
+        assertEquals(hits + 1, RefCache.stats().hits(), "Second read should be a hit");
+    }
+
+    @Test
+    @DisplayName("Should not serve a stale entity after an update")
+    void updateInvalidates() {
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+        RefCache.find(Subject.class, subject.getId()).blockingGet();
+
+        Subject fresh = DB.findById(Subject.class, subject.getId()).blockingGet();
+        fresh.setName("Renamed Subject");
+        DB.update(fresh).blockingGet();
+
+        Subject cached = RefCache.find(Subject.class, subject.getId()).blockingGet();
+        assertEquals("Renamed Subject", cached.getName(), "Should reload after update");
+    }
+
+    @Test
+    @DisplayName("Should forget deleted entities")
+    void deleteInvalidates() {
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+        RefCache.find(Subject.class, subject.getId()).blockingGet();
+
+        DB.delete(Subject.class, subject.getId()).blockingAwait();
+
+        assertNull(RefCache.find(Subject.class, subject.getId()).blockingGet(), "Should not find deleted subject");
+    }
+
+    @Test
+    @DisplayName("Should pass uncached types through to the database")
+    void uncachedTypes() {
+        Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+
+        assertFalse(RefCache.caches(Student.class), "Students change too often to cache");
+        assertEquals(student.getId(), RefCache.find(Student.class, student.getId()).blockingGet().getId());
+    }
+}
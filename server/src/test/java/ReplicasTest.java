@@ -0,0 +1,77 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.Replicas;
+import enrollium.server.db.entity.Subject;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Replica Routing Tests")
+class ReplicasTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should read from the primary while no replica is usable")
+    void primaryFallback() throws Exception {
+        Assumptions.assumeTrue(Replicas.stats().replicas().stream().noneMatch(Replicas.Status::usable), "Runs without usable replicas");
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        long primaryReads = Replicas.stats().primaryReads();
+        assertEquals(subject.getId(), DB.findById(Subject.class, subject.getId()).blockingGet().getId(), "Read should see the committed row");
+        assertTrue(DB.exists(Subject.class, subject.getId()).blockingGet(), "Exists should see the committed row");
+        assertEquals(primaryReads + 2, Replicas.stats().primaryReads(), "Both reads should have gone to the primary");
+    }
+
+    @Test
+    @DisplayName("Should load a copy for update from the primary")
+    void findOnPrimary() throws Exception {
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        long    primaryReads = Replicas.stats().primaryReads();
+        Subject fresh        = DB.findOnPrimary(Subject.class, subject.getId()).blockingGet();
+        assertEquals(subject.getVersion(), fresh.getVersion(), "Copy should carry the committed version");
+        assertEquals(primaryReads, Replicas.stats().primaryReads(), "Loading on the primary is not a routed read");
+    }
+
+    @Test
+    @DisplayName("Should read a committed row from a streaming replica once it has caught up")
+    void replicaRead() throws Exception {
+        Assumptions.assumeFalse(Replicas.stats().replicas().isEmpty(), "Needs a primary and a streaming replica (DB_REPLICA_URLS)");
+        Subject subject = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        // the periodic checks have to see the replica replay past the insert
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Replicas.stats().replicas().stream().noneMatch(status -> status.usable() && status.lagBytes() == 0)) {
+            assertTrue(System.currentTimeMillis() < deadline, "A replica should catch up: " + Replicas.stats().replicas());
+            Thread.sleep(100);
+        }
+
+        long replicaReads = replicaReads();
+        long primaryReads = Replicas.stats().primaryReads();
+        assertEquals(subject.getId(), DB.findById(Subject.class, subject.getId()).blockingGet().getId(), "Replica should have replayed the insert");
+        assertEquals(replicaReads + 1, replicaReads(), "Read should have gone to a replica");
+        assertEquals(primaryReads, Replicas.stats().primaryReads(), "Primary should not have served the read");
+    }
+
+    @Test
+    @DisplayName("Should keep checking replicas after the first check")
+    void checksKeepRunning() throws Exception {
+        Assumptions.assumeFalse(Replicas.stats().replicas().isEmpty(), "Needs a primary and a streaming replica (DB_REPLICA_URLS)");
+        Thread.sleep(3000);
+        assertTrue(Replicas.stats().replicas().stream().noneMatch(status -> "not checked yet".equals(status.problem())), "Every replica should have been checked");
+        assertTrue(Replicas.stats().replicas().stream().noneMatch(status -> status.problem() != null && status.problem().startsWith("checks stopped")), "Checks should still be running");
+    }
+
+    private static long replicaReads() {
+        return Replicas.stats().replicas().stream().mapToLong(Replicas.Status::reads).sum();
+    }
+}
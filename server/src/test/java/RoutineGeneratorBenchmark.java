@@ -0,0 +1,36 @@
+import enrollium.server.db.RoutineGenerator;
+import enrollium.server.db.RoutineGenerator.Option;
+import enrollium.server.db.RoutineGenerator.Preferences;
+import enrollium.server.db.ScheduleMask;
+import org.junit.jupiter.api.*;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// manual benchmark: top 10 routines for 6 courses x 15 sections, no database involved
+// run it by removing @Disabled; target is under 100 ms per request after warm-up
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RoutineGeneratorBenchmark {
+    private static final int COURSES  = 6;
+    private static final int SECTIONS = 15;
+    private static final int RUNS     = 20;
+
+    @Test
+    @DisplayName("Routines: 6 courses x 15 sections")
+    void generate() {
+        Random      random      = new Random(1);
+        Preferences preferences = new Preferences(2, Set.of(DayOfWeek.SATURDAY), Set.of(), false);
+
+        for (int run = 0; run < RUNS; run++) {
+            List<List<Option>>      courses = RoutineGeneratorTest.randomCourses(random, COURSES, SECTIONS);
+            RoutineGenerator.Result result  = RoutineGenerator.generate(ScheduleMask.EMPTY, courses, preferences, 10);
+
+            System.out.printf("run %2d %4d ms %9d nodes %2d routines%n", run, result.millis(), result.visited(), result.routines().size());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import enrollium.server.db.RoutineGenerator;
+import enrollium.server.db.RoutineGenerator.Option;
+import enrollium.server.db.RoutineGenerator.Preferences;
+import enrollium.server.db.RoutineGenerator.Routine;
+import enrollium.server.db.ScheduleMask;
+import enrollium.server.db.entity.types.SubjectType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Routine Generator Tests")
+class RoutineGeneratorTest {
+    private static final Preferences NONE = new Preferences(1, Set.of(), Set.of(), false);
+
+    @Test
+    @DisplayName("Should only return routines without overlaps")
+    void avoidClashes() {
+        Option mondayA  = option(ScheduleMask.of(DayOfWeek.MONDAY, 1, SubjectType.THEORY));
+        Option tuesdayA = option(ScheduleMask.of(DayOfWeek.TUESDAY, 1, SubjectType.THEORY));
+        Option mondayB  = option(ScheduleMask.of(DayOfWeek.MONDAY, 1, SubjectType.LAB));
+
+        List<Routine> routines = RoutineGenerator.generate(ScheduleMask.EMPTY, List.of(List.of(mondayA, tuesdayA), List.of(mondayB)), NONE, 5).routines();
+
+        assertEquals(1, routines.size(), "Only one combination is conflict free");
+        assertEquals(List.of(tuesdayA, mondayB), routines.getFirst().sections(), "Should move A off Monday");
+    }
+
+    @Test
+    @DisplayName("Should skip full sections and what the student already sits in")
+    void skipFullAndRegistered() {
+        long   registered = ScheduleMask.of(DayOfWeek.WEDNESDAY, 2, SubjectType.THEORY);
+        Option full       = new Option(UUID.randomUUID(), UUID.randomUUID(), "1", ScheduleMask.of(DayOfWeek.MONDAY, 1, SubjectType.THEORY), true, Set.of());
+        Option taken      = option(registered);
+        Option open       = option(ScheduleMask.of(DayOfWeek.THURSDAY, 3, SubjectType.THEORY));
+
+        List<Routine> routines = RoutineGenerator.generate(registered, List.of(List.of(full, taken, open)), NONE, 5).routines();
+        assertEquals(List.of(List.of(open)), routines.stream().map(Routine::sections).toList(), "Only the open, free section is usable");
+
+        Preferences anySeat = new Preferences(1, Set.of(), Set.of(), true);
+        assertEquals(2, RoutineGenerator.generate(registered, List.of(List.of(full, taken, open)), anySeat, 5).routines().size(), "includeFull should bring the full section back");
+    }
+
+    @Test
+    @DisplayName("Should rank by early slots, free days and preferred faculty")
+    void rankByPreferences() {
+        UUID   teacher = UUID.randomUUID();
+        Option early   = option(ScheduleMask.of(DayOfWeek.MONDAY, 1, SubjectType.THEORY));
+        Option friday  = option(ScheduleMask.of(DayOfWeek.FRIDAY, 4, SubjectType.THEORY));
+        Option liked   = new Option(UUID.randomUUID(), UUID.randomUUID(), "3", ScheduleMask.of(DayOfWeek.TUESDAY, 4, SubjectType.THEORY), false, Set.of(teacher));
+        Option plain   = option(ScheduleMask.of(DayOfWeek.TUESDAY, 5, SubjectType.THEORY));
+
+        List<List<Option>> courses = List.of(List.of(early, friday, liked, plain));
+
+        assertEquals(List.of(early), RoutineGenerator.generate(ScheduleMask.EMPTY, courses, new Preferences(1, Set.of(DayOfWeek.TUESDAY, DayOfWeek.FRIDAY), Set.of(), false), 1).routines().getFirst().sections(), "Should keep Tuesday and Friday free");
+        assertEquals(List.of(liked), RoutineGenerator.generate(ScheduleMask.EMPTY, courses, new Preferences(2, Set.of(), Set.of(teacher), false), 1).routines().getFirst().sections(), "Should prefer the teacher and skip slot 1");
+    }
+
+    @Test
+    @DisplayName("Should find exactly the best routines a full enumeration finds")
+    void matchFullEnumeration() {
+        Random             random  = new Random(11);
+        List<List<Option>> courses = randomCourses(random, 5, 8);
+        Preferences        prefs   = new Preferences(2, Set.of(DayOfWeek.SATURDAY), Set.of(), false);
+
+        List<Routine> all  = RoutineGenerator.generate(ScheduleMask.EMPTY, courses, prefs, Integer.MAX_VALUE).routines();
+        List<Routine> best = RoutineGenerator.generate(ScheduleMask.EMPTY, courses, prefs, 10).routines();
+
+        assertEquals(countConflictFree(courses, 0, ScheduleMask.EMPTY), all.size(), "Should enumerate every conflict-free, open combination");
+        assertEquals(all.subList(0, Math.min(10, all.size())).stream().map(Routine::sections).toList(), best.stream().map(Routine::sections).toList(), "Pruning should not change the top routines");
+        for (int i = 1; i < best.size(); i++) assertTrue(best.get(i - 1).cost() <= best.get(i).cost(), "Should come best first");
+    }
+
+    // `courses` courses with `sections` sections each, every section one or two random slots on Monday..Saturday
+    static List<List<Option>> randomCourses(Random random, int courses, int sections) {
+        List<List<Option>> result = new ArrayList<>();
+        for (int course = 0; course < courses; course++) {
+            UUID         courseId = UUID.randomUUID();
+            List<Option> options  = new ArrayList<>();
+            for (int section = 0; section < sections; section++) {
+                long mask = 1L << random.nextInt(36) | 1L << random.nextInt(36);
+                options.add(new Option(courseId, UUID.randomUUID(), String.valueOf(section + 1), mask, random.nextInt(10) == 0, Set.of()));
+            }
+            result.add(options);
+        }
+        return result;
+    }
+
+    private static long countConflictFree(List<List<Option>> courses, int course, long mask) {
+        if (course == courses.size()) return 1;
+        long count = 0;
+        for (Option option : courses.get(course))
+            if (!option.full() && !ScheduleMask.clashes(mask, option.mask())) count += countConflictFree(courses, course + 1, mask | option.mask());
+        return count;
+    }
+
+    private static Option option(long mask) {
+        return new Option(UUID.randomUUID(), UUID.randomUUID(), "1", mask, false, Set.of());
+    }
+}
@@ -0,0 +1,101 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.ScheduleMask;
+import enrollium.server.db.SeatLedger;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.SubjectType;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Schedule Mask Tests")
+class ScheduleMaskTest {
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should make a lab slot cover two theory slots")
+    void labCoversTwoTheorySlots() {
+        long lab = ScheduleMask.of(DayOfWeek.MONDAY, 2, SubjectType.LAB);
+
+        assertEquals(ScheduleMask.of(DayOfWeek.MONDAY, 3, SubjectType.THEORY) | ScheduleMask.of(DayOfWeek.MONDAY, 4, SubjectType.THEORY), lab, "Lab slot 2 is theory slots 3 and 4");
+        assertFalse(ScheduleMask.clashes(lab, ScheduleMask.of(DayOfWeek.MONDAY, 2, SubjectType.THEORY)), "Should not touch theory slot 2");
+        assertFalse(ScheduleMask.clashes(lab, ScheduleMask.of(DayOfWeek.MONDAY, 5, SubjectType.THEORY)), "Should not touch theory slot 5");
+    }
+
+    @Test
+    @DisplayName("Should keep days apart")
+    void daysDoNotOverlap() {
+        assertFalse(ScheduleMask.clashes(ScheduleMask.of(DayOfWeek.MONDAY, 6, SubjectType.THEORY), ScheduleMask.of(DayOfWeek.TUESDAY, 1, SubjectType.THEORY)), "Monday's last slot is not Tuesday's first");
+        assertEquals(1L << 41, ScheduleMask.of(DayOfWeek.SUNDAY, 6, SubjectType.THEORY), "Whole week fits in 42 bits");
+    }
+
+    @Test
+    @DisplayName("Should refuse a section overlapping a registered one")
+    void rejectClashingRegistration() {
+        Fixture fixture = new Fixture();
+
+        TestHelper.register(fixture.first.getId(), fixture.monday.getId());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> TestHelper.register(fixture.second.getId(), fixture.mondayLab.getId()), "Should refuse the overlapping lab");
+        assertTrue(error.getMessage().contains("clashes"), "Should fail on the clash, not on the lock: " + error.getMessage());
+        assertEquals(0, DB.findById(Section.class, fixture.mondayLab.getId()).blockingGet().getCurrentCapacity(), "Should not take a seat");
+
+        TestHelper.register(fixture.second.getId(), fixture.tuesday.getId());
+        assertEquals(CourseStatus.REGISTERED, DB.findById(Course.class, fixture.second.getId()).blockingGet().getStatus(), "Should take the free slot");
+    }
+
+    @Test
+    @DisplayName("Should refuse a section overlapping a registered one in the seat ledger")
+    void rejectClashingLedgerRegistration() throws Exception {
+        Fixture fixture = new Fixture();
+
+        try (SeatLedger ledger = SeatLedger.open(directory.resolve("clash.wal"), 1024 * 1024, fixture.trimester.getId())) {
+            ledger.register(fixture.first.getId(), fixture.monday.getId()).blockingGet();
+
+            assertThrows(IllegalStateException.class, () -> ledger.register(fixture.second.getId(), fixture.mondayLab.getId()).blockingGet(), "Should refuse the overlapping lab");
+            assertEquals(0, ledger.seatsTaken(fixture.mondayLab.getId()), "Should not take a seat");
+
+            ledger.register(fixture.second.getId(), fixture.tuesday.getId()).blockingGet();
+            assertEquals(1, ledger.seatsTaken(fixture.tuesday.getId()), "Should take the free slot");
+        }
+    }
+
+    // one student with two courses; the second subject has a Monday lab over the first's Monday class and a Tuesday class
+    private static class Fixture {
+        private final Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        private final Subject   theory    = TestHelper.saveEntity(TestHelper.createValidSubject());
+        private final Subject   other     = TestHelper.saveEntity(TestHelper.createValidSubject());
+        private final Section   monday    = section(theory, TestHelper.createSpaceTimeWithSlot(SubjectType.THEORY, 1));
+        private final Section   mondayLab = section(other, TestHelper.createSpaceTimeWithSlot(SubjectType.LAB, 1));
+        private final Section   tuesday   = section(other, TestHelper.createSpaceTimeWithDayAndSlot(DayOfWeek.TUESDAY, 1));
+        private final Student   student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        private final Course    first     = TestHelper.saveEntity(TestHelper.createValidCourse(student, theory, trimester));
+        private final Course    second    = TestHelper.saveEntity(TestHelper.createValidCourse(student, other, trimester));
+
+        private Section section(Subject subject, SpaceTime slot) {
+            Section section = TestHelper.createValidSection(subject, trimester);
+            section.setSpaceTimeSlots(new HashSet<>(Set.of(TestHelper.saveEntity(slot))));
+            return TestHelper.saveEntity(section);
+        }
+    }
+}
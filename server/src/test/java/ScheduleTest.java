@@ -0,0 +1,97 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import enrollium.server.Main;
+import enrollium.server.db.DB;
+import enrollium.server.db.StatementStats;
+import enrollium.server.db.entity.Course;
+import enrollium.server.db.entity.Section;
+import enrollium.server.db.entity.Subject;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Schedule Query Tests")
+class ScheduleTest {
+    private static UUID studentId;
+
+    @BeforeAll
+    static void findStudent() {
+        // the seeded database has a trimester in section selection with registered students
+        Course course = DB.query(Course.class)
+                          .where("trimester.status", TrimesterStatus.SECTION_SELECTION)
+                          .and("status", CourseStatus.REGISTERED)
+                          .first()
+                          .blockingGet();
+
+        Assumptions.assumeTrue(course != null, "Needs the seeded database");
+        studentId = course.getStudent().getId();
+    }
+
+    @Test
+    @StatementBudget(4)
+    @DisplayName("Should build the schedule in at most 4 statements")
+    void scheduleStatementBudget() {
+        JsonNode schedule = Main.buildSchedule(studentId);
+
+        assertFalse(schedule.has("error"), "Should find the student's courses");
+        assertFalse(schedule.get("subjects").isEmpty(), "Should list subjects");
+    }
+
+    @Test
+    @DisplayName("Should reuse the section catalog once it is built")
+    void reuseCatalog() {
+        Main.buildSchedule(studentId);
+
+        try (StatementStats.Scope scope = StatementStats.open("warm schedule")) {
+            Main.buildSchedule(studentId);
+
+            assertEquals(3, scope.statements(), "Warm calls should only read the trimester, the student's courses and the seats");
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the section catalog after a section changes")
+    void refreshCatalog() {
+        JsonNode first    = Main.buildSchedule(studentId);
+        JsonNode section  = first.get("subjects").get(0).get("days").get(0).get("sections").get(0);
+        Section  stored   = DB.findById(Section.class, UUID.fromString(section.get("sectionId").asText())).blockingGet();
+        int      original = stored.getMaxCapacity();
+
+        try {
+            stored.setMaxCapacity(original + 1);
+            DB.update(stored).blockingGet();
+
+            JsonNode second  = Main.buildSchedule(studentId);
+            JsonNode updated = find(second, stored.getId());
+            assertTrue(second.get("catalogVersion").asLong() > first.get("catalogVersion").asLong(), "Should publish a new snapshot");
+            assertEquals(original + 1, updated.get("maxCapacity").asInt(), "Should show the new capacity");
+        } finally {
+            Section reloaded = DB.findById(Section.class, stored.getId()).blockingGet();
+            reloaded.setMaxCapacity(original);
+            DB.update(reloaded).blockingGet();
+        }
+    }
+
+    private static JsonNode find(JsonNode schedule, UUID sectionId) {
+        for (JsonNode subject : schedule.get("subjects"))
+            for (JsonNode day : subject.get("days"))
+                for (JsonNode section : day.get("sections"))
+                    if (section.get("sectionId").asText().equals(sectionId.toString())) return section;
+        return fail("Section " + sectionId + " is missing from the schedule");
+    }
+
+    @Test
+    @DisplayName("Should count statements across RxJava schedulers")
+    void countAcrossSchedulers() {
+        try (StatementStats.Scope scope = StatementStats.open("count")) {
+            DB.count(Subject.class).blockingGet();
+
+            assertEquals(1, scope.statements(), "Count should be one statement");
+            assertEquals(1, scope.maxRepeats(), "Nothing should repeat");
+        }
+    }
+}
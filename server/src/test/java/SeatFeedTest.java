@@ -0,0 +1,61 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.SeatFeed;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Seat Feed Tests")
+class SeatFeedTest {
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        SeatFeed.stop();
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should publish the latest seat count of a section once its registrations commit")
+    void publishLatestCount() throws InterruptedException {
+        LinkedBlockingQueue<List<SeatFeed.Update>> batches = new LinkedBlockingQueue<>();
+        SeatFeed.start(batches::add);
+
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 5));
+        for (int i = 0; i < 3; i++) {
+            Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+            Course  course  = TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester));
+            TestHelper.register(course.getId(), section.getId());
+        }
+
+        int  updates  = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            List<SeatFeed.Update> batch = batches.poll(SeatFeed.WINDOW_MILLIS * 2, TimeUnit.MILLISECONDS);
+            if (batch == null) continue;
+
+            for (SeatFeed.Update update : batch) {
+                if (!update.sectionId().equals(section.getId())) continue;
+                updates++;
+                assertEquals(subject.getId(), update.subjectId(), "Should carry the subject for routing");
+                assertEquals(5, update.maxCapacity(), "Should carry the capacity");
+                if (update.seatsTaken() == 3) {
+                    assertTrue(updates <= 3, "Should never send more updates than changes");
+                    return;
+                }
+            }
+        }
+        fail("Should publish the section with 3 seats taken");
+    }
+}
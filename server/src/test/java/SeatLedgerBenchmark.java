@@ -0,0 +1,126 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.SeatLedger;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+// manual benchmark: registrations per second and p99 latency, database path vs seat ledger (fsync included)
+// needs the seeded demo database, run it by removing @Disabled; every course is put back where it was afterwards
+// target for the ledger is > 20k registrations/s on one node
+// not a JMH benchmark: the cost that matters is the whole call including the group fsync
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SeatLedgerBenchmark {
+    private static final int                   THREADS           = 64;
+    private static final int                   DURATION          = 10; // seconds
+    private final        Map<UUID, UUID>       original          = new HashMap<>();
+    private final        Map<UUID, UUID>       subject           = new HashMap<>();
+    private final        Map<UUID, List<UUID>> sectionsBySubject = new HashMap<>();
+    private              UUID                  trimesterId;
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    void load() {
+        DB.getSessionFactory().inTransaction(session -> {
+            trimesterId = session.createSelectionQuery("SELECT t.id FROM Trimester t WHERE t.status = :status", UUID.class)
+                                 .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                                 .setMaxResults(1)
+                                 .uniqueResult();
+
+            session.createSelectionQuery("SELECT s.id, s.subject.id FROM Section s WHERE s.trimester.id = :trimesterId", Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .getResultList()
+                   .forEach(row -> sectionsBySubject.computeIfAbsent((UUID) row[1], _ -> new ArrayList<>()).add((UUID) row[0]));
+
+            session.createSelectionQuery("""
+                                         SELECT c.id, c.subject.id, sec.id FROM Course c LEFT JOIN c.section sec
+                                         WHERE c.trimester.id = :trimesterId AND c.status IN (:statuses)
+                                         """, Object[].class)
+                   .setParameter("trimesterId", trimesterId)
+                   .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                   .getResultList()
+                   .forEach(row -> {
+                       if (!sectionsBySubject.containsKey((UUID) row[1])) return;
+                       original.put((UUID) row[0], (UUID) row[2]);
+                       subject.put((UUID) row[0], (UUID) row[1]);
+                   });
+        });
+
+        Assumptions.assumeTrue(trimesterId != null && !original.isEmpty(), "Needs the seeded database");
+    }
+
+    @Test
+    @DisplayName("Registrations: database path vs seat ledger")
+    void registrations() throws Exception {
+        measure("database", TestHelper::register);
+        restore(TestHelper::register);
+
+        try (SeatLedger ledger = SeatLedger.open(directory.resolve("bench.wal"), 256 * 1024 * 1024, trimesterId)) {
+            measure("seat ledger", (course, section) -> ledger.register(course, section).blockingGet());
+            restore((course, section) -> ledger.register(course, section).blockingGet());
+        }
+    }
+
+    // empty every section first, so nobody's original seat is taken by someone else
+    private void restore(BiConsumer<UUID, UUID> register) {
+        original.keySet().forEach(course -> register.accept(course, null));
+        original.forEach((course, section) -> {
+            if (section != null) register.accept(course, section);
+        });
+    }
+
+    // every thread keeps moving its own courses between sections of their subject (or dropping them)
+    private void measure(String name, BiConsumer<UUID, UUID> register) throws Exception {
+        List<UUID>           courses  = new ArrayList<>(original.keySet());
+        ExecutorService      threads  = Executors.newFixedThreadPool(THREADS);
+        long                 deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION);
+        List<Future<long[]>> results  = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            results.add(threads.submit(() -> {
+                Random random    = new Random(offset);
+                long[] latencies = new long[1 << 18];
+                int    count     = 0;
+
+                for (int i = offset; System.nanoTime() < deadline && count < latencies.length; i += THREADS) {
+                    UUID       course   = courses.get(i % courses.size());
+                    List<UUID> sections = sectionsBySubject.get(subject.get(course));
+                    UUID       section  = random.nextInt(4) == 0 ? null : sections.get(random.nextInt(sections.size()));
+
+                    long start = System.nanoTime();
+                    try {
+                        register.accept(course, section);
+                    } catch (Exception _) {
+                        // full sections count too, the work was done
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] part  = result.get();
+            long[] merge = Arrays.copyOf(all, all.length + part.length);
+            System.arraycopy(part, 0, merge, all.length, part.length);
+            all = merge;
+        }
+        threads.shutdown();
+
+        Arrays.sort(all);
+        long p99 = all.length == 0 ? 0 : all[(int) (all.length * 0.99)] / 1_000;
+        System.out.printf("%-12s %9d registrations/s %7d us p99%n", name, all.length / DURATION, p99);
+    }
+}
@@ -0,0 +1,130 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.SeatLedger;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Seat Ledger Tests")
+class SeatLedgerTest {
+    private static final int WAL_BYTES = 1024 * 1024;
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should never overbook a section under concurrent registration")
+    void noOverbooking() throws Exception {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 40));
+
+        List<UUID> courseIds = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+            courseIds.add(TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester)).getId());
+        }
+
+        try (SeatLedger ledger = SeatLedger.open(directory.resolve("seats.wal"), WAL_BYTES, trimester.getId())) {
+            AtomicInteger   registered = new AtomicInteger();
+            AtomicInteger   full       = new AtomicInteger();
+            CountDownLatch  start      = new CountDownLatch(1);
+            ExecutorService threads    = Executors.newFixedThreadPool(courseIds.size());
+
+            for (UUID courseId : courseIds) {
+                threads.submit(() -> {
+                    try {
+                        start.await();
+                        ledger.register(courseId, section.getId()).blockingGet();
+                        registered.incrementAndGet();
+                    } catch (Exception e) {
+                        if ("Section is full".equals(e.getMessage())) full.incrementAndGet();
+                    }
+                });
+            }
+
+            start.countDown();
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(2, TimeUnit.MINUTES), "Registrations should finish");
+
+            assertEquals(40, registered.get(), "Should fill every seat");
+            assertEquals(460, full.get(), "Should reject everyone after the last seat");
+            assertEquals(40, ledger.seatsTaken(section.getId()), "Counter should match the seats handed out");
+        }
+
+        // close checkpoints, so the database has caught up
+        assertEquals(40, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should write the counter behind");
+        assertEquals(40, DB.query(Course.class)
+                           .where("section.id", section.getId())
+                           .and("status", CourseStatus.REGISTERED)
+                           .count()
+                           .blockingGet(), "Should write the registrations behind");
+    }
+
+    @Test
+    @DisplayName("Should replay acknowledged registrations after a crash")
+    void recoverFromLog() throws Exception {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 5));
+        Student   student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        Course    course    = TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester));
+        Path      wal       = directory.resolve("crash.wal");
+
+        SeatLedger ledger = SeatLedger.open(wal, WAL_BYTES, trimester.getId());
+        ledger.register(course.getId(), section.getId()).blockingGet();
+        ledger.halt(); // nothing was written behind
+
+        assertEquals(CourseStatus.SELECTED, DB.findById(Course.class, course.getId()).blockingGet().getStatus(), "Database should not have it yet");
+
+        try (SeatLedger recovered = SeatLedger.open(wal, WAL_BYTES, trimester.getId())) {
+            assertEquals(1, recovered.seatsTaken(section.getId()), "Should count the replayed seat");
+        }
+
+        Course stored = DB.findById(Course.class, course.getId()).blockingGet();
+        assertEquals(CourseStatus.REGISTERED, stored.getStatus(), "Should replay the registration");
+        assertEquals(section.getId(), stored.getSection().getId(), "Should replay the section");
+        assertEquals(1, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should repair the counter");
+    }
+
+    @Test
+    @DisplayName("Should reject a section of another subject")
+    void rejectOtherSubject() throws Exception {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject   other     = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createValidSection(other, trimester));
+        Student   student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        Course    course    = TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester));
+
+        try (SeatLedger ledger = SeatLedger.open(directory.resolve("subject.wal"), WAL_BYTES, trimester.getId())) {
+            assertTrue(ledger.owns(course.getId()), "Course belongs to the ledger's trimester");
+            assertThrows(IllegalArgumentException.class, () -> ledger.register(course.getId(), section.getId()).blockingGet(), "Should reject the mismatched section");
+            assertEquals(0, ledger.seatsTaken(section.getId()), "Should not take a seat");
+        }
+    }
+}
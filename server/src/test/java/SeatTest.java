@@ -0,0 +1,198 @@
+import enrollium.server.Main;
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.Eligibility;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Seat Accounting Tests")
+class SeatTest {
+    private static final int SEATS    = 40;
+    private static final int STUDENTS = 500;
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should never overbook a section under concurrent registration")
+    void noOverbooking() throws InterruptedException {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, SEATS));
+
+        List<UUID> courseIds = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+            courseIds.add(TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester)).getId());
+        }
+
+        AtomicInteger   registered = new AtomicInteger();
+        AtomicInteger   full       = new AtomicInteger();
+        AtomicInteger   failed     = new AtomicInteger();
+        CountDownLatch  start      = new CountDownLatch(1);
+        ExecutorService threads    = Executors.newFixedThreadPool(STUDENTS);
+
+        // every thread waits on the latch so all registrations hit the database together
+        for (UUID courseId : courseIds) {
+            threads.submit(() -> {
+                try {
+                    start.await();
+                    TestHelper.register(courseId, section.getId());
+                    registered.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    if ("Section is full".equals(e.getMessage())) full.incrementAndGet();
+                    else failed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+
+        start.countDown();
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(2, TimeUnit.MINUTES), "Registrations should finish");
+
+        assertEquals(0, failed.get(), "Only a full section should turn a student away");
+        assertEquals(SEATS, registered.get(), "Should fill every seat");
+        assertEquals(STUDENTS - SEATS, full.get(), "Should reject everyone after the last seat");
+
+        assertEquals(SEATS, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Counter should match the seats handed out");
+        assertEquals(SEATS, DB.query(Course.class)
+                              .where("section.id", section.getId())
+                              .and("status", CourseStatus.REGISTERED)
+                              .count()
+                              .blockingGet(), "Should register exactly one course per seat");
+    }
+
+    @Test
+    @DisplayName("Should free the seat when a course leaves the section")
+    void releaseOnUnregister() {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 1));
+        Student   student   = TestHelper.saveEntity(TestHelper.createValidStudent());
+        Course    course    = TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester));
+
+        TestHelper.register(course.getId(), section.getId());
+        TestHelper.register(course.getId(), section.getId()); // same section again takes no extra seat
+        assertEquals(1, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should hold one seat");
+
+        TestHelper.register(course.getId(), null);
+        assertEquals(0, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should give the seat back");
+    }
+
+    @Test
+    @DisplayName("Should not treat a dropped course's old section as a held seat")
+    void dropCourseHoldsNoSeat() {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Course    dropped   = TestHelper.createDroppedCourse();
+        Section   old       = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(dropped.getSubject(), trimester, 1));
+        Section   other     = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(dropped.getSubject(), trimester, 1));
+        dropped.setTrimester(trimester);
+        dropped.setSection(old);
+        TestHelper.saveEntity(dropped);
+
+        // someone else holds the only seat of the section the dropped course still points at
+        Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+        Course  holder  = TestHelper.saveEntity(TestHelper.createValidCourse(student, dropped.getSubject(), trimester));
+        TestHelper.register(holder.getId(), old.getId());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> TestHelper.register(dropped.getId(), old.getId()), "Same section again should still need a seat");
+        assertEquals("Section is full", error.getMessage());
+
+        TestHelper.register(dropped.getId(), other.getId());
+        assertEquals(1, DB.findById(Section.class, old.getId()).blockingGet().getCurrentCapacity(), "Moving away should not free the holder's seat");
+        assertEquals(1, DB.findById(Section.class, other.getId()).blockingGet().getCurrentCapacity(), "Should take a seat in the new section");
+    }
+
+    @Test
+    @DisplayName("Should not let a status change overbook a full section")
+    void updateStatusTakesSeat() {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 1));
+        Course    first     = TestHelper.saveEntity(TestHelper.createValidCourse(TestHelper.saveEntity(TestHelper.createValidStudent()), subject, trimester));
+        Course    second    = TestHelper.saveEntity(TestHelper.createValidCourse(TestHelper.saveEntity(TestHelper.createValidStudent()), subject, trimester));
+        Eligibility.precompute().blockingGet(); // the server loads it at boot
+
+        DB.batched("Course.updateStatus", session -> Main.updateCourseStatus(session, first.getId(), CourseStatus.REGISTERED, section.getId(), null)).blockingGet();
+        assertEquals(1, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Registering by status should take the seat");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> DB.batched("Course.updateStatus", session -> Main.updateCourseStatus(session, second.getId(), CourseStatus.REGISTERED, section.getId(), null))
+                                                                                        .blockingGet(), "Should refuse the full section");
+        assertEquals("Section is full", error.getMessage());
+
+        DB.batched("Course.updateStatus", session -> Main.updateCourseStatus(session, first.getId(), CourseStatus.DROPPED, null, null)).blockingGet();
+        assertEquals(0, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Dropping should give the seat back");
+    }
+
+    @Test
+    @DisplayName("Should free the seat of a deleted registered course")
+    void deleteReleasesSeat() {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 1));
+        Course    course    = TestHelper.saveEntity(TestHelper.createValidCourse(TestHelper.saveEntity(TestHelper.createValidStudent()), subject, trimester));
+
+        TestHelper.register(course.getId(), section.getId());
+        DB.batched("Course.delete", session -> Main.deleteCourse(session, course.getId())).blockingGet();
+
+        assertEquals(0, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should give the seat back");
+        assertFalse(DB.exists(Course.class, course.getId()).blockingGet(false), "Course should be gone");
+    }
+
+    @Test
+    @DisplayName("Should rebuild drifted counters from registrations")
+    void reconcile() {
+        Trimester trimester = TestHelper.saveEntity(TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION));
+        Subject   subject   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section   section   = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 5));
+
+        try (var session = DB.getSessionFactory().openSession()) {
+            var transaction = session.beginTransaction();
+            DB.takeSeat(session, section.getId());
+            DB.takeSeat(session, section.getId());
+            transaction.commit();
+        }
+
+        assertTrue(DB.reconcileSeats().blockingGet() >= 1, "Should fix the drifted section");
+        assertEquals(0, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "Should match the zero registrations");
+    }
+
+    @Test
+    @DisplayName("Should not count dropped courses that keep their section")
+    void reconcileCountsRegisteredOnly() {
+        Course  dropped = TestHelper.saveEntity(TestHelper.createDroppedCourse());
+        Section section = dropped.getSection();
+
+        try (var session = DB.getSessionFactory().openSession()) {
+            var transaction = session.beginTransaction();
+            DB.takeSeat(session, section.getId());
+            transaction.commit();
+        }
+
+        DB.reconcileSeats().blockingGet();
+        assertEquals(0, DB.findById(Section.class, section.getId()).blockingGet().getCurrentCapacity(), "A dropped course should hold no seat");
+    }
+}
@@ -0,0 +1,36 @@
+import enrollium.server.db.SectionAllocator;
+import enrollium.server.db.SectionAllocator.Matching;
+import enrollium.server.db.SectionAllocator.Problem;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// manual benchmark: the matching for 20k students x 6 courses, no database involved
+// run it by removing @Disabled; target is a few seconds including load and the bulk update, the matching should be well under that
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SectionAllocatorBenchmark {
+    private static final int STUDENTS = 20_000;
+    private static final int SUBJECTS = 120;
+    private static final int COURSES  = 6;
+    private static final int RUNS     = 5;
+
+    @Test
+    @DisplayName("Allocation: 20k students x 6 courses")
+    void allocate() {
+        Problem problem = SectionAllocatorTest.randomProblem(new Random(1), STUDENTS, SUBJECTS, COURSES);
+
+        for (int run = 0; run < RUNS; run++) {
+            long     start    = System.nanoTime();
+            Matching matching = SectionAllocator.solve(problem);
+            long     millis   = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            long placed = Arrays.stream(matching.sections()).filter(section -> section >= 0).count();
+            System.out.printf("run %d %6d ms %4d rounds %7d of %7d courses placed%n", run, millis, matching.rounds(), placed, matching.sections().length);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import enrollium.server.Main;
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.SectionAllocator;
+import enrollium.server.db.SectionAllocator.Matching;
+import enrollium.server.db.SectionAllocator.Problem;
+import enrollium.server.db.SectionAllocator.Strategy;
+import enrollium.server.db.entity.*;
+import enrollium.server.db.entity.types.AllocationMode;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Section Allocator Tests")
+class SectionAllocatorTest {
+    private static final long MONDAY_1  = 1L;
+    private static final long TUESDAY_1 = 1L << 6;
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @Test
+    @DisplayName("Should give a full section to the best priorities only")
+    void respectCapacity() {
+        // five students want the one section with two seats, the second section is the fallback
+        Problem problem = new Problem(new int[]{2, 10}, new long[]{MONDAY_1, TUESDAY_1}, //
+                                      new int[]{0, 1, 2, 3, 4}, new int[]{0, 0, 0, 0, 0}, //
+                                      new int[][]{{0, 1}, {0, 1}, {0, 1}, {0, 1}, {0, 1}}, //
+                                      new long[5], new long[]{50, 10, 40, 20, 30});
+
+        int[] sections = SectionAllocator.solve(problem).sections();
+
+        assertArrayEquals(new int[]{1, 0, 1, 0, 1}, sections, "Lowest priority numbers should win the popular section");
+    }
+
+    @Test
+    @DisplayName("Should never hand one student overlapping sections")
+    void avoidClashes() {
+        // one student, two subjects; subject B's first choice overlaps subject A's only section
+        Problem problem = new Problem(new int[]{5, 5, 5}, new long[]{MONDAY_1, MONDAY_1, TUESDAY_1}, //
+                                      new int[]{0, 0}, new int[]{0, 1}, //
+                                      new int[][]{{0}, {1, 2}}, //
+                                      new long[1], new long[1]);
+
+        assertArrayEquals(new int[]{0, 2}, SectionAllocator.solve(problem).sections(), "Should move the clashing course to its next choice");
+    }
+
+    @Test
+    @DisplayName("Should keep clear of seats the student already has")
+    void respectRegisteredSeats() {
+        Problem problem = new Problem(new int[]{5}, new long[]{MONDAY_1}, //
+                                      new int[]{0}, new int[]{0}, new int[][]{{0}}, //
+                                      new long[]{MONDAY_1}, new long[1]);
+
+        assertArrayEquals(new int[]{-1}, SectionAllocator.solve(problem).sections(), "Should not allocate over a registered seat");
+    }
+
+    @Test
+    @DisplayName("Should produce a valid and repeatable allocation for a crowded trimester")
+    void randomTrimester() {
+        Problem  problem = randomProblem(new Random(7), 2_000, 20, 6);
+        Matching first   = SectionAllocator.solve(problem);
+        Matching second  = SectionAllocator.solve(problem);
+
+        assertArrayEquals(first.sections(), second.sections(), "Same input and priorities should give the same result");
+
+        int[]  seats     = new int[problem.capacity().length];
+        long[] timetable = problem.studentMask().clone();
+        for (int course = 0; course < first.sections().length; course++) {
+            int section = first.sections()[course];
+            if (section < 0) continue;
+
+            int student = problem.courseStudent()[course];
+            assertEquals(0, timetable[student] & problem.sectionMask()[section], "Student " + student + " should have no overlap");
+            timetable[student] |= problem.sectionMask()[section];
+            seats[section]++;
+
+            int[] choices = problem.preferences()[course];
+            assertTrue(Arrays.stream(choices).anyMatch(choice -> choice == section), "Should only allocate a ranked section");
+        }
+        for (int section = 0; section < seats.length; section++)
+            assertTrue(seats[section] <= problem.capacity()[section], "Section " + section + " should not be overbooked");
+    }
+
+    @Test
+    @DisplayName("Should write the allocation and recount seats")
+    void allocateTrimester() {
+        Trimester trimester = TestHelper.createTrimesterWithStatus(TrimesterStatus.SECTION_SELECTION);
+        trimester.setAllocationMode(AllocationMode.PREFERENCE);
+        trimester = TestHelper.saveEntity(trimester);
+
+        Subject      subject  = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Section      popular  = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 1));
+        Section      fallback = TestHelper.saveEntity(TestHelper.createSectionWithCapacity(subject, trimester, 5));
+        List<Course> courses  = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Student student = TestHelper.saveEntity(TestHelper.createValidStudent());
+            Course  course  = TestHelper.saveEntity(TestHelper.createValidCourse(student, subject, trimester));
+            DB.batched("test", session -> Main.submitPreferences(session, course.getId(), List.of(popular.getId(), fallback.getId()))).blockingGet();
+            courses.add(course);
+        }
+
+        assertThrows(RuntimeException.class, () -> TestHelper.register(courses.getFirst().getId(), popular.getId()), "Should refuse first come first served");
+
+        SectionAllocator.Result result = SectionAllocator.allocate(trimester.getId(), Strategy.LOTTERY, 42).blockingGet();
+        assertEquals(3, result.allocated(), "Every course should get a seat");
+
+        for (Course course : courses) {
+            Course stored = DB.findById(Course.class, course.getId()).blockingGet();
+            assertEquals(CourseStatus.REGISTERED, stored.getStatus(), "Allocated course should be registered");
+        }
+        assertEquals(1, DB.findById(Section.class, popular.getId()).blockingGet().getCurrentCapacity(), "Should fill the popular section");
+        assertEquals(2, DB.findById(Section.class, fallback.getId()).blockingGet().getCurrentCapacity(), "Should place the rest in the fallback");
+    }
+
+    // students take `perStudent` of `subjects` subjects, each subject has 4 sections on random slots
+    static Problem randomProblem(Random random, int students, int subjects, int perStudent) {
+        int    sections    = subjects * 4;
+        int[]  capacity    = new int[sections];
+        long[] sectionMask = new long[sections];
+        for (int section = 0; section < sections; section++) {
+            capacity[section]    = 10 + random.nextInt(40);
+            sectionMask[section] = 1L << random.nextInt(42) | 1L << random.nextInt(42);
+        }
+
+        List<int[]>   preferences   = new ArrayList<>();
+        List<Integer> courseStudent = new ArrayList<>();
+        List<Integer> courseSubject = new ArrayList<>();
+        for (int student = 0; student < students; student++) {
+            List<Integer> taken = new ArrayList<>();
+            for (int subject = 0; subject < subjects; subject++) taken.add(subject);
+            Collections.shuffle(taken, random);
+
+            for (int subject : taken.subList(0, perStudent)) {
+                List<Integer> ranked = new ArrayList<>(List.of(subject * 4, subject * 4 + 1, subject * 4 + 2, subject * 4 + 3));
+                Collections.shuffle(ranked, random);
+                preferences.add(ranked.stream().mapToInt(Integer::intValue).toArray());
+                courseStudent.add(student);
+                courseSubject.add(subject);
+            }
+        }
+
+        return new Problem(capacity, sectionMask, //
+                           courseStudent.stream().mapToInt(Integer::intValue).toArray(), //
+                           courseSubject.stream().mapToInt(Integer::intValue).toArray(), //
+                           preferences.toArray(int[][]::new), new long[students], random.longs(students).toArray());
+    }
+}
@@ -0,0 +1,56 @@
+import enrollium.server.db.StatementStats;
+import org.junit.jupiter.api.extension.*;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// fails a test that runs more SQL statements than its budget
+// only the test method body is counted, @BeforeEach/@AfterEach setup is not
+//
+// @Test
+// @StatementBudget(4)
+// void schedule() { Main.buildSchedule(studentId); }
+
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@ExtendWith(StatementBudget.Extension.class)
+public @interface StatementBudget {
+    int value();
+
+    class Extension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+        private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementBudget.class);
+
+        @Override
+        public void beforeTestExecution(ExtensionContext context) {
+            context.getStore(NAMESPACE).put("scope", StatementStats.open(context.getDisplayName()));
+        }
+
+        @Override
+        public void afterTestExecution(ExtensionContext context) {
+            StatementStats.Scope scope = context.getStore(NAMESPACE).remove("scope", StatementStats.Scope.class);
+            scope.close();
+
+            int budget = context.getTestMethod()
+                                .map(method -> method.getAnnotation(StatementBudget.class))
+                                .or(() -> context.getTestClass().map(type -> type.getAnnotation(StatementBudget.class)))
+                                .map(StatementBudget::value)
+                                .orElseThrow();
+
+            if (scope.statements() > budget) {
+                String statements = scope.shapes()
+                                         .entrySet()
+                                         .stream()
+                                         .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                                         .map(entry -> entry.getValue() + "x " + entry.getKey())
+                                         .collect(Collectors.joining("\n  ", "\n  ", ""));
+
+                throw new AssertionError("Ran " + scope.statements() + " SQL statements, budget is " + budget + ":" + statements);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.DbTelemetry;
+import enrollium.server.db.entity.Subject;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Streaming Read Tests")
+class StreamTest {
+    private static final int ROWS = 30;
+
+    @BeforeAll
+    static void setupDatabase() throws Exception {
+        TestHelper.cleanupAllTestData();
+        for (int i = 0; i < ROWS; i++) TestHelper.saveEntity(TestHelper.createValidSubject());
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    private static int activeConnections() {
+        return DbTelemetry.snapshot().pools().getFirst().active();
+    }
+
+    @Test
+    @DisplayName("Should stream every matching row across several fetches")
+    void everyRow() {
+        List<Subject> subjects = DB.stream(Subject.class, "e.createdBy = :creator", Map.of("creator", TestHelper.TEST_CREATOR), 7).toList().blockingGet();
+        assertEquals(ROWS, subjects.size(), "Every row should arrive once");
+        assertEquals(ROWS, subjects.stream().map(Subject::getId).distinct().count(), "No row should repeat");
+    }
+
+    @Test
+    @DisplayName("Should emit only what downstream requested")
+    void backpressure() throws Exception {
+        int                     before     = activeConnections();
+        TestSubscriber<Subject> subscriber = DB.stream(Subject.class, "", Map.of(), 7).test(0);
+
+        subscriber.request(3);
+        subscriber.awaitCount(3);
+        Thread.sleep(200);
+        subscriber.assertValueCount(3).assertNotComplete();
+
+        subscriber.cancel();
+        // cancelling closes the cursor, its connection goes back to the pool
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (activeConnections() > before && System.nanoTime() < deadline) Thread.sleep(20);
+        assertEquals(before, activeConnections(), "Cursor connection should be released");
+    }
+}
@@ -0,0 +1,124 @@
+import enrollium.server.Main;
+import enrollium.server.TestHelper;
+import enrollium.server.db.DB;
+import enrollium.server.db.WriteBatcher;
+import enrollium.server.db.entity.types.CourseStatus;
+import enrollium.server.db.entity.types.TrimesterStatus;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+// manual benchmark: commit rate and p99 of Course.updateRegistration, one transaction per call vs group commit windows
+// needs the seeded demo database, run it by removing @Disabled; every course is put back where it was afterwards
+// https://www.postgresql.org/docs/current/wal-reliability.html
+
+
+@Disabled
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WriteBatchBenchmark {
+    private static final int                   THREADS           = 64;
+    private static final int                   DURATION          = 10; // seconds
+    private static final List<Integer>         WINDOWS           = List.of(0, 1, 2, 5, 10); // milliseconds
+    private final        Map<UUID, UUID>       original          = new HashMap<>();
+    private final        Map<UUID, UUID>       subject           = new HashMap<>();
+    private final        Map<UUID, List<UUID>> sectionsBySubject = new HashMap<>();
+
+    @BeforeAll
+    void load() {
+        DB.getSessionFactory().inTransaction(session -> {
+            session.createSelectionQuery("SELECT s.id, s.subject.id FROM Section s WHERE s.trimester.status = :status", Object[].class)
+                   .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                   .getResultList()
+                   .forEach(row -> sectionsBySubject.computeIfAbsent((UUID) row[1], _ -> new ArrayList<>()).add((UUID) row[0]));
+
+            session.createSelectionQuery("""
+                                         SELECT c.id, c.subject.id, sec.id FROM Course c LEFT JOIN c.section sec
+                                         WHERE c.trimester.status = :status AND c.status IN (:statuses)
+                                         """, Object[].class)
+                   .setParameter("status", TrimesterStatus.SECTION_SELECTION)
+                   .setParameter("statuses", List.of(CourseStatus.SELECTED, CourseStatus.REGISTERED))
+                   .getResultList()
+                   .forEach(row -> {
+                       if (!sectionsBySubject.containsKey((UUID) row[1])) return;
+                       original.put((UUID) row[0], (UUID) row[2]);
+                       subject.put((UUID) row[0], (UUID) row[1]);
+                   });
+        });
+
+        Assumptions.assumeTrue(!original.isEmpty(), "Needs the seeded database");
+    }
+
+    @AfterAll
+    void restore() {
+        // empty every section first, so nobody's original seat is taken by someone else
+        original.keySet().forEach(course -> TestHelper.register(course, null));
+        original.forEach((course, section) -> {
+            if (section != null) TestHelper.register(course, section);
+        });
+    }
+
+    @Test
+    @DisplayName("Registrations: commit per call vs group commit")
+    void windows() throws Exception {
+        // the same operation the batcher runs, in a transaction of its own
+        measure("no batching", null);
+
+        for (int window : WINDOWS) {
+            try (WriteBatcher batcher = new WriteBatcher(Duration.ofMillis(window), 64, 1)) {
+                measure("window " + window + " ms", batcher);
+            }
+        }
+    }
+
+    private void measure(String name, WriteBatcher batcher) throws Exception {
+        List<UUID>           courses  = new ArrayList<>(original.keySet());
+        ExecutorService      threads  = Executors.newFixedThreadPool(THREADS);
+        long                 deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION);
+        List<Future<long[]>> results  = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            results.add(threads.submit(() -> {
+                Random random    = new Random(offset);
+                long[] latencies = new long[1 << 18];
+                int    count     = 0;
+
+                for (int i = offset; System.nanoTime() < deadline && count < latencies.length; i += THREADS) {
+                    UUID       course   = courses.get(i % courses.size());
+                    List<UUID> sections = sectionsBySubject.get(subject.get(course));
+                    UUID       section  = random.nextInt(4) == 0 ? null : sections.get(random.nextInt(sections.size()));
+
+                    long start = System.nanoTime();
+                    try {
+                        if (batcher == null) {
+                            DB.getSessionFactory().inTransaction(session -> Main.registerCourse(session, course, section));
+                        } else {
+                            batcher.submit("bench", session -> Main.registerCourse(session, course, section)).blockingGet();
+                        }
+                    } catch (Exception _) {
+                        // full sections count too, the work was done
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] part  = result.get();
+            long[] merge = Arrays.copyOf(all, all.length + part.length);
+            System.arraycopy(part, 0, merge, all.length, part.length);
+            all = merge;
+        }
+        threads.shutdown();
+
+        Arrays.sort(all);
+        long p99     = all.length == 0 ? 0 : all[(int) (all.length * 0.99)] / 1_000;
+        long commits = batcher == null ? all.length : batcher.stats().batches();
+        System.out.printf("%-14s %8d ops/s %7d commits/s %6.1f ops/commit %7d us p99%n", //
+                          name, all.length / DURATION, commits / DURATION, commits == 0 ? 0.0 : (double) all.length / commits, p99);
+    }
+}
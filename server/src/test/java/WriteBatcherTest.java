@@ -0,0 +1,123 @@
+import enrollium.server.TestHelper;
+import enrollium.server.db.ChangeFeed;
+import enrollium.server.db.DB;
+import enrollium.server.db.WriteBatcher;
+import enrollium.server.db.entity.Subject;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.observers.TestObserver;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@DisplayName("Write Batcher Tests")
+class WriteBatcherTest {
+    private WriteBatcher batcher;
+
+    @BeforeAll
+    static void setupDatabase() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @AfterAll
+    static void finalCleanup() {
+        TestHelper.cleanupAllTestData();
+    }
+
+    @BeforeEach
+    void startBatcher() {
+        // a wide window so everything submitted by a test lands in one batch
+        batcher = new WriteBatcher(Duration.ofMillis(200), 64, 1);
+    }
+
+    @AfterEach
+    void stopBatcher() {
+        batcher.close();
+    }
+
+    @Test
+    @DisplayName("Should share one commit between queued writes")
+    void groupCommit() throws InterruptedException {
+        List<TestObserver<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID id = TestHelper.saveEntity(TestHelper.createValidSubject()).getId();
+            calls.add(rename(id, "Batched " + i).test());
+        }
+
+        for (TestObserver<String> call : calls) call.await().assertComplete();
+
+        assertEquals(20, batcher.stats().operations(), "Should run every write");
+        assertTrue(batcher.stats().batches() < 20, "Should commit writes together");
+    }
+
+    @Test
+    @DisplayName("Should fail only the operation that throws")
+    void isolateThrowingOperation() throws InterruptedException {
+        Subject first  = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject second = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        TestObserver<String> before = rename(first.getId(), "Renamed First").test();
+        TestObserver<String> broken = batcher.<String>submit("broken", session -> {
+            session.get(Subject.class, first.getId()).setName("Never Stored");
+            throw new IllegalStateException("broken on purpose");
+        }).test();
+        TestObserver<String> after = rename(second.getId(), "Renamed Second").test();
+
+        before.await().assertValue("Renamed First");
+        broken.await().assertError(IllegalStateException.class);
+        after.await().assertValue("Renamed Second");
+
+        assertEquals("Renamed First", DB.findById(Subject.class, first.getId()).blockingGet().getName(), "Should keep the earlier write");
+        assertEquals("Renamed Second", DB.findById(Subject.class, second.getId()).blockingGet().getName(), "Should keep the later write");
+    }
+
+    @Test
+    @DisplayName("Should fail only the operation that breaks validation on flush")
+    void isolateFlushFailure() throws InterruptedException {
+        Subject valid   = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject invalid = TestHelper.saveEntity(TestHelper.createValidSubject());
+
+        TestObserver<String> broken = rename(invalid.getId(), "").test();
+        TestObserver<String> fine   = rename(valid.getId(), "Still Renamed").test();
+
+        broken.await().assertError(Exception.class);
+        fine.await().assertValue("Still Renamed");
+
+        assertEquals("Still Renamed", DB.findById(Subject.class, valid.getId()).blockingGet().getName(), "Should commit the valid write");
+        assertEquals(invalid.getName(), DB.findById(Subject.class, invalid.getId()).blockingGet().getName(), "Should leave the invalid row alone");
+    }
+
+    @Test
+    @DisplayName("Should drop the after-commit hooks of an operation rolled back to its savepoint")
+    void dropRolledBackHooks() throws InterruptedException {
+        Subject kept    = TestHelper.saveEntity(TestHelper.createValidSubject());
+        Subject dropped = TestHelper.saveEntity(TestHelper.createValidSubject());
+        long    start   = ChangeFeed.since("Subject", 0).seq();
+
+        TestObserver<String> broken = batcher.<String>submit("broken", session -> {
+            session.get(Subject.class, dropped.getId()).setName("Flushed Then Undone");
+            session.flush(); // the update event fires here, before the operation fails
+            throw new IllegalStateException("broken on purpose");
+        }).test();
+        TestObserver<String> fine = rename(kept.getId(), "Announced").test();
+
+        broken.await().assertError(IllegalStateException.class);
+        fine.await().assertValue("Announced");
+
+        List<UUID> changed = ChangeFeed.since("Subject", start).changes().stream().map(ChangeFeed.Change::id).toList();
+        assertTrue(changed.contains(kept.getId()), "The committed operation should reach the change feed");
+        assertFalse(changed.contains(dropped.getId()), "The rolled back operation should leave no trace");
+    }
+
+    private Single<String> rename(UUID id, String name) {
+        return batcher.submit("rename", session -> {
+            session.get(Subject.class, id).setName(name);
+            return name;
+        });
+    }
+}